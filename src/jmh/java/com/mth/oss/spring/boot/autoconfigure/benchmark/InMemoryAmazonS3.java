@@ -0,0 +1,245 @@
+package com.mth.oss.spring.boot.autoconfigure.benchmark;
+
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.*;
+import com.mth.oss.spring.boot.autoconfigure.exception.IORuntimeException;
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内的 S3 替身，对象内容保存在堆内存中
+ * <p>
+ * 只实现 OssTemplate 基准测试用到的接口，用于排除网络与服务端耗时，单独度量模板自身的开销与内存分配
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public class InMemoryAmazonS3 extends AbstractAmazonS3 {
+
+    private final ConcurrentMap<String, ConcurrentSkipListMap<String, byte[]>> buckets = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, ConcurrentSkipListMap<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+    private final AtomicLong uploadIds = new AtomicLong();
+
+
+    @Override
+    public boolean doesBucketExistV2(String bucketName) {
+        return buckets.containsKey(bucketName);
+    }
+
+    @Override
+    public Bucket createBucket(String bucketName) {
+        buckets.computeIfAbsent(bucketName, name -> new ConcurrentSkipListMap<>());
+        return new Bucket(bucketName);
+    }
+
+    @Override
+    public PutObjectResult putObject(PutObjectRequest request) {
+        byte[] content = Objects.nonNull(request.getFile())
+                         ? readFile(request.getFile())
+                         : readStream(request.getInputStream());
+        bucket(request.getBucketName()).put(request.getKey(), content);
+
+        PutObjectResult result = new PutObjectResult();
+        result.setETag(eTag(content));
+        return result;
+    }
+
+    @Override
+    public S3Object getObject(GetObjectRequest request) {
+        byte[] content = content(request.getBucketName(), request.getKey());
+
+        S3Object object = new S3Object();
+        object.setBucketName(request.getBucketName());
+        object.setKey(request.getKey());
+        object.setObjectMetadata(metadata(content));
+        object.setObjectContent(new S3ObjectInputStream(new ByteArrayInputStream(content), null));
+        return object;
+    }
+
+    @Override
+    public ObjectMetadata getObject(GetObjectRequest request, File destinationFile) {
+        byte[] content = content(request.getBucketName(), request.getKey());
+        try {
+            Files.write(destinationFile.toPath(), content);
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+        return metadata(content);
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(GetObjectMetadataRequest request) {
+        return metadata(content(request.getBucketName(), request.getKey()));
+    }
+
+    @Override
+    public boolean doesObjectExist(String bucketName, String objectName) {
+        return bucket(bucketName).containsKey(objectName);
+    }
+
+    @Override
+    public CopyObjectResult copyObject(CopyObjectRequest request) {
+        byte[] content = content(request.getSourceBucketName(), request.getSourceKey());
+        bucket(request.getDestinationBucketName()).put(request.getDestinationKey(), content);
+
+        CopyObjectResult result = new CopyObjectResult();
+        result.setETag(eTag(content));
+        return result;
+    }
+
+    @Override
+    public void deleteObject(DeleteObjectRequest request) {
+        bucket(request.getBucketName()).remove(request.getKey());
+    }
+
+    @Override
+    public DeleteObjectsResult deleteObjects(DeleteObjectsRequest request) {
+        ConcurrentSkipListMap<String, byte[]> bucket = bucket(request.getBucketName());
+        request.getKeys().forEach(key -> bucket.remove(key.getKey()));
+        return new DeleteObjectsResult(Collections.emptyList());
+    }
+
+    @Override
+    public ListObjectsV2Result listObjectsV2(ListObjectsV2Request request) {
+        ConcurrentSkipListMap<String, byte[]> bucket = bucket(request.getBucketName());
+        String prefix = Objects.isNull(request.getPrefix()) ? "" : request.getPrefix();
+        String start = Objects.nonNull(request.getContinuationToken())
+                       ? request.getContinuationToken()
+                       : Objects.nonNull(request.getStartAfter()) ? request.getStartAfter() : prefix;
+        int maxKeys = Objects.isNull(request.getMaxKeys()) ? 1000 : request.getMaxKeys();
+
+        ListObjectsV2Result result = new ListObjectsV2Result();
+        result.setBucketName(request.getBucketName());
+        result.setPrefix(request.getPrefix());
+        for (Map.Entry<String, byte[]> entry : bucket.tailMap(start, false).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            if (result.getObjectSummaries().size() == maxKeys) {
+                result.setTruncated(true);
+                result.setNextContinuationToken(result.getObjectSummaries().get(maxKeys - 1).getKey());
+                break;
+            }
+
+            S3ObjectSummary summary = new S3ObjectSummary();
+            summary.setBucketName(request.getBucketName());
+            summary.setKey(entry.getKey());
+            summary.setSize(entry.getValue().length);
+            result.getObjectSummaries().add(summary);
+        }
+        result.setKeyCount(result.getObjectSummaries().size());
+        return result;
+    }
+
+    @Override
+    public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+        String uploadId = String.valueOf(uploadIds.incrementAndGet());
+        uploads.put(uploadId, new ConcurrentSkipListMap<>());
+
+        InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+        result.setBucketName(request.getBucketName());
+        result.setKey(request.getKey());
+        result.setUploadId(uploadId);
+        return result;
+    }
+
+    @Override
+    public UploadPartResult uploadPart(UploadPartRequest request) {
+        byte[] content;
+        if (Objects.nonNull(request.getFile())) {
+            content = new byte[Math.toIntExact(request.getPartSize())];
+            try (RandomAccessFile file = new RandomAccessFile(request.getFile(), "r")) {
+                file.seek(request.getFileOffset());
+                file.readFully(content);
+            } catch (IOException e) {
+                throw new IORuntimeException(e);
+            }
+        } else {
+            content = readStream(request.getInputStream());
+        }
+        uploads.get(request.getUploadId()).put(request.getPartNumber(), content);
+
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag(eTag(content));
+        return result;
+    }
+
+    @Override
+    public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        ConcurrentSkipListMap<Integer, byte[]> parts = uploads.remove(request.getUploadId());
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        parts.values().forEach(part -> content.write(part, 0, part.length));
+        byte[] bytes = content.toByteArray();
+        bucket(request.getBucketName()).put(request.getKey(), bytes);
+
+        CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+        result.setBucketName(request.getBucketName());
+        result.setKey(request.getKey());
+        result.setETag(eTag(bytes));
+        return result;
+    }
+
+    @Override
+    public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+        uploads.remove(request.getUploadId());
+    }
+
+    @Override
+    public void shutdown() {
+        buckets.clear();
+        uploads.clear();
+    }
+
+    private ConcurrentSkipListMap<String, byte[]> bucket(String bucketName) {
+        return buckets.computeIfAbsent(bucketName, name -> new ConcurrentSkipListMap<>());
+    }
+
+    private byte[] content(String bucketName, String objectKey) {
+        byte[] content = bucket(bucketName).get(objectKey);
+        if (Objects.isNull(content)) {
+            AmazonS3Exception exception = new AmazonS3Exception("The specified key does not exist.");
+            exception.setStatusCode(404);
+            exception.setErrorCode("NoSuchKey");
+            throw exception;
+        }
+        return content;
+    }
+
+    private static ObjectMetadata metadata(byte[] content) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(content.length);
+        metadata.setHeader("ETag", eTag(content));
+        return metadata;
+    }
+
+    private static String eTag(byte[] content) {
+        return Integer.toHexString(Arrays.hashCode(content));
+    }
+
+    private static byte[] readFile(File file) {
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+    }
+
+    private static byte[] readStream(InputStream inputStream) {
+        try (InputStream source = inputStream) {
+            return IOUtils.toByteArray(source);
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.mth.oss.spring.boot.autoconfigure.benchmark;
+
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import com.mth.oss.spring.boot.autoconfigure.core.local.LocalOssTemplate;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地存储上传、下载、拷贝基准测试，size 为对象大小（字节）
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalOssTemplateBenchmark {
+
+    private static final String SOURCE_KEY = "benchmark/source.bin";
+
+    @Param({"1024", "1048576", "16777216"})
+    private int size;
+
+    private File workDir;
+
+    private File sourceFile;
+
+    private File downloadFile;
+
+    private LocalOssTemplate localOssTemplate;
+
+
+    @Setup
+    public void setup() throws IOException {
+        workDir = Files.createTempDirectory("oss-benchmark-").toFile();
+        sourceFile = new File(workDir, "source.bin");
+        downloadFile = new File(workDir, "download.bin");
+
+        byte[] content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+        Files.write(sourceFile.toPath(), content);
+
+        OssProperties ossProperties = new OssProperties();
+        ossProperties.setLocalBasePath(new File(workDir, "store").getPath());
+        localOssTemplate = new LocalOssTemplate(ossProperties);
+        localOssTemplate.setOssHandler(null);
+        localOssTemplate.upload(sourceFile, SOURCE_KEY);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(workDir);
+    }
+
+    @Benchmark
+    public String upload() {
+        return localOssTemplate.upload(sourceFile, "benchmark/upload.bin");
+    }
+
+    @Benchmark
+    public byte[] downloadBytes() {
+        return localOssTemplate.download(SOURCE_KEY);
+    }
+
+    @Benchmark
+    public boolean downloadToFile() {
+        return localOssTemplate.download(SOURCE_KEY, downloadFile);
+    }
+
+    @Benchmark
+    public boolean copyObject() {
+        return localOssTemplate.copyObject(SOURCE_KEY, "benchmark/copy.bin");
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.mth.oss.spring.boot.autoconfigure.benchmark;
+
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.OssTemplate;
+import com.mth.oss.spring.boot.autoconfigure.core.local.LocalOssTemplate;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * object key 生成与路径处理基准测试
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectKeyBenchmark {
+
+    private final File file = new File("/data/upload/quarterly-report.final.pdf");
+
+    private OssTemplate ossTemplate;
+
+    private LocalOssTemplate localOssTemplate;
+
+
+    @Setup
+    public void setup() {
+        OssProperties ossProperties = new OssProperties();
+        ossProperties.setBucketName("benchmark");
+        ossProperties.setLocalBasePath("/data/oss");
+
+        ossTemplate = new OssTemplate(new InMemoryAmazonS3(), ossProperties);
+        ossTemplate.setOssHandler(null);
+        localOssTemplate = new LocalOssTemplate(ossProperties);
+        localOssTemplate.setOssHandler(null);
+    }
+
+    @Benchmark
+    public String defaultObjectKey() {
+        return ossTemplate.getDefaultObjectKey(file);
+    }
+
+    @Benchmark
+    public String trimPathCharacter() {
+        return ossTemplate.trimPathCharacter("/2024/01/02/quarterly-report.pdf/");
+    }
+
+    @Benchmark
+    public String completeObjectKey() {
+        return localOssTemplate.getCompleteObjectKey("2024\\01//02/quarterly-report.pdf");
+    }
+
+}
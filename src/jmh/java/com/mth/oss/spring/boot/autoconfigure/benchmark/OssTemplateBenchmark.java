@@ -0,0 +1,106 @@
+package com.mth.oss.spring.boot.autoconfigure.benchmark;
+
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.OssTemplate;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OssTemplate 对象操作基准测试
+ * <p>
+ * 客户端为进程内的 {@link InMemoryAmazonS3}，结果只包含模板、扩展点与 SDK 模型对象的开销；
+ * size 为对象大小（字节），32MB 超过默认分片上传阈值，上传走并发分片上传
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OssTemplateBenchmark {
+
+    private static final String SOURCE_KEY = "benchmark/source.bin";
+
+    @Param({"1024", "1048576", "33554432"})
+    private int size;
+
+    private File workDir;
+
+    private File sourceFile;
+
+    private File downloadFile;
+
+    private ExecutorService transferExecutor;
+
+    private OssTemplate ossTemplate;
+
+
+    @Setup
+    public void setup() throws IOException {
+        workDir = Files.createTempDirectory("oss-benchmark-").toFile();
+        sourceFile = new File(workDir, "source.bin");
+        downloadFile = new File(workDir, "download.bin");
+
+        byte[] content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+        Files.write(sourceFile.toPath(), content);
+
+        OssProperties ossProperties = new OssProperties();
+        ossProperties.setBucketName("benchmark");
+
+        transferExecutor = Executors.newFixedThreadPool(ossProperties.getTransfer().getPoolSize());
+        ossTemplate = new OssTemplate(new InMemoryAmazonS3(), ossProperties);
+        ossTemplate.setOssHandler(null);
+        ossTemplate.setTransferExecutor(transferExecutor);
+        ossTemplate.upload(sourceFile, SOURCE_KEY);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ossTemplate.shutdown();
+        FileUtils.deleteDirectory(workDir);
+    }
+
+    @Benchmark
+    public String upload() {
+        return ossTemplate.upload(sourceFile, "benchmark/upload.bin");
+    }
+
+    @Benchmark
+    public byte[] downloadBytes() throws IOException {
+        return ossTemplate.download(SOURCE_KEY);
+    }
+
+    @Benchmark
+    public ByteBuffer downloadToByteBuffer() throws IOException {
+        return ossTemplate.downloadToByteBuffer(SOURCE_KEY);
+    }
+
+    @Benchmark
+    public boolean downloadToFile() {
+        return ossTemplate.download(SOURCE_KEY, downloadFile);
+    }
+
+    @Benchmark
+    public boolean objectExist() {
+        return ossTemplate.objectExist(SOURCE_KEY);
+    }
+
+    @Benchmark
+    public boolean copyObject() {
+        return ossTemplate.copyObject(SOURCE_KEY, "benchmark/copy.bin");
+    }
+
+}
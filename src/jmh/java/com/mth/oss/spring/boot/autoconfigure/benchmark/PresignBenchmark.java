@@ -0,0 +1,91 @@
+package com.mth.oss.spring.boot.autoconfigure.benchmark;
+
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.OssTemplate;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.PresignedUrlCache;
+import com.mth.oss.spring.boot.autoconfigure.factory.OssClientFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预签名 URL 生成基准测试
+ * <p>
+ * 使用真实的 SDK 客户端签名（签名在本地完成，不访问网络），对比开启与关闭预签名 URL 缓存时的吞吐量；
+ * keys 为轮流签名的不同对象数
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PresignBenchmark {
+
+    @Param({"false", "true"})
+    private boolean cached;
+
+    @Param({"1", "1000"})
+    private int keys;
+
+    private OssClientFactory ossClientFactory;
+
+    private OssTemplate ossTemplate;
+
+    private String[] objectKeys;
+
+
+    @Setup
+    public void setup() {
+        OssProperties ossProperties = new OssProperties();
+        ossProperties.setEndpoint("http://127.0.0.1:9000");
+        ossProperties.setRegion("us-east-1");
+        ossProperties.setAccessKeyId("benchmark");
+        ossProperties.setAccessKeySecret("benchmark-secret");
+        ossProperties.setBucketName("benchmark");
+        ossProperties.setPathStyleAccess(true);
+
+        ossClientFactory = new OssClientFactory(ossProperties);
+        ossTemplate = new OssTemplate(ossClientFactory.getAwsClient(), ossProperties);
+        ossTemplate.setOssHandler(null);
+        if (cached) {
+            ossTemplate.setPresignedUrlCache(new PresignedUrlCache(ossProperties.getPresignCache()));
+        }
+
+        objectKeys = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            objectKeys[i] = "2024/01/02/object-" + i + ".bin";
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        ossClientFactory.destroy();
+    }
+
+    @Benchmark
+    public URL presignedUrlForAccess(Cursor cursor) {
+        return ossTemplate.presignedUrlForAccess(objectKeys[cursor.next(keys)]);
+    }
+
+    /**
+     * 每个线程独立轮转对象
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int position;
+
+        int next(int bound) {
+            int current = position;
+            position = current + 1 == bound ? 0 : current + 1;
+            return current;
+        }
+
+    }
+
+}
@@ -2,6 +2,11 @@ package com.mth.oss.spring.boot.autoconfigure;
 
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * oss 配置
@@ -60,4 +65,572 @@ public class OssProperties {
      */
     private String localBasePath;
 
+    /**
+     * Local 本地对象存储配置
+     *
+     * @since 1.4
+     */
+    private Local local = new Local();
+
+    /**
+     * 默认客户端的连接配置，同时作为命名客户端未配置项的默认值
+     *
+     * @since 1.4
+     */
+    private Client client = new Client();
+
+    /**
+     * 命名客户端，key 为客户端名称；未配置的项依次取 client 配置与顶层配置
+     * <p>
+     * 用于隔离不同业务的连接池，例如批量任务与在线请求分别使用独立的客户端
+     *
+     * @since 1.4
+     */
+    private Map<String, Client> clients = new LinkedHashMap<>();
+
+    /**
+     * 传输配置：大文件并发分片上传、并发分段下载等
+     *
+     * @since 1.4
+     */
+    private Transfer transfer = new Transfer();
+
+    /**
+     * 异步操作配置
+     *
+     * @since 1.4
+     */
+    private Async async = new Async();
+
+    /**
+     * 并行列举配置
+     *
+     * @since 1.4
+     */
+    private Listing listing = new Listing();
+
+    /**
+     * 预签名 URL 缓存配置
+     *
+     * @since 1.4
+     */
+    private PresignCache presignCache = new PresignCache();
+
+    /**
+     * 对象磁盘缓存配置
+     *
+     * @since 1.4
+     */
+    private DiskCache diskCache = new DiskCache();
+
+    /**
+     * 小对象内存缓存配置
+     *
+     * @since 1.4
+     */
+    private MemoryCache memoryCache = new MemoryCache();
+
+    /**
+     * 对象元数据缓存配置
+     *
+     * @since 1.4
+     */
+    private MetadataCache metadataCache = new MetadataCache();
+
+    /**
+     * 传输进度报告配置
+     *
+     * @since 1.4
+     */
+    private Progress progress = new Progress();
+
+    /**
+     * Micrometer 指标配置
+     *
+     * @since 1.4
+     */
+    private Metrics metrics = new Metrics();
+
+    /**
+     * 内嵌 S3 协议服务配置，以 localBasePath 为存储目录对外提供 S3 接口
+     *
+     * @since 1.4
+     */
+    private LocalServer localServer = new LocalServer();
+
+
+    /**
+     * Local 本地对象存储配置
+     *
+     * @since 1.4
+     */
+    @Data
+    public static class Local {
+
+        /**
+         * 拷贝文件时是否创建硬链接代替复制数据（默认 false）。
+         * 覆盖上传总是写入新文件后重命名，不会改动与其共享数据的其他对象；跨文件系统等无法创建硬链接时退回复制
+         */
+        private Boolean hardLinkCopy = false;
+        /**
+         * 是否按内容去重（默认 false）：相同内容只在存储目录下的 .blobs 目录保存一份，对象文件是指向它的硬链接，
+         * 拷贝只创建链接，重复上传已有内容的文件时不再写入数据。需要文件系统支持硬链接，
+         * 不再被引用的内容由 collectGarbage 回收
+         */
+        private Boolean deduplicate = false;
+        /**
+         * 上传的持久化方式（默认 none）。无论哪种方式，数据都先写入同目录下的临时文件再原子重命名，读者不会看到写了一半的文件：
+         * none 不主动刷盘，由操作系统回写；fsync 每个文件写完后同步刷盘；
+         * group-commit 由后台线程合并并发上传的刷盘，上传在所在批次落盘后返回
+         */
+        private Durability durability = Durability.NONE;
+        /**
+         * group-commit 模式下后台线程收到第一个刷盘请求后等待同批请求的时间（默认 2ms），为 0 时只合并已在排队的请求
+         */
+        private Duration groupCommitWindow = Duration.ofMillis(2);
+        /**
+         * 内存映射缓存的映射总字节数上限（默认 1GB），占用的是虚拟地址空间与页缓存而非堆内存；
+         * 超过该值的文件按区域映射且不缓存
+         */
+        private DataSize mappedCacheSize = DataSize.ofGigabytes(1);
+        /**
+         * 内存映射缓存的映射个数上限（默认 1024），每个映射占用一个进程内存映射区
+         */
+        private Integer mappedCacheEntries = 1024;
+        /**
+         * 目录布局（默认 flat）：flat 按对象键直接存放；
+         * hashed 在文件名之前插入由对象键哈希得出的目录，避免同一目录下文件过多，对象键保持不变。
+         * 修改已有存储目录的布局需使用 LocalLayoutMigrator 迁移
+         */
+        private Layout layout = Layout.FLAT;
+        /**
+         * hashed 布局的哈希目录层数（默认 2，取值 1 ~ 4），每层最多 256 个子目录
+         */
+        private Integer layoutDepth = 2;
+        /**
+         * 是否维护对象元数据索引（默认 false）：索引以追加日志保存在存储目录下的 .index 目录，
+         * 上传、拷贝、删除时更新，用于查询元数据与按前缀列举；开启后首次使用时扫描已有对象建立索引，
+         * 从文件上传时额外读取一遍文件计算校验值。关闭时列举遍历前缀所在的目录
+         */
+        private Boolean indexEnabled = false;
+        /**
+         * 并行遍历存储目录的线程数（默认 CPU 核数），用于未开启索引时的列举、重建索引与用量统计
+         */
+        private Integer walkParallelism = Runtime.getRuntime().availableProcessors();
+        /**
+         * 并行遍历的对象流缓冲区容量（默认 10000），缓冲区满时遍历线程等待调用方消费
+         */
+        private Integer walkBufferCapacity = 10000;
+
+        /**
+         * 上传的持久化方式
+         */
+        public enum Durability {
+            /**
+             * 不主动刷盘
+             */
+            NONE,
+            /**
+             * 每个文件同步刷盘
+             */
+            FSYNC,
+            /**
+             * 后台线程批量刷盘
+             */
+            GROUP_COMMIT
+        }
+
+        /**
+         * 目录布局
+         */
+        public enum Layout {
+            /**
+             * 按对象键直接存放
+             */
+            FLAT,
+            /**
+             * 按对象键哈希分散存放
+             */
+            HASHED
+        }
+
+    }
+
+    /**
+     * 客户端配置，所有项为空时继承上一级配置
+     *
+     * @since 1.4
+     */
+    @Data
+    public static class Client {
+
+        /**
+         * region
+         */
+        private String region;
+        /**
+         * endpoint
+         */
+        private String endpoint;
+        /**
+         * accessKeyId
+         */
+        private String accessKeyId;
+        /**
+         * accessKeySecret
+         */
+        private String accessKeySecret;
+        /**
+         * 存储空间名
+         */
+        private String bucketName;
+        /**
+         * 是否使用路径请求风格
+         */
+        private Boolean pathStyleAccess;
+        /**
+         * 连接池最大连接数（默认 50）
+         */
+        private Integer maxConnections;
+        /**
+         * 建立连接超时时间（默认 10 秒）
+         */
+        private Duration connectionTimeout;
+        /**
+         * 读取数据超时时间（默认 50 秒）
+         */
+        private Duration socketTimeout;
+        /**
+         * 单次 HTTP 请求超时时间（默认不限制）
+         */
+        private Duration requestTimeout;
+        /**
+         * 是否开启 TCP keep-alive（默认 true）
+         */
+        private Boolean tcpKeepAlive;
+        /**
+         * 是否由后台线程回收空闲连接（默认 true）
+         */
+        private Boolean useReaper;
+        /**
+         * 连接最大空闲时间，超过后被回收（默认 60 秒）
+         */
+        private Duration connectionMaxIdle;
+        /**
+         * 连接最大存活时间（默认不限制）
+         */
+        private Duration connectionTtl;
+        /**
+         * 请求失败最大重试次数（默认 3）
+         */
+        private Integer maxErrorRetry;
+
+    }
+
+    /**
+     * 传输配置
+     *
+     * @since 1.4
+     */
+    @Data
+    public static class Transfer {
+
+        /**
+         * 分片上传阈值（默认 16MB）：文件大小达到该值时自动使用并发分片上传，否则使用单次 PUT 上传
+         */
+        private DataSize multipartUploadThreshold = DataSize.ofMegabytes(16);
+        /**
+         * 最小分片大小（默认 8MB）：S3 协议要求除最后一个分片外，分片大小不能小于 5MB；
+         * 文件过大时会自动增大分片，保证分片数不超过 10000
+         */
+        private DataSize minimumPartSize = DataSize.ofMegabytes(8);
+        /**
+         * 分片拷贝阈值（默认 128MB）：源对象大小达到该值时并发拷贝各分片，否则使用单次 CopyObject；
+         * 单次 CopyObject 最大支持 5GB，该值不应超过 5GB
+         */
+        private DataSize multipartCopyThreshold = DataSize.ofMegabytes(128);
+        /**
+         * 分片拷贝时每个分片的大小（默认 64MB），对象过大时自动增大，保证分片数不超过 10000
+         */
+        private DataSize copyPartSize = DataSize.ofMegabytes(64);
+        /**
+         * 单个传输任务的最大并发分片数（默认 8）
+         */
+        private Integer concurrency = 8;
+        /**
+         * 传输线程池大小（默认 16），所有传输任务共享
+         */
+        private Integer poolSize = 16;
+        /**
+         * 是否开启并发分段下载（默认关闭）：开启后下载到文件时按字节范围并发获取对象
+         */
+        private Boolean rangedDownloadEnabled = false;
+        /**
+         * 分段下载时每段的大小（默认 8MB）
+         */
+        private DataSize downloadPartSize = DataSize.ofMegabytes(8);
+        /**
+         * 分段下载时单个分段失败后的续传次数（默认 3）
+         */
+        private Integer rangeRetryAttempts = 3;
+        /**
+         * 批量删除时同时在途的删除请求数（默认 8），每个请求最多删除 1000 个对象
+         */
+        private Integer deleteConcurrency = 8;
+        /**
+         * 是否合并并发下载（默认关闭）：开启后同一对象的并发获取只请求一次，内容分发给所有调用方
+         */
+        private Boolean coalesceDownloads = false;
+        /**
+         * 合并下载时在内存中保存内容的最大对象大小（默认 8MB），更大或长度未知的对象写入临时文件
+         */
+        private DataSize coalesceMemoryLimit = DataSize.ofMegabytes(8);
+        /**
+         * 合并下载的临时文件目录（默认系统临时目录）
+         */
+        private String coalesceSpillDirectory;
+
+    }
+
+    /**
+     * 异步操作配置
+     *
+     * @since 1.4
+     */
+    @Data
+    public static class Async {
+
+        /**
+         * 核心线程数（默认 8）
+         */
+        private Integer corePoolSize = 8;
+        /**
+         * 最大线程数（默认 32）
+         */
+        private Integer maxPoolSize = 32;
+        /**
+         * 等待队列长度（默认 1000），队列满时提交的任务以异常完成
+         */
+        private Integer queueCapacity = 1000;
+        /**
+         * 空闲线程存活时间（默认 60 秒）
+         */
+        private Duration keepAlive = Duration.ofSeconds(60);
+
+    }
+
+    /**
+     * 并行列举配置
+     *
+     * @since 1.4
+     */
+    @Data
+    public static class Listing {
+
+        /**
+         * 单次列举同时列举的分片数（默认 8）
+         */
+        private Integer parallelism = 8;
+        /**
+         * 按目录划分分片时向下发现子目录的最大层数（默认 2），分片数达到 parallelism 后不再向下发现
+         */
+        private Integer discoveryDepth = 2;
+        /**
+         * 列举结果缓冲区容量（默认 10000），缓冲区满时列举线程等待调用方消费
+         */
+        private Integer bufferCapacity = 10000;
+
+    }
+
+    /**
+     * 预签名 URL 缓存配置
+     *
+     * @since 1.4
+     */
+    @Data
+    public static class PresignCache {
+
+        /**
+         * 是否启用（默认 false）
+         */
+        private Boolean enabled = false;
+        /**
+         * 最大缓存条目数（默认 10000）
+         */
+        private Integer maximumSize = 10000;
+        /**
+         * 复用缓存 URL 所需的最小剩余有效期占比（默认 0.5），例如有效期 1 小时时，剩余不足 30 分钟即重新签名
+         */
+        private Double minRemainingRatio = 0.5;
+
+    }
+
+    /**
+     * 对象磁盘缓存配置
+     *
+     * @since 1.4
+     */
+    @Data
+    public static class DiskCache {
+
+        /**
+         * 是否启用（默认 false），需同时配置 directory
+         */
+        private Boolean enabled = false;
+        /**
+         * 缓存目录，不能与 localBasePath 相同
+         */
+        private String directory;
+        /**
+         * 缓存文件总字节数上限（默认 10GB），超过时淘汰至上限的 90%
+         */
+        private DataSize maxSize = DataSize.ofGigabytes(10);
+        /**
+         * 可缓存的单个对象大小上限（默认 512MB），更大的对象直接从对象存储读取
+         */
+        private DataSize maxObjectSize = DataSize.ofMegabytes(512);
+        /**
+         * 淘汰策略（默认 lru）
+         */
+        private Eviction eviction = Eviction.LRU;
+        /**
+         * 条目校验后直接使用的时长（默认 1 分钟），超过后以 ETag 发起条件请求确认对象未修改；为 0 时每次读取都校验
+         */
+        private Duration revalidateInterval = Duration.ofMinutes(1);
+
+        /**
+         * 淘汰策略
+         */
+        public enum Eviction {
+            /**
+             * 淘汰最久未访问的条目
+             */
+            LRU,
+            /**
+             * 淘汰访问次数最少的条目，次数相同时淘汰最久未访问的；每轮淘汰后访问次数减半
+             */
+            LFU
+        }
+
+    }
+
+    /**
+     * 小对象内存缓存配置
+     *
+     * @since 1.4
+     */
+    @Data
+    public static class MemoryCache {
+
+        /**
+         * 是否启用（默认 false）
+         */
+        private Boolean enabled = false;
+        /**
+         * 缓存内容总字节数上限（默认 64MB），占用堆内存
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+        /**
+         * 可缓存的单个对象大小上限（默认 256KB），更大或长度未知的对象不缓存
+         */
+        private DataSize maxObjectSize = DataSize.ofKilobytes(256);
+        /**
+         * 条目写入或校验后直接使用的时长（默认 1 分钟），超过后以 ETag 发起条件请求确认对象未修改
+         */
+        private Duration timeToLive = Duration.ofMinutes(1);
+
+    }
+
+    /**
+     * 对象元数据缓存配置
+     *
+     * @since 1.4
+     */
+    @Data
+    public static class MetadataCache {
+
+        /**
+         * 是否启用（默认 false）
+         */
+        private Boolean enabled = false;
+        /**
+         * 最大缓存条目数（默认 10000）
+         */
+        private Integer maximumSize = 10000;
+        /**
+         * 对象存在时元数据的缓存时长（默认 1 分钟），期间其他途径对对象的修改不可见
+         */
+        private Duration timeToLive = Duration.ofMinutes(1);
+        /**
+         * 对象不存在的结果的缓存时长（默认 10 秒），为 0 时不缓存
+         */
+        private Duration negativeTimeToLive = Duration.ofSeconds(10);
+
+    }
+
+    /**
+     * 传输进度报告配置
+     *
+     * @since 1.4
+     */
+    @Data
+    public static class Progress {
+
+        /**
+         * 是否启用（默认 false），关闭时不安装进度监听器
+         */
+        private Boolean enabled = false;
+        /**
+         * 采样并回调的间隔（默认 1 秒）
+         */
+        private Duration interval = Duration.ofSeconds(1);
+        /**
+         * 超过该时间没有进度的传输停止跟踪（默认 5 分钟）
+         */
+        private Duration idleTimeout = Duration.ofMinutes(5);
+
+    }
+
+    /**
+     * Micrometer 指标配置
+     *
+     * @since 1.4
+     */
+    @Data
+    public static class Metrics {
+
+        /**
+         * 是否记录操作指标（默认 true），类路径中存在 Micrometer 时生效
+         */
+        private Boolean enabled = true;
+
+    }
+
+    /**
+     * 内嵌 S3 协议服务配置
+     *
+     * @since 1.4
+     */
+    @Data
+    public static class LocalServer {
+
+        /**
+         * 是否启用（默认 false），需同时配置 localBasePath
+         */
+        private Boolean enabled = false;
+        /**
+         * 监听地址（默认 127.0.0.1），服务不校验请求签名，监听其他地址前需确认网络可信
+         */
+        private String host = "127.0.0.1";
+        /**
+         * 监听端口（默认 9000），0 表示随机端口
+         */
+        private Integer port = 9000;
+        /**
+         * 处理请求的线程数（默认 16）
+         */
+        private Integer threads = 16;
+
+    }
+
 }
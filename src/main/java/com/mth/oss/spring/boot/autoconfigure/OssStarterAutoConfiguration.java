@@ -1,9 +1,23 @@
 package com.mth.oss.spring.boot.autoconfigure;
 
 import com.amazonaws.services.s3.AmazonS3;
+import com.mth.oss.spring.boot.autoconfigure.core.OssAsyncExecutor;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.OssAsyncTemplate;
 import com.mth.oss.spring.boot.autoconfigure.core.aws.OssTemplate;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.ObjectDiskCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.ObjectMemoryCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.ObjectMetadataCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.PresignedUrlCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.transfer.TransferExecutors;
+import com.mth.oss.spring.boot.autoconfigure.core.local.LocalOssAsyncTemplate;
 import com.mth.oss.spring.boot.autoconfigure.core.local.LocalOssTemplate;
+import com.mth.oss.spring.boot.autoconfigure.core.local.server.LocalOssServer;
 import com.mth.oss.spring.boot.autoconfigure.handler.DefaultOssHandler;
+import com.mth.oss.spring.boot.autoconfigure.progress.LoggingProgressCallback;
+import com.mth.oss.spring.boot.autoconfigure.progress.ProgressReporter;
+import com.mth.oss.spring.boot.autoconfigure.progress.TransferProgressCallback;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -12,6 +26,10 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
 /**
  * Bean 注入配置
  *
@@ -26,12 +44,71 @@ public class OssStarterAutoConfiguration {
     @Bean
     @ConditionalOnMissingBean
     @ConditionalOnProperty(prefix = "oss", name = "enable", havingValue = "true")
-    public OssTemplate ossTemplate(AmazonS3 client, OssProperties ossProperties) {
+    public OssTemplate ossTemplate(AmazonS3 client, OssProperties ossProperties,
+                                   ObjectProvider<PresignedUrlCache> presignedUrlCache,
+                                   ObjectProvider<ObjectDiskCache> objectDiskCache,
+                                   ObjectProvider<ObjectMemoryCache> objectMemoryCache,
+                                   ObjectProvider<ObjectMetadataCache> objectMetadataCache,
+                                   ObjectProvider<ProgressReporter> progressReporter) {
+        DefaultOssHandler ossHandler = new DefaultOssHandler();
+        progressReporter.ifAvailable(ossHandler::setProgressReporter);
+
         OssTemplate ossTemplate = new OssTemplate(client, ossProperties);
-        ossTemplate.setOssHandler(new DefaultOssHandler());
+        ossTemplate.setOssHandler(ossHandler);
+        ossTemplate.setTransferExecutor(TransferExecutors.newTransferExecutor(ossProperties.getTransfer()));
+        presignedUrlCache.ifAvailable(ossTemplate::setPresignedUrlCache);
+        objectDiskCache.ifAvailable(ossTemplate::setObjectDiskCache);
+        objectMemoryCache.ifAvailable(ossTemplate::setObjectMemoryCache);
+        objectMetadataCache.ifAvailable(ossTemplate::setObjectMetadataCache);
         return ossTemplate;
     }
 
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "oss", name = "enable", havingValue = "true")
+    @ConditionalOnExpression("${oss.presign-cache.enabled:false}")
+    public PresignedUrlCache presignedUrlCache(OssProperties ossProperties) {
+        return new PresignedUrlCache(ossProperties.getPresignCache());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "oss", name = "enable", havingValue = "true")
+    @ConditionalOnExpression("${oss.disk-cache.enabled:false}")
+    public ObjectDiskCache objectDiskCache(OssProperties ossProperties) {
+        return new ObjectDiskCache(ossProperties.getDiskCache());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "oss", name = "enable", havingValue = "true")
+    @ConditionalOnExpression("${oss.memory-cache.enabled:false}")
+    public ObjectMemoryCache objectMemoryCache(OssProperties ossProperties) {
+        return new ObjectMemoryCache(ossProperties.getMemoryCache());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "oss", name = "enable", havingValue = "true")
+    @ConditionalOnExpression("${oss.metadata-cache.enabled:false}")
+    public ObjectMetadataCache objectMetadataCache(OssProperties ossProperties) {
+        return new ObjectMetadataCache(ossProperties.getMetadataCache());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "oss", name = "enable", havingValue = "true")
+    @ConditionalOnExpression("${oss.progress.enabled:false}")
+    public ProgressReporter progressReporter(OssProperties ossProperties,
+                                             ObjectProvider<TransferProgressCallback> callbacks) {
+        List<TransferProgressCallback> progressCallbacks = callbacks.orderedStream()
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (progressCallbacks.isEmpty()) {
+            progressCallbacks.add(new LoggingProgressCallback());
+        }
+        return new ProgressReporter(ossProperties.getProgress(), progressCallbacks);
+    }
+
     @Bean
     @ConditionalOnMissingBean
     @ConditionalOnProperty(prefix = "oss", name = "enable", havingValue = "true")
@@ -43,4 +120,38 @@ public class OssStarterAutoConfiguration {
         return localOssTemplate;
     }
 
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(LocalOssTemplate.class)
+    @ConditionalOnExpression("${oss.local-server.enabled:false}")
+    public LocalOssServer localOssServer(LocalOssTemplate localOssTemplate, OssProperties ossProperties) {
+        LocalOssServer localOssServer = new LocalOssServer(localOssTemplate, ossProperties);
+        localOssServer.start();
+        return localOssServer;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "oss", name = "enable", havingValue = "true")
+    public OssAsyncExecutor ossAsyncExecutor(OssProperties ossProperties) {
+        return new OssAsyncExecutor(ossProperties.getAsync());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "oss", name = "enable", havingValue = "true")
+    public OssAsyncTemplate ossAsyncTemplate(OssTemplate ossTemplate, OssAsyncExecutor ossAsyncExecutor) {
+        return new OssAsyncTemplate(ossTemplate, ossAsyncExecutor);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "oss", name = "enable", havingValue = "true")
+    @ConditionalOnExpression(
+            "#{ environment['oss.local-base-path'] != null && !''.equals(environment['oss.local-base-path']) }")
+    public LocalOssAsyncTemplate localOssAsyncTemplate(LocalOssTemplate localOssTemplate,
+                                                       OssAsyncExecutor ossAsyncExecutor) {
+        return new LocalOssAsyncTemplate(localOssTemplate, ossAsyncExecutor);
+    }
+
 }
@@ -0,0 +1,110 @@
+package com.mth.oss.spring.boot.autoconfigure.core;
+
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.*;
+
+/**
+ * 异步操作线程池
+ * <p>
+ * 有界线程池 + 有界队列，队列满时提交的任务以 {@link RejectedExecutionException} 异常完成；
+ * 返回的 {@link CompletableFuture} 被取消时会中断正在执行的任务
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public class OssAsyncExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+
+    /**
+     * @param async 异步操作配置
+     */
+    public OssAsyncExecutor(OssProperties.Async async) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("oss-async-");
+        threadFactory.setDaemon(true);
+
+        this.executor = new ThreadPoolExecutor(async.getCorePoolSize(), async.getMaxPoolSize(),
+                                               async.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS,
+                                               new ArrayBlockingQueue<>(async.getQueueCapacity()), threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 提交异步任务
+     *
+     * @param task 任务
+     * @param <T>  任务结果类型
+     * @return 任务结果，取消时中断正在执行的任务
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CancellableFuture<T> future = new CancellableFuture<>();
+        FutureTask<Void> runner = new FutureTask<>(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }, null);
+        future.runner = runner;
+
+        try {
+            executor.execute(runner);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 提交无返回值的异步任务
+     *
+     * @param task 任务
+     * @return 任务结果，取消时中断正在执行的任务
+     */
+    public CompletableFuture<Void> run(ThrowingRunnable task) {
+        return submit(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * 关闭线程池，中断正在执行的任务
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 可抛出受检异常的无返回值任务
+     */
+    @FunctionalInterface
+    public interface ThrowingRunnable {
+
+        void run() throws Exception;
+
+    }
+
+    /**
+     * 取消时一并中断执行线程的 CompletableFuture
+     */
+    private static final class CancellableFuture<T> extends CompletableFuture<T> {
+
+        private volatile Future<?> runner;
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            Future<?> current = runner;
+            if (cancelled && current != null) {
+                current.cancel(true);
+            }
+            return cancelled;
+        }
+
+    }
+
+}
@@ -0,0 +1,233 @@
+package com.mth.oss.spring.boot.autoconfigure.core.aws;
+
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对象存储服务异步接口
+ * <p>
+ * 与 {@link OssOperations} 对应，所有操作在有界的异步线程池中执行，调用线程不会阻塞；
+ * 取消返回的 {@link CompletableFuture} 会中断正在执行的操作
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public interface OssAsyncOperations {
+
+    // ------------------------------------------------------------
+    // ----------------------- upload 上传 ------------------------
+    // ------------------------------------------------------------
+
+    /**
+     * 通用上传文件
+     *
+     * @param file 文件
+     * @return 存储对象完整路径
+     * @see OssOperations#upload(File)
+     */
+    CompletableFuture<String> upload(File file);
+
+    /**
+     * 通用上传文件，指定 Object 完整路径
+     *
+     * @param file      文件
+     * @param objectKey Object 完整路径，不能包含Bucket名称，例如 exampleDir/exampleObject.txt
+     * @return 存储对象完整路径
+     */
+    CompletableFuture<String> upload(File file, String objectKey);
+
+    /**
+     * 流式上传，流在上传完成前不能关闭
+     *
+     * @param inputStream 流对象
+     * @param objectKey   Object 完整路径，不能包含Bucket名称，例如 exampleDir/exampleObject.txt
+     * @param contentType 文件内容类型
+     * @return 存储对象完整路径
+     */
+    CompletableFuture<String> upload(InputStream inputStream, String objectKey, String contentType);
+
+    /**
+     * 文件上传，用户可自行组装请求对象
+     *
+     * @param putObjectRequest 请求对象
+     * @return 存储对象完整路径
+     */
+    CompletableFuture<String> upload(PutObjectRequest putObjectRequest);
+
+
+    // ------------------------------------------------------------
+    // ---------------------- download 下载 -----------------------
+    // ------------------------------------------------------------
+
+    /**
+     * 下载到指定 File 中
+     *
+     * @param objectKey Object 完整路径
+     * @param file      指定下载的文件，如果本地存在该文件会覆盖，不存在则新建。
+     * @return 下载成功true；否则false
+     */
+    CompletableFuture<Boolean> download(String objectKey, File file);
+
+    /**
+     * 下载 byte 数组
+     *
+     * @param objectKey Object 完整路径
+     * @return byte数组
+     */
+    CompletableFuture<byte[]> download(String objectKey);
+
+    /**
+     * 下载到指定输出流，输出流由调用方关闭
+     *
+     * @param objectKey    Object 完整路径
+     * @param outputStream 输出流
+     * @return 下载完成
+     */
+    CompletableFuture<Void> download(String objectKey, OutputStream outputStream);
+
+
+    // ------------------------------------------------------------
+    // ------------------ object manage 文件管理 -------------------
+    // ------------------------------------------------------------
+
+    /**
+     * 判断文件是否存在
+     *
+     * @param objectKey Object完整路径，不能包含Bucket名称
+     * @return 存在true；不存在false
+     */
+    CompletableFuture<Boolean> objectExist(String objectKey);
+
+    /**
+     * 获取文件元数据
+     *
+     * @param objectKey Object完整路径，不能包含Bucket名称
+     * @return 文件元数据，文件不存在时为空
+     * @since 1.4
+     */
+    CompletableFuture<ObjectMetadata> getObjectMetadata(String objectKey);
+
+    /**
+     * 列举文件
+     *
+     * @param prefix 指定路径前缀
+     * @return 集合文件对象
+     */
+    CompletableFuture<List<S3ObjectSummary>> listObjects(String prefix);
+
+    /**
+     * 列举文件
+     *
+     * @param request 请求对象
+     * @return 集合文件对象
+     */
+    CompletableFuture<List<S3ObjectSummary>> listObjects(ListObjectsV2Request request);
+
+    /**
+     * 删除单个文件
+     *
+     * @param objectKey Object完整路径，不能包含Bucket名称
+     * @return 是否删除成功，删除成功true；删除失败false
+     */
+    CompletableFuture<Boolean> deleteObject(String objectKey);
+
+    /**
+     * 删除指定的多个文件
+     *
+     * @param objectKeys Object完整路径集合，不能包含Bucket名称
+     * @return 删除失败的文件列表及原因
+     */
+    CompletableFuture<List<MultiObjectDeleteException.DeleteError>> deleteObjects(List<String> objectKeys);
+
+    /**
+     * 删除指定前缀下的全部文件
+     *
+     * @param prefix 路径前缀，不能为空
+     * @return 删除失败的文件列表及原因
+     * @see OssOperations#deletePrefix(String)
+     */
+    CompletableFuture<List<MultiObjectDeleteException.DeleteError>> deletePrefix(String prefix);
+
+    /**
+     * 拷贝文件
+     *
+     * @param sourceKey      源Object完整路径
+     * @param destinationKey 目标Object完整路径
+     * @return 是否拷贝成功，拷贝成功true；拷贝失败false
+     */
+    CompletableFuture<Boolean> copyObject(String sourceKey, String destinationKey);
+
+    /**
+     * 拷贝文件
+     *
+     * @param sourceBucketName      源存储空间名称
+     * @param sourceKey             源Object完整路径
+     * @param destinationBucketName 目标存储空间名称
+     * @param destinationKey        目标Object完整路径
+     * @return 是否拷贝成功，拷贝成功true；拷贝失败false
+     */
+    CompletableFuture<Boolean> copyObject(String sourceBucketName, String sourceKey,
+                                          String destinationBucketName, String destinationKey);
+
+    /**
+     * 移动文件
+     *
+     * @param sourceKey      源Object完整路径
+     * @param destinationKey 目标Object完整路径
+     * @return 是否移动成功，移动成功true；移动失败false
+     */
+    CompletableFuture<Boolean> moveObject(String sourceKey, String destinationKey);
+
+
+    // ------------------------------------------------------------
+    // ------------------- presign 预签名 URL ---------------------
+    // ------------------------------------------------------------
+
+    /**
+     * 生成授权访问预签名 URL
+     *
+     * @param objectKey Object 完整路径
+     * @return 授权访问的 URL 对象
+     */
+    CompletableFuture<URL> presignedUrlForAccess(String objectKey);
+
+    /**
+     * 生成授权访问预签名 URL
+     *
+     * @param objectKey Object 完整路径
+     * @param duration  链接有效时长
+     * @param unit      时间单位
+     * @return 授权访问的 URL 对象
+     */
+    CompletableFuture<URL> presignedUrlForAccess(String objectKey, int duration, TimeUnit unit);
+
+    /**
+     * 生成上传对象预签名 URL
+     *
+     * @param objectKey Object 完整路径
+     * @return 授权上传的 URL 对象
+     */
+    CompletableFuture<URL> presignedUrlForUpload(String objectKey);
+
+    /**
+     * 生成上传对象预签名 URL
+     *
+     * @param objectKey Object 完整路径
+     * @param duration  链接有效时长
+     * @param unit      时间单位
+     * @return 授权上传的 URL 对象
+     */
+    CompletableFuture<URL> presignedUrlForUpload(String objectKey, int duration, TimeUnit unit);
+
+}
@@ -0,0 +1,140 @@
+package com.mth.oss.spring.boot.autoconfigure.core.aws;
+
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.mth.oss.spring.boot.autoconfigure.core.OssAsyncExecutor;
+import lombok.RequiredArgsConstructor;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对象存储服务的异步实现，委托 {@link OssOperations} 在异步线程池中执行
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@RequiredArgsConstructor
+public class OssAsyncTemplate implements OssAsyncOperations {
+
+    private final OssOperations ossOperations;
+
+    private final OssAsyncExecutor asyncExecutor;
+
+
+    @Override
+    public CompletableFuture<String> upload(File file) {
+        return asyncExecutor.submit(() -> ossOperations.upload(file));
+    }
+
+    @Override
+    public CompletableFuture<String> upload(File file, String objectKey) {
+        return asyncExecutor.submit(() -> ossOperations.upload(file, objectKey));
+    }
+
+    @Override
+    public CompletableFuture<String> upload(InputStream inputStream, String objectKey, String contentType) {
+        return asyncExecutor.submit(() -> ossOperations.upload(inputStream, objectKey, contentType));
+    }
+
+    @Override
+    public CompletableFuture<String> upload(PutObjectRequest putObjectRequest) {
+        return asyncExecutor.submit(() -> ossOperations.upload(putObjectRequest));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> download(String objectKey, File file) {
+        return asyncExecutor.submit(() -> ossOperations.download(objectKey, file));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> download(String objectKey) {
+        return asyncExecutor.submit(() -> ossOperations.download(objectKey));
+    }
+
+    @Override
+    public CompletableFuture<Void> download(String objectKey, OutputStream outputStream) {
+        return asyncExecutor.run(() -> ossOperations.download(objectKey, outputStream));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> objectExist(String objectKey) {
+        return asyncExecutor.submit(() -> ossOperations.objectExist(objectKey));
+    }
+
+    @Override
+    public CompletableFuture<ObjectMetadata> getObjectMetadata(String objectKey) {
+        return asyncExecutor.submit(() -> ossOperations.getObjectMetadata(objectKey));
+    }
+
+    @Override
+    public CompletableFuture<List<S3ObjectSummary>> listObjects(String prefix) {
+        return asyncExecutor.submit(() -> ossOperations.listObjects(prefix));
+    }
+
+    @Override
+    public CompletableFuture<List<S3ObjectSummary>> listObjects(ListObjectsV2Request request) {
+        return asyncExecutor.submit(() -> ossOperations.listObjects(request));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteObject(String objectKey) {
+        return asyncExecutor.submit(() -> ossOperations.deleteObject(objectKey));
+    }
+
+    @Override
+    public CompletableFuture<List<MultiObjectDeleteException.DeleteError>> deleteObjects(List<String> objectKeys) {
+        return asyncExecutor.submit(() -> ossOperations.deleteObjects(objectKeys));
+    }
+
+    @Override
+    public CompletableFuture<List<MultiObjectDeleteException.DeleteError>> deletePrefix(String prefix) {
+        return asyncExecutor.submit(() -> ossOperations.deletePrefix(prefix));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> copyObject(String sourceKey, String destinationKey) {
+        return asyncExecutor.submit(() -> ossOperations.copyObject(sourceKey, destinationKey));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> copyObject(String sourceBucketName, String sourceKey,
+                                                 String destinationBucketName, String destinationKey) {
+        return asyncExecutor.submit(
+                () -> ossOperations.copyObject(sourceBucketName, sourceKey, destinationBucketName, destinationKey));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> moveObject(String sourceKey, String destinationKey) {
+        return asyncExecutor.submit(() -> ossOperations.moveObject(sourceKey, destinationKey));
+    }
+
+    @Override
+    public CompletableFuture<URL> presignedUrlForAccess(String objectKey) {
+        return asyncExecutor.submit(() -> ossOperations.presignedUrlForAccess(objectKey));
+    }
+
+    @Override
+    public CompletableFuture<URL> presignedUrlForAccess(String objectKey, int duration, TimeUnit unit) {
+        return asyncExecutor.submit(() -> ossOperations.presignedUrlForAccess(objectKey, duration, unit));
+    }
+
+    @Override
+    public CompletableFuture<URL> presignedUrlForUpload(String objectKey) {
+        return asyncExecutor.submit(() -> ossOperations.presignedUrlForUpload(objectKey));
+    }
+
+    @Override
+    public CompletableFuture<URL> presignedUrlForUpload(String objectKey, int duration, TimeUnit unit) {
+        return asyncExecutor.submit(() -> ossOperations.presignedUrlForUpload(objectKey, duration, unit));
+    }
+
+}
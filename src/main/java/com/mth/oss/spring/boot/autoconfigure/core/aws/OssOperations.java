@@ -1,6 +1,8 @@
 package com.mth.oss.spring.boot.autoconfigure.core.aws;
 
 import com.amazonaws.services.s3.model.*;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.listing.ParallelObjectLister;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.transfer.BulkDeleteEngine;
 import org.springframework.util.StringUtils;
 
 import java.io.File;
@@ -8,8 +10,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
 
 /**
  * 对象存储服务接口
@@ -336,6 +341,8 @@ public interface OssOperations {
 
     /**
      * 下载到指定 File 中
+     * <p>
+     * 开启 oss.transfer.ranged-download-enabled 后按字节范围并发下载，失败的分段会从断点续传
      *
      * @param objectKey Object 完整路径
      * @param file      指定下载的文件，如果本地存在该文件会覆盖，不存在则新建。
@@ -345,13 +352,37 @@ public interface OssOperations {
 
     /**
      * 下载 byte 数组
+     * <p>
+     * 按对象元数据中的 Content-Length 一次性分配数组并循环读满
      *
      * @param objectKey Object 完整路径
      * @return byte数组
-     * @throws IOException 输入流操作异常
+     * @throws IOException 输入流操作异常，对象超过数组最大长度或数据不完整时抛出
      */
     byte[] download(String objectKey) throws IOException;
 
+    /**
+     * 下载到 ByteBuffer
+     *
+     * @param objectKey Object 完整路径
+     * @return position 为 0、limit 为对象大小的堆内缓冲区
+     * @throws IOException 输入流操作异常，对象超过缓冲区最大长度或数据不完整时抛出
+     * @since 1.4
+     */
+    ByteBuffer downloadToByteBuffer(String objectKey) throws IOException;
+
+    /**
+     * 下载到由调用方分配的 ByteBuffer，可配合缓冲池复用缓冲区
+     *
+     * @param objectKey Object 完整路径
+     * @param allocator 缓冲区分配器，入参为对象大小，返回的缓冲区剩余空间不能小于对象大小
+     * @return 分配器返回的缓冲区，position 为写入起点、limit 为写入终点
+     * @throws IOException 输入流操作异常，对象超过缓冲区最大长度或数据不完整时抛出
+     * @see com.mth.oss.spring.boot.autoconfigure.core.aws.transfer.ByteBufferPool
+     * @since 1.4
+     */
+    ByteBuffer downloadToByteBuffer(String objectKey, IntFunction<ByteBuffer> allocator) throws IOException;
+
     /**
      * 下载到指定输出流
      *
@@ -383,6 +414,25 @@ public interface OssOperations {
      */
     boolean objectExist(String bucketName, String objectKey);
 
+    /**
+     * 获取文件元数据
+     *
+     * @param objectKey Object完整路径，不能包含Bucket名称
+     * @return 文件元数据，文件不存在时为空
+     * @since 1.4
+     */
+    ObjectMetadata getObjectMetadata(String objectKey);
+
+    /**
+     * 获取文件元数据
+     *
+     * @param bucketName 存储空间名称
+     * @param objectKey  Object完整路径，不能包含Bucket名称
+     * @return 文件元数据，文件不存在时为空
+     * @since 1.4
+     */
+    ObjectMetadata getObjectMetadata(String bucketName, String objectKey);
+
     /**
      * 获取文件
      *
@@ -434,12 +484,83 @@ public interface OssOperations {
 
     /**
      * 列举文件
+     * <p>
+     * 只返回一页结果（最多 1000 个），需要完整列举时使用 {@link #streamObjects(ListObjectsV2Request)}
      *
      * @param request 请求对象
      * @return 集合文件对象
      */
     List<S3ObjectSummary> listObjects(ListObjectsV2Request request);
 
+    /**
+     * 按需翻页列举指定前缀下的全部文件
+     * <p>
+     * 消费时才逐页请求，并在后台预取下一页，不会把全部结果加载到内存；使用完毕后应关闭流
+     *
+     * @param prefix 指定路径前缀
+     * @return 文件对象流
+     * @since 1.4
+     */
+    Stream<S3ObjectSummary> streamObjects(String prefix);
+
+    /**
+     * 按需翻页列举全部文件
+     *
+     * @param request 请求对象，maxKeys 为每页个数
+     * @return 文件对象流
+     * @see #streamObjects(String)
+     * @since 1.4
+     */
+    Stream<S3ObjectSummary> streamObjects(ListObjectsV2Request request);
+
+    /**
+     * 按需翻页列举全部文件，每次迭代都会重新从第一页开始列举
+     *
+     * @param request 请求对象，maxKeys 为每页个数
+     * @return 可迭代的文件对象
+     * @see #streamObjects(String)
+     * @since 1.4
+     */
+    Iterable<S3ObjectSummary> iterateObjects(ListObjectsV2Request request);
+
+    /**
+     * 并行列举指定前缀下的全部文件
+     * <p>
+     * 以 "/" 为分隔符发现子目录，各子目录同时列举后合并为一个流，并行度见 oss.listing.parallelism；
+     * 使用完毕后必须关闭流
+     *
+     * @param prefix  指定路径前缀
+     * @param ordered 是否按键的字典序输出，无序时吞吐更高
+     * @return 文件对象流
+     * @since 1.4
+     */
+    Stream<S3ObjectSummary> parallelStreamObjects(String prefix, boolean ordered);
+
+    /**
+     * 按目录划分分片，并行列举全部文件
+     *
+     * @param request   请求对象，prefix 为列举范围
+     * @param delimiter 目录分隔符
+     * @param ordered   是否按键的字典序输出
+     * @return 文件对象流
+     * @see ParallelObjectLister#streamByPrefix(ListObjectsV2Request, String, boolean)
+     * @since 1.4
+     */
+    Stream<S3ObjectSummary> parallelStreamObjects(ListObjectsV2Request request, String delimiter, boolean ordered);
+
+    /**
+     * 按键区间划分分片，并行列举全部文件，适用于没有目录层级的扁平键
+     *
+     * @param request   请求对象，prefix 为列举范围
+     * @param splitKeys 分割键，n 个分割键划分出 n + 1 个区间；为空时按常见键字符自动划分
+     * @param ordered   是否按键的字典序输出
+     * @return 文件对象流
+     * @see ParallelObjectLister#streamByKeyRange(ListObjectsV2Request, List, boolean)
+     * @since 1.4
+     */
+    Stream<S3ObjectSummary> parallelStreamObjectsByKeyRange(ListObjectsV2Request request, List<String> splitKeys,
+                                                            boolean ordered);
+
     /**
      * 删除单个文件
      * <p>
@@ -463,11 +584,35 @@ public interface OssOperations {
 
     /**
      * 删除指定的多个文件
+     * <p>
+     * 超过 1000 个时分批并发删除，部分文件删除失败不会中断其余文件的删除
      *
      * @param objectKeys Object完整路径集合，不能包含Bucket名称
-     * @return 删除失败的文件列表
+     * @return 删除失败的文件列表及原因
+     */
+    List<MultiObjectDeleteException.DeleteError> deleteObjects(List<String> objectKeys);
+
+    /**
+     * 删除指定的多个文件，边消费边删除，适用于数量巨大的文件
+     *
+     * @param bucketName 桶名称
+     * @param objectKeys Object完整路径流，由调用方关闭
+     * @return 删除失败的文件列表及原因
+     * @see BulkDeleteEngine
+     * @since 1.4
+     */
+    List<MultiObjectDeleteException.DeleteError> deleteObjects(String bucketName, Stream<String> objectKeys);
+
+    /**
+     * 删除指定前缀下的全部文件，边列举边删除
+     * <p>
+     * 前缀按字面匹配，删除目录时应以 "/" 结尾，例如 exampleDir/，否则会同时删除 exampleDir2/ 下的文件
+     *
+     * @param prefix 路径前缀，不能为空
+     * @return 删除失败的文件列表及原因
+     * @since 1.4
      */
-    List<DeleteObjectsResult.DeletedObject> deleteObjects(List<String> objectKeys);
+    List<MultiObjectDeleteException.DeleteError> deletePrefix(String prefix);
 
     /**
      * 拷贝文件
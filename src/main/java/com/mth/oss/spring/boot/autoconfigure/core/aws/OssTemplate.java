@@ -1,22 +1,46 @@
 package com.mth.oss.spring.boot.autoconfigure.core.aws;
 
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.HttpMethod;
+import com.amazonaws.SdkClientException;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.Headers;
 import com.amazonaws.services.s3.model.*;
 import com.amazonaws.util.IOUtils;
 import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.ObjectDiskCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.ObjectMemoryCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.ObjectMetadataCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.PresignedUrlCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.listing.ObjectSummaryIterator;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.listing.ParallelObjectLister;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.transfer.BulkDeleteEngine;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.transfer.DownloadCoalescer;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.transfer.MultipartCopyEngine;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.transfer.MultipartUploadEngine;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.transfer.RangedDownloadEngine;
 import com.mth.oss.spring.boot.autoconfigure.handler.DefaultObjectKeyHandler;
 import com.mth.oss.spring.boot.autoconfigure.handler.DefaultOssHandler;
 import com.mth.oss.spring.boot.autoconfigure.handler.OssHandler;
 import lombok.RequiredArgsConstructor;
+import org.springframework.util.StringUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
 
 /**
  * 对象存储服务的 Amazon S3 实现
@@ -27,12 +51,29 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 public class OssTemplate implements OssOperations, DefaultObjectKeyHandler {
 
+    /**
+     * 数组最大长度，部分虚拟机会在数组头部保留若干字节
+     */
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
     private final AmazonS3 client;
 
     private final OssProperties ossProperties;
 
     private OssHandler ossHandler;
 
+    private ExecutorService transferExecutor;
+
+    private PresignedUrlCache presignedUrlCache;
+
+    private ObjectDiskCache objectDiskCache;
+
+    private ObjectMemoryCache objectMemoryCache;
+
+    private ObjectMetadataCache objectMetadataCache;
+
+    private volatile DownloadCoalescer downloadCoalescer;
+
 
     @Override
     public List<Bucket> listBuckets() {
@@ -121,9 +162,13 @@ public class OssTemplate implements OssOperations, DefaultObjectKeyHandler {
     public String upload(PutObjectRequest putObjectRequest) {
         ossHandler.beforeUpload(putObjectRequest);
 
-        // 上传
-        PutObjectResult putObjectResult = client.putObject(putObjectRequest);
+        // 上传：文件达到分片上传阈值时使用并发分片上传，否则单次 PUT 上传
+        MultipartUploadEngine multipartUploadEngine = multipartUploadEngine();
+        PutObjectResult putObjectResult = multipartUploadEngine.shouldUseMultipart(putObjectRequest)
+                ? multipartUploadEngine.upload(putObjectRequest)
+                : client.putObject(putObjectRequest);
 
+        invalidateCaches(putObjectRequest.getBucketName(), putObjectRequest.getKey());
         ossHandler.afterUpload(putObjectRequest, putObjectResult);
         return putObjectRequest.getKey();
     }
@@ -222,7 +267,9 @@ public class OssTemplate implements OssOperations, DefaultObjectKeyHandler {
 
     @Override
     public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
-        return client.completeMultipartUpload(request);
+        CompleteMultipartUploadResult result = client.completeMultipartUpload(request);
+        invalidateCaches(request.getBucketName(), request.getKey());
+        return result;
     }
 
     @Override
@@ -257,9 +304,19 @@ public class OssTemplate implements OssOperations, DefaultObjectKeyHandler {
     public boolean download(String objectKey, File file) {
         GetObjectRequest getObjectRequest = new GetObjectRequest(ossProperties.getBucketName(), objectKey);
 
-        ossHandler.beforeDownload(getObjectRequest);
-
-        ObjectMetadata metadata = client.getObject(getObjectRequest, file);
+        ObjectMetadata metadata;
+        if (Objects.nonNull(objectDiskCache) || Objects.nonNull(downloadCoalescer())
+                && !ossProperties.getTransfer().getRangedDownloadEnabled()) {
+            // 开启磁盘缓存时从缓存文件复制，合并下载时共享其他调用方的请求
+            metadata = downloadToFile(getObjectForDownload(getObjectRequest), file);
+        } else {
+            ossHandler.beforeDownload(getObjectRequest);
+
+            // 开启分段下载时按字节范围并发获取，否则单连接顺序下载
+            metadata = ossProperties.getTransfer().getRangedDownloadEnabled()
+                    ? rangedDownloadEngine().download(getObjectRequest, file)
+                    : client.getObject(getObjectRequest, file);
+        }
 
         ossHandler.afterDownload(getObjectRequest, metadata);
         return file.exists();
@@ -267,22 +324,61 @@ public class OssTemplate implements OssOperations, DefaultObjectKeyHandler {
 
     @Override
     public byte[] download(String objectKey) throws IOException {
-        S3ObjectInputStream inputStream = getObjectInputStream(objectKey);
+        GetObjectRequest getObjectRequest = new GetObjectRequest(ossProperties.getBucketName(), objectKey);
+        S3Object object = getObjectForDownload(getObjectRequest);
+        ObjectMetadata metadata = object.getObjectMetadata();
+
+        byte[] result;
+        try (S3ObjectInputStream inputStream = object.getObjectContent()) {
+            // 未返回 Content-Length 时只能按流读取
+            if (Objects.isNull(metadata.getRawMetadataValue(Headers.CONTENT_LENGTH))) {
+                result = IOUtils.toByteArray(inputStream);
+            } else {
+                result = new byte[checkedLength(objectKey, metadata.getContentLength())];
+                readFully(objectKey, inputStream, ByteBuffer.wrap(result));
+            }
+        }
+
+        ossHandler.afterDownload(getObjectRequest, metadata);
+        return result;
+    }
 
-        final int available = inputStream.available();
-        final byte[] result = new byte[available];
+    @Override
+    public ByteBuffer downloadToByteBuffer(String objectKey) throws IOException {
+        return downloadToByteBuffer(objectKey, ByteBuffer::allocate);
+    }
 
-        int readLength = inputStream.read(result);
-        if (readLength != available) {
-            throw new IOException("File length is [" + available + "] but read [" + readLength + "]!");
+    @Override
+    public ByteBuffer downloadToByteBuffer(String objectKey, IntFunction<ByteBuffer> allocator) throws IOException {
+        GetObjectRequest getObjectRequest = new GetObjectRequest(ossProperties.getBucketName(), objectKey);
+        S3Object object = getObjectForDownload(getObjectRequest);
+        ObjectMetadata metadata = object.getObjectMetadata();
+
+        ByteBuffer result;
+        try (S3ObjectInputStream inputStream = object.getObjectContent()) {
+            if (Objects.isNull(metadata.getRawMetadataValue(Headers.CONTENT_LENGTH))) {
+                byte[] bytes = IOUtils.toByteArray(inputStream);
+                result = fill(allocator.apply(bytes.length), bytes.length, buffer -> buffer.put(bytes));
+            } else {
+                int length = checkedLength(objectKey, metadata.getContentLength());
+                result = fill(allocator.apply(length), length, buffer -> readFully(objectKey, inputStream, buffer));
+            }
         }
+
+        ossHandler.afterDownload(getObjectRequest, metadata);
         return result;
     }
 
     @Override
     public void download(String objectKey, OutputStream outputStream) throws IOException {
-        S3ObjectInputStream inputStream = getObjectInputStream(objectKey);
-        IOUtils.copy(inputStream, outputStream);
+        GetObjectRequest getObjectRequest = new GetObjectRequest(ossProperties.getBucketName(), objectKey);
+        S3Object object = getObjectForDownload(getObjectRequest);
+
+        try (S3ObjectInputStream inputStream = object.getObjectContent()) {
+            IOUtils.copy(inputStream, outputStream);
+        }
+
+        ossHandler.afterDownload(getObjectRequest, object.getObjectMetadata());
     }
 
     @Override
@@ -292,9 +388,25 @@ public class OssTemplate implements OssOperations, DefaultObjectKeyHandler {
 
     @Override
     public boolean objectExist(String bucketName, String objectKey) {
+        if (Objects.nonNull(objectMetadataCache)) {
+            return Objects.nonNull(getObjectMetadata(bucketName, objectKey));
+        }
         return client.doesObjectExist(bucketName, objectKey);
     }
 
+    @Override
+    public ObjectMetadata getObjectMetadata(String objectKey) {
+        return getObjectMetadata(ossProperties.getBucketName(), objectKey);
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(String bucketName, String objectKey) {
+        if (Objects.nonNull(objectMetadataCache)) {
+            return objectMetadataCache.get(bucketName, objectKey, this::headObject);
+        }
+        return headObject(bucketName, objectKey);
+    }
+
     @Override
     public S3Object getObject(String objectKey) {
         return getObject(ossProperties.getBucketName(), objectKey);
@@ -302,6 +414,10 @@ public class OssTemplate implements OssOperations, DefaultObjectKeyHandler {
 
     @Override
     public S3Object getObject(String bucketName, String objectKey) {
+        if (Objects.nonNull(objectDiskCache) || Objects.nonNull(objectMemoryCache)
+                || Objects.nonNull(downloadCoalescer())) {
+            return getObjectThroughCaches(new GetObjectRequest(bucketName, objectKey));
+        }
         return client.getObject(bucketName, objectKey);
     }
 
@@ -346,6 +462,46 @@ public class OssTemplate implements OssOperations, DefaultObjectKeyHandler {
         return objectsV2Result.getObjectSummaries();
     }
 
+    @Override
+    public Stream<S3ObjectSummary> streamObjects(String prefix) {
+        ListObjectsV2Request request = new ListObjectsV2Request()
+                .withBucketName(ossProperties.getBucketName())
+                .withPrefix(trimPathCharacter(prefix));
+        return streamObjects(request);
+    }
+
+    @Override
+    public Stream<S3ObjectSummary> streamObjects(ListObjectsV2Request request) {
+        return ObjectSummaryIterator.stream(client::listObjectsV2, request, transferExecutor);
+    }
+
+    @Override
+    public Iterable<S3ObjectSummary> iterateObjects(ListObjectsV2Request request) {
+        return () -> new ObjectSummaryIterator(client::listObjectsV2, request, transferExecutor);
+    }
+
+    @Override
+    public Stream<S3ObjectSummary> parallelStreamObjects(String prefix, boolean ordered) {
+        ListObjectsV2Request request = new ListObjectsV2Request()
+                .withBucketName(ossProperties.getBucketName())
+                .withPrefix(trimPathCharacter(prefix));
+        return parallelStreamObjects(request, "/", ordered);
+    }
+
+    @Override
+    public Stream<S3ObjectSummary> parallelStreamObjects(ListObjectsV2Request request, String delimiter,
+                                                        boolean ordered) {
+        return new ParallelObjectLister(client::listObjectsV2, ossProperties.getListing())
+                .streamByPrefix(request, delimiter, ordered);
+    }
+
+    @Override
+    public Stream<S3ObjectSummary> parallelStreamObjectsByKeyRange(ListObjectsV2Request request,
+                                                                  List<String> splitKeys, boolean ordered) {
+        return new ParallelObjectLister(client::listObjectsV2, ossProperties.getListing())
+                .streamByKeyRange(request, splitKeys, ordered);
+    }
+
     @Override
     public boolean deleteObject(String objectKey) {
         return deleteObject(ossProperties.getBucketName(), objectKey);
@@ -356,24 +512,47 @@ public class OssTemplate implements OssOperations, DefaultObjectKeyHandler {
         ossHandler.beforeObjectDelete(Collections.singletonList(objectKey));
 
         client.deleteObject(bucketName, objectKey);
+        invalidateCaches(bucketName, objectKey);
+        // 删除成功后对象必然不存在，之后的存在性检查不再请求
+        if (Objects.nonNull(objectMetadataCache)) {
+            objectMetadataCache.putAbsent(bucketName, objectKey);
+        }
 
         ossHandler.afterObjectDelete(Collections.singletonList(objectKey));
-        return !objectExist(objectKey);
+        // 删除请求成功即对象已不存在，不再发起校验请求
+        return true;
     }
 
     @Override
-    public List<DeleteObjectsResult.DeletedObject> deleteObjects(List<String> objectKeys) {
-        ossHandler.beforeObjectDelete(objectKeys);
+    public List<MultiObjectDeleteException.DeleteError> deleteObjects(List<String> objectKeys) {
+        List<MultiObjectDeleteException.DeleteError> errors =
+                bulkDeleteEngine().delete(ossProperties.getBucketName(), objectKeys.iterator());
+        objectKeys.forEach(objectKey -> invalidateCaches(ossProperties.getBucketName(), objectKey));
+        return errors;
+    }
+
+    @Override
+    public List<MultiObjectDeleteException.DeleteError> deleteObjects(String bucketName, Stream<String> objectKeys) {
+        // 流只能遍历一次，在交给删除批次时失效缓存
+        return bulkDeleteEngine().delete(bucketName,
+                                         objectKeys.peek(objectKey -> invalidateCaches(bucketName, objectKey))
+                                                   .iterator());
+    }
 
-        DeleteObjectsResult deleteResult = client.deleteObjects(
-                new DeleteObjectsRequest(ossProperties.getBucketName())
-                        .withQuiet(true)
-                        .withKeys(objectKeys.toArray(new String[0]))
-        );
+    @Override
+    public List<MultiObjectDeleteException.DeleteError> deletePrefix(String prefix) {
+        // 保留结尾的 "/"，避免误删同名前缀的其他目录
+        String trimmedPrefix = StringUtils.trimLeadingCharacter(prefix, '/');
+        if (!StringUtils.hasText(trimmedPrefix)) {
+            throw new IllegalArgumentException("prefix must not be empty");
+        }
 
-        ossHandler.afterObjectDelete(objectKeys);
-        // 删除失败的文件列表
-        return deleteResult.getDeletedObjects();
+        ListObjectsV2Request request = new ListObjectsV2Request()
+                .withBucketName(ossProperties.getBucketName())
+                .withPrefix(trimmedPrefix);
+        try (Stream<S3ObjectSummary> objects = streamObjects(request)) {
+            return deleteObjects(ossProperties.getBucketName(), objects.map(S3ObjectSummary::getKey));
+        }
     }
 
     @Override
@@ -394,19 +573,19 @@ public class OssTemplate implements OssOperations, DefaultObjectKeyHandler {
 
     @Override
     public boolean moveObject(String sourceKey, String destinationKey) {
-        copyObject(sourceKey, destinationKey);
-        return deleteObject(sourceKey);
+        // 拷贝未完成时保留源对象
+        return copyObject(sourceKey, destinationKey) && deleteObject(sourceKey);
     }
 
     @Override
     public boolean moveObject(String sourceBucketName, String sourceKey, String destinationBucketName, String destinationKey) {
-        copyObject(sourceBucketName, sourceKey, destinationBucketName, destinationKey);
-        return deleteObject(sourceBucketName, sourceKey);
+        return copyObject(sourceBucketName, sourceKey, destinationBucketName, destinationKey)
+                && deleteObject(sourceBucketName, sourceKey);
     }
 
 
     /**
-     * 生成签名 URL 授权访问
+     * 生成签名 URL 授权访问，设置了预签名 URL 缓存时优先返回仍可用的缓存 URL
      *
      * @param objectKey  Object 完整路径
      * @param expiration 签名 url 过期时长，单位秒
@@ -420,12 +599,31 @@ public class OssTemplate implements OssOperations, DefaultObjectKeyHandler {
         // 转换为毫秒
         long expiryMillis = TimeUnit.SECONDS.toMillis(expiry);
 
+        // 处理路径分隔符
+        String trimmedObjectKey = trimPathCharacter(objectKey);
+
+        if (Objects.nonNull(presignedUrlCache)) {
+            return presignedUrlCache.get(ossProperties.getBucketName(), trimmedObjectKey, method, expiryMillis, params,
+                                         expiresAt -> signPresignedUrl(trimmedObjectKey, new Date(expiresAt),
+                                                                       method, params));
+        }
+
         // 过期date
         Date expirationDate = new Date(System.currentTimeMillis() + expiryMillis);
+        return signPresignedUrl(trimmedObjectKey, expirationDate, method, params);
+    }
 
-        // 处理路径分隔符
-        objectKey = trimPathCharacter(objectKey);
-
+    /**
+     * 按指定到期时间签名
+     *
+     * @param objectKey      Object 完整路径，已处理路径分隔符
+     * @param expirationDate 到期时间
+     * @param method         签名 url 请求方法
+     * @param params         额外请求参数
+     * @return 授权访问 URL 对象
+     */
+    private URL signPresignedUrl(String objectKey, Date expirationDate, HttpMethod method,
+                                 Map<String, String> params) {
         // 组装请求对象
         GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(ossProperties.getBucketName(), objectKey)
                 .withMethod(method)
@@ -436,41 +634,258 @@ public class OssTemplate implements OssOperations, DefaultObjectKeyHandler {
         }
 
         return generatePresignedUrl(request);
+    }
+
+    /**
+     * 获取文件对象，包含元数据与输入流；调用方读取完内容后调用 afterDownload 扩展点
+     *
+     * @param getObjectRequest 下载请求对象
+     * @return 文件对象
+     */
+    private S3Object getObjectForDownload(GetObjectRequest getObjectRequest) {
+        ossHandler.beforeDownload(getObjectRequest);
 
+        return getObjectThroughCaches(getObjectRequest);
     }
 
     /**
-     * 获取文件输入流
+     * 依次经过内存缓存、磁盘缓存获取对象，均未设置时直接请求；开启合并下载时合并同一对象的并发请求
      *
-     * @param objectKey Object 完整路径
-     * @return 文件输入流
+     * @param getObjectRequest 下载请求对象
+     * @return 文件对象
      */
-    private S3ObjectInputStream getObjectInputStream(String objectKey) {
-        GetObjectRequest getObjectRequest = new GetObjectRequest(ossProperties.getBucketName(), objectKey);
+    private S3Object getObjectThroughCaches(GetObjectRequest getObjectRequest) {
+        DownloadCoalescer coalescer = downloadCoalescer();
+        Function<GetObjectRequest, S3Object> fetcher = Objects.nonNull(coalescer)
+                ? request -> coalescer.getObject(request, client::getObject)
+                : client::getObject;
 
-        ossHandler.beforeDownload(getObjectRequest);
+        ObjectDiskCache diskCache = objectDiskCache;
+        Function<GetObjectRequest, S3Object> loader = Objects.nonNull(diskCache)
+                ? request -> diskCache.getObject(request, fetcher)
+                : fetcher;
 
-        S3Object object = client.getObject(getObjectRequest);
+        ObjectMemoryCache memoryCache = objectMemoryCache;
+        return Objects.nonNull(memoryCache)
+                ? memoryCache.getObject(getObjectRequest, loader)
+                : loader.apply(getObjectRequest);
+    }
 
-        ossHandler.afterDownload(getObjectRequest, object.getObjectMetadata());
+    /**
+     * 把对象内容写入本地文件
+     *
+     * @param object 对象
+     * @param file   本地文件，父目录不存在时创建
+     * @return 对象元数据
+     */
+    private ObjectMetadata downloadToFile(S3Object object, File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        try (S3ObjectInputStream inputStream = object.getObjectContent()) {
+            if (Objects.nonNull(parent) && !parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+                throw new IOException("Unable to create directory " + parent);
+            }
+            Files.copy(inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new SdkClientException("Unable to store object contents to disk: " + e.getMessage(), e);
+        }
+        return object.getObjectMetadata();
+    }
+
+    /**
+     * 查询对象元数据
+     *
+     * @param bucketName 桶名称
+     * @param objectKey  对象完整路径
+     * @return 对象元数据，对象不存在时为空
+     */
+    private ObjectMetadata headObject(String bucketName, String objectKey) {
+        try {
+            return client.getObjectMetadata(bucketName, objectKey);
+        } catch (AmazonServiceException e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 对象被写入、覆盖或删除后使其缓存失效
+     *
+     * @param bucketName 桶名称
+     * @param objectKey  对象完整路径
+     */
+    private void invalidateCaches(String bucketName, String objectKey) {
+        if (Objects.nonNull(objectMetadataCache)) {
+            objectMetadataCache.invalidate(bucketName, objectKey);
+        }
+        if (Objects.nonNull(objectMemoryCache)) {
+            objectMemoryCache.invalidate(bucketName, objectKey);
+        }
+        if (Objects.nonNull(objectDiskCache)) {
+            objectDiskCache.invalidate(bucketName, objectKey);
+        }
+        if (Objects.nonNull(downloadCoalescer)) {
+            downloadCoalescer.invalidate(bucketName, objectKey);
+        }
+    }
+
+    /**
+     * 校验对象大小能否放入单个数组或缓冲区
+     *
+     * @param objectKey     Object 完整路径
+     * @param contentLength 对象大小
+     * @return 对象大小
+     * @throws IOException 超过数组最大长度
+     */
+    private static int checkedLength(String objectKey, long contentLength) throws IOException {
+        if (contentLength > MAX_ARRAY_LENGTH) {
+            throw new IOException("Object [" + objectKey + "] length is [" + contentLength
+                                          + "], too large to download into memory");
+        }
+        return (int) contentLength;
+    }
+
+    /**
+     * 从缓冲区当前位置写入 length 字节，完成后 position 恢复为写入起点、limit 为写入终点
+     *
+     * @param buffer 分配的缓冲区
+     * @param length 写入长度
+     * @param writer 写入逻辑
+     * @return 传入的缓冲区
+     * @throws IOException 写入失败
+     */
+    private static ByteBuffer fill(ByteBuffer buffer, int length, BufferWriter writer) throws IOException {
+        if (buffer.remaining() < length) {
+            throw new IllegalArgumentException("Allocated buffer has [" + buffer.remaining()
+                                                       + "] bytes remaining but object length is [" + length + "]");
+        }
+
+        int start = buffer.position();
+        buffer.limit(start + length);
+        writer.write(buffer);
+        buffer.position(start);
+        return buffer;
+    }
+
+    /**
+     * 循环读取输入流，直到填满缓冲区
+     *
+     * @param objectKey   Object 完整路径
+     * @param inputStream 输入流
+     * @param buffer      目标缓冲区
+     * @throws IOException 输入流提前结束
+     */
+    private static void readFully(String objectKey, InputStream inputStream, ByteBuffer buffer) throws IOException {
+        int expected = buffer.remaining();
+
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset();
+            int read;
+            while (buffer.hasRemaining()
+                    && (read = inputStream.read(array, offset + buffer.position(), buffer.remaining())) >= 0) {
+                buffer.position(buffer.position() + read);
+            }
+        } else {
+            ReadableByteChannel channel = Channels.newChannel(inputStream);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // 循环读满缓冲区
+            }
+        }
+
+        if (buffer.hasRemaining()) {
+            throw new IOException("Object [" + objectKey + "] length is [" + expected + "] but read ["
+                                          + (expected - buffer.remaining()) + "]!");
+        }
+    }
+
+    /**
+     * 缓冲区写入逻辑
+     */
+    @FunctionalInterface
+    private interface BufferWriter {
+
+        void write(ByteBuffer buffer) throws IOException;
 
-        return object.getObjectContent();
     }
 
     /**
      * 拷贝文件
      * <p>
-     * 将源Bucket中的文件（Object）复制到同一地域下相同或不同目标Bucket中
+     * 将源Bucket中的文件（Object）复制到同一地域下相同或不同目标Bucket中；
+     * 源对象达到分片拷贝阈值时并发拷贝各分片，以响应结果判断是否成功，不再查询目标对象；
+     * 配置了元数据缓存时由缓存判断源对象大小，小对象命中缓存时不再查询源对象
      *
      * @param request 请求对象
-     * @return 是否拷贝成功，拷贝成功true；拷贝失败false
+     * @return 是否拷贝成功，拷贝成功true；请求中的匹配条件不满足或源对象在拷贝期间被修改时false
      */
     public boolean copyObject(CopyObjectRequest request) {
         // 拷贝对象
-        client.copyObject(request);
+        CopyObjectResult result = multipartCopyEngine().copy(request);
+        invalidateCaches(request.getDestinationBucketName(), request.getDestinationKey());
+
+        return Objects.nonNull(result);
+    }
+
+    /**
+     * 创建并发分片上传引擎
+     *
+     * @return 分片上传引擎
+     */
+    private MultipartUploadEngine multipartUploadEngine() {
+        return new MultipartUploadEngine(this, transferExecutor, ossProperties.getTransfer());
+    }
+
+    /**
+     * 创建并发分片拷贝引擎
+     *
+     * @return 分片拷贝引擎
+     */
+    private MultipartCopyEngine multipartCopyEngine() {
+        ObjectMetadataCache metadataCache = objectMetadataCache;
+        return new MultipartCopyEngine(client, transferExecutor, ossProperties.getTransfer(),
+                                       Objects.nonNull(metadataCache) ? this::getObjectMetadata : null);
+    }
 
-        // 查询拷贝后对象是否存在
-        return objectExist(request.getDestinationBucketName(), request.getDestinationKey());
+    /**
+     * 创建并发分段下载引擎
+     *
+     * @return 分段下载引擎
+     */
+    private RangedDownloadEngine rangedDownloadEngine() {
+        return new RangedDownloadEngine(client, transferExecutor, ossProperties.getTransfer());
+    }
+
+    /**
+     * 获取下载合并器，未开启合并下载时为空
+     *
+     * @return 下载合并器
+     */
+    private DownloadCoalescer downloadCoalescer() {
+        if (!ossProperties.getTransfer().getCoalesceDownloads()) {
+            return null;
+        }
+        DownloadCoalescer coalescer = downloadCoalescer;
+        if (Objects.isNull(coalescer)) {
+            synchronized (this) {
+                coalescer = downloadCoalescer;
+                if (Objects.isNull(coalescer)) {
+                    coalescer = new DownloadCoalescer(ossProperties.getTransfer());
+                    downloadCoalescer = coalescer;
+                }
+            }
+        }
+        return coalescer;
+    }
+
+    /**
+     * 创建并发批量删除引擎
+     *
+     * @return 批量删除引擎
+     */
+    private BulkDeleteEngine bulkDeleteEngine() {
+        return new BulkDeleteEngine(client, ossHandler, transferExecutor, ossProperties.getTransfer());
     }
 
     /**
@@ -491,4 +906,65 @@ public class OssTemplate implements OssOperations, DefaultObjectKeyHandler {
         this.ossHandler = Objects.nonNull(ossHandler) ? ossHandler : new DefaultOssHandler();
     }
 
+    /**
+     * 设置传输线程池，用于并发分片上传、并发分段下载、批量删除、列举预取等传输任务；未设置时在调用线程中依次执行
+     *
+     * @param transferExecutor 传输线程池
+     * @since 1.4
+     */
+    public void setTransferExecutor(ExecutorService transferExecutor) {
+        this.transferExecutor = transferExecutor;
+    }
+
+    /**
+     * 设置预签名 URL 缓存，未设置时每次调用都重新签名
+     *
+     * @param presignedUrlCache 预签名 URL 缓存
+     * @since 1.4
+     */
+    public void setPresignedUrlCache(PresignedUrlCache presignedUrlCache) {
+        this.presignedUrlCache = presignedUrlCache;
+    }
+
+    /**
+     * 设置对象磁盘缓存，整对象下载先读缓存文件；开启后下载到本地文件时不再使用分段下载
+     *
+     * @param objectDiskCache 对象磁盘缓存
+     * @since 1.4
+     */
+    public void setObjectDiskCache(ObjectDiskCache objectDiskCache) {
+        this.objectDiskCache = objectDiskCache;
+    }
+
+    /**
+     * 设置小对象内存缓存，整对象下载先查内存，未命中时再经过磁盘缓存或对象存储
+     *
+     * @param objectMemoryCache 小对象内存缓存
+     * @since 1.4
+     */
+    public void setObjectMemoryCache(ObjectMemoryCache objectMemoryCache) {
+        this.objectMemoryCache = objectMemoryCache;
+    }
+
+    /**
+     * 设置对象元数据缓存，判断对象是否存在与查询元数据时先查缓存
+     *
+     * @param objectMetadataCache 对象元数据缓存
+     * @since 1.4
+     */
+    public void setObjectMetadataCache(ObjectMetadataCache objectMetadataCache) {
+        this.objectMetadataCache = objectMetadataCache;
+    }
+
+    /**
+     * 关闭模板持有的传输线程池，不会关闭客户端
+     *
+     * @since 1.4
+     */
+    public void shutdown() {
+        if (Objects.nonNull(transferExecutor)) {
+            transferExecutor.shutdownNow();
+        }
+    }
+
 }
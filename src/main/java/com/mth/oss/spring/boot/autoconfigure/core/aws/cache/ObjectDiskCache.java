@@ -0,0 +1,573 @@
+package com.mth.oss.spring.boot.autoconfigure.core.aws.cache;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import com.mth.oss.spring.boot.autoconfigure.core.local.LocalBlobStore;
+import com.mth.oss.spring.boot.autoconfigure.core.local.LocalOssTemplate;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectListing;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectMetadata;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 对象磁盘缓存
+ * <p>
+ * 读穿透：整对象下载先读缓存目录中的文件，未命中时从对象存储获取并写入缓存目录。缓存文件由 {@link LocalOssTemplate} 写入，
+ * 内容先写入临时文件、完成后才重命名为条目文件，读取方不会读到写了一半的条目；同一对象同时未命中时只获取一次，
+ * 其余调用方等待填充完成后读取缓存文件，不同对象并发填充。
+ * <p>
+ * 条目校验后超过 revalidateInterval 时，以条目的 ETag 发起 If-None-Match 条件请求：对象未修改时继续使用缓存，
+ * 已修改时直接用该响应替换条目，不需要额外往返。经本模板上传、拷贝、删除的对象立即失效。
+ * <p>
+ * 缓存文件总字节数超过 maxSize 时按 LRU 或 LFU 淘汰至上限的 90%。带范围、版本号、条件或客户端加密密钥的请求不经过缓存；
+ * 缓存只保留内容长度、类型、ETag 与最后修改时间，不保留用户元数据。条目文件名包含对象摘要、最后修改时间与 ETag，
+ * 重启后从缓存目录恢复，首次读取时校验
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Slf4j
+public class ObjectDiskCache {
+
+    private final OssProperties.DiskCache diskCache;
+
+    private final LocalOssTemplate storage;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 进行中的填充与校验，按对象合并
+     */
+    private final ConcurrentMap<String, Fill> fills = new ConcurrentHashMap<>();
+
+    private final AtomicLong totalSize = new AtomicLong();
+
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder revalidatedCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+
+    /**
+     * @param diskCache 对象磁盘缓存配置
+     */
+    public ObjectDiskCache(OssProperties.DiskCache diskCache) {
+        Assert.hasText(diskCache.getDirectory(), "oss.disk-cache.directory must not be empty");
+        this.diskCache = diskCache;
+
+        // 缓存条目按哈希目录分散存放，索引保存内容类型，供重启后恢复
+        OssProperties storageProperties = new OssProperties();
+        storageProperties.setLocalBasePath(diskCache.getDirectory());
+        storageProperties.getLocal().setLayout(OssProperties.Local.Layout.HASHED);
+        storageProperties.getLocal().setIndexEnabled(true);
+        this.storage = new LocalOssTemplate(storageProperties);
+
+        restore();
+    }
+
+    /**
+     * 获取对象，内容来自缓存文件或对象存储
+     *
+     * @param request 获取请求
+     * @param loader  从对象存储获取，条件请求未满足（对象未修改）时返回空，通常为 {@code client::getObject}
+     * @return 对象，调用方负责关闭内容流
+     */
+    public S3Object getObject(GetObjectRequest request, Function<GetObjectRequest, S3Object> loader) {
+        if (!isCacheable(request)) {
+            return loader.apply(request);
+        }
+
+        String id = cacheId(request.getBucketName(), request.getKey());
+        Entry entry = entries.get(id);
+        if (Objects.nonNull(entry) && isValidated(entry)) {
+            S3Object cached = open(request, entry);
+            if (Objects.nonNull(cached)) {
+                hitCount.increment();
+                return cached;
+            }
+            // 读取前已被淘汰
+            entry = null;
+        }
+        return load(id, request, entry, loader);
+    }
+
+    /**
+     * 使对象的缓存条目失效，进行中的填充完成后也不会写入缓存
+     *
+     * @param bucketName 桶名称
+     * @param objectKey  对象完整路径
+     */
+    public void invalidate(String bucketName, String objectKey) {
+        String id = cacheId(bucketName, objectKey);
+        Fill fill = fills.get(id);
+        if (Objects.nonNull(fill)) {
+            fill.invalidated = true;
+        }
+        Entry entry = entries.get(id);
+        if (Objects.nonNull(entry)) {
+            remove(entry);
+        }
+    }
+
+    /**
+     * 清空缓存，删除全部条目文件
+     */
+    public void clear() {
+        fills.values().forEach(fill -> fill.invalidated = true);
+        new ArrayList<>(entries.values()).forEach(this::remove);
+    }
+
+    /**
+     * @return 当前缓存条目数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return 缓存文件总字节数
+     */
+    public long getTotalSize() {
+        return totalSize.get();
+    }
+
+    /**
+     * @return 命中次数，不含条件请求确认未修改的读取
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return 未命中（从对象存储获取内容）次数
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return 条件请求确认对象未修改、继续使用缓存的次数
+     */
+    public long getRevalidatedCount() {
+        return revalidatedCount.sum();
+    }
+
+    /**
+     * @return 因总字节数超限被淘汰的条目数
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return 命中率，读取过缓存时为命中（含条件请求确认未修改）占比，否则为 0
+     */
+    public double getHitRatio() {
+        long hit = getHitCount() + getRevalidatedCount();
+        long total = hit + getMissCount();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * 关闭缓存目录的元数据索引
+     */
+    public void shutdown() {
+        storage.shutdown();
+    }
+
+    /**
+     * 未命中或需要校验时从对象存储获取，同一对象同时只有一个调用方获取，其余调用方等待结果
+     */
+    private S3Object load(String id, GetObjectRequest request, Entry current,
+                          Function<GetObjectRequest, S3Object> loader) {
+        Fill fill = new Fill();
+        Fill inFlight = fills.putIfAbsent(id, fill);
+        if (Objects.nonNull(inFlight)) {
+            Entry filled = await(inFlight);
+            S3Object cached = Objects.nonNull(filled) ? open(request, filled) : null;
+            if (Objects.nonNull(cached)) {
+                hitCount.increment();
+                return cached;
+            }
+            // 对象超过缓存上限、已失效或已被淘汰
+            return loader.apply(request);
+        }
+
+        S3Object object;
+        Entry filled = null;
+        try {
+            object = loader.apply(conditional(request, current));
+            if (Objects.isNull(object)) {
+                if (Objects.nonNull(current)) {
+                    // 对象未修改
+                    current.validatedAt = System.currentTimeMillis();
+                    revalidatedCount.increment();
+                    filled = current;
+                }
+            } else if (object.getObjectMetadata().getContentLength() <= maxObjectSize()) {
+                missCount.increment();
+                filled = store(id, object, fill);
+                object = null;
+            } else {
+                missCount.increment();
+            }
+            fill.future.complete(filled);
+        } catch (RuntimeException | Error e) {
+            // 校验时对象已被删除
+            if (Objects.nonNull(current) && e instanceof AmazonServiceException
+                    && ((AmazonServiceException) e).getStatusCode() == 404) {
+                remove(current);
+            }
+            fill.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            fills.remove(id, fill);
+        }
+
+        if (Objects.nonNull(object) || Objects.isNull(filled)) {
+            return object;
+        }
+        S3Object cached = open(request, filled);
+        return Objects.nonNull(cached) ? cached : loader.apply(request);
+    }
+
+    /**
+     * 把对象内容写入缓存目录并登记条目，写入期间条目失效时丢弃
+     */
+    private Entry store(String id, S3Object object, Fill fill) {
+        ObjectMetadata metadata = object.getObjectMetadata();
+        String eTag = metadata.getETag();
+        long lastModified = Objects.nonNull(metadata.getLastModified()) ? metadata.getLastModified().getTime() : 0;
+        String storageKey = id + "." + lastModified + "." + (Objects.nonNull(eTag) ? sanitize(eTag) : "");
+
+        S3ObjectInputStream content = object.getObjectContent();
+        try {
+            storage.upload(content, storageKey, metadata.getContentType());
+        } catch (RuntimeException e) {
+            content.abort();
+            throw e;
+        } finally {
+            closeQuietly(content);
+        }
+
+        long size = storage.getObject(storageKey).length();
+        Entry entry = new Entry(id, storageKey, size, eTag, metadata.getContentType(), lastModified,
+                                System.currentTimeMillis());
+        entry.validatedAt = entry.lastAccess;
+        add(entry);
+        if (fill.invalidated) {
+            remove(entry);
+            return null;
+        }
+        evictIfNecessary();
+        return entry;
+    }
+
+    /**
+     * 打开条目文件，条目已被淘汰时返回空
+     */
+    private S3Object open(GetObjectRequest request, Entry entry) {
+        InputStream in;
+        try {
+            in = Files.newInputStream(storage.getObject(entry.storageKey).toPath());
+        } catch (NoSuchFileException e) {
+            if (entries.remove(entry.id, entry)) {
+                totalSize.addAndGet(-entry.size);
+            }
+            return null;
+        } catch (IOException e) {
+            throw new SdkClientException("Unable to read cached object " + request.getKey(), e);
+        }
+        entry.lastAccess = System.currentTimeMillis();
+        entry.frequency++;
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(entry.size);
+        metadata.setContentType(entry.contentType);
+        if (Objects.nonNull(entry.eTag)) {
+            metadata.setHeader(Headers.ETAG, entry.eTag);
+        }
+        if (entry.lastModified > 0) {
+            metadata.setLastModified(new Date(entry.lastModified));
+        }
+
+        S3Object object = new S3Object();
+        object.setBucketName(request.getBucketName());
+        object.setKey(request.getKey());
+        object.setObjectMetadata(metadata);
+        object.setObjectContent(in);
+        return object;
+    }
+
+    /**
+     * 登记条目，替换同一对象的旧条目
+     */
+    private void add(Entry entry) {
+        totalSize.addAndGet(entry.size);
+        Entry previous = entries.put(entry.id, entry);
+        if (Objects.nonNull(previous)) {
+            totalSize.addAndGet(-previous.size);
+            // 对象未变化时条目文件相同，已被原地替换
+            if (!previous.storageKey.equals(entry.storageKey)) {
+                storage.deleteObject(previous.storageKey);
+            }
+        }
+    }
+
+    private void remove(Entry entry) {
+        if (entries.remove(entry.id, entry)) {
+            totalSize.addAndGet(-entry.size);
+            storage.deleteObject(entry.storageKey);
+        }
+    }
+
+    /**
+     * 按淘汰策略排序后淘汰至上限的 90%，同一时刻只有一个线程执行
+     */
+    private void evictIfNecessary() {
+        long maxSize = diskCache.getMaxSize().toBytes();
+        if (totalSize.get() <= maxSize || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            boolean lfu = diskCache.getEviction() == OssProperties.DiskCache.Eviction.LFU;
+            // 排序期间访问信息仍在变化，先取快照
+            List<Candidate> candidates = new ArrayList<>(entries.size());
+            for (Entry entry : entries.values()) {
+                candidates.add(new Candidate(entry, lfu ? entry.frequency : 0, entry.lastAccess));
+            }
+            candidates.sort(Comparator.comparingInt((Candidate c) -> c.frequency)
+                                      .thenComparingLong(c -> c.lastAccess));
+
+            long target = maxSize / 10 * 9;
+            for (Candidate candidate : candidates) {
+                if (totalSize.get() <= target) {
+                    break;
+                }
+                if (entries.containsKey(candidate.entry.id)) {
+                    remove(candidate.entry);
+                    evictionCount.increment();
+                }
+            }
+
+            // 访问次数衰减，过去的热点不会长期占用空间
+            if (lfu) {
+                entries.values().forEach(entry -> entry.frequency >>>= 1);
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * 从缓存目录恢复条目，无法识别的文件删除
+     */
+    private void restore() {
+        String startAfter = null;
+        LocalObjectListing listing;
+        do {
+            listing = storage.listObjects("", null, startAfter, 1000);
+            for (LocalObjectMetadata object : listing.getObjects()) {
+                Entry entry = Entry.parse(object);
+                if (Objects.nonNull(entry)) {
+                    add(entry);
+                } else {
+                    storage.deleteObject(object.getObjectKey());
+                }
+            }
+            startAfter = listing.getNextStartAfter();
+        } while (listing.isTruncated());
+
+        if (!entries.isEmpty()) {
+            log.info("Restored {} cached object(s) ({} bytes) from '{}'",
+                     entries.size(), totalSize.get(), diskCache.getDirectory());
+        }
+        evictIfNecessary();
+    }
+
+    private boolean isValidated(Entry entry) {
+        return System.currentTimeMillis() - entry.validatedAt < diskCache.getRevalidateInterval().toMillis();
+    }
+
+    private long maxObjectSize() {
+        return Math.min(diskCache.getMaxObjectSize().toBytes(), diskCache.getMaxSize().toBytes());
+    }
+
+    /**
+     * 只缓存不带范围、版本号、条件与客户端加密密钥的整对象请求
+     */
+    private static boolean isCacheable(GetObjectRequest request) {
+        return Objects.isNull(request.getRange())
+                && Objects.isNull(request.getVersionId())
+                && Objects.isNull(request.getPartNumber())
+                && Objects.isNull(request.getSSECustomerKey())
+                && request.getMatchingETagConstraints().isEmpty()
+                && request.getNonmatchingETagConstraints().isEmpty()
+                && Objects.isNull(request.getModifiedSinceConstraint())
+                && Objects.isNull(request.getUnmodifiedSinceConstraint());
+    }
+
+    /**
+     * 条目带 ETag 时改为条件请求，对象未修改时不传输内容
+     */
+    private static GetObjectRequest conditional(GetObjectRequest request, Entry current) {
+        if (Objects.isNull(current) || Objects.isNull(current.eTag)) {
+            return request;
+        }
+        GetObjectRequest conditionalRequest = (GetObjectRequest) request.clone();
+        conditionalRequest.setNonmatchingETagConstraints(Collections.singletonList(current.eTag));
+        return conditionalRequest;
+    }
+
+    private static Entry await(Fill fill) {
+        try {
+            return fill.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SdkClientException("Interrupted while waiting for cached object", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SdkClientException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * @return 桶与对象键的 SHA-256（小写十六进制）
+     */
+    private static String cacheId(String bucketName, String objectKey) {
+        byte[] digest = LocalBlobStore.newDigest()
+                                      .digest((bucketName + "\n" + objectKey).getBytes(StandardCharsets.UTF_8));
+        return LocalBlobStore.toHex(digest);
+    }
+
+    /**
+     * ETag 只保留字母、数字与连字符作为文件名的一部分
+     */
+    private static String sanitize(String eTag) {
+        return eTag.replaceAll("[^0-9A-Za-z-]", "");
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            // 内容已读取完毕或已中止
+        }
+    }
+
+    /**
+     * 缓存条目
+     */
+    private static final class Entry {
+
+        private final String id;
+
+        private final String storageKey;
+
+        private final long size;
+
+        private final String eTag;
+
+        private final String contentType;
+
+        private final long lastModified;
+
+        private volatile long lastAccess;
+
+        /**
+         * 访问次数，并发递增允许少计
+         */
+        private volatile int frequency;
+
+        /**
+         * 最近一次确认与对象存储一致的时间，恢复的条目为 0，首次读取时校验
+         */
+        private volatile long validatedAt;
+
+        private Entry(String id, String storageKey, long size, String eTag, String contentType,
+                      long lastModified, long lastAccess) {
+            this.id = id;
+            this.storageKey = storageKey;
+            this.size = size;
+            this.eTag = eTag;
+            this.contentType = contentType;
+            this.lastModified = lastModified;
+            this.lastAccess = lastAccess;
+        }
+
+        /**
+         * 解析 {@code <摘要>.<最后修改时间>.<ETag>} 格式的条目文件名
+         */
+        private static Entry parse(LocalObjectMetadata object) {
+            String[] parts = object.getObjectKey().split("\\.", 3);
+            if (parts.length != 3 || parts[0].length() != 64) {
+                return null;
+            }
+            try {
+                return new Entry(parts[0], object.getObjectKey(), object.getSize(),
+                                 parts[2].isEmpty() ? null : parts[2], object.getContentType(),
+                                 Long.parseLong(parts[1]), object.getLastModified());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+    }
+
+    private static final class Candidate {
+
+        private final Entry entry;
+
+        private final int frequency;
+
+        private final long lastAccess;
+
+        private Candidate(Entry entry, int frequency, long lastAccess) {
+            this.entry = entry;
+            this.frequency = frequency;
+            this.lastAccess = lastAccess;
+        }
+
+    }
+
+    private static final class Fill {
+
+        private final CompletableFuture<Entry> future = new CompletableFuture<>();
+
+        private volatile boolean invalidated;
+
+    }
+
+}
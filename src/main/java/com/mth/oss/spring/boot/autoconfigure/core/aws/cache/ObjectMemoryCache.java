@@ -0,0 +1,575 @@
+package com.mth.oss.spring.boot.autoconfigure.core.aws.cache;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.util.IOUtils;
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 小对象内存缓存
+ * <p>
+ * 把不超过 maxObjectSize 的整对象内容连同元数据保存在堆内存中，按内容字节数计算占用，总量不超过 maxSize。
+ * 淘汰采用 W-TinyLFU：新条目先进入占 1% 容量的窗口区，被挤出窗口时与主区最该淘汰的条目比较近期访问频率，
+ * 频率更高者留下，因此一次性的批量读取无法挤掉常用对象；主区分为试用区与占 80% 的保护区，试用区条目再次访问后进入保护区。
+ * 访问频率由 {@link FrequencySketch} 估计。
+ * <p>
+ * 条目写入超过 timeToLive 后，下次读取时以 ETag 发起 If-None-Match 条件请求：对象未修改时延长有效期，已修改时用响应内容替换。
+ * 经本模板上传、拷贝、删除的对象立即失效，失效前已开始的加载不会写入缓存。
+ * <p>
+ * 读取只在无锁的哈希表中查找，访问记录写入有损的缓冲区，由抢到锁的线程批量更新淘汰顺序
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public class ObjectMemoryCache {
+
+    /**
+     * 访问记录缓冲区容量，满时丢弃访问记录，只影响淘汰顺序的精度
+     */
+    private static final int READ_BUFFER_SIZE = 256;
+
+    private static final int READ_DRAIN_THRESHOLD = READ_BUFFER_SIZE / 4;
+
+    /**
+     * 失效版本号的分段数
+     */
+    private static final int STAMP_STRIPES = 1024;
+
+    private final OssProperties.MemoryCache memoryCache;
+
+    private final ConcurrentMap<String, Node> data = new ConcurrentHashMap<>();
+
+    private final Queue<Node> readBuffer = new ArrayBlockingQueue<>(READ_BUFFER_SIZE);
+
+    /**
+     * 按对象键分段的失效版本号，加载期间版本号变化时不写入缓存
+     */
+    private final AtomicLongArray invalidationStamps = new AtomicLongArray(STAMP_STRIPES);
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * 以下字段由 evictionLock 保护
+     */
+    private final FrequencySketch sketch = new FrequencySketch();
+
+    private final AccessOrder window = new AccessOrder();
+
+    private final AccessOrder probation = new AccessOrder();
+
+    private final AccessOrder protectedOrder = new AccessOrder();
+
+    private long windowWeight;
+
+    private long protectedWeight;
+
+    private volatile long weightedSize;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder revalidatedCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder evictedBytes = new LongAdder();
+
+
+    /**
+     * @param memoryCache 小对象内存缓存配置
+     */
+    public ObjectMemoryCache(OssProperties.MemoryCache memoryCache) {
+        this.memoryCache = memoryCache;
+        sketch.ensureCapacity(1024);
+    }
+
+    /**
+     * 获取对象，内容来自内存或对象存储
+     *
+     * @param request 获取请求
+     * @param loader  从对象存储获取，条件请求未满足（对象未修改）时返回空，通常为 {@code client::getObject}
+     * @return 对象，调用方负责关闭内容流
+     */
+    public S3Object getObject(GetObjectRequest request, Function<GetObjectRequest, S3Object> loader) {
+        if (!isCacheable(request)) {
+            return loader.apply(request);
+        }
+
+        String key = request.getBucketName() + "\n" + request.getKey();
+        long stamp = invalidationStamps.get(stripe(key));
+        Node node = data.get(key);
+        if (Objects.isNull(node)) {
+            missCount.increment();
+            return store(request, key, loader.apply(request), stamp);
+        }
+
+        afterRead(node);
+        if (System.currentTimeMillis() - node.validatedAt < memoryCache.getTimeToLive().toMillis()) {
+            hitCount.increment();
+            return toObject(request, node);
+        }
+
+        // 已过期，条件请求确认对象是否修改
+        S3Object object = loader.apply(conditional(request, node));
+        if (Objects.isNull(object)) {
+            node.validatedAt = System.currentTimeMillis();
+            revalidatedCount.increment();
+            return toObject(request, node);
+        }
+        missCount.increment();
+        return store(request, key, object, stamp);
+    }
+
+    /**
+     * 使对象的缓存条目失效，进行中的加载完成后也不会写入缓存
+     *
+     * @param bucketName 桶名称
+     * @param objectKey  对象完整路径
+     */
+    public void invalidate(String bucketName, String objectKey) {
+        String key = bucketName + "\n" + objectKey;
+        invalidationStamps.incrementAndGet(stripe(key));
+        if (!data.containsKey(key)) {
+            return;
+        }
+
+        evictionLock.lock();
+        try {
+            Node node = data.remove(key);
+            if (Objects.nonNull(node)) {
+                unlink(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        for (int i = 0; i < STAMP_STRIPES; i++) {
+            invalidationStamps.incrementAndGet(i);
+        }
+
+        evictionLock.lock();
+        try {
+            readBuffer.clear();
+            for (Node node : data.values()) {
+                if (data.remove(node.key, node)) {
+                    unlink(node);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * @return 当前缓存条目数
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * @return 缓存内容总字节数，空对象按 1 字节计算
+     */
+    public long getWeightedSize() {
+        return weightedSize;
+    }
+
+    /**
+     * @return 命中次数，不含条件请求确认未修改的读取
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return 未命中（从对象存储获取内容）次数
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return 条件请求确认对象未修改、继续使用缓存的次数
+     */
+    public long getRevalidatedCount() {
+        return revalidatedCount.sum();
+    }
+
+    /**
+     * @return 因容量不足被淘汰或未被接纳的条目数
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return 被淘汰或未被接纳的内容字节数
+     */
+    public long getEvictedBytes() {
+        return evictedBytes.sum();
+    }
+
+    /**
+     * @return 命中率，读取过缓存时为命中（含条件请求确认未修改）占比，否则为 0
+     */
+    public double getHitRatio() {
+        long hit = getHitCount() + getRevalidatedCount();
+        long total = hit + getMissCount();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * 读取对象内容并写入缓存，返回内容来自内存的对象；超过大小上限或长度未知时原样返回
+     */
+    private S3Object store(GetObjectRequest request, String key, S3Object object, long stamp) {
+        if (Objects.isNull(object)) {
+            return null;
+        }
+        ObjectMetadata metadata = object.getObjectMetadata();
+        if (Objects.isNull(metadata.getRawMetadataValue(Headers.CONTENT_LENGTH))
+                || metadata.getContentLength() > memoryCache.getMaxObjectSize().toBytes()) {
+            return object;
+        }
+
+        byte[] content;
+        try (S3ObjectInputStream inputStream = object.getObjectContent()) {
+            content = IOUtils.toByteArray(inputStream);
+        } catch (IOException e) {
+            throw new SdkClientException("Unable to read object " + request.getKey(), e);
+        }
+
+        Node node = new Node(key, content, ObjectMetadataCache.copyOf(metadata), System.currentTimeMillis());
+        put(node, stamp);
+        return toObject(request, node);
+    }
+
+    private void put(Node node, long stamp) {
+        evictionLock.lock();
+        try {
+            // 加载期间对象被写入或删除
+            if (invalidationStamps.get(stripe(node.key)) != stamp) {
+                return;
+            }
+            drainReadBuffer();
+
+            Node previous = data.put(node.key, node);
+            if (Objects.nonNull(previous)) {
+                unlink(previous);
+            }
+            sketch.ensureCapacity(data.size());
+            sketch.increment(node.key.hashCode());
+
+            node.segment = Segment.WINDOW;
+            window.add(node);
+            windowWeight += node.weight();
+            weightedSize += node.weight();
+            evict();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void afterRead(Node node) {
+        boolean recorded = readBuffer.offer(node);
+        if ((!recorded || readBuffer.size() >= READ_DRAIN_THRESHOLD) && evictionLock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffer() {
+        Node node;
+        while (Objects.nonNull(node = readBuffer.poll())) {
+            onAccess(node);
+        }
+    }
+
+    /**
+     * 记录访问频率并调整淘汰顺序：窗口区与保护区移到队尾，试用区晋升到保护区
+     */
+    private void onAccess(Node node) {
+        if (Objects.isNull(node.segment)) {
+            // 已被移除
+            return;
+        }
+        sketch.increment(node.key.hashCode());
+
+        switch (node.segment) {
+            case WINDOW:
+                window.moveToTail(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.segment = Segment.PROTECTED;
+                protectedOrder.add(node);
+                protectedWeight += node.weight();
+                demoteFromProtected();
+                break;
+            default:
+                protectedOrder.moveToTail(node);
+                break;
+        }
+    }
+
+    private void demoteFromProtected() {
+        long protectedMaximum = mainMaximum() * 8 / 10;
+        while (protectedWeight > protectedMaximum) {
+            Node demoted = protectedOrder.peekFirst();
+            protectedOrder.remove(demoted);
+            protectedWeight -= demoted.weight();
+            demoted.segment = Segment.PROBATION;
+            probation.add(demoted);
+        }
+    }
+
+    /**
+     * 挤出超出窗口区容量的条目，逐个与主区最该淘汰的条目比较访问频率
+     */
+    private void evict() {
+        long windowMaximum = windowMaximum();
+        while (windowWeight > windowMaximum) {
+            Node candidate = window.peekFirst();
+            window.remove(candidate);
+            windowWeight -= candidate.weight();
+            // 比较期间候选条目不属于任何区域
+            candidate.segment = null;
+            admit(candidate);
+        }
+    }
+
+    private void admit(Node candidate) {
+        long mainMaximum = mainMaximum();
+        if (candidate.weight() > mainMaximum) {
+            evict(candidate);
+            return;
+        }
+
+        // 主区占用不含候选条目；先按淘汰顺序选出需要腾出的条目，全部比较通过后才淘汰，候选条目落选时主区不受影响
+        long mainWeight = weightedSize - windowWeight - candidate.weight();
+        int candidateFrequency = sketch.frequency(candidate.key.hashCode());
+        List<Node> victims = new ArrayList<>();
+        Node victim = probation.peekFirst();
+        boolean inProbation = true;
+        while (mainWeight + candidate.weight() > mainMaximum) {
+            if (Objects.isNull(victim) && inProbation) {
+                victim = protectedOrder.peekFirst();
+                inProbation = false;
+            }
+            if (Objects.isNull(victim)) {
+                break;
+            }
+            if (candidateFrequency <= sketch.frequency(victim.key.hashCode())) {
+                evict(candidate);
+                return;
+            }
+            victims.add(victim);
+            mainWeight -= victim.weight();
+            victim = victim.next;
+        }
+        victims.forEach(this::evict);
+        candidate.segment = Segment.PROBATION;
+        probation.add(candidate);
+    }
+
+    private void evict(Node node) {
+        if (Objects.nonNull(node.segment)) {
+            unlink(node);
+        } else {
+            weightedSize -= node.weight();
+        }
+        data.remove(node.key, node);
+        evictionCount.increment();
+        evictedBytes.add(node.content.length);
+    }
+
+    /**
+     * 把条目移出所在区域并扣除占用
+     */
+    private void unlink(Node node) {
+        if (Objects.isNull(node.segment)) {
+            return;
+        }
+        switch (node.segment) {
+            case WINDOW:
+                window.remove(node);
+                windowWeight -= node.weight();
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            default:
+                protectedOrder.remove(node);
+                protectedWeight -= node.weight();
+                break;
+        }
+        node.segment = null;
+        weightedSize -= node.weight();
+    }
+
+    private long windowMaximum() {
+        return Math.max(1, memoryCache.getMaxSize().toBytes() / 100);
+    }
+
+    private long mainMaximum() {
+        return memoryCache.getMaxSize().toBytes() - windowMaximum();
+    }
+
+    private static int stripe(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % STAMP_STRIPES;
+    }
+
+    private static S3Object toObject(GetObjectRequest request, Node node) {
+        S3Object object = new S3Object();
+        object.setBucketName(request.getBucketName());
+        object.setKey(request.getKey());
+        object.setObjectMetadata(ObjectMetadataCache.copyOf(node.metadata));
+        object.setObjectContent(new ByteArrayInputStream(node.content));
+        return object;
+    }
+
+    /**
+     * 只缓存不带范围、版本号、条件与客户端加密密钥的整对象请求
+     */
+    private static boolean isCacheable(GetObjectRequest request) {
+        return Objects.isNull(request.getRange())
+                && Objects.isNull(request.getVersionId())
+                && Objects.isNull(request.getPartNumber())
+                && Objects.isNull(request.getSSECustomerKey())
+                && request.getMatchingETagConstraints().isEmpty()
+                && request.getNonmatchingETagConstraints().isEmpty()
+                && Objects.isNull(request.getModifiedSinceConstraint())
+                && Objects.isNull(request.getUnmodifiedSinceConstraint());
+    }
+
+    /**
+     * 条目带 ETag 时改为条件请求，对象未修改时不传输内容
+     */
+    private static GetObjectRequest conditional(GetObjectRequest request, Node node) {
+        String eTag = node.metadata.getETag();
+        if (Objects.isNull(eTag)) {
+            return request;
+        }
+        GetObjectRequest conditionalRequest = (GetObjectRequest) request.clone();
+        conditionalRequest.setNonmatchingETagConstraints(Collections.singletonList(eTag));
+        return conditionalRequest;
+    }
+
+    private enum Segment {
+        WINDOW, PROBATION, PROTECTED
+    }
+
+    /**
+     * 缓存条目，链表指针与所在区域由 evictionLock 保护
+     */
+    private static final class Node {
+
+        private final String key;
+
+        private final byte[] content;
+
+        private final ObjectMetadata metadata;
+
+        /**
+         * 写入或最近一次确认与对象存储一致的时间
+         */
+        private volatile long validatedAt;
+
+        private Segment segment;
+
+        private Node prev;
+
+        private Node next;
+
+        private Node(String key, byte[] content, ObjectMetadata metadata, long validatedAt) {
+            this.key = key;
+            this.content = content;
+            this.metadata = metadata;
+            this.validatedAt = validatedAt;
+        }
+
+        /**
+         * 按内容字节数计算占用，空对象至少占 1，避免不受容量约束
+         */
+        private long weight() {
+            return Math.max(1, content.length);
+        }
+
+    }
+
+    /**
+     * 按访问顺序排列的双向链表，队首最该淘汰
+     */
+    private static final class AccessOrder {
+
+        private Node head;
+
+        private Node tail;
+
+        private Node peekFirst() {
+            return head;
+        }
+
+        private void add(Node node) {
+            node.prev = tail;
+            node.next = null;
+            if (Objects.isNull(tail)) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        private void remove(Node node) {
+            if (Objects.isNull(node.prev)) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (Objects.isNull(node.next)) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+
+        private void moveToTail(Node node) {
+            if (node != tail) {
+                remove(node);
+                add(node);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,276 @@
+package com.mth.oss.spring.boot.autoconfigure.core.aws.cache;
+
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import lombok.EqualsAndHashCode;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * 对象元数据缓存
+ * <p>
+ * 缓存 HEAD 请求的结果，包括对象不存在的结果，判断对象是否存在与查询元数据时在有效期内不再请求对象存储。
+ * 对象存在时缓存 timeToLive，不存在时缓存 negativeTimeToLive，用于发现其他途径对对象的修改；
+ * 经本模板上传、拷贝、删除的对象立即失效，失效前已开始的查询不会写入缓存，删除后直接记为不存在。
+ * <p>
+ * 条目数超过 maximumSize 时先淘汰已过期的条目，仍超出时按到期时间从早到晚淘汰至上限的 90%
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public class ObjectMetadataCache {
+
+    /**
+     * 失效版本号的分段数
+     */
+    private static final int STAMP_STRIPES = 1024;
+
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    private final OssProperties.MetadataCache metadataCache;
+
+    /**
+     * 按对象分段的失效版本号，查询期间版本号变化时不写入缓存
+     */
+    private final AtomicLongArray invalidationStamps = new AtomicLongArray(STAMP_STRIPES);
+
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+
+    /**
+     * @param metadataCache 对象元数据缓存配置
+     */
+    public ObjectMetadataCache(OssProperties.MetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    /**
+     * 获取对象元数据，缓存中没有或已过期时查询
+     *
+     * @param bucketName 桶名称
+     * @param objectKey  对象完整路径
+     * @param loader     查询元数据，对象不存在时返回空
+     * @return 对象元数据的副本，对象不存在时为空
+     */
+    public ObjectMetadata get(String bucketName, String objectKey,
+                              BiFunction<String, String, ObjectMetadata> loader) {
+        Key key = new Key(bucketName, objectKey);
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (Objects.nonNull(entry) && now < entry.expiresAt) {
+            hitCount.increment();
+            return copyOf(entry.metadata);
+        }
+
+        missCount.increment();
+        long stamp = invalidationStamps.get(key.stripe());
+        ObjectMetadata metadata = loader.apply(bucketName, objectKey);
+        put(key, copyOf(metadata), stamp);
+        return metadata;
+    }
+
+    /**
+     * 记录对象已不存在，用于本模板删除对象之后
+     *
+     * @param bucketName 桶名称
+     * @param objectKey  对象完整路径
+     */
+    public void putAbsent(String bucketName, String objectKey) {
+        Key key = new Key(bucketName, objectKey);
+        put(key, null, invalidationStamps.incrementAndGet(key.stripe()));
+    }
+
+    /**
+     * 使对象的缓存条目失效，进行中的查询完成后也不会写入缓存
+     *
+     * @param bucketName 桶名称
+     * @param objectKey  对象完整路径
+     */
+    public void invalidate(String bucketName, String objectKey) {
+        Key key = new Key(bucketName, objectKey);
+        invalidationStamps.incrementAndGet(key.stripe());
+        entries.remove(key);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        for (int i = 0; i < STAMP_STRIPES; i++) {
+            invalidationStamps.incrementAndGet(i);
+        }
+        entries.clear();
+    }
+
+    /**
+     * @return 当前缓存条目数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return 未命中（请求对象存储）次数
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return 淘汰条目数
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return 命中率，尚无请求时为 0
+     */
+    public double getHitRatio() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total == 0 ? 0D : (double) hits / total;
+    }
+
+    /**
+     * 写入条目；查询期间对象被写入或删除时放弃
+     */
+    private void put(Key key, ObjectMetadata metadata, long stamp) {
+        long timeToLive = Objects.nonNull(metadata)
+                ? metadataCache.getTimeToLive().toMillis()
+                : metadataCache.getNegativeTimeToLive().toMillis();
+        if (timeToLive <= 0) {
+            return;
+        }
+
+        Entry entry = new Entry(metadata, System.currentTimeMillis() + timeToLive);
+        entries.put(key, entry);
+        // 与失效并发时撤回，失效一方先增加版本号再删除条目，任一顺序下都不会留下旧条目
+        if (invalidationStamps.get(key.stripe()) != stamp) {
+            entries.remove(key, entry);
+            return;
+        }
+
+        if (entries.size() > metadataCache.getMaximumSize()) {
+            evict();
+        }
+    }
+
+    /**
+     * 淘汰已过期与最早到期的条目，同一时间只有一个线程执行
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            entries.forEach((key, entry) -> {
+                if (now >= entry.expiresAt && entries.remove(key, entry)) {
+                    evictionCount.increment();
+                }
+            });
+
+            int target = metadataCache.getMaximumSize() * 9 / 10;
+            int excess = entries.size() - target;
+            if (excess <= 0) {
+                return;
+            }
+
+            List<Map.Entry<Key, Entry>> candidates = new ArrayList<>(entries.entrySet());
+            candidates.sort(Comparator.comparingLong(candidate -> candidate.getValue().expiresAt));
+            for (int i = 0; i < excess && i < candidates.size(); i++) {
+                Map.Entry<Key, Entry> candidate = candidates.get(i);
+                if (entries.remove(candidate.getKey(), candidate.getValue())) {
+                    evictionCount.increment();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * 复制元数据。{@link ObjectMetadata#clone()} 复制后的请求头不再忽略大小写，
+     * 服务端返回的请求头名称不规范（例如 Content-type）时读不到对应的值，因此逐项复制
+     *
+     * @param metadata 元数据，可为空
+     * @return 副本
+     */
+    public static ObjectMetadata copyOf(ObjectMetadata metadata) {
+        if (Objects.isNull(metadata)) {
+            return null;
+        }
+        ObjectMetadata copy = new ObjectMetadata();
+        metadata.getRawMetadata().forEach(copy::setHeader);
+        Map<String, String> userMetadata = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        userMetadata.putAll(metadata.getUserMetadata());
+        copy.setUserMetadata(userMetadata);
+        copy.setHttpExpiresDate(metadata.getHttpExpiresDate());
+        copy.setExpirationTime(metadata.getExpirationTime());
+        copy.setExpirationTimeRuleId(metadata.getExpirationTimeRuleId());
+        copy.setRestoreExpirationTime(metadata.getRestoreExpirationTime());
+        if (Objects.nonNull(metadata.getOngoingRestore())) {
+            copy.setOngoingRestore(metadata.getOngoingRestore());
+        }
+        return copy;
+    }
+
+    /**
+     * 缓存键
+     */
+    @EqualsAndHashCode
+    private static final class Key {
+
+        private final String bucketName;
+
+        private final String objectKey;
+
+        private Key(String bucketName, String objectKey) {
+            this.bucketName = bucketName;
+            this.objectKey = objectKey;
+        }
+
+        private int stripe() {
+            return (hashCode() & Integer.MAX_VALUE) % STAMP_STRIPES;
+        }
+
+    }
+
+    /**
+     * 元数据及其到期时间，元数据为空表示对象不存在
+     */
+    private static final class Entry {
+
+        private final ObjectMetadata metadata;
+
+        private final long expiresAt;
+
+        private Entry(ObjectMetadata metadata, long expiresAt) {
+            this.metadata = metadata;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,222 @@
+package com.mth.oss.spring.boot.autoconfigure.core.aws.cache;
+
+import com.amazonaws.HttpMethod;
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import lombok.EqualsAndHashCode;
+
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * 预签名 URL 缓存
+ * <p>
+ * 以 (桶, 对象, 请求方法, 有效期, 请求参数) 为键缓存已签名的 URL，剩余有效期不少于有效期的 minRemainingRatio 时直接返回，
+ * 省去重复签名与扩展点调用；同一对象在缓存期间返回相同的 URL，便于 CDN 缓存。
+ * <p>
+ * 条目数超过 maximumSize 时先淘汰不再可用的条目，仍超出时按到期时间从早到晚淘汰至上限的 90%
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public class PresignedUrlCache {
+
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    private final OssProperties.PresignCache presignCache;
+
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+
+    /**
+     * @param presignCache 预签名 URL 缓存配置
+     */
+    public PresignedUrlCache(OssProperties.PresignCache presignCache) {
+        this.presignCache = presignCache;
+    }
+
+    /**
+     * 获取可用的预签名 URL，缓存中没有或剩余有效期不足时重新签名
+     *
+     * @param bucketName     桶名称
+     * @param objectKey      对象完整路径
+     * @param method         请求方法
+     * @param lifetimeMillis 有效期（毫秒）
+     * @param params         额外请求参数，可为空
+     * @param signer         按到期时间戳（毫秒）签名
+     * @return 预签名 URL
+     */
+    public URL get(String bucketName, String objectKey, HttpMethod method, long lifetimeMillis,
+                   Map<String, String> params, LongFunction<URL> signer) {
+        Key key = new Key(bucketName, objectKey, method, lifetimeMillis,
+                          Objects.isNull(params) ? Collections.emptyMap() : new TreeMap<>(params));
+
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (Objects.nonNull(entry) && isUsable(entry, now)) {
+            hitCount.increment();
+            return entry.url;
+        }
+
+        // 同一键同时未命中时只签名一次，保证并发调用方拿到相同的 URL
+        boolean[] signed = new boolean[1];
+        entry = entries.compute(key, (k, current) -> {
+            if (Objects.nonNull(current) && isUsable(current, now)) {
+                return current;
+            }
+            signed[0] = true;
+            long expiresAt = now + lifetimeMillis;
+            return new Entry(signer.apply(expiresAt), expiresAt, lifetimeMillis);
+        });
+
+        if (signed[0]) {
+            missCount.increment();
+            if (entries.size() > presignCache.getMaximumSize()) {
+                evict();
+            }
+        } else {
+            hitCount.increment();
+        }
+        return entry.url;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return 当前缓存条目数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return 未命中（重新签名）次数
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return 淘汰条目数
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return 命中率，尚无请求时为 0
+     */
+    public double getHitRatio() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total == 0 ? 0D : (double) hits / total;
+    }
+
+    private boolean isUsable(Entry entry, long now) {
+        return entry.expiresAt - now >= entry.lifetimeMillis * presignCache.getMinRemainingRatio();
+    }
+
+    /**
+     * 淘汰不可用与最早到期的条目，同一时间只有一个线程执行
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            entries.forEach((key, entry) -> {
+                if (!isUsable(entry, now) && entries.remove(key, entry)) {
+                    evictionCount.increment();
+                }
+            });
+
+            int target = presignCache.getMaximumSize() * 9 / 10;
+            int excess = entries.size() - target;
+            if (excess <= 0) {
+                return;
+            }
+
+            List<Map.Entry<Key, Entry>> candidates = new ArrayList<>(entries.entrySet());
+            candidates.sort(Comparator.comparingLong(candidate -> candidate.getValue().expiresAt));
+            for (int i = 0; i < excess && i < candidates.size(); i++) {
+                Map.Entry<Key, Entry> candidate = candidates.get(i);
+                if (entries.remove(candidate.getKey(), candidate.getValue())) {
+                    evictionCount.increment();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * 缓存键
+     */
+    @EqualsAndHashCode
+    private static final class Key {
+
+        private final String bucketName;
+
+        private final String objectKey;
+
+        private final HttpMethod method;
+
+        private final long lifetimeMillis;
+
+        private final Map<String, String> params;
+
+        private Key(String bucketName, String objectKey, HttpMethod method, long lifetimeMillis,
+                    Map<String, String> params) {
+            this.bucketName = bucketName;
+            this.objectKey = objectKey;
+            this.method = method;
+            this.lifetimeMillis = lifetimeMillis;
+            this.params = params;
+        }
+
+    }
+
+    /**
+     * 已签名的 URL 及其到期时间
+     */
+    private static final class Entry {
+
+        private final URL url;
+
+        private final long expiresAt;
+
+        private final long lifetimeMillis;
+
+        private Entry(URL url, long expiresAt, long lifetimeMillis) {
+            this.url = url;
+            this.expiresAt = expiresAt;
+            this.lifetimeMillis = lifetimeMillis;
+        }
+
+    }
+
+}
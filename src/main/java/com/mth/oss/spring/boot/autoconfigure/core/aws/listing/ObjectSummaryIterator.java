@@ -0,0 +1,145 @@
+package com.mth.oss.spring.boot.autoconfigure.core.aws.listing;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 按需翻页的对象列举迭代器
+ * <p>
+ * 首次调用 {@link #hasNext()} 时才请求第一页，之后沿 continuation token 逐页获取，内存中最多保留两页数据；
+ * 指定线程池时，取到一页后立即在后台预取下一页，调用方消费当前页的同时下一页已在加载
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public class ObjectSummaryIterator implements Iterator<S3ObjectSummary>, AutoCloseable {
+
+    private final Function<ListObjectsV2Request, ListObjectsV2Result> lister;
+
+    private final ListObjectsV2Request request;
+
+    private final Executor prefetchExecutor;
+
+    private Iterator<S3ObjectSummary> page = Collections.emptyIterator();
+
+    private Future<ListObjectsV2Result> nextPage;
+
+    private String continuationToken;
+
+    private boolean exhausted;
+
+
+    /**
+     * @param lister           列举一页对象，通常为 {@code client::listObjectsV2}
+     * @param request          列举请求，maxKeys 为每页个数；不会被修改
+     * @param prefetchExecutor 预取下一页的线程池，为空时不预取
+     */
+    public ObjectSummaryIterator(Function<ListObjectsV2Request, ListObjectsV2Result> lister,
+                                 ListObjectsV2Request request, Executor prefetchExecutor) {
+        this.lister = lister;
+        this.request = request;
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    /**
+     * 以流的形式按需列举对象，流关闭时取消尚未完成的预取
+     *
+     * @param lister           列举一页对象
+     * @param request          列举请求
+     * @param prefetchExecutor 预取下一页的线程池，为空时不预取
+     * @return 对象流
+     */
+    public static Stream<S3ObjectSummary> stream(Function<ListObjectsV2Request, ListObjectsV2Result> lister,
+                                                 ListObjectsV2Request request, Executor prefetchExecutor) {
+        ObjectSummaryIterator iterator = new ObjectSummaryIterator(lister, request, prefetchExecutor);
+        Spliterator<S3ObjectSummary> spliterator = Spliterators.spliteratorUnknownSize(
+                iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext()) {
+            if (exhausted) {
+                return false;
+            }
+            acceptPage(takeNextPage());
+        }
+        return true;
+    }
+
+    @Override
+    public S3ObjectSummary next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    /**
+     * 取消尚未完成的预取
+     */
+    @Override
+    public void close() {
+        exhausted = true;
+        page = Collections.emptyIterator();
+        if (Objects.nonNull(nextPage)) {
+            nextPage.cancel(true);
+            nextPage = null;
+        }
+    }
+
+    private ListObjectsV2Result takeNextPage() {
+        if (Objects.isNull(nextPage)) {
+            return lister.apply(pageRequest());
+        }
+
+        try {
+            return nextPage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SdkClientException("Listing objects was interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SdkClientException("Listing objects failed", cause);
+        } finally {
+            nextPage = null;
+        }
+    }
+
+    private void acceptPage(ListObjectsV2Result result) {
+        page = result.getObjectSummaries().iterator();
+        continuationToken = result.getNextContinuationToken();
+        exhausted = !result.isTruncated() || Objects.isNull(continuationToken);
+
+        if (!exhausted && Objects.nonNull(prefetchExecutor)) {
+            ListObjectsV2Request pageRequest = pageRequest();
+            FutureTask<ListObjectsV2Result> prefetch = new FutureTask<>(() -> lister.apply(pageRequest));
+            nextPage = prefetch;
+            prefetchExecutor.execute(prefetch);
+        }
+    }
+
+    /**
+     * 复制原请求并设置 continuation token，避免修改调用方的请求对象
+     */
+    private ListObjectsV2Request pageRequest() {
+        ListObjectsV2Request pageRequest = (ListObjectsV2Request) request.clone();
+        if (Objects.nonNull(continuationToken)) {
+            pageRequest.setContinuationToken(continuationToken);
+        }
+        return pageRequest;
+    }
+
+}
@@ -0,0 +1,578 @@
+package com.mth.oss.spring.boot.autoconfigure.core.aws.listing;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 并行列举引擎
+ * <p>
+ * 单条 continuation token 链只能串行翻页，每次往返最多 1000 个对象。本引擎先把列举范围划分为多个分片，
+ * 再由固定数量的线程同时列举各分片，结果合并为一个流：
+ * <ul>
+ *     <li>按目录划分：以分隔符列举发现子目录，每个子目录为一个分片，直接位于该目录下的对象作为内存分片；
+ *     分片数不足 parallelism 时继续向下发现，最多 discoveryDepth 层</li>
+ *     <li>按键区间划分：按分割键把键空间切成若干左开右闭区间，适用于没有目录层级的扁平键</li>
+ * </ul>
+ * 有序模式下按键的字典序输出，每个分片使用独立缓冲区，调用方按分片顺序消费，
+ * 列举线程最多领先调用方 2 * parallelism 个分片；无序模式下所有分片共享一个缓冲区，先列举到的先输出。
+ * <p>
+ * 每次列举使用独立的线程池，避免多个列举互相占用线程而死锁；缓冲区满时列举线程等待调用方消费，
+ * 因此使用完毕后必须关闭流
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public class ParallelObjectLister {
+
+    /**
+     * 自动生成分割键时使用的字符，覆盖常见的对象键字符
+     */
+    private static final String SPLIT_ALPHABET =
+            "-.0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+
+    /**
+     * 等待缓冲区时检查列举是否已关闭的间隔
+     */
+    private static final long POLL_MILLIS = 100L;
+
+    /**
+     * 分片列举结束标记
+     */
+    private static final Object END = new Object();
+
+    private final Function<ListObjectsV2Request, ListObjectsV2Result> lister;
+
+    private final OssProperties.Listing listing;
+
+
+    /**
+     * @param lister  列举一页对象，通常为 {@code client::listObjectsV2}
+     * @param listing 并行列举配置
+     */
+    public ParallelObjectLister(Function<ListObjectsV2Request, ListObjectsV2Result> lister,
+                                OssProperties.Listing listing) {
+        this.lister = lister;
+        this.listing = listing;
+    }
+
+    /**
+     * 按目录划分分片并行列举
+     * <p>
+     * 分片在调用时立即发现，直接位于已展开目录下的对象会保存在内存中；
+     * 目录下直接存放大量对象时应使用 {@link #streamByKeyRange(ListObjectsV2Request, List, boolean)}
+     *
+     * @param request   列举请求，prefix 为列举范围，startAfter 对所有分片生效
+     * @param delimiter 目录分隔符，通常为 "/"
+     * @param ordered   是否按键的字典序输出
+     * @return 对象流
+     */
+    public Stream<S3ObjectSummary> streamByPrefix(ListObjectsV2Request request, String delimiter, boolean ordered) {
+        ExecutorService executor = newListingExecutor();
+        try {
+            List<Shard> shards = discoverShards(request, delimiter, executor);
+            return stream(shards, executor, ordered);
+        } catch (RuntimeException e) {
+            executor.shutdownNow();
+            throw e;
+        }
+    }
+
+    /**
+     * 按键区间划分分片并行列举
+     * <p>
+     * n 个分割键把键空间划分为 n + 1 个区间 (startAfter, k1], (k1, k2] ... (kn, +∞)，每个区间为一个分片
+     *
+     * @param request   列举请求，prefix 为列举范围，startAfter 为第一个区间的起点
+     * @param splitKeys 分割键，为空时按 {@link #splitKeys(String, int)} 自动生成
+     * @param ordered   是否按键的字典序输出
+     * @return 对象流
+     */
+    public Stream<S3ObjectSummary> streamByKeyRange(ListObjectsV2Request request, List<String> splitKeys,
+                                                    boolean ordered) {
+        List<String> boundaries = new ArrayList<>(Objects.isNull(splitKeys) || splitKeys.isEmpty()
+                                                  ? splitKeys(request.getPrefix(), listing.getParallelism() * 4)
+                                                  : splitKeys);
+        boundaries.sort(ParallelObjectLister::compareKeys);
+
+        List<Shard> shards = new ArrayList<>();
+        String startAfter = request.getStartAfter();
+        for (String boundary : boundaries) {
+            if (Objects.nonNull(startAfter) && compareKeys(boundary, startAfter) <= 0) {
+                continue;
+            }
+            shards.add(new ListedShard(request, request.getPrefix(), startAfter, boundary));
+            startAfter = boundary;
+        }
+        shards.add(new ListedShard(request, request.getPrefix(), startAfter, null));
+
+        return stream(shards, newListingExecutor(), ordered);
+    }
+
+    /**
+     * 在前缀后拼接常见键字符，生成均匀分布的分割键
+     *
+     * @param prefix 前缀，可为空
+     * @param count  期望的分片数
+     * @return 分割键，个数为 count - 1（不超过字符表长度）
+     */
+    public static List<String> splitKeys(String prefix, int count) {
+        String base = Objects.isNull(prefix) ? "" : prefix;
+        int alphabetSize = SPLIT_ALPHABET.length();
+        int shards = Math.max(1, Math.min(count, alphabetSize + 1));
+
+        List<String> keys = new ArrayList<>(shards - 1);
+        for (int i = 1; i < shards; i++) {
+            keys.add(base + SPLIT_ALPHABET.charAt(i * alphabetSize / shards));
+        }
+        return keys;
+    }
+
+    /**
+     * 按 Unicode 码点比较对象键，与 S3 按 UTF-8 字节排序的结果一致
+     */
+    static int compareKeys(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    // ------------------------------------------------------------
+    // ------------------------- 分片发现 --------------------------
+    // ------------------------------------------------------------
+
+    /**
+     * 逐层发现子目录，直到分片数达到 parallelism 或达到最大层数
+     */
+    List<Shard> discoverShards(ListObjectsV2Request request, String delimiter, ExecutorService executor) {
+        if (!StringUtils.hasLength(delimiter)) {
+            return Collections.singletonList(new ListedShard(request, request.getPrefix(), null, null));
+        }
+
+        List<Shard> shards = discover(request, request.getPrefix(), delimiter);
+        for (int depth = 1; depth < listing.getDiscoveryDepth(); depth++) {
+            long listedShards = shards.stream().filter(shard -> shard instanceof ListedShard).count();
+            if (listedShards == 0 || listedShards >= listing.getParallelism()) {
+                break;
+            }
+
+            List<Callable<List<Shard>>> tasks = new ArrayList<>(shards.size());
+            for (Shard shard : shards) {
+                if (shard instanceof ListedShard) {
+                    String prefix = ((ListedShard) shard).prefix;
+                    tasks.add(() -> discover(request, prefix, delimiter));
+                } else {
+                    tasks.add(() -> Collections.singletonList(shard));
+                }
+            }
+
+            List<Shard> expanded = new ArrayList<>();
+            for (Future<List<Shard>> future : invokeAll(executor, tasks)) {
+                expanded.addAll(getDone(future));
+            }
+            shards = expanded;
+        }
+        return shards;
+    }
+
+    /**
+     * 以分隔符列举一层，子目录各为一个分片，相邻的直接对象合并为一个内存分片，分片按键的字典序排列
+     */
+    private List<Shard> discover(ListObjectsV2Request request, String prefix, String delimiter) {
+        ListObjectsV2Request discoveryRequest = (ListObjectsV2Request) request.clone();
+        discoveryRequest.setPrefix(prefix);
+        discoveryRequest.setDelimiter(delimiter);
+        discoveryRequest.setContinuationToken(null);
+
+        List<S3ObjectSummary> objects = new ArrayList<>();
+        List<String> commonPrefixes = new ArrayList<>();
+        ListObjectsV2Result result;
+        do {
+            result = lister.apply(discoveryRequest);
+            objects.addAll(result.getObjectSummaries());
+            commonPrefixes.addAll(result.getCommonPrefixes());
+            discoveryRequest.setContinuationToken(result.getNextContinuationToken());
+        } while (result.isTruncated() && Objects.nonNull(result.getNextContinuationToken()));
+
+        // 两个列表各自有序，归并后得到按键排列的分片
+        List<Shard> shards = new ArrayList<>();
+        List<S3ObjectSummary> group = new ArrayList<>();
+        int o = 0;
+        int p = 0;
+        while (o < objects.size() || p < commonPrefixes.size()) {
+            if (p == commonPrefixes.size()
+                    || (o < objects.size() && compareKeys(objects.get(o).getKey(), commonPrefixes.get(p)) < 0)) {
+                group.add(objects.get(o++));
+                continue;
+            }
+            if (!group.isEmpty()) {
+                shards.add(new FixedShard(group));
+                group = new ArrayList<>();
+            }
+            shards.add(new ListedShard(request, commonPrefixes.get(p++), null, null));
+        }
+        if (!group.isEmpty()) {
+            shards.add(new FixedShard(group));
+        }
+        return shards;
+    }
+
+    private static <T> List<Future<T>> invokeAll(ExecutorService executor, List<Callable<T>> tasks) {
+        try {
+            return executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SdkClientException("Listing objects was interrupted", e);
+        }
+    }
+
+    private static <T> T getDone(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SdkClientException("Listing objects was interrupted", e);
+        } catch (ExecutionException e) {
+            throw failure(e.getCause());
+        }
+    }
+
+    private static RuntimeException failure(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new SdkClientException("Listing objects failed", cause);
+    }
+
+    private ExecutorService newListingExecutor() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("oss-listing-");
+        threadFactory.setDaemon(true);
+
+        int parallelism = listing.getParallelism();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+                                                             new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // ------------------------------------------------------------
+    // ------------------------- 合并输出 --------------------------
+    // ------------------------------------------------------------
+
+    private Stream<S3ObjectSummary> stream(List<Shard> shards, ExecutorService executor, boolean ordered) {
+        MergingIterator iterator = new MergingIterator(shards, executor, ordered);
+        int characteristics = ordered ? Spliterator.ORDERED | Spliterator.NONNULL : Spliterator.NONNULL;
+        Spliterator<S3ObjectSummary> spliterator = Spliterators.spliteratorUnknownSize(iterator, characteristics);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+
+    /**
+     * 分片列举失败标记
+     */
+    private static final class Failure {
+
+        private final Throwable cause;
+
+        private Failure(Throwable cause) {
+            this.cause = cause;
+        }
+
+    }
+
+    /**
+     * 列举已关闭，列举线程退出
+     */
+    private static final class CancelledException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private CancelledException() {
+            super(null, null, false, false);
+        }
+
+    }
+
+    /**
+     * 在首次消费时启动列举线程，每个线程依次领取下一个分片列举，直到分片领完或流关闭
+     */
+    private final class MergingIterator implements Iterator<S3ObjectSummary>, AutoCloseable {
+
+        private final List<Shard> shards;
+
+        private final ExecutorService executor;
+
+        private final boolean ordered;
+
+        /**
+         * 有序模式下每个分片一个缓冲区；无序模式下共用一个
+         */
+        private final List<BlockingQueue<Object>> buffers;
+
+        /**
+         * 有序模式下限制列举线程领先调用方的分片数
+         */
+        private final Semaphore window;
+
+        private final AtomicInteger nextShard = new AtomicInteger();
+
+        private volatile boolean closed;
+
+        private boolean started;
+
+        private int finishedShards;
+
+        private S3ObjectSummary next;
+
+        private MergingIterator(List<Shard> shards, ExecutorService executor, boolean ordered) {
+            this.shards = shards;
+            this.executor = executor;
+            this.ordered = ordered;
+
+            int parallelism = listing.getParallelism();
+            this.buffers = new ArrayList<>(ordered ? shards.size() : 1);
+            if (ordered) {
+                int capacity = Math.max(1, listing.getBufferCapacity() / parallelism);
+                for (int i = 0; i < shards.size(); i++) {
+                    buffers.add(new LinkedBlockingQueue<>(capacity));
+                }
+            } else {
+                buffers.add(new LinkedBlockingQueue<>(Math.max(1, listing.getBufferCapacity())));
+            }
+            this.window = new Semaphore(parallelism * 2);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (Objects.nonNull(next)) {
+                return true;
+            }
+            if (closed) {
+                return false;
+            }
+            start();
+
+            while (finishedShards < shards.size()) {
+                Object item = take(buffers.get(ordered ? finishedShards : 0));
+                if (item instanceof S3ObjectSummary) {
+                    next = (S3ObjectSummary) item;
+                    return true;
+                }
+                if (item instanceof Failure) {
+                    close();
+                    throw failure(((Failure) item).cause);
+                }
+
+                if (ordered) {
+                    buffers.set(finishedShards, null);
+                    window.release();
+                }
+                finishedShards++;
+            }
+
+            close();
+            return false;
+        }
+
+        @Override
+        public S3ObjectSummary next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            S3ObjectSummary summary = next;
+            next = null;
+            return summary;
+        }
+
+        /**
+         * 停止列举线程并释放线程池
+         */
+        @Override
+        public void close() {
+            closed = true;
+            executor.shutdownNow();
+        }
+
+        private void start() {
+            if (started) {
+                return;
+            }
+            started = true;
+
+            int workers = Math.min(listing.getParallelism(), shards.size());
+            for (int i = 0; i < workers; i++) {
+                executor.execute(this::runShards);
+            }
+        }
+
+        private void runShards() {
+            try {
+                while (!closed) {
+                    if (ordered) {
+                        acquireWindow();
+                    }
+                    int index = nextShard.getAndIncrement();
+                    if (index >= shards.size()) {
+                        return;
+                    }
+
+                    BlockingQueue<Object> buffer = buffers.get(ordered ? index : 0);
+                    try {
+                        shards.get(index).list(summary -> put(buffer, summary));
+                    } catch (CancelledException e) {
+                        throw e;
+                    } catch (Throwable e) {
+                        put(buffer, new Failure(e));
+                        return;
+                    }
+                    put(buffer, END);
+                }
+            } catch (CancelledException e) {
+                // 流已关闭
+            }
+        }
+
+        private void acquireWindow() {
+            try {
+                while (!window.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (closed) {
+                        throw new CancelledException();
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new CancelledException();
+            }
+        }
+
+        private void put(BlockingQueue<Object> buffer, Object item) {
+            try {
+                while (!buffer.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (closed) {
+                        throw new CancelledException();
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new CancelledException();
+            }
+        }
+
+        private Object take(BlockingQueue<Object> buffer) {
+            try {
+                return buffer.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new SdkClientException("Listing objects was interrupted", e);
+            }
+        }
+
+    }
+
+    // ------------------------------------------------------------
+    // --------------------------- 分片 ---------------------------
+    // ------------------------------------------------------------
+
+    /**
+     * 列举分片
+     */
+    interface Shard {
+
+        /**
+         * 按键的字典序列举分片内的对象
+         *
+         * @param sink 接收对象
+         */
+        void list(Consumer<S3ObjectSummary> sink);
+
+    }
+
+    /**
+     * 发现阶段已取得的对象
+     */
+    static final class FixedShard implements Shard {
+
+        private final List<S3ObjectSummary> objects;
+
+        FixedShard(List<S3ObjectSummary> objects) {
+            this.objects = objects;
+        }
+
+        @Override
+        public void list(Consumer<S3ObjectSummary> sink) {
+            objects.forEach(sink);
+        }
+
+    }
+
+    /**
+     * 前缀下键位于 (startAfter, endKey] 的对象，endKey 为空时不设上界
+     */
+    final class ListedShard implements Shard {
+
+        private final ListObjectsV2Request request;
+
+        private final String prefix;
+
+        private final String startAfter;
+
+        private final String endKey;
+
+        ListedShard(ListObjectsV2Request request, String prefix, String startAfter, String endKey) {
+            this.request = request;
+            this.prefix = prefix;
+            this.startAfter = startAfter;
+            this.endKey = endKey;
+        }
+
+        @Override
+        public void list(Consumer<S3ObjectSummary> sink) {
+            ListObjectsV2Request shardRequest = (ListObjectsV2Request) request.clone();
+            shardRequest.setPrefix(prefix);
+            shardRequest.setDelimiter(null);
+            shardRequest.setContinuationToken(null);
+            shardRequest.setStartAfter(later(startAfter, request.getStartAfter()));
+
+            try (ObjectSummaryIterator iterator = new ObjectSummaryIterator(lister, shardRequest, null)) {
+                while (iterator.hasNext()) {
+                    S3ObjectSummary summary = iterator.next();
+                    if (Objects.nonNull(endKey) && compareKeys(summary.getKey(), endKey) > 0) {
+                        return;
+                    }
+                    sink.accept(summary);
+                }
+            }
+        }
+
+        private String later(String a, String b) {
+            if (Objects.isNull(a)) {
+                return b;
+            }
+            if (Objects.isNull(b)) {
+                return a;
+            }
+            return compareKeys(a, b) >= 0 ? a : b;
+        }
+
+    }
+
+}
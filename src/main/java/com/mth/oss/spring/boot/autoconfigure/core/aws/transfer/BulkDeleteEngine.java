@@ -0,0 +1,175 @@
+package com.mth.oss.spring.boot.autoconfigure.core.aws.transfer;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import com.mth.oss.spring.boot.autoconfigure.handler.OssHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 并发批量删除引擎
+ * <p>
+ * S3 单个 DeleteObjects 请求最多包含 {@link #MAX_KEYS_PER_REQUEST} 个对象。本引擎按需从键序列中取出对象，
+ * 每 1000 个为一批并发删除，同时在途的批次数不超过 deleteConcurrency，因此可以边列举边删除任意数量的对象。
+ * <p>
+ * 删除失败不会中断其余批次：部分对象删除失败时收集 S3 返回的错误，整批请求失败（重试后仍失败）时，
+ * 该批每个对象各记一条错误，调用方可按返回的错误列表重试。被中断或回调抛出异常时不再开始新的批次，
+ * 并等待执行中的批次结束后才返回
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Slf4j
+public class BulkDeleteEngine {
+
+    /**
+     * S3 协议允许单次删除的最大对象数
+     */
+    public static final int MAX_KEYS_PER_REQUEST = 1000;
+
+    private final AmazonS3 client;
+
+    private final OssHandler ossHandler;
+
+    private final Executor executor;
+
+    private final OssProperties.Transfer transfer;
+
+
+    /**
+     * @param client     客户端
+     * @param ossHandler 扩展点，每批删除前后调用
+     * @param executor   传输线程池，为空时在调用线程中依次删除各批
+     * @param transfer   传输配置
+     */
+    public BulkDeleteEngine(AmazonS3 client, OssHandler ossHandler, Executor executor,
+                            OssProperties.Transfer transfer) {
+        this.client = client;
+        this.ossHandler = ossHandler;
+        this.executor = Objects.nonNull(executor) ? executor : Runnable::run;
+        this.transfer = transfer;
+    }
+
+    /**
+     * 批量删除对象
+     *
+     * @param bucketName 桶名称
+     * @param objectKeys 对象键，按需消费，空白键会被忽略
+     * @return 删除失败的对象及原因，全部成功时为空
+     */
+    public List<DeleteError> delete(String bucketName, Iterator<String> objectKeys) {
+        int concurrency = Math.max(1, transfer.getDeleteConcurrency());
+        CompletionService<List<DeleteError>> completionService = new ExecutorCompletionService<>(executor);
+        AtomicBoolean failed = new AtomicBoolean();
+        List<DeleteError> errors = new ArrayList<>();
+
+        // 已提交但尚未取出结果的批次数
+        int running = 0;
+        try {
+            while (objectKeys.hasNext()) {
+                List<String> batch = nextBatch(objectKeys);
+                if (batch.isEmpty()) {
+                    continue;
+                }
+
+                if (running >= concurrency) {
+                    Future<List<DeleteError>> future = completionService.take();
+                    running--;
+                    errors.addAll(future.get());
+                }
+                completionService.submit(
+                        ConcurrentTasks.skipAfterFailure(() -> deleteBatch(bucketName, batch), failed));
+                running++;
+            }
+
+            while (running > 0) {
+                Future<List<DeleteError>> future = completionService.take();
+                running--;
+                errors.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            awaitRunning(completionService, failed, running);
+            Thread.currentThread().interrupt();
+            throw new SdkClientException("Bulk delete was interrupted", e);
+        } catch (ExecutionException e) {
+            awaitRunning(completionService, failed, running);
+            throw ConcurrentTasks.unwrap(e, "Bulk delete failed");
+        } catch (RuntimeException e) {
+            awaitRunning(completionService, failed, running);
+            throw e;
+        }
+
+        if (!errors.isEmpty()) {
+            log.warn("bulk delete in bucket [{}] finished with {} failed objects", bucketName, errors.size());
+        }
+        return errors;
+    }
+
+    /**
+     * 失败后不再开始新的批次，并等待执行中的批次结束，返回时不会有删除请求仍在进行
+     */
+    private static void awaitRunning(CompletionService<?> completionService, AtomicBoolean failed, int running) {
+        failed.set(true);
+        ConcurrentTasks.awaitQuietly(completionService, running);
+    }
+
+    private static List<String> nextBatch(Iterator<String> objectKeys) {
+        List<String> batch = new ArrayList<>(MAX_KEYS_PER_REQUEST);
+        while (batch.size() < MAX_KEYS_PER_REQUEST && objectKeys.hasNext()) {
+            String objectKey = objectKeys.next();
+            if (StringUtils.hasText(objectKey)) {
+                batch.add(objectKey);
+            }
+        }
+        return batch;
+    }
+
+    private List<DeleteError> deleteBatch(String bucketName, List<String> batch) {
+        ossHandler.beforeObjectDelete(batch);
+
+        List<DeleteError> errors;
+        try {
+            client.deleteObjects(new DeleteObjectsRequest(bucketName)
+                                         .withQuiet(true)
+                                         .withKeys(batch.toArray(new String[0])));
+            errors = Collections.emptyList();
+        } catch (MultiObjectDeleteException e) {
+            errors = e.getErrors();
+        } catch (SdkClientException e) {
+            log.warn("delete batch of {} objects in bucket [{}] failed", batch.size(), bucketName, e);
+            errors = batchErrors(batch, e);
+        }
+
+        ossHandler.afterObjectDelete(batch);
+        return errors;
+    }
+
+    /**
+     * 整批请求失败时，为每个对象生成一条错误
+     */
+    private static List<DeleteError> batchErrors(List<String> batch, SdkClientException e) {
+        String code = e instanceof AmazonServiceException
+                      ? ((AmazonServiceException) e).getErrorCode()
+                      : e.getClass().getSimpleName();
+
+        List<DeleteError> errors = new ArrayList<>(batch.size());
+        for (String objectKey : batch) {
+            DeleteError error = new DeleteError();
+            error.setKey(objectKey);
+            error.setCode(code);
+            error.setMessage(e.getMessage());
+            errors.add(error);
+        }
+        return errors;
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.mth.oss.spring.boot.autoconfigure.core.aws.transfer;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ByteBuffer 缓冲池
+ * <p>
+ * 按 2 的幂次容量分级复用缓冲区，池中缓冲区总容量不超过 maxPooledBytes，超出时归还的缓冲区直接丢弃。
+ * 可作为 {@link com.mth.oss.spring.boot.autoconfigure.core.aws.OssOperations#downloadToByteBuffer(String, java.util.function.IntFunction)}
+ * 的分配器使用：
+ * <pre>
+ * ByteBuffer buffer = ossTemplate.downloadToByteBuffer(objectKey, pool::acquire);
+ * try {
+ *     // 读取 buffer
+ * } finally {
+ *     pool.release(buffer);
+ * }
+ * </pre>
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public class ByteBufferPool {
+
+    /**
+     * 可池化的最大容量级别 2^30
+     */
+    private static final int MAX_POOLED_SHIFT = 30;
+
+    private final Queue<ByteBuffer>[] buckets = newBuckets(MAX_POOLED_SHIFT + 1);
+
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    private final long maxPooledBytes;
+
+    private final boolean direct;
+
+
+    /**
+     * @param maxPooledBytes 池中缓冲区总容量上限
+     * @param direct         是否分配堆外缓冲区
+     */
+    public ByteBufferPool(long maxPooledBytes, boolean direct) {
+        this.maxPooledBytes = maxPooledBytes;
+        this.direct = direct;
+    }
+
+    /**
+     * 获取缓冲区
+     *
+     * @param size 所需大小
+     * @return position 为 0、limit 为 size 的缓冲区，容量可能大于 size
+     */
+    public ByteBuffer acquire(int size) {
+        int shift = shiftFor(size);
+        if (shift > MAX_POOLED_SHIFT) {
+            return allocate(size);
+        }
+
+        ByteBuffer buffer = buckets[shift].poll();
+        if (buffer == null) {
+            buffer = allocate(1 << shift);
+        } else {
+            pooledBytes.addAndGet(-buffer.capacity());
+        }
+
+        buffer.clear();
+        buffer.limit(size);
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲区，归还后调用方不能再使用该缓冲区
+     *
+     * @param buffer 通过 {@link #acquire(int)} 获取的缓冲区
+     */
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (buffer.isDirect() != direct || Integer.bitCount(capacity) != 1) {
+            return;
+        }
+
+        int shift = Integer.numberOfTrailingZeros(capacity);
+        if (shift > MAX_POOLED_SHIFT || pooledBytes.addAndGet(capacity) > maxPooledBytes) {
+            pooledBytes.addAndGet(-capacity);
+            return;
+        }
+        buckets[shift].offer(buffer);
+    }
+
+    /**
+     * 当前池中缓冲区总容量
+     *
+     * @return 字节数
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private static int shiftFor(int size) {
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Queue<ByteBuffer>[] newBuckets(int length) {
+        Queue<ByteBuffer>[] buckets = new Queue[length];
+        for (int i = 0; i < length; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        return buckets;
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.mth.oss.spring.boot.autoconfigure.core.aws.transfer;
+
+import com.amazonaws.SdkClientException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+
+/**
+ * 限制并发数地执行一组任务
+ * <p>
+ * 同时在途的任务数不超过 concurrency，任一任务完成后才提交下一个；任一任务失败时不再提交新任务，
+ * 已提交但未开始的任务直接结束，并等待执行中的任务完成后才返回，调用方随后中止分片上传等清理时不会与其并发
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+final class ConcurrentTasks {
+
+    private ConcurrentTasks() {}
+
+    /**
+     * 执行全部任务
+     *
+     * @param executor    线程池
+     * @param concurrency 最大并发数
+     * @param taskCount   任务个数
+     * @param taskFactory 按序号（从 0 开始）创建任务
+     * @param <T>         任务结果类型
+     * @return 全部任务结果，顺序为完成顺序
+     * @throws InterruptedException 等待时被中断，返回前已等待执行中的任务完成
+     * @throws ExecutionException   任一任务执行失败，返回前已等待执行中的任务完成
+     */
+    static <T> List<T> invokeAll(Executor executor, int concurrency, int taskCount,
+                                 IntFunction<Callable<T>> taskFactory)
+            throws InterruptedException, ExecutionException {
+        int parallelism = Math.max(1, Math.min(concurrency, taskCount));
+        CompletionService<T> completionService = new ExecutorCompletionService<>(executor);
+        AtomicBoolean failed = new AtomicBoolean();
+        List<T> results = new ArrayList<>(taskCount);
+
+        // 已提交与已取出结果的任务数，两者之差为尚未结束或结果尚未取出的任务
+        int submitted = 0;
+        int taken = 0;
+        try {
+            for (; submitted < parallelism; submitted++) {
+                completionService.submit(skipAfterFailure(taskFactory.apply(submitted), failed));
+            }
+
+            while (taken < taskCount) {
+                Future<T> future = completionService.take();
+                taken++;
+                results.add(future.get());
+
+                if (submitted < taskCount) {
+                    completionService.submit(skipAfterFailure(taskFactory.apply(submitted), failed));
+                    submitted++;
+                }
+            }
+        } catch (InterruptedException | ExecutionException | RuntimeException e) {
+            failed.set(true);
+            awaitQuietly(completionService, submitted - taken);
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * 包装任务：失败后才开始执行的任务直接结束
+     */
+    static <T> Callable<T> skipAfterFailure(Callable<T> task, AtomicBoolean failed) {
+        return () -> {
+            if (failed.get()) {
+                throw new CancellationException();
+            }
+            return task.call();
+        };
+    }
+
+    /**
+     * 等待已提交的任务全部结束，期间的中断在返回后恢复
+     *
+     * @param completionService 任务所在的完成服务
+     * @param outstanding       尚未取出结果的任务数
+     */
+    static void awaitQuietly(CompletionService<?> completionService, int outstanding) {
+        boolean interrupted = false;
+        for (int i = 0; i < outstanding; ) {
+            try {
+                completionService.take();
+                i++;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 解包任务执行异常：运行时异常与错误原样抛出，受检异常包装为 {@link SdkClientException}
+     *
+     * @param e       任务执行异常
+     * @param message 包装异常的描述
+     * @return 待抛出的运行时异常
+     */
+    static RuntimeException unwrap(ExecutionException e, String message) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new SdkClientException(message, cause);
+    }
+
+}
@@ -0,0 +1,502 @@
+package com.mth.oss.spring.boot.autoconfigure.core.aws.transfer;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.ObjectMetadataCache;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 并发下载合并
+ * <p>
+ * 同一对象（桶、键、范围、版本）同时被多次获取时只发起一个 GET，响应内容分发给所有调用方。
+ * 内容长度已知且不超过 coalesceMemoryLimit 时保存在内存中，否则写入临时文件；
+ * 后加入的调用方从头读取已保存的内容，不必等待下载完成。各调用方读到尚未下载的位置时，
+ * 由其中一个继续从响应流读取，读取最快的调用方推动下载，不会被其他调用方拖慢。
+ * <p>
+ * 所有调用方在下载完成前都关闭了内容流时中止请求；下载完成或对象经本模板写入、删除后，新的请求重新获取。
+ * 带条件或客户端加密密钥的请求不合并
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Slf4j
+public class DownloadCoalescer {
+
+    /**
+     * 每次从响应流读取的字节数
+     */
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final OssProperties.Transfer transfer;
+
+    private final ConcurrentMap<FlightKey, Flight> flights = new ConcurrentHashMap<>();
+
+    private final LongAdder requestCount = new LongAdder();
+
+    private final LongAdder coalescedCount = new LongAdder();
+
+
+    /**
+     * @param transfer 传输配置
+     */
+    public DownloadCoalescer(OssProperties.Transfer transfer) {
+        this.transfer = transfer;
+    }
+
+    /**
+     * 获取对象，同一对象正在获取时共享该次请求的内容
+     *
+     * @param request 获取请求
+     * @param loader  从对象存储获取，通常为 {@code client::getObject}
+     * @return 对象，调用方负责关闭内容流
+     */
+    public S3Object getObject(GetObjectRequest request, Function<GetObjectRequest, S3Object> loader) {
+        if (!isCoalescible(request)) {
+            return loader.apply(request);
+        }
+        requestCount.increment();
+
+        FlightKey key = new FlightKey(request.getBucketName(), request.getKey(), request.getVersionId(),
+                                      Objects.nonNull(request.getRange()) ? Arrays.toString(request.getRange()) : null);
+        Flight flight = new Flight(key);
+        Flight inFlight = flights.putIfAbsent(key, flight);
+        if (Objects.nonNull(inFlight)) {
+            ObjectMetadata metadata = await(inFlight);
+            if (Objects.nonNull(metadata) && inFlight.join()) {
+                coalescedCount.increment();
+                return inFlight.newObject(request, metadata);
+            }
+            // 下载已结束或失败
+            return loader.apply(request);
+        }
+
+        S3Object object;
+        try {
+            object = loader.apply(request);
+            if (Objects.nonNull(object)) {
+                flight.start(object);
+            }
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.response.completeExceptionally(e);
+            throw e;
+        }
+        if (Objects.isNull(object)) {
+            flights.remove(key, flight);
+            flight.response.complete(null);
+            return null;
+        }
+        flight.response.complete(object.getObjectMetadata());
+        return flight.newObject(request, object.getObjectMetadata());
+    }
+
+    /**
+     * 对象被写入或删除后调用，之后的请求不再加入此前开始的下载
+     *
+     * @param bucketName 桶名称
+     * @param objectKey  对象完整路径
+     */
+    public void invalidate(String bucketName, String objectKey) {
+        flights.keySet().removeIf(key -> key.bucketName.equals(bucketName) && key.objectKey.equals(objectKey));
+    }
+
+    /**
+     * @return 进行中的下载数
+     */
+    public int getInFlightCount() {
+        return flights.size();
+    }
+
+    /**
+     * @return 经过合并判断的请求数
+     */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * @return 共享了其他调用方下载内容、未发起请求的次数
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    /**
+     * 只合并不带条件与客户端加密密钥的请求
+     */
+    private static boolean isCoalescible(GetObjectRequest request) {
+        return Objects.isNull(request.getPartNumber())
+                && Objects.isNull(request.getSSECustomerKey())
+                && request.getMatchingETagConstraints().isEmpty()
+                && request.getNonmatchingETagConstraints().isEmpty()
+                && Objects.isNull(request.getModifiedSinceConstraint())
+                && Objects.isNull(request.getUnmodifiedSinceConstraint());
+    }
+
+    private static ObjectMetadata await(Flight flight) {
+        try {
+            return flight.response.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SdkClientException("Interrupted while waiting for coalesced download", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SdkClientException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 合并键
+     */
+    @EqualsAndHashCode
+    private static final class FlightKey {
+
+        private final String bucketName;
+
+        private final String objectKey;
+
+        private final String versionId;
+
+        private final String range;
+
+        private FlightKey(String bucketName, String objectKey, String versionId, String range) {
+            this.bucketName = bucketName;
+            this.objectKey = objectKey;
+            this.versionId = versionId;
+            this.range = range;
+        }
+
+    }
+
+    /**
+     * 一次进行中的下载，保存已读取的内容供所有调用方读取
+     */
+    private final class Flight {
+
+        private final FlightKey key;
+
+        /**
+         * 响应头，发起请求的调用方获取到响应后完成
+         */
+        private final CompletableFuture<ObjectMetadata> response = new CompletableFuture<>();
+
+        /**
+         * 同一时间只有一个调用方从响应流读取
+         */
+        private final ReentrantLock pumpLock = new ReentrantLock();
+
+        private S3ObjectInputStream upstream;
+
+        /**
+         * 内容长度，未知时为 -1
+         */
+        private long length;
+
+        private byte[] memory;
+
+        private FileChannel spill;
+
+        private byte[] chunk;
+
+        /**
+         * 以下字段由 Flight 实例的监视器保护
+         */
+        private long written;
+
+        private boolean complete;
+
+        private IOException failure;
+
+        private int readers;
+
+        private boolean released;
+
+        private Flight(FlightKey key) {
+            this.key = key;
+        }
+
+        /**
+         * 按内容长度选择内存或临时文件保存内容，发起请求的调用方成为第一个读取方
+         */
+        private void start(S3Object object) {
+            ObjectMetadata metadata = object.getObjectMetadata();
+            upstream = object.getObjectContent();
+            length = Objects.nonNull(metadata.getRawMetadataValue("Content-Length"))
+                    ? metadata.getContentLength()
+                    : -1;
+            try {
+                if (length >= 0 && length <= transfer.getCoalesceMemoryLimit().toBytes()) {
+                    memory = new byte[(int) length];
+                } else {
+                    String directory = transfer.getCoalesceSpillDirectory();
+                    Path file = Objects.nonNull(directory)
+                            ? Files.createTempFile(Paths.get(directory), "oss-coalesce-", ".tmp")
+                            : Files.createTempFile("oss-coalesce-", ".tmp");
+                    spill = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                             StandardOpenOption.DELETE_ON_CLOSE);
+                    chunk = new byte[CHUNK_SIZE];
+                }
+            } catch (IOException e) {
+                upstream.abort();
+                throw new SdkClientException("Unable to create spill file for coalesced download", e);
+            }
+            readers = 1;
+            if (length == 0) {
+                finish();
+            }
+        }
+
+        /**
+         * @return 是否加入成功；内容已释放时为 false
+         */
+        private synchronized boolean join() {
+            if (released) {
+                return false;
+            }
+            readers++;
+            return true;
+        }
+
+        private S3Object newObject(GetObjectRequest request, ObjectMetadata metadata) {
+            S3Object object = new S3Object();
+            object.setBucketName(request.getBucketName());
+            object.setKey(request.getKey());
+            object.setObjectMetadata(ObjectMetadataCache.copyOf(metadata));
+            object.setObjectContent(new FlightInputStream(this));
+            return object;
+        }
+
+        /**
+         * 从 position 起读取已下载的内容，尚未下载时推动或等待下载
+         *
+         * @return 读取的字节数，内容结束时为 -1
+         */
+        private int read(long position, byte[] b, int off, int len) throws IOException {
+            while (true) {
+                long available;
+                synchronized (this) {
+                    if (Objects.nonNull(failure)) {
+                        throw new IOException("Coalesced download failed", failure);
+                    }
+                    available = written - position;
+                    if (available <= 0 && complete) {
+                        return -1;
+                    }
+                }
+                if (available > 0) {
+                    return copy(position, b, off, (int) Math.min(len, available));
+                }
+                pump(position);
+            }
+        }
+
+        private int copy(long position, byte[] b, int off, int len) throws IOException {
+            if (Objects.nonNull(memory)) {
+                System.arraycopy(memory, (int) position, b, off, len);
+                return len;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            while (buffer.hasRemaining()) {
+                if (spill.read(buffer, position + buffer.position() - off) < 0) {
+                    break;
+                }
+            }
+            return buffer.position() - off;
+        }
+
+        /**
+         * 读取下一块内容；其他调用方正在读取时等待其完成
+         */
+        private void pump(long position) throws IOException {
+            if (!pumpLock.tryLock()) {
+                synchronized (this) {
+                    while (written <= position && !complete && Objects.isNull(failure)) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IOException("Interrupted while waiting for coalesced download", e);
+                        }
+                    }
+                }
+                return;
+            }
+
+            try {
+                synchronized (this) {
+                    if (written > position || complete || Objects.nonNull(failure)) {
+                        return;
+                    }
+                }
+                if (Objects.nonNull(memory)) {
+                    int n = upstream.read(memory, (int) written, (int) Math.min(CHUNK_SIZE, length - written));
+                    if (n < 0) {
+                        throw new IOException("Object was truncated while being read");
+                    }
+                    advance(n);
+                } else {
+                    int n = upstream.read(chunk);
+                    if (n < 0) {
+                        if (length >= 0 && written != length) {
+                            throw new IOException("Object was truncated while being read");
+                        }
+                        finish();
+                        return;
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, n);
+                    while (buffer.hasRemaining()) {
+                        spill.write(buffer, written + buffer.position());
+                    }
+                    advance(n);
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(e instanceof IOException ? (IOException) e : new IOException(e));
+                throw e;
+            } finally {
+                pumpLock.unlock();
+            }
+        }
+
+        private void advance(int n) {
+            synchronized (this) {
+                written += n;
+                notifyAll();
+            }
+            if (Objects.nonNull(memory) && written == length) {
+                finish();
+            }
+        }
+
+        /**
+         * 内容读取完毕，之后的请求重新获取
+         */
+        private void finish() {
+            flights.remove(key, this);
+            closeUpstream();
+            synchronized (this) {
+                complete = true;
+                notifyAll();
+            }
+        }
+
+        private void fail(IOException e) {
+            flights.remove(key, this);
+            upstream.abort();
+            synchronized (this) {
+                failure = e;
+                notifyAll();
+            }
+        }
+
+        /**
+         * 调用方关闭内容流，最后一个调用方关闭时释放内容，下载未完成时中止请求
+         */
+        private void leave() {
+            boolean abort;
+            synchronized (this) {
+                if (--readers > 0) {
+                    return;
+                }
+                released = true;
+                abort = !complete && Objects.isNull(failure);
+            }
+
+            flights.remove(key, this);
+            if (abort) {
+                upstream.abort();
+            }
+            if (Objects.nonNull(spill)) {
+                try {
+                    spill.close();
+                } catch (IOException e) {
+                    log.debug("Failed to delete spill file of coalesced download", e);
+                }
+            }
+        }
+
+        private void closeUpstream() {
+            try {
+                upstream.close();
+            } catch (IOException e) {
+                // 内容已读取完毕
+            }
+        }
+
+    }
+
+    /**
+     * 调用方的内容流，各自从头读取
+     */
+    private static final class FlightInputStream extends InputStream {
+
+        private final Flight flight;
+
+        private long position;
+
+        private boolean closed;
+
+        private FlightInputStream(Flight flight) {
+            this.flight = flight;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            int n = flight.read(position, b, off, len);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                flight.leave();
+            }
+        }
+
+    }
+
+}
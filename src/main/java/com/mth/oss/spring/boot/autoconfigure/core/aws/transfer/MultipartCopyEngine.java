@@ -0,0 +1,260 @@
+package com.mth.oss.spring.boot.autoconfigure.core.aws.transfer;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.*;
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+
+/**
+ * 并发分片拷贝引擎
+ * <p>
+ * 先查询源对象，小于分片拷贝阈值时发起一次 CopyObject，否则按分片并发 UploadPartCopy 后合并，
+ * 单次 CopyObject 不支持的 5GB 以上对象也可拷贝；查询结果同时用于判断大小与固定各分片的版本，每次拷贝只查询一次。
+ * 配置了元数据查询（通常为元数据缓存）时先用它判断大小，小对象命中缓存时不再查询源对象。
+ * 各分片以源对象的 ETag 作为匹配条件，源对象在拷贝期间被修改时放弃拷贝，不会拼接出新旧内容混合的对象；
+ * 任一分片失败时中止整个分片上传
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Slf4j
+public class MultipartCopyEngine {
+
+    /**
+     * 未指定新元数据时从源对象沿用的请求头
+     */
+    private static final String[] OBJECT_HEADERS = {
+            Headers.CONTENT_TYPE, Headers.CONTENT_ENCODING, Headers.CONTENT_DISPOSITION,
+            Headers.CONTENT_LANGUAGE, Headers.CACHE_CONTROL};
+
+    private final AmazonS3 client;
+
+    private final Executor executor;
+
+    private final OssProperties.Transfer transfer;
+
+    private final BiFunction<String, String, ObjectMetadata> metadataLookup;
+
+
+    /**
+     * @param client   客户端
+     * @param executor 传输线程池，为空时在调用线程中依次拷贝各分片
+     * @param transfer 传输配置
+     */
+    public MultipartCopyEngine(AmazonS3 client, Executor executor, OssProperties.Transfer transfer) {
+        this(client, executor, transfer, null);
+    }
+
+    /**
+     * @param client         客户端
+     * @param executor       传输线程池，为空时在调用线程中依次拷贝各分片
+     * @param transfer       传输配置
+     * @param metadataLookup 查询源对象元数据以判断大小，对象不存在时返回空，通常为元数据缓存；
+     *                       为空时直接查询源对象
+     */
+    public MultipartCopyEngine(AmazonS3 client, Executor executor, OssProperties.Transfer transfer,
+                               BiFunction<String, String, ObjectMetadata> metadataLookup) {
+        this.client = client;
+        this.executor = Objects.nonNull(executor) ? executor : Runnable::run;
+        this.transfer = transfer;
+        this.metadataLookup = metadataLookup;
+    }
+
+    /**
+     * 计算分片大小：不小于配置的拷贝分片大小，且保证分片数不超过 {@link MultipartUploadEngine#MAX_PARTS}
+     *
+     * @param contentLength 源对象大小
+     * @return 分片大小
+     */
+    public long calculatePartSize(long contentLength) {
+        int maxParts = MultipartUploadEngine.MAX_PARTS;
+        long copyPartSize = transfer.getCopyPartSize().toBytes();
+        long partSizeForMaxParts = (contentLength + maxParts - 1) / maxParts;
+        return Math.max(copyPartSize, partSizeForMaxParts);
+    }
+
+    /**
+     * 拷贝对象
+     *
+     * @param request 拷贝请求对象
+     * @return 拷贝结果，请求中的匹配条件不满足或源对象在拷贝期间被修改时为空
+     */
+    public CopyObjectResult copy(CopyObjectRequest request) {
+        long threshold = transfer.getMultipartCopyThreshold().toBytes();
+        // 元数据查询只按桶与路径区分，指定版本或客户端加密密钥时不适用
+        ObjectMetadata known = null;
+        if (Objects.nonNull(metadataLookup) && Objects.isNull(request.getSourceVersionId())
+            && Objects.isNull(request.getSourceSSECustomerKey())) {
+            known = metadataLookup.apply(request.getSourceBucketName(), request.getSourceKey());
+        }
+        if (Objects.nonNull(known) && known.getContentLength() < threshold) {
+            try {
+                return client.copyObject(request);
+            } catch (AmazonS3Exception e) {
+                // 查询结果已过期，源对象已超过单次拷贝上限
+                if (!isTooLarge(e)) {
+                    throw e;
+                }
+                log.debug("copy {} rejected as too large, falling back to multipart copy", request.getSourceKey());
+            }
+        }
+
+        // 大小判断与分片的匹配条件共用这一次查询；不使用可能过期的缓存结果固定分片版本
+        ObjectMetadata source = client.getObjectMetadata(
+                new GetObjectMetadataRequest(request.getSourceBucketName(), request.getSourceKey(),
+                                             request.getSourceVersionId())
+                        .withSSECustomerKey(request.getSourceSSECustomerKey()));
+        long contentLength = source.getContentLength();
+        if (contentLength < threshold) {
+            return client.copyObject(request);
+        }
+
+        long partSize = calculatePartSize(contentLength);
+        int partCount = (int) ((contentLength + partSize - 1) / partSize);
+
+        String uploadId = client.initiateMultipartUpload(toInitiateRequest(request, source)).getUploadId();
+        log.debug("multipart copy {} -> {} started, uploadId: {}, parts: {}, partSize: {}",
+                  request.getSourceKey(), request.getDestinationKey(), uploadId, partCount, partSize);
+
+        try {
+            List<PartETag> partETags = copyParts(request, source, uploadId, contentLength, partSize, partCount);
+            if (Objects.isNull(partETags)) {
+                abortQuietly(request, uploadId);
+                return null;
+            }
+
+            CompleteMultipartUploadResult completeResult = client.completeMultipartUpload(
+                    new CompleteMultipartUploadRequest(request.getDestinationBucketName(),
+                                                       request.getDestinationKey(), uploadId, partETags));
+            return toCopyObjectResult(completeResult);
+        } catch (RuntimeException | Error e) {
+            abortQuietly(request, uploadId);
+            throw e;
+        }
+    }
+
+    /**
+     * 拷贝全部分片，同时在途的分片数不超过配置的并发数
+     *
+     * @return 按分片序号排序的实体标签列表，任一分片的匹配条件不满足时为空
+     */
+    private List<PartETag> copyParts(CopyObjectRequest request, ObjectMetadata source, String uploadId,
+                                     long contentLength, long partSize, int partCount) {
+        List<PartETag> partETags;
+        try {
+            partETags = ConcurrentTasks.invokeAll(executor, transfer.getConcurrency(), partCount,
+                    index -> newPartTask(request, source, uploadId, index + 1, contentLength, partSize));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SdkClientException("Multipart copy of [" + request.getSourceKey() + "] was interrupted", e);
+        } catch (ExecutionException e) {
+            throw ConcurrentTasks.unwrap(e, "Multipart copy of [" + request.getSourceKey() + "] failed");
+        }
+
+        if (partETags.contains(null)) {
+            return null;
+        }
+        partETags.sort(Comparator.comparingInt(PartETag::getPartNumber));
+        return partETags;
+    }
+
+    private Callable<PartETag> newPartTask(CopyObjectRequest request, ObjectMetadata source, String uploadId,
+                                           int partNumber, long contentLength, long partSize) {
+        long firstByte = (partNumber - 1) * partSize;
+        long lastByte = Math.min(firstByte + partSize, contentLength) - 1;
+
+        // 未指定匹配条件时固定为查询到的版本
+        List<String> matchingETags = request.getMatchingETagConstraints().isEmpty()
+                ? Collections.singletonList(source.getETag())
+                : request.getMatchingETagConstraints();
+
+        CopyPartRequest partRequest = new CopyPartRequest()
+                .withSourceBucketName(request.getSourceBucketName())
+                .withSourceKey(request.getSourceKey())
+                .withSourceVersionId(request.getSourceVersionId())
+                .withDestinationBucketName(request.getDestinationBucketName())
+                .withDestinationKey(request.getDestinationKey())
+                .withUploadId(uploadId)
+                .withPartNumber(partNumber)
+                .withFirstByte(firstByte)
+                .withLastByte(lastByte)
+                .withMatchingETagConstraints(matchingETags)
+                .withNonmatchingETagConstraints(request.getNonmatchingETagConstraints())
+                .withModifiedSinceConstraint(request.getModifiedSinceConstraint())
+                .withUnmodifiedSinceConstraint(request.getUnmodifiedSinceConstraint())
+                .withSourceSSECustomerKey(request.getSourceSSECustomerKey())
+                .withDestinationSSECustomerKey(request.getDestinationSSECustomerKey());
+
+        return () -> {
+            CopyPartResult result = client.copyPart(partRequest);
+            return Objects.nonNull(result) ? result.getPartETag() : null;
+        };
+    }
+
+    /**
+     * 未指定新元数据时沿用源对象的请求头与自定义元数据，与单次 CopyObject 的行为一致
+     */
+    private InitiateMultipartUploadRequest toInitiateRequest(CopyObjectRequest request, ObjectMetadata source) {
+        ObjectMetadata metadata = request.getNewObjectMetadata();
+        if (Objects.isNull(metadata)) {
+            metadata = new ObjectMetadata();
+            for (String header : OBJECT_HEADERS) {
+                Object value = source.getRawMetadataValue(header);
+                if (Objects.nonNull(value)) {
+                    metadata.setHeader(header, value);
+                }
+            }
+            metadata.setHttpExpiresDate(source.getHttpExpiresDate());
+            metadata.setUserMetadata(source.getUserMetadata());
+        }
+
+        return new InitiateMultipartUploadRequest(request.getDestinationBucketName(),
+                                                  request.getDestinationKey(), metadata)
+                .withCannedACL(request.getCannedAccessControlList())
+                .withAccessControlList(request.getAccessControlList())
+                .withStorageClass(request.getStorageClass())
+                .withSSEAwsKeyManagementParams(request.getSSEAwsKeyManagementParams())
+                .withSSECustomerKey(request.getDestinationSSECustomerKey())
+                .withTagging(request.getNewObjectTagging());
+    }
+
+    /**
+     * 服务端因源对象超过单次拷贝上限拒绝 CopyObject；S3 以 InvalidRequest 拒绝，需按描述区分其他原因
+     */
+    private static boolean isTooLarge(AmazonS3Exception e) {
+        if ("EntityTooLarge".equals(e.getErrorCode())) {
+            return true;
+        }
+        return "InvalidRequest".equals(e.getErrorCode()) && Objects.nonNull(e.getErrorMessage())
+                && e.getErrorMessage().contains("maximum allowable size");
+    }
+
+    private CopyObjectResult toCopyObjectResult(CompleteMultipartUploadResult completeResult) {
+        CopyObjectResult result = new CopyObjectResult();
+        result.setETag(completeResult.getETag());
+        result.setVersionId(completeResult.getVersionId());
+        result.setExpirationTime(completeResult.getExpirationTime());
+        result.setExpirationTimeRuleId(completeResult.getExpirationTimeRuleId());
+        result.setSSEAlgorithm(completeResult.getSSEAlgorithm());
+        result.setRequesterCharged(completeResult.isRequesterCharged());
+        return result;
+    }
+
+    private void abortQuietly(CopyObjectRequest request, String uploadId) {
+        try {
+            client.abortMultipartUpload(new AbortMultipartUploadRequest(request.getDestinationBucketName(),
+                                                                        request.getDestinationKey(), uploadId));
+        } catch (Exception e) {
+            log.warn("abort multipart copy {} failed, uploadId: {}", request.getDestinationKey(), uploadId, e);
+        }
+    }
+
+}
@@ -0,0 +1,187 @@
+package com.mth.oss.spring.boot.autoconfigure.core.aws.transfer;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.services.s3.internal.Mimetypes;
+import com.amazonaws.services.s3.model.*;
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.OssOperations;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 并发分片上传引擎
+ * <p>
+ * 按文件大小计算分片大小与并发数，复用 {@link OssOperations} 的
+ * initMultipartUpload / uploadPart / completeMultipartUpload 完成上传，任一分片失败时中止整个分片上传
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Slf4j
+public class MultipartUploadEngine {
+
+    /**
+     * S3 协议允许的最大分片数
+     */
+    public static final int MAX_PARTS = 10000;
+
+    private final OssOperations operations;
+
+    private final Executor executor;
+
+    private final OssProperties.Transfer transfer;
+
+
+    /**
+     * @param operations 对象存储操作
+     * @param executor   传输线程池，为空时在调用线程中依次上传各分片
+     * @param transfer   传输配置
+     */
+    public MultipartUploadEngine(OssOperations operations, Executor executor, OssProperties.Transfer transfer) {
+        this.operations = operations;
+        this.executor = Objects.nonNull(executor) ? executor : Runnable::run;
+        this.transfer = transfer;
+    }
+
+    /**
+     * 是否应使用分片上传：仅文件上传，且文件大小达到分片上传阈值
+     *
+     * @param request 上传请求对象
+     * @return 是否使用分片上传
+     */
+    public boolean shouldUseMultipart(PutObjectRequest request) {
+        File file = request.getFile();
+        return Objects.nonNull(file)
+                && file.length() >= transfer.getMultipartUploadThreshold().toBytes();
+    }
+
+    /**
+     * 计算分片大小：不小于最小分片大小，且保证分片数不超过 {@link #MAX_PARTS}
+     *
+     * @param contentLength 文件大小
+     * @return 分片大小
+     */
+    public long calculatePartSize(long contentLength) {
+        long minimumPartSize = transfer.getMinimumPartSize().toBytes();
+        long partSizeForMaxParts = (contentLength + MAX_PARTS - 1) / MAX_PARTS;
+        return Math.max(minimumPartSize, partSizeForMaxParts);
+    }
+
+    /**
+     * 并发分片上传文件
+     *
+     * @param request 上传请求对象，必须为文件上传
+     * @return 上传响应对象
+     */
+    public PutObjectResult upload(PutObjectRequest request) {
+        File file = request.getFile();
+        long contentLength = file.length();
+        long partSize = calculatePartSize(contentLength);
+        int partCount = (int) ((contentLength + partSize - 1) / partSize);
+
+        String uploadId = operations.initMultipartUpload(toInitiateRequest(request)).getUploadId();
+        log.debug("multipart upload {} started, uploadId: {}, parts: {}, partSize: {}",
+                  request.getKey(), uploadId, partCount, partSize);
+
+        try {
+            List<PartETag> partETags = uploadParts(request, uploadId, contentLength, partSize, partCount);
+
+            CompleteMultipartUploadResult completeResult = operations.completeMultipartUpload(
+                    new CompleteMultipartUploadRequest(request.getBucketName(), request.getKey(), uploadId, partETags));
+            return toPutObjectResult(completeResult);
+        } catch (RuntimeException | Error e) {
+            abortQuietly(request, uploadId);
+            throw e;
+        }
+    }
+
+    /**
+     * 上传全部分片，同时在途的分片数不超过配置的并发数
+     *
+     * @return 按分片序号排序的实体标签列表
+     */
+    private List<PartETag> uploadParts(PutObjectRequest request, String uploadId,
+                                       long contentLength, long partSize, int partCount) {
+        List<PartETag> partETags;
+        try {
+            partETags = ConcurrentTasks.invokeAll(executor, transfer.getConcurrency(), partCount,
+                    index -> newPartTask(request, uploadId, index + 1, contentLength, partSize, partCount));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SdkClientException("Multipart upload of [" + request.getKey() + "] was interrupted", e);
+        } catch (ExecutionException e) {
+            throw ConcurrentTasks.unwrap(e, "Multipart upload of [" + request.getKey() + "] failed");
+        }
+
+        partETags.sort(Comparator.comparingInt(PartETag::getPartNumber));
+        return partETags;
+    }
+
+    private Callable<PartETag> newPartTask(PutObjectRequest request, String uploadId, int partNumber,
+                                           long contentLength, long partSize, int partCount) {
+        long offset = (partNumber - 1) * partSize;
+        long size = Math.min(partSize, contentLength - offset);
+
+        UploadPartRequest partRequest = new UploadPartRequest()
+                .withBucketName(request.getBucketName())
+                .withKey(request.getKey())
+                .withUploadId(uploadId)
+                .withPartNumber(partNumber)
+                .withFile(request.getFile())
+                .withFileOffset(offset)
+                .withPartSize(size)
+                .withLastPart(partNumber == partCount)
+                .withSSECustomerKey(request.getSSECustomerKey());
+
+        // 沿用原请求的进度监听，保证分片上传的进度可被统计
+        ProgressListener progressListener = request.getGeneralProgressListener();
+        if (Objects.nonNull(progressListener)) {
+            partRequest.setGeneralProgressListener(progressListener);
+        }
+
+        return () -> operations.uploadPart(partRequest).getPartETag();
+    }
+
+    private InitiateMultipartUploadRequest toInitiateRequest(PutObjectRequest request) {
+        ObjectMetadata metadata = Objects.nonNull(request.getMetadata())
+                ? request.getMetadata().clone() : new ObjectMetadata();
+        if (Objects.isNull(metadata.getContentType())) {
+            metadata.setContentType(Mimetypes.getInstance().getMimetype(request.getFile()));
+        }
+
+        return new InitiateMultipartUploadRequest(request.getBucketName(), request.getKey(), metadata)
+                .withCannedACL(request.getCannedAcl())
+                .withAccessControlList(request.getAccessControlList())
+                .withStorageClass(request.getStorageClass())
+                .withSSEAwsKeyManagementParams(request.getSSEAwsKeyManagementParams())
+                .withSSECustomerKey(request.getSSECustomerKey())
+                .withTagging(request.getTagging());
+    }
+
+    private PutObjectResult toPutObjectResult(CompleteMultipartUploadResult completeResult) {
+        PutObjectResult result = new PutObjectResult();
+        result.setETag(completeResult.getETag());
+        result.setVersionId(completeResult.getVersionId());
+        result.setExpirationTime(completeResult.getExpirationTime());
+        result.setExpirationTimeRuleId(completeResult.getExpirationTimeRuleId());
+        result.setSSEAlgorithm(completeResult.getSSEAlgorithm());
+        result.setRequesterCharged(completeResult.isRequesterCharged());
+        return result;
+    }
+
+    private void abortQuietly(PutObjectRequest request, String uploadId) {
+        try {
+            operations.abortMultipartUpload(
+                    new AbortMultipartUploadRequest(request.getBucketName(), request.getKey(), uploadId));
+        } catch (Exception e) {
+            log.warn("abort multipart upload {} failed, uploadId: {}", request.getKey(), uploadId, e);
+        }
+    }
+
+}
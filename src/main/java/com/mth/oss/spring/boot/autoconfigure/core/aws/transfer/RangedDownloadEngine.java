@@ -0,0 +1,265 @@
+package com.mth.oss.spring.boot.autoconfigure.core.aws.transfer;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 并发分段下载引擎
+ * <p>
+ * 将对象按字节范围切分，并发获取各段并按位置写入预分配的文件；
+ * 某一段失败时只从该段已写入的位置继续获取，无需重新下载整个对象。
+ * 后续分段均以首段返回的 ETag 作为匹配条件，对象在下载期间被修改时立即失败
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Slf4j
+public class RangedDownloadEngine {
+
+    /**
+     * 分段写入文件时使用的缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Range 请求不满足，空对象会返回该状态码
+     */
+    private static final int STATUS_RANGE_NOT_SATISFIABLE = 416;
+
+    private final AmazonS3 client;
+
+    private final Executor executor;
+
+    private final OssProperties.Transfer transfer;
+
+
+    /**
+     * @param client   客户端
+     * @param executor 传输线程池，为空时在调用线程中依次下载各段
+     * @param transfer 传输配置
+     */
+    public RangedDownloadEngine(AmazonS3 client, Executor executor, OssProperties.Transfer transfer) {
+        this.client = client;
+        this.executor = Objects.nonNull(executor) ? executor : Runnable::run;
+        this.transfer = transfer;
+    }
+
+    /**
+     * 分段下载到指定文件
+     * <p>
+     * 首段请求同时用于获取对象总大小，对象不超过一个分段时只发起一次请求
+     *
+     * @param request 下载请求对象
+     * @param file    目标文件，存在时覆盖
+     * @return 对象元数据
+     */
+    public ObjectMetadata download(GetObjectRequest request, File file) {
+        long partSize = transfer.getDownloadPartSize().toBytes();
+
+        S3Object firstRange;
+        try {
+            firstRange = client.getObject(newRangeRequest(request, 0, partSize - 1, null));
+        } catch (AmazonServiceException e) {
+            if (e.getStatusCode() != STATUS_RANGE_NOT_SATISFIABLE) {
+                throw e;
+            }
+            // 空对象不支持 Range 请求，回退为普通下载
+            return client.getObject(request, file);
+        }
+        if (Objects.isNull(firstRange)) {
+            // 调用方设置的约束条件（如 ETag 匹配）不满足
+            return null;
+        }
+
+        ObjectMetadata metadata = firstRange.getObjectMetadata();
+        long totalLength = metadata.getInstanceLength();
+        long firstLength = metadata.getContentLength();
+        int rangeCount = 1 + (int) ((totalLength - firstLength + partSize - 1) / partSize);
+
+        createParentDirectories(file);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                                                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // 预分配文件，各段按位置并发写入
+            channel.write(ByteBuffer.allocate(1), Math.max(0, totalLength - 1));
+
+            ConcurrentTasks.invokeAll(executor, transfer.getConcurrency(), rangeCount, index -> {
+                if (index == 0) {
+                    return new RangeTask(request, channel, metadata.getETag(), 0, firstLength - 1, firstRange);
+                }
+                long start = firstLength + (index - 1) * partSize;
+                long end = Math.min(start + partSize, totalLength) - 1;
+                return new RangeTask(request, channel, metadata.getETag(), start, end, null);
+            });
+        } catch (IOException e) {
+            abortQuietly(firstRange);
+            deleteQuietly(file);
+            throw new SdkClientException("Unable to store object contents to disk: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            abortQuietly(firstRange);
+            deleteQuietly(file);
+            Thread.currentThread().interrupt();
+            throw new SdkClientException("Ranged download of [" + request.getKey() + "] was interrupted", e);
+        } catch (ExecutionException e) {
+            abortQuietly(firstRange);
+            deleteQuietly(file);
+            throw ConcurrentTasks.unwrap(e, "Ranged download of [" + request.getKey() + "] failed");
+        }
+
+        // 首段响应的 Content-Length 为该段长度，改为对象总大小
+        metadata.setContentLength(totalLength);
+        return metadata;
+    }
+
+    private GetObjectRequest newRangeRequest(GetObjectRequest request, long start, long end, String eTag) {
+        GetObjectRequest rangeRequest = new GetObjectRequest(request.getBucketName(), request.getKey(),
+                                                             request.getVersionId())
+                .withRange(start, end)
+                .withSSECustomerKey(request.getSSECustomerKey())
+                .withRequesterPays(request.isRequesterPays());
+
+        if (Objects.nonNull(eTag)) {
+            rangeRequest.withMatchingETagConstraint(eTag);
+        } else {
+            rangeRequest.setMatchingETagConstraints(request.getMatchingETagConstraints());
+            rangeRequest.setNonmatchingETagConstraints(request.getNonmatchingETagConstraints());
+            rangeRequest.setModifiedSinceConstraint(request.getModifiedSinceConstraint());
+            rangeRequest.setUnmodifiedSinceConstraint(request.getUnmodifiedSinceConstraint());
+        }
+
+        // 沿用原请求的进度监听，保证分段下载的进度可被统计
+        ProgressListener progressListener = request.getGeneralProgressListener();
+        if (Objects.nonNull(progressListener)) {
+            rangeRequest.setGeneralProgressListener(progressListener);
+        }
+        return rangeRequest;
+    }
+
+    private static void createParentDirectories(File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (Objects.nonNull(parent) && !parent.exists() && !parent.mkdirs() && !parent.exists()) {
+            throw new SdkClientException("Unable to create directory " + parent);
+        }
+    }
+
+    private static void abortQuietly(S3Object object) {
+        try {
+            object.getObjectContent().abort();
+        } catch (Exception e) {
+            log.debug("abort first range stream failed", e);
+        }
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) {
+            log.warn("unable to delete partially downloaded file {}", file);
+        }
+    }
+
+    /**
+     * 单个字节范围的下载任务，失败时从已写入的位置重新获取剩余部分
+     */
+    private final class RangeTask implements Callable<Long> {
+
+        private final GetObjectRequest request;
+
+        private final FileChannel channel;
+
+        private final String eTag;
+
+        private final long start;
+
+        private final long end;
+
+        private S3Object pending;
+
+        private long written;
+
+        RangeTask(GetObjectRequest request, FileChannel channel, String eTag, long start, long end, S3Object pending) {
+            this.request = request;
+            this.channel = channel;
+            this.eTag = eTag;
+            this.start = start;
+            this.end = end;
+            this.pending = pending;
+        }
+
+        @Override
+        public Long call() throws IOException {
+            int attempts = 0;
+            while (true) {
+                S3Object object = Objects.nonNull(pending) ? pending : openRemaining();
+                pending = null;
+
+                S3ObjectInputStream in = object.getObjectContent();
+                try {
+                    writeFully(in);
+                    in.close();
+                    return written;
+                } catch (IOException | SdkClientException e) {
+                    in.abort();
+                    if (Thread.currentThread().isInterrupted() || !isRetryable(e)
+                            || ++attempts > transfer.getRangeRetryAttempts()) {
+                        throw e;
+                    }
+                    log.warn("range {}-{} of {} failed at byte {}, resuming (attempt {})",
+                             start, end, request.getKey(), start + written, attempts, e);
+                }
+            }
+        }
+
+        private S3Object openRemaining() {
+            S3Object object = client.getObject(newRangeRequest(request, start + written, end, eTag));
+            if (Objects.isNull(object)) {
+                throw new SdkClientException("Object [" + request.getKey() + "] was modified during ranged download");
+            }
+            return object;
+        }
+
+        private void writeFully(InputStream in) throws IOException {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long length = end - start + 1;
+
+            while (written < length) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, length - written));
+                if (read < 0) {
+                    throw new IOException("Premature end of range " + start + "-" + end
+                                                  + " at byte " + (start + written));
+                }
+
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer, start + written + byteBuffer.position());
+                }
+                written += read;
+            }
+        }
+
+        private boolean isRetryable(Exception e) {
+            if (e instanceof AmazonServiceException) {
+                return ((AmazonServiceException) e).getStatusCode() >= 500;
+            }
+            return !(e instanceof SdkClientException) || ((SdkClientException) e).isRetryable();
+        }
+
+    }
+
+}
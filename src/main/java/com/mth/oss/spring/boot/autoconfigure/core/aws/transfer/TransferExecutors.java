@@ -0,0 +1,41 @@
+package com.mth.oss.spring.boot.autoconfigure.core.aws.transfer;
+
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 传输线程池工厂
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public final class TransferExecutors {
+
+    private TransferExecutors() {}
+
+    /**
+     * 创建传输线程池
+     * <p>
+     * 线程数固定为 poolSize，空闲 60 秒后回收；
+     * 单个传输任务同时提交的分片数受 concurrency 限制，因此队列长度不会无限增长
+     *
+     * @param transfer 传输配置
+     * @return 线程池
+     */
+    public static ExecutorService newTransferExecutor(OssProperties.Transfer transfer) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("oss-transfer-");
+        threadFactory.setDaemon(true);
+
+        int poolSize = transfer.getPoolSize();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                                                             new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+}
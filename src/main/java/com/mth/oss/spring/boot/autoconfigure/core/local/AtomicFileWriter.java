@@ -0,0 +1,147 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local;
+
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import org.apache.commons.io.function.IOConsumer;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 原子文件写入
+ * <p>
+ * 内容先写入目标目录下的临时文件，完成后重命名为目标文件：读者只会看到旧文件或完整的新文件，
+ * 覆盖写入也不会改动仍被内存映射或与其他对象共享硬链接的旧文件。
+ * 刷盘方式由 {@link OssProperties.Local#getDurability()} 决定
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public class AtomicFileWriter {
+
+    /**
+     * 临时文件后缀，列举对象时应跳过该后缀的文件
+     */
+    public static final String TEMPORARY_SUFFIX = ".oss-tmp";
+
+    private final OssProperties.Local.Durability durability;
+
+    private final GroupCommitFlusher flusher;
+
+
+    /**
+     * @param local 本地存储配置
+     */
+    public AtomicFileWriter(OssProperties.Local local) {
+        this.durability = local.getDurability();
+        this.flusher = durability == OssProperties.Local.Durability.GROUP_COMMIT
+                       ? new GroupCommitFlusher(local.getGroupCommitWindow())
+                       : null;
+    }
+
+    /**
+     * 写入文件，方法返回时目标文件已按配置的持久化方式落盘
+     *
+     * @param target  目标文件，父目录须已存在
+     * @param content 向临时文件通道写入内容
+     */
+    public void write(Path target, IOConsumer<FileChannel> content) throws IOException {
+        Path temporary = temporaryFile(target);
+        FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try {
+            content.accept(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        if (durability == OssProperties.Local.Durability.GROUP_COMMIT) {
+            // 由后台线程刷盘、重命名并关闭通道
+            flusher.commit(channel, temporary, target);
+            return;
+        }
+
+        try {
+            if (durability == OssProperties.Local.Durability.FSYNC) {
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        } finally {
+            channel.close();
+        }
+
+        moveAtomically(temporary, target);
+        if (durability == OssProperties.Local.Durability.FSYNC) {
+            syncDirectory(target.getParent());
+        }
+    }
+
+    /**
+     * 生成目标文件同目录下的临时文件路径，文件不会被创建
+     *
+     * @param target 目标文件
+     * @return 临时文件路径
+     */
+    public static Path temporaryFile(Path target) {
+        String name = "." + target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong())
+                      + TEMPORARY_SUFFIX;
+        return target.resolveSibling(name);
+    }
+
+    /**
+     * @param path 文件路径
+     * @return 是否为写入中的临时文件
+     */
+    public static boolean isTemporaryFile(Path path) {
+        Path fileName = path.getFileName();
+        return Objects.nonNull(fileName) && fileName.toString().endsWith(TEMPORARY_SUFFIX);
+    }
+
+    /**
+     * 重命名临时文件为目标文件，失败时删除临时文件
+     */
+    static void moveAtomically(Path temporary, Path target) throws IOException {
+        try {
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            // 两者是同一文件的硬链接时重命名不生效，临时链接仍然存在
+            Files.deleteIfExists(temporary);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    /**
+     * 刷盘目录，使重命名持久化；不支持打开目录的平台（如 Windows）忽略
+     */
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // 目录项的持久化由文件系统保证
+        }
+    }
+
+    /**
+     * 停止后台刷盘线程，未完成的写入以异常结束
+     */
+    public void shutdown() {
+        if (Objects.nonNull(flusher)) {
+            flusher.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 组提交刷盘
+ * <p>
+ * 上传线程写完临时文件后提交给后台线程并等待；后台线程收到第一个请求后再等待 window 收集同一批请求，
+ * 依次刷盘文件、重命名，最后每个目录只刷盘一次，再唤醒这一批的全部上传线程。
+ * 并发的小文件上传共用目录刷盘与文件系统日志提交，而不是各自等待
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Slf4j
+final class GroupCommitFlusher {
+
+    private final LinkedBlockingQueue<Commit> queue = new LinkedBlockingQueue<>();
+
+    private final long windowNanos;
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+
+    GroupCommitFlusher(Duration window) {
+        this.windowNanos = window.toNanos();
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("oss-local-flusher-");
+        threadFactory.setDaemon(true);
+        this.thread = threadFactory.newThread(this::run);
+        this.thread.start();
+    }
+
+    /**
+     * 提交一个已写完的临时文件，返回时已刷盘并重命名为目标文件
+     * <p>
+     * 等待期间被中断时，尚未被后台线程取出的提交会撤回并删除临时文件；已取出的提交继续等待其结果，
+     * 因此抛出异常的上传不会随后出现在目标位置。返回或抛出异常前恢复中断状态
+     *
+     * @param channel   临时文件通道，由后台线程关闭
+     * @param temporary 临时文件
+     * @param target    目标文件
+     */
+    void commit(FileChannel channel, Path temporary, Path target) throws IOException {
+        Commit commit = new Commit(channel, temporary, target);
+        queue.add(commit);
+        if (!running) {
+            // 与 shutdown 并发时由任一方清理
+            fail(drain(), new IOException("Group commit flusher has been shut down"));
+        }
+
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    commit.future.get();
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    if (queue.remove(commit)) {
+                        InterruptedIOException cause = new InterruptedIOException(
+                                "Interrupted while waiting for group commit of '" + target + "'");
+                        commit.fail(cause);
+                        throw cause;
+                    }
+                    // 已被后台线程取出，可能正在重命名，以其结果为准
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException(e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    void shutdown() {
+        running = false;
+        thread.interrupt();
+        fail(drain(), new IOException("Group commit flusher has been shut down"));
+    }
+
+    private void run() {
+        while (running) {
+            List<Commit> batch = new ArrayList<>();
+            try {
+                batch.add(queue.take());
+                if (windowNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(windowNanos);
+                }
+            } catch (InterruptedException e) {
+                fail(batch, new IOException("Group commit flusher has been shut down"));
+                return;
+            }
+            queue.drainTo(batch);
+            flush(batch);
+        }
+    }
+
+    private void flush(List<Commit> batch) {
+        List<Commit> synced = new ArrayList<>(batch.size());
+        for (Commit commit : batch) {
+            try (FileChannel channel = commit.channel) {
+                channel.force(true);
+                synced.add(commit);
+            } catch (IOException e) {
+                commit.fail(e);
+            }
+        }
+
+        Set<Path> directories = new LinkedHashSet<>();
+        List<Commit> moved = new ArrayList<>(synced.size());
+        for (Commit commit : synced) {
+            try {
+                AtomicFileWriter.moveAtomically(commit.temporary, commit.target);
+                directories.add(commit.target.getParent());
+                moved.add(commit);
+            } catch (IOException e) {
+                commit.fail(e);
+            }
+        }
+
+        directories.forEach(AtomicFileWriter::syncDirectory);
+        moved.forEach(commit -> commit.future.complete(null));
+        if (log.isTraceEnabled()) {
+            log.trace("Group commit flushed {} file(s) in {} director(ies)", moved.size(), directories.size());
+        }
+    }
+
+    private List<Commit> drain() {
+        List<Commit> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        return pending;
+    }
+
+    private static void fail(List<Commit> commits, IOException cause) {
+        commits.forEach(commit -> commit.fail(cause));
+    }
+
+    /**
+     * 一次待刷盘的写入
+     */
+    private static final class Commit {
+
+        private final FileChannel channel;
+
+        private final Path temporary;
+
+        private final Path target;
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Commit(FileChannel channel, Path temporary, Path target) {
+            this.channel = channel;
+            this.temporary = temporary;
+            this.target = target;
+        }
+
+        private void fail(IOException cause) {
+            try {
+                channel.close();
+                Files.deleteIfExists(temporary);
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+            }
+            future.completeExceptionally(cause);
+        }
+
+    }
+
+}
@@ -0,0 +1,260 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local;
+
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 内容寻址的去重存储
+ * <p>
+ * 每份内容以 SHA-256 为名在存储目录下的 .blobs 目录保存一份，对象文件是指向该内容的硬链接，
+ * 内容相同的对象共享同一份磁盘数据，内容的引用计数即文件系统的链接数减一。
+ * 读取、内存映射与内置 S3 服务直接访问对象文件，不受影响；对象文件只会被整体替换（见 {@link AtomicFileWriter}），
+ * 不会原地修改，因此一个对象的写入不会改动与之共享内容的其他对象。
+ * <p>
+ * 回收只删除 .blobs 下链接数为 1 的内容文件。与上传并发时，正在建立的链接要么在删除前完成，对象保有数据、
+ * 只是该内容之后不再去重；要么因内容文件不存在而照常写入。任何情况下都不会丢失对象的数据
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Slf4j
+public class LocalBlobStore {
+
+    /**
+     * 内容目录，位于存储目录下
+     */
+    public static final String BLOB_DIRECTORY = ".blobs";
+
+    private static final String ALGORITHM = "SHA-256";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path blobPath;
+
+    private final OssProperties.Local.Durability durability;
+
+    /**
+     * 文件系统不支持硬链接时关闭去重，对象照常写入
+     */
+    private volatile boolean linkSupported = true;
+
+
+    /**
+     * @param basePath 存储目录
+     * @param local    本地存储配置
+     */
+    public LocalBlobStore(Path basePath, OssProperties.Local local) {
+        this.blobPath = basePath.toAbsolutePath().normalize().resolve(BLOB_DIRECTORY);
+        this.durability = local.getDurability();
+    }
+
+    /**
+     * 把目标文件链接到已保存的相同内容，不需要再写入数据
+     *
+     * @param digest 内容的 SHA-256（小写十六进制）
+     * @param size   内容大小
+     * @param target 目标文件，父目录须已存在
+     * @return 是否链接成功；内容未保存或文件系统不支持硬链接时为 false，调用方照常写入
+     */
+    public boolean linkExisting(String digest, long size, Path target) throws IOException {
+        if (!linkSupported) {
+            return false;
+        }
+
+        Path blob = blobFile(digest);
+        try {
+            if (Files.readAttributes(blob, BasicFileAttributes.class).size() != size) {
+                return false;
+            }
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        // 相同内容重复上传到同一对象时目标已是该内容的链接
+        if (Files.exists(target) && Files.isSameFile(target, blob)) {
+            return true;
+        }
+
+        Path temporary = AtomicFileWriter.temporaryFile(target);
+        try {
+            Files.createLink(temporary, blob);
+        } catch (NoSuchFileException e) {
+            // 已被回收
+            return false;
+        } catch (FileSystemException e) {
+            // 例如链接数达到文件系统上限，该对象不去重
+            return false;
+        } catch (UnsupportedOperationException e) {
+            disableLinks(e);
+            return false;
+        }
+        AtomicFileWriter.moveAtomically(temporary, target);
+        if (durability != OssProperties.Local.Durability.NONE) {
+            AtomicFileWriter.syncDirectory(target.getParent());
+        }
+        return true;
+    }
+
+    /**
+     * 登记刚写入的目标文件：内容已保存时目标文件改为链接到已有内容，否则目标文件成为该内容的第一个引用
+     *
+     * @param digest 内容的 SHA-256（小写十六进制）
+     * @param target 已写入的目标文件
+     */
+    public void register(String digest, Path target) throws IOException {
+        if (!linkSupported) {
+            return;
+        }
+
+        long size = Files.size(target);
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (linkExisting(digest, size, target)) {
+                return;
+            }
+
+            Path blob = blobFile(digest);
+            Files.createDirectories(blob.getParent());
+            try {
+                Files.createLink(blob, target);
+                if (durability != OssProperties.Local.Durability.NONE) {
+                    AtomicFileWriter.syncDirectory(blob.getParent());
+                }
+                return;
+            } catch (FileAlreadyExistsException e) {
+                // 相同内容被并发登记，改为链接到已有内容
+            } catch (FileSystemException e) {
+                return;
+            } catch (UnsupportedOperationException e) {
+                disableLinks(e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param digest 内容的 SHA-256（小写十六进制）
+     * @return 引用该内容的对象文件数，内容未保存时为 0
+     */
+    public int getReferenceCount(String digest) throws IOException {
+        try {
+            return linkCount(blobFile(digest)) - 1;
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 删除不再被任何对象引用的内容
+     * <p>
+     * 引用计数依赖 POSIX 文件系统的链接数，其他平台不支持
+     *
+     * @return 回收结果
+     */
+    public Result collectGarbage() throws IOException {
+        Result result = new Result();
+        if (!Files.isDirectory(blobPath)) {
+            return result;
+        }
+
+        Files.walkFileTree(blobPath, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (!attrs.isRegularFile() || AtomicFileWriter.isTemporaryFile(file)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (linkCount(file) > 1) {
+                    result.retained++;
+                } else if (Files.deleteIfExists(file)) {
+                    result.deleted++;
+                    result.reclaimedBytes += attrs.size();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                // 遍历期间被删除的文件
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        log.info("Collected {} unreferenced blob(s) ({} bytes) in '{}', {} retained",
+                 result.deleted, result.reclaimedBytes, blobPath, result.retained);
+        return result;
+    }
+
+    /**
+     * @return 计算内容摘要的 SHA-256
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * @param digest 摘要
+     * @return 小写十六进制
+     */
+    public static String toHex(byte[] digest) {
+        char[] chars = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            chars[i * 2] = HEX[(digest[i] >>> 4) & 0x0F];
+            chars[i * 2 + 1] = HEX[digest[i] & 0x0F];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 按摘要的前两个字节分两层目录存放
+     */
+    private Path blobFile(String digest) {
+        return blobPath.resolve(digest.substring(0, 2)).resolve(digest.substring(2, 4)).resolve(digest);
+    }
+
+    private static int linkCount(Path file) throws IOException {
+        try {
+            return (Integer) Files.getAttribute(file, "unix:nlink", LinkOption.NOFOLLOW_LINKS);
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            throw new UnsupportedOperationException("Blob reference counting requires a POSIX file system", e);
+        }
+    }
+
+    private void disableLinks(Exception e) {
+        if (linkSupported) {
+            linkSupported = false;
+            log.warn("Hard links are not supported under '{}', deduplication is disabled", blobPath, e);
+        }
+    }
+
+    /**
+     * 回收结果
+     */
+    @Getter
+    public static final class Result {
+
+        /**
+         * 仍被引用的内容数
+         */
+        private long retained;
+
+        /**
+         * 删除的内容数
+         */
+        private long deleted;
+
+        /**
+         * 释放的字节数
+         */
+        private long reclaimedBytes;
+
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local;
+
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectListing;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectMetadata;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectUsage;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 本地对象存储服务异步操作
+ * <p>
+ * 与 {@link LocalOssOperations} 对应，所有操作在有界的异步线程池中执行，调用线程不会阻塞；
+ * 取消返回的 {@link CompletableFuture} 会中断正在执行的操作
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public interface LocalOssAsyncOperations {
+
+    // ------------------------------------------------------------
+    // ----------------------- upload 上传 ------------------------
+    // ------------------------------------------------------------
+
+    /**
+     * 通用上传文件
+     *
+     * @param file 文件
+     * @return 存储对象相对路径
+     * @see LocalOssOperations#upload(File)
+     */
+    CompletableFuture<String> upload(File file);
+
+    /**
+     * 通用上传文件，指定 Object 完整路径
+     *
+     * @param file      文件
+     * @param objectKey Object 相对路径，例如 exampleDir/exampleObject.txt
+     * @return 存储对象相对路径
+     */
+    CompletableFuture<String> upload(File file, String objectKey);
+
+    /**
+     * 流式上传，流在上传完成前不能关闭
+     *
+     * @param inputStream 流对象
+     * @param objectKey   Object 相对路径，例如 exampleDir/exampleObject.txt
+     * @return 存储对象相对路径
+     */
+    CompletableFuture<String> upload(InputStream inputStream, String objectKey);
+
+    /**
+     * 流式上传，指定内容类型，流在上传完成前不能关闭
+     *
+     * @param inputStream 流对象
+     * @param objectKey   Object 相对路径，例如 exampleDir/exampleObject.txt
+     * @param contentType 内容类型
+     * @return 存储对象相对路径
+     * @since 1.4
+     */
+    CompletableFuture<String> upload(InputStream inputStream, String objectKey, String contentType);
+
+
+    // ------------------------------------------------------------
+    // ---------------------- download 下载 -----------------------
+    // ------------------------------------------------------------
+
+    /**
+     * 下载到指定 File 中
+     *
+     * @param objectKey Object 相对路径，例如 exampleDir/exampleObject.txt
+     * @param file      指定下载的文件，如果本地存在该文件会覆盖，不存在则新建。
+     * @return 下载成功true；否则false
+     */
+    CompletableFuture<Boolean> download(String objectKey, File file);
+
+    /**
+     * 下载 byte 数组
+     *
+     * @param objectKey Object 相对路径，例如 exampleDir/exampleObject.txt
+     * @return byte数组
+     */
+    CompletableFuture<byte[]> download(String objectKey);
+
+    /**
+     * 下载到指定输出流，输出流由调用方关闭
+     *
+     * @param objectKey    Object 相对路径，例如 exampleDir/exampleObject.txt
+     * @param outputStream 输出流
+     * @return 下载完成
+     */
+    CompletableFuture<Void> download(String objectKey, OutputStream outputStream);
+
+
+    // ------------------------------------------------------------
+    // ------------------ object manage 文件管理 -------------------
+    // ------------------------------------------------------------
+
+    /**
+     * 判断文件是否存在
+     *
+     * @param objectKey Object 相对路径，例如 exampleDir/exampleObject.txt
+     * @return 存在true；不存在false
+     */
+    CompletableFuture<Boolean> objectExist(String objectKey);
+
+    /**
+     * 删除单个文件
+     *
+     * @param objectKey Object 相对路径，例如 exampleDir/exampleObject.txt
+     * @return 是否删除成功，删除成功true；删除失败false
+     */
+    CompletableFuture<Boolean> deleteObject(String objectKey);
+
+    /**
+     * 删除指定的多个文件
+     *
+     * @param objectKeys Object 相对路径集合，例如 exampleDir/exampleObject.txt
+     * @return 删除失败的文件列表
+     */
+    CompletableFuture<List<String>> deleteObjects(List<String> objectKeys);
+
+    /**
+     * 拷贝文件
+     *
+     * @param sourceKey      源 Object 相对路径，例如 sourceDir/exampleObject.txt
+     * @param destinationKey 目标 Object 相对路径，例如 destinationDir/exampleObject.txt
+     * @return 是否拷贝成功，拷贝成功true；拷贝失败false
+     */
+    CompletableFuture<Boolean> copyObject(String sourceKey, String destinationKey);
+
+    /**
+     * 按前缀列举文件，最多返回 1000 个
+     *
+     * @param prefix 对象键前缀，例如 exampleDir/
+     * @return 按对象键字典序排列的文件元数据
+     * @see LocalOssOperations#listObjects(String)
+     * @since 1.4
+     */
+    CompletableFuture<List<LocalObjectMetadata>> listObjects(String prefix);
+
+    /**
+     * 按前缀分页列举文件
+     *
+     * @param prefix     对象键前缀，例如 exampleDir/
+     * @param delimiter  分隔符，为空时不合并公共前缀
+     * @param startAfter 从该对象键之后开始列举，为空时从头开始
+     * @param maxKeys    单页最多返回的对象与公共前缀总数
+     * @return 一页列举结果
+     * @see LocalOssOperations#listObjects(String, String, String, int)
+     * @since 1.4
+     */
+    CompletableFuture<LocalObjectListing> listObjects(String prefix, String delimiter, String startAfter, int maxKeys);
+
+    /**
+     * 按公共前缀分组统计文件数与总大小
+     *
+     * @param prefix    对象键前缀，例如 exampleDir/
+     * @param delimiter 分隔符，为空时不分组
+     * @return 按前缀排序的用量统计
+     * @see LocalOssOperations#getUsage(String, String)
+     * @since 1.4
+     */
+    CompletableFuture<List<LocalObjectUsage>> getUsage(String prefix, String delimiter);
+
+}
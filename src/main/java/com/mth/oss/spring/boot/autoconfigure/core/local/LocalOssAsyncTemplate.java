@@ -0,0 +1,100 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local;
+
+import com.mth.oss.spring.boot.autoconfigure.core.OssAsyncExecutor;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectListing;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectMetadata;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectUsage;
+import lombok.RequiredArgsConstructor;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 本地对象存储服务的异步实现，委托 {@link LocalOssOperations} 在异步线程池中执行
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@RequiredArgsConstructor
+public class LocalOssAsyncTemplate implements LocalOssAsyncOperations {
+
+    private final LocalOssOperations localOssOperations;
+
+    private final OssAsyncExecutor asyncExecutor;
+
+
+    @Override
+    public CompletableFuture<String> upload(File file) {
+        return asyncExecutor.submit(() -> localOssOperations.upload(file));
+    }
+
+    @Override
+    public CompletableFuture<String> upload(File file, String objectKey) {
+        return asyncExecutor.submit(() -> localOssOperations.upload(file, objectKey));
+    }
+
+    @Override
+    public CompletableFuture<String> upload(InputStream inputStream, String objectKey) {
+        return asyncExecutor.submit(() -> localOssOperations.upload(inputStream, objectKey));
+    }
+
+    @Override
+    public CompletableFuture<String> upload(InputStream inputStream, String objectKey, String contentType) {
+        return asyncExecutor.submit(() -> localOssOperations.upload(inputStream, objectKey, contentType));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> download(String objectKey, File file) {
+        return asyncExecutor.submit(() -> localOssOperations.download(objectKey, file));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> download(String objectKey) {
+        return asyncExecutor.submit(() -> localOssOperations.download(objectKey));
+    }
+
+    @Override
+    public CompletableFuture<Void> download(String objectKey, OutputStream outputStream) {
+        return asyncExecutor.run(() -> localOssOperations.download(objectKey, outputStream));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> objectExist(String objectKey) {
+        return asyncExecutor.submit(() -> localOssOperations.objectExist(objectKey));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteObject(String objectKey) {
+        return asyncExecutor.submit(() -> localOssOperations.deleteObject(objectKey));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> deleteObjects(List<String> objectKeys) {
+        return asyncExecutor.submit(() -> localOssOperations.deleteObjects(objectKeys));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> copyObject(String sourceKey, String destinationKey) {
+        return asyncExecutor.submit(() -> localOssOperations.copyObject(sourceKey, destinationKey));
+    }
+
+    @Override
+    public CompletableFuture<List<LocalObjectMetadata>> listObjects(String prefix) {
+        return asyncExecutor.submit(() -> localOssOperations.listObjects(prefix));
+    }
+
+    @Override
+    public CompletableFuture<LocalObjectListing> listObjects(String prefix, String delimiter, String startAfter,
+                                                             int maxKeys) {
+        return asyncExecutor.submit(() -> localOssOperations.listObjects(prefix, delimiter, startAfter, maxKeys));
+    }
+
+    @Override
+    public CompletableFuture<List<LocalObjectUsage>> getUsage(String prefix, String delimiter) {
+        return asyncExecutor.submit(() -> localOssOperations.getUsage(prefix, delimiter));
+    }
+
+}
@@ -1,9 +1,16 @@
 package com.mth.oss.spring.boot.autoconfigure.core.local;
 
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectListing;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectMetadata;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectUsage;
+
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * 本地对象存储服务操作
@@ -51,6 +58,17 @@ public interface LocalOssOperations {
      */
     String upload(InputStream inputStream, String objectKey);
 
+    /**
+     * 流式上传，指定内容类型
+     *
+     * @param inputStream 流对象
+     * @param objectKey   Object 相对路径，例如 exampleDir/exampleObject.txt
+     * @param contentType 内容类型，记录在元数据索引中
+     * @return 存储对象相对路径
+     * @since 1.4
+     */
+    String upload(InputStream inputStream, String objectKey, String contentType);
+
     /**
      * 文件上传并替换同名文件
      * <p>
@@ -113,6 +131,42 @@ public interface LocalOssOperations {
      */
     void download(String objectKey, OutputStream outputStream);
 
+    /**
+     * 下载到指定通道
+     * <p>
+     * 目标为 {@link java.nio.channels.SocketChannel} 或 {@link java.nio.channels.FileChannel} 时由内核直接传输，
+     * 数据不经过用户态缓冲区；通道须为阻塞模式，方法返回后不会关闭通道
+     *
+     * @param objectKey Object 相对路径，例如 exampleDir/exampleObject.txt
+     * @param channel   目标通道
+     * @since 1.4
+     */
+    void download(String objectKey, WritableByteChannel channel);
+
+    /**
+     * 以只读内存映射的方式读取对象，不拷贝到堆内存
+     * <p>
+     * 热点对象的映射会被缓存复用；每次调用返回独立的缓冲区视图，position 与 limit 互不影响。
+     * 持有缓冲区期间覆盖或删除该对象不会影响已返回的内容
+     *
+     * @param objectKey Object 相对路径，例如 exampleDir/exampleObject.txt
+     * @return 只读缓冲区，大小不能超过 2GB
+     * @since 1.4
+     */
+    ByteBuffer map(String objectKey);
+
+    /**
+     * 以只读内存映射的方式读取对象的一段，适用于超过 2GB 的对象
+     *
+     * @param objectKey Object 相对路径，例如 exampleDir/exampleObject.txt
+     * @param position  起始位置
+     * @param length    长度
+     * @return 只读缓冲区
+     * @see #map(String)
+     * @since 1.4
+     */
+    ByteBuffer map(String objectKey, long position, int length);
+
 
     // ------------------------------------------------------------
     // ------------------ object manage 文件管理 -------------------
@@ -154,6 +208,8 @@ public interface LocalOssOperations {
 
     /**
      * 拷贝文件
+     * <p>
+     * 开启 oss.local.hard-link-copy 或 oss.local.deduplicate 时优先创建硬链接，文件系统不支持时退回内核拷贝
      *
      * @param sourceKey      源 Object 相对路径，例如 sourceDir/exampleObject.txt
      * @param destinationKey 目标 Object 相对路径，例如 destinationDir/exampleObject.txt
@@ -161,4 +217,89 @@ public interface LocalOssOperations {
      */
     boolean copyObject(String sourceKey, String destinationKey);
 
+    /**
+     * 获取文件元数据
+     * <p>
+     * 优先读取元数据索引；文件存在但不在索引中（例如直接放入存储目录）时读取文件属性，此时校验值为空
+     *
+     * @param objectKey Object 相对路径，例如 exampleDir/exampleObject.txt
+     * @return 文件元数据，文件不存在时为空
+     * @since 1.4
+     */
+    LocalObjectMetadata getObjectMetadata(String objectKey);
+
+    /**
+     * 按前缀列举文件，最多返回 1000 个
+     *
+     * @param prefix 对象键前缀，例如 exampleDir/
+     * @return 按对象键字典序排列的文件元数据
+     * @since 1.4
+     */
+    List<LocalObjectMetadata> listObjects(String prefix);
+
+    /**
+     * 按前缀分页列举文件
+     * <p>
+     * 开启 oss.local.index-enabled 时由元数据索引直接定位前缀范围，不遍历目录；
+     * 未开启时并行遍历前缀所在的目录，只保留当前页
+     *
+     * @param prefix     对象键前缀，例如 exampleDir/，为空时列举全部
+     * @param delimiter  分隔符，例如 /，前缀之后包含分隔符的对象合并为公共前缀；为空时不合并
+     * @param startAfter 从该对象键之后开始列举，取上一页的 nextStartAfter；为空时从头开始
+     * @param maxKeys    单页最多返回的对象与公共前缀总数
+     * @return 一页列举结果
+     * @since 1.4
+     */
+    LocalObjectListing listObjects(String prefix, String delimiter, String startAfter, int maxKeys);
+
+    /**
+     * 并行遍历存储目录，逐个返回前缀下的文件
+     * <p>
+     * 不经过元数据索引，文件不按对象键排序，内存占用与文件数无关；流使用完毕后必须关闭
+     *
+     * @param prefix  对象键前缀，例如 exampleDir/，为空时遍历全部
+     * @param maxKeys 最多返回的文件数，达到后停止遍历
+     * @return 文件元数据流，元数据没有校验值
+     * @since 1.4
+     */
+    Stream<LocalObjectMetadata> walkObjects(String prefix, long maxKeys);
+
+    /**
+     * 并行遍历存储目录，统计前缀下的文件数与总大小
+     *
+     * @param prefix 对象键前缀，例如 exampleDir/，为空时统计全部
+     * @return 用量统计
+     * @since 1.4
+     */
+    LocalObjectUsage getUsage(String prefix);
+
+    /**
+     * 并行遍历存储目录，按公共前缀分组统计文件数与总大小
+     *
+     * @param prefix    对象键前缀，例如 exampleDir/，为空时统计全部
+     * @param delimiter 分隔符，例如 /，前缀之后包含分隔符的文件按公共前缀分组，其余文件归入 prefix 本身
+     * @return 按前缀排序的用量统计
+     * @since 1.4
+     */
+    List<LocalObjectUsage> getUsage(String prefix, String delimiter);
+
+    /**
+     * 回收不再被任何文件引用的去重内容，见 oss.local.deduplicate
+     * <p>
+     * 可与上传、拷贝、删除并发执行；引用计数依赖 POSIX 文件系统的链接数，其他平台抛出 UnsupportedOperationException
+     *
+     * @return 回收结果
+     * @since 1.4
+     */
+    LocalBlobStore.Result collectGarbage();
+
+    /**
+     * 遍历存储目录重建元数据索引，用于索引丢失或文件在模板之外被修改后的恢复
+     * <p>
+     * 未开启 oss.local.index-enabled 时不做任何事
+     *
+     * @since 1.4
+     */
+    void rebuildIndex();
+
 }
@@ -1,17 +1,41 @@
 package com.mth.oss.spring.boot.autoconfigure.core.local;
 
+import com.amazonaws.services.s3.internal.Mimetypes;
 import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectIndex;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectListing;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectMetadata;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectUsage;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectWalker;
+import com.mth.oss.spring.boot.autoconfigure.core.local.layout.LocalObjectLayout;
 import com.mth.oss.spring.boot.autoconfigure.exception.IORuntimeException;
 import com.mth.oss.spring.boot.autoconfigure.handler.DefaultObjectKeyHandler;
 import com.mth.oss.spring.boot.autoconfigure.handler.DefaultOssHandler;
 import com.mth.oss.spring.boot.autoconfigure.handler.OssHandler;
-import lombok.RequiredArgsConstructor;
 import org.apache.commons.io.FileUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Checksum;
 
 /**
  * 对象存储服务的 Local 本地实现
@@ -19,13 +43,42 @@ import java.util.stream.Collectors;
  * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
  * @since 1.3
  */
-@RequiredArgsConstructor
+@Slf4j
 public class LocalOssTemplate implements LocalOssOperations, DefaultObjectKeyHandler {
 
     private final OssProperties ossProperties;
 
+    private final LocalObjectLayout objectLayout;
+
+    private final LocalObjectWalker objectWalker;
+
+    private final LocalBlobStore blobStore;
+
     private OssHandler ossHandler;
 
+    /**
+     * 内存映射缓存，首次映射时创建
+     */
+    private volatile MappedFileCache mappedFileCache;
+
+    /**
+     * 原子写入，首次写入时创建
+     */
+    private volatile AtomicFileWriter fileWriter;
+
+    /**
+     * 元数据索引，首次使用时打开
+     */
+    private volatile LocalObjectIndex objectIndex;
+
+
+    public LocalOssTemplate(OssProperties ossProperties) {
+        this.ossProperties = ossProperties;
+        this.objectLayout = LocalObjectLayout.of(ossProperties.getLocal());
+        this.objectWalker = new LocalObjectWalker(Paths.get(ossProperties.getLocalBasePath()), objectLayout,
+                                                  ossProperties.getLocal());
+        this.blobStore = new LocalBlobStore(Paths.get(ossProperties.getLocalBasePath()), ossProperties.getLocal());
+    }
 
     @Override
     public String upload(File file) {
@@ -35,17 +88,49 @@ public class LocalOssTemplate implements LocalOssOperations, DefaultObjectKeyHan
 
     @Override
     public String upload(File file, String objectKey) {
-        try (InputStream source = new FileInputStream(file)) {
-            return upload(source, objectKey);
+        try (FileChannel sourceChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            CRC32 crc = ossProperties.getLocal().getIndexEnabled() ? new CRC32() : null;
+            MessageDigest digest = ossProperties.getLocal().getDeduplicate() ? LocalBlobStore.newDigest() : null;
+            digest(sourceChannel, crc, digest);
+
+            Path target = prepareTarget(getObject(objectKey));
+            // 已保存相同内容时只创建链接，不写入数据
+            String contentDigest = Objects.nonNull(digest) ? LocalBlobStore.toHex(digest.digest()) : null;
+            if (Objects.isNull(contentDigest) || !blobStore.linkExisting(contentDigest, sourceChannel.size(), target)) {
+                getFileWriter().write(target, channel -> transfer(sourceChannel, channel));
+                if (Objects.nonNull(contentDigest)) {
+                    blobStore.register(contentDigest, target);
+                }
+            }
+            indexObject(objectKey, target, Mimetypes.getInstance().getMimetype(file),
+                        Objects.nonNull(crc) ? toHex(crc.getValue()) : null);
         } catch (IOException e) {
             throw new IORuntimeException(e);
         }
+
+        return objectKey;
     }
 
     @Override
     public String upload(InputStream inputStream, String objectKey) {
+        return upload(inputStream, objectKey, "application/octet-stream");
+    }
+
+    @Override
+    public String upload(InputStream inputStream, String objectKey, String contentType) {
+        CheckedInputStream checkedInputStream = new CheckedInputStream(inputStream, new CRC32());
+        MessageDigest digest = ossProperties.getLocal().getDeduplicate() ? LocalBlobStore.newDigest() : null;
+        InputStream content = Objects.nonNull(digest)
+                              ? new DigestInputStream(checkedInputStream, digest)
+                              : checkedInputStream;
         try {
-            FileUtils.copyToFile(inputStream, getObject(objectKey));
+            Path target = prepareTarget(getObject(objectKey));
+            getFileWriter().write(target, channel -> IOUtils.copyLarge(content, Channels.newOutputStream(channel)));
+            // 内容已保存时以链接替换刚写入的文件
+            if (Objects.nonNull(digest)) {
+                blobStore.register(LocalBlobStore.toHex(digest.digest()), target);
+            }
+            indexObject(objectKey, target, contentType, toHex(checkedInputStream.getChecksum().getValue()));
         } catch (IOException e) {
             throw new IORuntimeException(e);
         }
@@ -74,7 +159,8 @@ public class LocalOssTemplate implements LocalOssOperations, DefaultObjectKeyHan
     public boolean download(String objectKey, File file) {
         File source = getObject(objectKey);
         try {
-            FileUtils.copyFile(source, file);
+            FileUtils.forceMkdirParent(file);
+            transferFile(source.toPath(), file.toPath());
         } catch (IOException e) {
             throw new IORuntimeException(e);
         }
@@ -94,9 +180,36 @@ public class LocalOssTemplate implements LocalOssOperations, DefaultObjectKeyHan
 
     @Override
     public void download(String objectKey, OutputStream outputStream) {
+        // 文件输出流直接使用其通道，由内核完成文件到文件的拷贝
+        WritableByteChannel channel = outputStream instanceof FileOutputStream
+                                      ? ((FileOutputStream) outputStream).getChannel()
+                                      : Channels.newChannel(outputStream);
+        download(objectKey, channel);
+    }
+
+    @Override
+    public void download(String objectKey, WritableByteChannel channel) {
         File source = getObject(objectKey);
+        try (FileChannel sourceChannel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            transfer(sourceChannel, channel);
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+    }
+
+    @Override
+    public ByteBuffer map(String objectKey) {
         try {
-            FileUtils.copyFile(source, outputStream);
+            return getMappedFileCache().map(getObject(objectKey).toPath());
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+    }
+
+    @Override
+    public ByteBuffer map(String objectKey, long position, int length) {
+        try {
+            return getMappedFileCache().map(getObject(objectKey).toPath(), position, length);
         } catch (IOException e) {
             throw new IORuntimeException(e);
         }
@@ -117,7 +230,12 @@ public class LocalOssTemplate implements LocalOssOperations, DefaultObjectKeyHan
     @Override
     public boolean deleteObject(String objectKey) {
         File file = getObject(objectKey);
-        return file.delete();
+        invalidateMapping(file.toPath());
+        boolean deleted = file.delete();
+        if (deleted) {
+            unindexObject(objectKey);
+        }
+        return deleted;
     }
 
     @Override
@@ -129,14 +247,125 @@ public class LocalOssTemplate implements LocalOssOperations, DefaultObjectKeyHan
 
     @Override
     public boolean copyObject(String sourceKey, String destinationKey) {
+        Path source = getObject(sourceKey).toPath();
+        Path target = getObject(destinationKey).toPath();
         try {
-            FileUtils.copyFile(getObject(sourceKey), getObject(destinationKey));
+            if (isSamePath(source, target)) {
+                throw new IOException("Source '" + source + "' and destination '" + target + "' are the same");
+            }
+
+            // 目标已是源文件的链接（重复拷贝或内容去重）时无需再拷贝
+            boolean shared = Files.exists(target) && Files.isSameFile(source, target);
+
+            // 去重时拷贝只创建链接，与源文件共享内容
+            boolean link = ossProperties.getLocal().getHardLinkCopy() || ossProperties.getLocal().getDeduplicate();
+            if (!shared && (!link || !createLink(source, prepareTarget(target.toFile())))) {
+                try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ)) {
+                    getFileWriter().write(prepareTarget(target.toFile()),
+                                          channel -> transfer(sourceChannel, channel));
+                }
+            }
+
+            if (ossProperties.getLocal().getIndexEnabled()) {
+                // 源文件自索引记录后未被修改时沿用其内容类型与校验值
+                LocalObjectMetadata metadata = getObjectMetadata(sourceKey);
+                BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+                if (Objects.nonNull(metadata) && Objects.nonNull(metadata.getChecksum())
+                    && metadata.getSize() == attributes.size()
+                    && metadata.getLastModified() == attributes.lastModifiedTime().toMillis()) {
+                    indexObject(destinationKey, target, metadata.getContentType(), metadata.getChecksum());
+                } else {
+                    CRC32 crc = new CRC32();
+                    try (FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.READ)) {
+                        digest(targetChannel, crc, null);
+                    }
+                    indexObject(destinationKey, target, Mimetypes.getInstance().getMimetype(target.toFile()),
+                                toHex(crc.getValue()));
+                }
+            }
         } catch (IOException e) {
             throw new IORuntimeException(e);
         }
         return objectExist(destinationKey);
     }
 
+    @Override
+    public LocalObjectMetadata getObjectMetadata(String objectKey) {
+        String key = LocalObjectLayout.normalize(objectKey);
+        try {
+            LocalObjectIndex index = getObjectIndex();
+            LocalObjectMetadata metadata = Objects.nonNull(index) ? index.get(key) : null;
+            if (Objects.nonNull(metadata)) {
+                return metadata;
+            }
+
+            Path path = getObject(objectKey).toPath();
+            if (!Files.isRegularFile(path)) {
+                return null;
+            }
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new LocalObjectMetadata(key, attributes.size(), Mimetypes.getInstance().getMimetype(key), null,
+                                           attributes.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<LocalObjectMetadata> listObjects(String prefix) {
+        return listObjects(prefix, null, null, 1000).getObjects();
+    }
+
+    @Override
+    public LocalObjectListing listObjects(String prefix, String delimiter, String startAfter, int maxKeys) {
+        String normalizedPrefix = Objects.nonNull(prefix) ? LocalObjectLayout.normalize(prefix) : "";
+        try {
+            LocalObjectIndex index = getObjectIndex();
+            if (Objects.nonNull(index)) {
+                return index.list(normalizedPrefix, delimiter, startAfter, maxKeys);
+            }
+            return objectWalker.list(normalizedPrefix, delimiter, startAfter, maxKeys);
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+    }
+
+    @Override
+    public Stream<LocalObjectMetadata> walkObjects(String prefix, long maxKeys) {
+        return objectWalker.walk(Objects.nonNull(prefix) ? LocalObjectLayout.normalize(prefix) : "", maxKeys);
+    }
+
+    @Override
+    public LocalObjectUsage getUsage(String prefix) {
+        return objectWalker.summarize(Objects.nonNull(prefix) ? LocalObjectLayout.normalize(prefix) : "");
+    }
+
+    @Override
+    public List<LocalObjectUsage> getUsage(String prefix, String delimiter) {
+        return objectWalker.summarize(Objects.nonNull(prefix) ? LocalObjectLayout.normalize(prefix) : "", delimiter);
+    }
+
+    @Override
+    public LocalBlobStore.Result collectGarbage() {
+        try {
+            return blobStore.collectGarbage();
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+    }
+
+    @Override
+    public void rebuildIndex() {
+        try {
+            LocalObjectIndex index = getObjectIndex();
+            if (Objects.nonNull(index)) {
+                index.rebuild();
+            }
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+    }
+
 
     /**
      * 获取完整路径
@@ -145,11 +374,219 @@ public class LocalOssTemplate implements LocalOssOperations, DefaultObjectKeyHan
      * @return 存储对象完整路径
      */
     public String getCompleteObjectKey(String objectKey) {
-        String key = ossProperties.getLocalBasePath() + File.separatorChar + objectKey;
+        String key = ossProperties.getLocalBasePath() + File.separatorChar + objectLayout.toStoragePath(objectKey);
         key = key.replaceAll("\\\\", "/").replaceAll("//", "/");
         return key;
     }
 
+    /**
+     * @return 存储目录布局
+     * @since 1.4
+     */
+    public LocalObjectLayout getObjectLayout() {
+        return objectLayout;
+    }
+
+    /**
+     * 创建目标文件的父目录，并移除目标文件的缓存映射
+     *
+     * @param target 目标文件
+     * @return 目标文件路径
+     */
+    private Path prepareTarget(File target) throws IOException {
+        FileUtils.forceMkdirParent(target);
+        Path path = target.toPath();
+        invalidateMapping(path);
+        return path;
+    }
+
+    private AtomicFileWriter getFileWriter() {
+        AtomicFileWriter writer = fileWriter;
+        if (Objects.isNull(writer)) {
+            synchronized (this) {
+                writer = fileWriter;
+                if (Objects.isNull(writer)) {
+                    writer = new AtomicFileWriter(ossProperties.getLocal());
+                    fileWriter = writer;
+                }
+            }
+        }
+        return writer;
+    }
+
+    private MappedFileCache getMappedFileCache() {
+        MappedFileCache cache = mappedFileCache;
+        if (Objects.isNull(cache)) {
+            synchronized (this) {
+                cache = mappedFileCache;
+                if (Objects.isNull(cache)) {
+                    cache = new MappedFileCache(ossProperties.getLocal());
+                    mappedFileCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * @return 元数据索引，未开启时为空
+     */
+    private LocalObjectIndex getObjectIndex() throws IOException {
+        if (!ossProperties.getLocal().getIndexEnabled()) {
+            return null;
+        }
+        LocalObjectIndex index = objectIndex;
+        if (Objects.isNull(index)) {
+            synchronized (this) {
+                index = objectIndex;
+                if (Objects.isNull(index)) {
+                    index = new LocalObjectIndex(objectWalker);
+                    index.open();
+                    objectIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 记录写入完成的对象；文件已经写入，索引失败只记录日志，可通过重建索引恢复
+     */
+    private void indexObject(String objectKey, Path target, String contentType, String checksum) {
+        try {
+            LocalObjectIndex index = getObjectIndex();
+            if (Objects.nonNull(index)) {
+                BasicFileAttributes attributes = Files.readAttributes(target, BasicFileAttributes.class);
+                index.put(new LocalObjectMetadata(LocalObjectLayout.normalize(objectKey), attributes.size(),
+                                                  contentType, checksum, attributes.lastModifiedTime().toMillis()));
+            }
+        } catch (IOException e) {
+            log.warn("Failed to index local object '{}', rebuild the index to recover", objectKey, e);
+        }
+    }
+
+    private void unindexObject(String objectKey) {
+        try {
+            LocalObjectIndex index = getObjectIndex();
+            if (Objects.nonNull(index)) {
+                index.remove(LocalObjectLayout.normalize(objectKey));
+            }
+        } catch (IOException e) {
+            log.warn("Failed to remove local object '{}' from the index, rebuild the index to recover", objectKey, e);
+        }
+    }
+
+    private void invalidateMapping(Path path) {
+        MappedFileCache cache = mappedFileCache;
+        if (Objects.nonNull(cache)) {
+            cache.invalidate(path);
+        }
+    }
+
+    /**
+     * 以临时文件名创建硬链接后重命名为目标文件
+     *
+     * @return 是否创建成功，文件系统不支持或跨文件系统时为 false
+     */
+    private static boolean createLink(Path source, Path target) throws IOException {
+        if (!Files.isRegularFile(source)) {
+            throw new FileNotFoundException("Source '" + source + "' does not exist");
+        }
+
+        Path temporary = AtomicFileWriter.temporaryFile(target);
+        try {
+            Files.createLink(temporary, source);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            return false;
+        }
+        AtomicFileWriter.moveAtomically(temporary, target);
+        return true;
+    }
+
+    /**
+     * 文件到文件的拷贝，由内核在两个文件通道之间直接传输；
+     * 目标是源文件本身或其硬链接时拒绝拷贝，否则截断目标会清空对象内容
+     */
+    private static void transferFile(Path source, Path target) throws IOException {
+        if (isSamePath(source, target) || Files.exists(target) && Files.isSameFile(source, target)) {
+            throw new IOException("Source '" + source + "' and destination '" + target + "' are the same");
+        }
+        try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.WRITE,
+                                                          StandardOpenOption.CREATE,
+                                                          StandardOpenOption.TRUNCATE_EXISTING)) {
+            transfer(sourceChannel, targetChannel);
+        }
+    }
+
+    private static boolean isSamePath(Path source, Path target) {
+        return source.toAbsolutePath().normalize().equals(target.toAbsolutePath().normalize());
+    }
+
+    /**
+     * 将文件通道的全部内容传输到目标通道，目标为文件或套接字通道时不经过用户态缓冲区
+     */
+    private static void transfer(FileChannel source, WritableByteChannel target) throws IOException {
+        long size = source.size();
+        long position = 0;
+        while (position < size) {
+            long transferred = source.transferTo(position, size - position, target);
+            if (transferred <= 0) {
+                throw new IOException("Transfer stalled at byte " + position + " of " + size);
+            }
+            position += transferred;
+        }
+    }
+
+    /**
+     * 以位置读取一次计算文件通道内容的校验值与摘要，不改变通道的当前位置
+     *
+     * @param crc    校验值，为空时不计算
+     * @param digest 摘要，为空时不计算
+     */
+    private static void digest(FileChannel channel, Checksum crc, MessageDigest digest) throws IOException {
+        if (Objects.isNull(crc) && Objects.isNull(digest)) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long position = 0;
+        int read;
+        while ((read = channel.read(buffer, position)) > 0) {
+            if (Objects.nonNull(crc)) {
+                crc.update(buffer.array(), 0, read);
+            }
+            if (Objects.nonNull(digest)) {
+                digest.update(buffer.array(), 0, read);
+            }
+            buffer.clear();
+            position += read;
+        }
+    }
+
+    private static String toHex(long crc) {
+        return String.format("%08x", crc);
+    }
+
+    /**
+     * 停止 group-commit 刷盘线程并关闭元数据索引
+     *
+     * @since 1.4
+     */
+    public void shutdown() {
+        AtomicFileWriter writer = fileWriter;
+        if (Objects.nonNull(writer)) {
+            writer.shutdown();
+        }
+        LocalObjectIndex index = objectIndex;
+        if (Objects.nonNull(index)) {
+            try {
+                index.close();
+            } catch (IOException e) {
+                log.warn("Failed to close local object index", e);
+            }
+        }
+    }
+
     /**
      * 设置自定义扩展点实现
      *
@@ -0,0 +1,275 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local;
+
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 文件只读内存映射缓存
+ * <p>
+ * 按最近最少使用淘汰，映射总字节数与映射个数均有上限；每次访问都会校验文件大小、修改时间与文件标识，
+ * 文件被替换后重新映射。
+ * <p>
+ * 被淘汰的映射不会被强制解除：调用方可能仍持有由它派生的缓冲区，强制解除后访问会导致进程崩溃，
+ * 因此只释放引用，由 GC 在缓冲区不可达后解除映射。映射期间文件不能被原地截断或改写，
+ * {@link LocalOssTemplate} 覆盖对象时总是写入新文件后重命名，见 {@link AtomicFileWriter}
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public class MappedFileCache {
+
+    private final long maximumBytes;
+
+    private final int maximumMappings;
+
+    private final LinkedHashMap<Path, Mapping> mappings = new LinkedHashMap<>(16, 0.75F, true);
+
+    private long mappedBytes;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+
+    /**
+     * @param local 本地存储配置
+     */
+    public MappedFileCache(OssProperties.Local local) {
+        this(local.getMappedCacheSize().toBytes(), local.getMappedCacheEntries());
+    }
+
+    /**
+     * @param maximumBytes    缓存的映射总字节数上限
+     * @param maximumMappings 缓存的映射个数上限
+     */
+    public MappedFileCache(long maximumBytes, int maximumMappings) {
+        this.maximumBytes = maximumBytes;
+        this.maximumMappings = maximumMappings;
+    }
+
+    /**
+     * 映射整个文件
+     *
+     * @param path 文件路径
+     * @return 只读缓冲区，position 为 0，limit 为文件大小
+     * @throws IOException 文件不存在或超过 2GB
+     */
+    public ByteBuffer map(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Mapping cached = cached(path, attributes);
+        if (Objects.nonNull(cached)) {
+            return cached.buffer.duplicate();
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File '" + path + "' is larger than 2GB, map a region instead");
+            }
+            return cache(path, attributes, channel, size).buffer.duplicate();
+        }
+    }
+
+    /**
+     * 映射文件的一段
+     * <p>
+     * 文件不超过缓存上限时从缓存的整文件映射中切片，否则单独映射该段且不缓存
+     *
+     * @param path     文件路径
+     * @param position 起始位置
+     * @param length   长度
+     * @return 只读缓冲区，position 为 0，limit 为 length
+     * @throws IOException 文件不存在或范围超出文件大小
+     */
+    public ByteBuffer map(Path path, long position, int length) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Mapping cached = cached(path, attributes);
+        if (Objects.nonNull(cached)) {
+            return slice(path, cached.buffer, cached.size, position, length);
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Math.min(maximumBytes, Integer.MAX_VALUE)) {
+                checkBounds(path, size, position, length);
+                missCount.increment();
+                return channel.map(FileChannel.MapMode.READ_ONLY, position, length).asReadOnlyBuffer();
+            }
+            return slice(path, cache(path, attributes, channel, size).buffer, size, position, length);
+        }
+    }
+
+    /**
+     * 移除文件的缓存映射
+     *
+     * @param path 文件路径
+     */
+    public void invalidate(Path path) {
+        synchronized (mappings) {
+            remove(normalize(path));
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (mappings) {
+            mappings.clear();
+            mappedBytes = 0;
+        }
+    }
+
+    /**
+     * @return 缓存的映射个数
+     */
+    public int size() {
+        synchronized (mappings) {
+            return mappings.size();
+        }
+    }
+
+    /**
+     * @return 缓存的映射总字节数
+     */
+    public long getMappedBytes() {
+        synchronized (mappings) {
+            return mappedBytes;
+        }
+    }
+
+    /**
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return 未命中（重新映射）次数
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    private Mapping cached(Path path, BasicFileAttributes attributes) {
+        synchronized (mappings) {
+            Mapping mapping = mappings.get(normalize(path));
+            if (Objects.nonNull(mapping) && mapping.matches(attributes)) {
+                hitCount.increment();
+                return mapping;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 映射已打开的文件，大小取自通道本身
+     * <p>
+     * 打开前后文件标识不一致说明文件在打开期间被替换，此时映射的是打开的那个文件，无法确定其状态，不放入缓存
+     *
+     * @param attributes 打开前读取的文件状态
+     * @param channel    已打开的文件通道
+     * @param size       通道的大小
+     */
+    private Mapping cache(Path path, BasicFileAttributes attributes, FileChannel channel, long size)
+            throws IOException {
+        // 在锁外映射，同一文件并发未命中时以先放入的为准；关闭通道后映射仍然有效
+        missCount.increment();
+        BasicFileAttributes opened = Files.readAttributes(path, BasicFileAttributes.class);
+        Mapping mapping = new Mapping(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), size, opened);
+        if (size > maximumBytes || opened.size() != size
+            || !Objects.equals(attributes.fileKey(), opened.fileKey())) {
+            return mapping;
+        }
+
+        Path key = normalize(path);
+        synchronized (mappings) {
+            Mapping current = mappings.get(key);
+            if (Objects.nonNull(current) && current.matches(opened)) {
+                return current;
+            }
+            remove(key);
+            mappings.put(key, mapping);
+            mappedBytes += mapping.size;
+            evict();
+        }
+        return mapping;
+    }
+
+    private static ByteBuffer slice(Path path, ByteBuffer buffer, long size, long position, int length)
+            throws IOException {
+        checkBounds(path, size, position, length);
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position((int) position).limit((int) position + length);
+        return duplicate.slice();
+    }
+
+    private static void checkBounds(Path path, long size, long position, int length) throws IOException {
+        if (position < 0 || length < 0 || position + length > size) {
+            throw new IOException("Range [" + position + ", " + (position + length) + ") is out of bounds for '"
+                                  + path + "' of size " + size);
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Path, Mapping>> eldest = mappings.entrySet().iterator();
+        while ((mappedBytes > maximumBytes || mappings.size() > maximumMappings) && eldest.hasNext()) {
+            mappedBytes -= eldest.next().getValue().size;
+            eldest.remove();
+        }
+    }
+
+    private void remove(Path key) {
+        Mapping removed = mappings.remove(key);
+        if (Objects.nonNull(removed)) {
+            mappedBytes -= removed.size;
+        }
+    }
+
+    private static Path normalize(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    /**
+     * 映射及映射时的文件状态
+     */
+    private static final class Mapping {
+
+        private final ByteBuffer buffer;
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final Object fileKey;
+
+        private Mapping(MappedByteBuffer buffer, long size, BasicFileAttributes attributes) {
+            this.buffer = buffer.asReadOnlyBuffer();
+            this.size = size;
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+            this.fileKey = attributes.fileKey();
+        }
+
+        private boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size()
+                    && lastModified == attributes.lastModifiedTime().toMillis()
+                    && Objects.equals(fileKey, attributes.fileKey());
+        }
+
+    }
+
+}
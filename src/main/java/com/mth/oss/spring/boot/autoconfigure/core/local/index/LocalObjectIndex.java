@@ -0,0 +1,393 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local.index;
+
+import com.mth.oss.spring.boot.autoconfigure.core.local.AtomicFileWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+
+/**
+ * 本地对象元数据索引
+ * <p>
+ * 全部元数据按对象键排序保存在内存中，按前缀列举只需定位到前缀所在的位置，不需要遍历目录；
+ * 每次变更追加一条记录到存储目录下的 .index/objects.log，启动时重放日志恢复索引。
+ * 每条记录带 CRC 校验，进程崩溃留下的不完整记录在重放时被截掉；失效记录过多时重写日志。
+ * <p>
+ * 索引只记录经由 {@link com.mth.oss.spring.boot.autoconfigure.core.local.LocalOssTemplate} 的变更，
+ * 直接修改存储目录后需调用 {@link #rebuild()} 从磁盘重建
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Slf4j
+public class LocalObjectIndex {
+
+    /**
+     * 索引目录，位于存储目录下
+     */
+    public static final String INDEX_DIRECTORY = ".index";
+
+    private static final String LOG_FILE = "objects.log";
+
+    private static final byte PUT = 1;
+
+    private static final byte DELETE = 2;
+
+    /**
+     * 单条记录的最大长度，超过视为损坏
+     */
+    private static final int MAX_RECORD_LENGTH = 1 << 20;
+
+    /**
+     * 日志记录数达到该值且超过存活对象数的两倍时重写日志
+     */
+    private static final long COMPACT_THRESHOLD = 10_000;
+
+    private final Path basePath;
+
+    private final LocalObjectWalker walker;
+
+    private final Path logPath;
+
+    private volatile NavigableMap<String, LocalObjectMetadata> entries = new ConcurrentSkipListMap<>();
+
+    private FileChannel logChannel;
+
+    private long records;
+
+
+    /**
+     * @param walker 存储目录的遍历，重建索引时使用
+     */
+    public LocalObjectIndex(LocalObjectWalker walker) {
+        this.basePath = walker.getBasePath();
+        this.walker = walker;
+        this.logPath = this.basePath.resolve(INDEX_DIRECTORY).resolve(LOG_FILE);
+    }
+
+    /**
+     * 打开索引：重放已有日志，日志不存在时从磁盘重建
+     */
+    public synchronized void open() throws IOException {
+        Files.createDirectories(logPath.getParent());
+        if (Files.exists(logPath)) {
+            load();
+        } else {
+            rebuild();
+        }
+    }
+
+    /**
+     * 并行遍历存储目录重建索引，期间的写入等待重建完成，读取使用重建前的索引
+     * <p>
+     * 重建得到的元数据没有校验值，内容类型按文件名推断
+     */
+    public synchronized void rebuild() throws IOException {
+        NavigableMap<String, LocalObjectMetadata> rebuilt = walker.scan("");
+        writeSnapshot(rebuilt);
+        entries = rebuilt;
+        log.info("Rebuilt local object index of '{}' with {} object(s)", basePath, rebuilt.size());
+    }
+
+    /**
+     * 记录对象的新元数据
+     *
+     * @param metadata 元数据
+     */
+    public synchronized void put(LocalObjectMetadata metadata) throws IOException {
+        append(encode(PUT, metadata.getObjectKey(), metadata));
+        entries.put(metadata.getObjectKey(), metadata);
+        compactIfNecessary();
+    }
+
+    /**
+     * 移除对象
+     *
+     * @param objectKey 规范化的对象键
+     */
+    public synchronized void remove(String objectKey) throws IOException {
+        if (entries.containsKey(objectKey)) {
+            append(encode(DELETE, objectKey, null));
+            entries.remove(objectKey);
+            compactIfNecessary();
+        }
+    }
+
+    /**
+     * @param objectKey 规范化的对象键
+     * @return 元数据，不存在时为空
+     */
+    public LocalObjectMetadata get(String objectKey) {
+        return entries.get(objectKey);
+    }
+
+    /**
+     * @return 索引中的对象数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 按前缀列举一页对象
+     *
+     * @param prefix     前缀
+     * @param delimiter  分隔符，为空时不合并公共前缀
+     * @param startAfter 从该键之后开始，为空时从头开始
+     * @param maxKeys    本页最多返回的对象与公共前缀总数
+     * @return 列举结果
+     */
+    public LocalObjectListing list(String prefix, String delimiter, String startAfter, int maxKeys) {
+        return list(entries, prefix, delimiter, startAfter, maxKeys);
+    }
+
+    /**
+     * 关闭日志文件
+     */
+    public synchronized void close() throws IOException {
+        if (Objects.nonNull(logChannel)) {
+            logChannel.close();
+            logChannel = null;
+        }
+    }
+
+
+    // ------------------------------------------------------------
+    // --------------------------- 列举 ---------------------------
+    // ------------------------------------------------------------
+
+    /**
+     * 在按对象键排序的元数据上列举一页，公共前缀下的对象整段跳过
+     *
+     * @param entries    按对象键排序的元数据
+     * @param prefix     前缀
+     * @param delimiter  分隔符，为空时不合并公共前缀
+     * @param startAfter 从该键之后开始，为空时从头开始
+     * @param maxKeys    本页最多返回的对象与公共前缀总数
+     * @return 列举结果
+     */
+    public static LocalObjectListing list(NavigableMap<String, LocalObjectMetadata> entries, String prefix,
+                                          String delimiter, String startAfter, int maxKeys) {
+        Assert.isTrue(maxKeys > 0, "maxKeys must be positive");
+        boolean grouped = StringUtils.hasLength(delimiter);
+        List<LocalObjectMetadata> objects = new ArrayList<>();
+        List<String> commonPrefixes = new ArrayList<>();
+        String last = null;
+        boolean truncated = false;
+
+        boolean afterMarker = Objects.nonNull(startAfter) && startAfter.compareTo(prefix) >= 0;
+        Iterator<Map.Entry<String, LocalObjectMetadata>> iterator =
+                entries.tailMap(afterMarker ? startAfter : prefix, !afterMarker).entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, LocalObjectMetadata> entry = iterator.next();
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+
+            int delimiterIndex = grouped ? key.indexOf(delimiter, prefix.length()) : -1;
+            if (delimiterIndex >= 0) {
+                String commonPrefix = key.substring(0, delimiterIndex + delimiter.length());
+                // 上一页以该公共前缀结束时不再返回
+                if (!commonPrefix.equals(startAfter)) {
+                    if (objects.size() + commonPrefixes.size() >= maxKeys) {
+                        truncated = true;
+                        break;
+                    }
+                    commonPrefixes.add(commonPrefix);
+                    last = commonPrefix;
+                }
+
+                String end = prefixEnd(commonPrefix);
+                if (Objects.isNull(end)) {
+                    break;
+                }
+                iterator = entries.tailMap(end, true).entrySet().iterator();
+                continue;
+            }
+
+            if (objects.size() + commonPrefixes.size() >= maxKeys) {
+                truncated = true;
+                break;
+            }
+            objects.add(entry.getValue());
+            last = key;
+        }
+
+        return new LocalObjectListing(objects, commonPrefixes, truncated, truncated ? last : null);
+    }
+
+    /**
+     * @return 大于所有以 prefix 开头的字符串的最小字符串，不存在时为空
+     */
+    private static String prefixEnd(String prefix) {
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            char c = prefix.charAt(i);
+            if (c != Character.MAX_VALUE) {
+                return prefix.substring(0, i) + (char) (c + 1);
+            }
+        }
+        return null;
+    }
+
+
+    // ------------------------------------------------------------
+    // ------------------------ 日志读写 ---------------------------
+    // ------------------------------------------------------------
+
+    private void load() throws IOException {
+        NavigableMap<String, LocalObjectMetadata> loaded = new ConcurrentSkipListMap<>();
+        long valid = 0;
+        long count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logPath)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                byte[] payload;
+                try {
+                    int checksum = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    if (checksum != crc(payload, 0, length)) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+
+                decode(payload, loaded);
+                valid += 8 + length;
+                count++;
+            }
+        }
+
+        long size = Files.size(logPath);
+        if (valid < size) {
+            log.warn("Truncating {} trailing byte(s) of incomplete records in '{}'", size - valid, logPath);
+        }
+
+        logChannel = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        logChannel.truncate(valid);
+        logChannel.position(valid);
+        records = count;
+        entries = loaded;
+        compactIfNecessary();
+    }
+
+    private void append(byte[] record) throws IOException {
+        if (Objects.isNull(logChannel)) {
+            throw new IOException("Local object index '" + logPath + "' is not open");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            logChannel.write(buffer);
+        }
+        records++;
+    }
+
+    private void compactIfNecessary() throws IOException {
+        if (records >= COMPACT_THRESHOLD && records > 2L * entries.size()) {
+            writeSnapshot(entries);
+        }
+    }
+
+    /**
+     * 以存活对象重写日志：写入临时文件后替换，替换前崩溃时保留原日志
+     */
+    private void writeSnapshot(Map<String, LocalObjectMetadata> snapshot) throws IOException {
+        Path temporary = AtomicFileWriter.temporaryFile(logPath);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary,
+                                                                              StandardOpenOption.CREATE_NEW))) {
+            for (LocalObjectMetadata metadata : snapshot.values()) {
+                out.write(encode(PUT, metadata.getObjectKey(), metadata));
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        close();
+        try {
+            Files.move(temporary, logPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, logPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        logChannel = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        logChannel.position(logChannel.size());
+        records = snapshot.size();
+    }
+
+    /**
+     * 记录格式：长度（int）、载荷 CRC32（int）、载荷；
+     * 载荷为类型（byte）、对象键，PUT 记录另有大小、修改时间、内容类型与校验值
+     */
+    private static byte[] encode(byte type, String objectKey, LocalObjectMetadata metadata) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + objectKey.length() * 3);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(0);
+        out.writeByte(type);
+        out.writeUTF(objectKey);
+        if (type == PUT) {
+            out.writeLong(metadata.getSize());
+            out.writeLong(metadata.getLastModified());
+            out.writeUTF(nullToEmpty(metadata.getContentType()));
+            out.writeUTF(nullToEmpty(metadata.getChecksum()));
+        }
+
+        byte[] record = bytes.toByteArray();
+        int length = record.length - 8;
+        ByteBuffer.wrap(record).putInt(0, length).putInt(4, crc(record, 8, length));
+        return record;
+    }
+
+    private static void decode(byte[] payload, Map<String, LocalObjectMetadata> target) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        String objectKey = in.readUTF();
+        if (type == DELETE) {
+            target.remove(objectKey);
+            return;
+        }
+
+        long size = in.readLong();
+        long lastModified = in.readLong();
+        String contentType = emptyToNull(in.readUTF());
+        String checksum = emptyToNull(in.readUTF());
+        target.put(objectKey, new LocalObjectMetadata(objectKey, size, contentType, checksum, lastModified));
+    }
+
+    private static int crc(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static String nullToEmpty(String value) {
+        return Objects.isNull(value) ? "" : value;
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local.index;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * 本地对象的一页列举结果
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Value
+public class LocalObjectListing {
+
+    /**
+     * 按对象键字典序排列的对象
+     */
+    List<LocalObjectMetadata> objects;
+
+    /**
+     * 指定分隔符时，前缀之后第一个分隔符之前的部分合并得到的公共前缀
+     */
+    List<String> commonPrefixes;
+
+    /**
+     * 是否还有下一页
+     */
+    boolean truncated;
+
+    /**
+     * 下一页的起始位置，作为下一次列举的 startAfter；没有下一页时为空
+     */
+    String nextStartAfter;
+
+}
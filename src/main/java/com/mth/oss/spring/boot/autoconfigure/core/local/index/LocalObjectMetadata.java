@@ -0,0 +1,39 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local.index;
+
+import lombok.Value;
+
+/**
+ * 本地对象的元数据
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Value
+public class LocalObjectMetadata {
+
+    /**
+     * 对象键，例如 exampleDir/exampleObject.txt
+     */
+    String objectKey;
+
+    /**
+     * 对象大小（字节）
+     */
+    long size;
+
+    /**
+     * 内容类型
+     */
+    String contentType;
+
+    /**
+     * 内容的 CRC32 校验值（8 位小写十六进制），由磁盘重建索引或对象在模板之外写入时为空
+     */
+    String checksum;
+
+    /**
+     * 最后修改时间（毫秒时间戳）
+     */
+    long lastModified;
+
+}
@@ -0,0 +1,29 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local.index;
+
+import lombok.Value;
+
+/**
+ * 前缀下对象的用量统计
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Value
+public class LocalObjectUsage {
+
+    /**
+     * 统计的前缀，按分隔符分组时为公共前缀，直接位于列举前缀下的对象归入列举前缀本身
+     */
+    String prefix;
+
+    /**
+     * 对象数
+     */
+    long count;
+
+    /**
+     * 对象总大小（字节）
+     */
+    long size;
+
+}
@@ -0,0 +1,548 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local.index;
+
+import com.amazonaws.services.s3.internal.Mimetypes;
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import com.mth.oss.spring.boot.autoconfigure.core.local.AtomicFileWriter;
+import com.mth.oss.spring.boot.autoconfigure.core.local.layout.LocalObjectLayout;
+import com.mth.oss.spring.boot.autoconfigure.exception.IORuntimeException;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 本地存储目录的并行遍历
+ * <p>
+ * 基于 fork/join：每个目录为一个任务，读取目录时把子目录派生为新任务，由空闲线程窃取执行，
+ * 目录宽而浅或窄而深都能让所有线程保持忙碌，适合能同时处理大量元数据请求的 NVMe 等存储：
+ * <ul>
+ *     <li>{@link #walk(String, long)}：无序的对象流，遍历线程把结果放入有界缓冲区，缓冲区满时等待调用方消费，
+ *     内存占用与前缀下的对象数无关；达到 maxKeys 后停止遍历</li>
+ *     <li>{@link #list(String, String, String, int)}：按对象键字典序分页列举，只保留当前页，内存占用与 maxKeys 成正比</li>
+ *     <li>{@link #summarize(String, String)}：并行统计各前缀的对象数与总大小</li>
+ * </ul>
+ * 遍历从前缀所在的目录开始，以点开头的顶层目录（例如索引目录）与上传中的临时文件被跳过。
+ * 每次遍历使用独立的线程池，对象流使用完毕后必须关闭
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public class LocalObjectWalker {
+
+    /**
+     * 等待缓冲区时检查遍历是否已关闭的间隔
+     */
+    private static final long POLL_MILLIS = 100L;
+
+    /**
+     * 遍历结束标记
+     */
+    private static final Object END = new Object();
+
+    private final Path basePath;
+
+    private final LocalObjectLayout layout;
+
+    private final int parallelism;
+
+    private final int bufferCapacity;
+
+
+    /**
+     * @param basePath 存储目录
+     * @param layout   存储目录布局
+     * @param local    本地存储配置
+     */
+    public LocalObjectWalker(Path basePath, LocalObjectLayout layout, OssProperties.Local local) {
+        this(basePath, layout, local.getWalkParallelism(), local.getWalkBufferCapacity());
+    }
+
+    /**
+     * @param basePath       存储目录
+     * @param layout         存储目录布局
+     * @param parallelism    遍历线程数
+     * @param bufferCapacity 对象流缓冲区容量
+     */
+    public LocalObjectWalker(Path basePath, LocalObjectLayout layout, int parallelism, int bufferCapacity) {
+        Assert.isTrue(parallelism > 0, "Walk parallelism must be positive");
+        Assert.isTrue(bufferCapacity > 0, "Walk buffer capacity must be positive");
+        this.basePath = basePath.toAbsolutePath().normalize();
+        this.layout = layout;
+        this.parallelism = parallelism;
+        this.bufferCapacity = bufferCapacity;
+    }
+
+    /**
+     * @return 存储目录
+     */
+    public Path getBasePath() {
+        return basePath;
+    }
+
+    /**
+     * 遍历前缀下的全部对象
+     *
+     * @param prefix 规范化的对象键前缀，空字符串表示全部
+     * @return 无序的对象流，元数据没有校验值，内容类型按文件名推断
+     * @see #walk(String, long)
+     */
+    public Stream<LocalObjectMetadata> walk(String prefix) {
+        return walk(prefix, Long.MAX_VALUE);
+    }
+
+    /**
+     * 遍历前缀下的对象，在首次消费时开始遍历
+     *
+     * @param prefix  规范化的对象键前缀，空字符串表示全部
+     * @param maxKeys 最多返回的对象数，达到后停止遍历
+     * @return 无序的对象流，元数据没有校验值，内容类型按文件名推断
+     */
+    public Stream<LocalObjectMetadata> walk(String prefix, long maxKeys) {
+        Assert.isTrue(maxKeys >= 0, "maxKeys must not be negative");
+        WalkingIterator iterator = new WalkingIterator(prefix, maxKeys);
+        Spliterator<LocalObjectMetadata> spliterator =
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.DISTINCT | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+
+    /**
+     * 遍历前缀下的全部对象并按对象键排序，结果全部保存在内存中
+     *
+     * @param prefix 规范化的对象键前缀，空字符串表示全部
+     * @return 按对象键排序的元数据，可以并发读取
+     */
+    public NavigableMap<String, LocalObjectMetadata> scan(String prefix) {
+        NavigableMap<String, LocalObjectMetadata> scanned = new ConcurrentSkipListMap<>();
+        traverse(prefix, (objectKey, attributes) -> scanned.put(objectKey, toMetadata(objectKey, attributes)));
+        return scanned;
+    }
+
+    /**
+     * 按对象键字典序列举一页，结果与 {@link LocalObjectIndex#list(String, String, String, int)} 一致
+     * <p>
+     * 仍需遍历前缀下的全部对象，但只保留字典序最小的 maxKeys + 1 项
+     *
+     * @param prefix     规范化的对象键前缀
+     * @param delimiter  分隔符，为空时不合并公共前缀
+     * @param startAfter 从该键之后开始，为空时从头开始
+     * @param maxKeys    本页最多返回的对象与公共前缀总数
+     * @return 列举结果
+     */
+    public LocalObjectListing list(String prefix, String delimiter, String startAfter, int maxKeys) {
+        Assert.isTrue(maxKeys > 0, "maxKeys must be positive");
+        boolean grouped = StringUtils.hasLength(delimiter);
+        // 公共前缀的值为空，多保留一项用于判断是否还有下一页
+        TreeMap<String, LocalObjectMetadata> page = new TreeMap<>();
+        try (Stream<LocalObjectMetadata> objects = walk(prefix)) {
+            objects.forEach(metadata -> {
+                String key = metadata.getObjectKey();
+                if (Objects.nonNull(startAfter) && key.compareTo(startAfter) <= 0) {
+                    return;
+                }
+
+                int delimiterIndex = grouped ? key.indexOf(delimiter, prefix.length()) : -1;
+                String element = delimiterIndex >= 0 ? key.substring(0, delimiterIndex + delimiter.length()) : key;
+                // 上一页以该公共前缀结束时不再返回
+                if (element.equals(startAfter) || page.containsKey(element)) {
+                    return;
+                }
+                if (page.size() > maxKeys) {
+                    if (element.compareTo(page.lastKey()) > 0) {
+                        return;
+                    }
+                    page.pollLastEntry();
+                }
+                page.put(element, delimiterIndex >= 0 ? null : metadata);
+            });
+        }
+
+        boolean truncated = page.size() > maxKeys;
+        if (truncated) {
+            page.pollLastEntry();
+        }
+        List<LocalObjectMetadata> objects = new ArrayList<>();
+        List<String> commonPrefixes = new ArrayList<>();
+        page.forEach((element, metadata) -> {
+            if (Objects.nonNull(metadata)) {
+                objects.add(metadata);
+            } else {
+                commonPrefixes.add(element);
+            }
+        });
+        return new LocalObjectListing(objects, commonPrefixes, truncated, truncated ? page.lastKey() : null);
+    }
+
+    /**
+     * 统计前缀下的对象数与总大小
+     *
+     * @param prefix 规范化的对象键前缀，空字符串表示全部
+     * @return 用量统计
+     */
+    public LocalObjectUsage summarize(String prefix) {
+        List<LocalObjectUsage> usages = summarize(prefix, null);
+        return usages.isEmpty() ? new LocalObjectUsage(prefix, 0, 0) : usages.get(0);
+    }
+
+    /**
+     * 按公共前缀分组统计对象数与总大小
+     *
+     * @param prefix    规范化的对象键前缀，空字符串表示全部
+     * @param delimiter 分隔符，前缀之后包含分隔符的对象按公共前缀分组，其余对象归入 prefix；为空时不分组
+     * @return 按前缀排序的用量统计，没有对象的前缀不出现
+     */
+    public List<LocalObjectUsage> summarize(String prefix, String delimiter) {
+        boolean grouped = StringUtils.hasLength(delimiter);
+        ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+        traverse(prefix, (objectKey, attributes) -> {
+            int delimiterIndex = grouped ? objectKey.indexOf(delimiter, prefix.length()) : -1;
+            String group = delimiterIndex >= 0 ? objectKey.substring(0, delimiterIndex + delimiter.length()) : prefix;
+            Counter counter = counters.get(group);
+            if (Objects.isNull(counter)) {
+                counter = counters.computeIfAbsent(group, g -> new Counter());
+            }
+            counter.count.increment();
+            counter.size.add(attributes.size());
+        });
+
+        return counters.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> new LocalObjectUsage(entry.getKey(), entry.getValue().count.sum(),
+                                                   entry.getValue().size.sum()))
+                .collect(Collectors.toList());
+    }
+
+
+    // ------------------------------------------------------------
+    // ------------------------- 遍历任务 --------------------------
+    // ------------------------------------------------------------
+
+    /**
+     * 在调用线程等待遍历完成
+     */
+    private void traverse(String prefix, BiConsumer<String, BasicFileAttributes> sink) {
+        Path start = startDirectory(prefix);
+        if (Objects.isNull(start)) {
+            return;
+        }
+
+        Traversal traversal = new Traversal(prefix, sink);
+        ForkJoinPool pool = newWalkerPool();
+        try {
+            pool.invoke(new DirectoryTask(traversal, start));
+        } catch (CancelledException e) {
+            // 由 failure 报告原因
+        } finally {
+            pool.shutdownNow();
+        }
+        traversal.throwIfFailed();
+    }
+
+    /**
+     * @return 前缀所在的目录，位于存储目录之外时为空
+     */
+    private Path startDirectory(String prefix) {
+        int lastSlash = prefix.lastIndexOf('/');
+        Path start = lastSlash < 0 ? basePath : basePath.resolve(prefix.substring(0, lastSlash)).normalize();
+        return start.startsWith(basePath) ? start : null;
+    }
+
+    private ForkJoinPool newWalkerPool() {
+        ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("oss-local-walker-" + thread.getPoolIndex());
+            return thread;
+        };
+        return new ForkJoinPool(parallelism, threadFactory, null, false);
+    }
+
+    private static LocalObjectMetadata toMetadata(String objectKey, BasicFileAttributes attributes) {
+        return new LocalObjectMetadata(objectKey, attributes.size(), Mimetypes.getInstance().getMimetype(objectKey),
+                                       null, attributes.lastModifiedTime().toMillis());
+    }
+
+    private static RuntimeException failure(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new IORuntimeException("Walking local objects failed", cause);
+    }
+
+    /**
+     * 一次遍历的共享状态
+     */
+    private static final class Traversal {
+
+        private final String prefix;
+
+        private final BiConsumer<String, BasicFileAttributes> sink;
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private volatile boolean cancelled;
+
+        private Traversal(String prefix, BiConsumer<String, BasicFileAttributes> sink) {
+            this.prefix = prefix;
+            this.sink = sink;
+        }
+
+        /**
+         * 记录第一个失败原因并停止其余任务
+         */
+        private CancelledException fail(Throwable cause) {
+            failure.compareAndSet(null, cause);
+            cancelled = true;
+            return new CancelledException();
+        }
+
+        private void throwIfFailed() {
+            Throwable cause = failure.get();
+            if (Objects.nonNull(cause)) {
+                throw failure(cause);
+            }
+        }
+
+    }
+
+    /**
+     * 遍历已停止，任务退出
+     */
+    private static final class CancelledException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private CancelledException() {
+            super(null, null, false, false);
+        }
+
+    }
+
+    /**
+     * 遍历失败标记
+     */
+    private static final class Failure {
+
+        private final Throwable cause;
+
+        private Failure(Throwable cause) {
+            this.cause = cause;
+        }
+
+    }
+
+    private static final class Counter {
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder size = new LongAdder();
+
+    }
+
+    /**
+     * 读取一个目录：文件交给 sink，子目录派生为新任务，目录读取完毕后再等待子任务，
+     * 同时打开的目录数不超过线程数
+     */
+    private final class DirectoryTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Traversal traversal;
+
+        private final transient Path directory;
+
+        private DirectoryTask(Traversal traversal, Path directory) {
+            this.traversal = traversal;
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    if (traversal.cancelled) {
+                        throw new CancelledException();
+                    }
+
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (NoSuchFileException e) {
+                        // 遍历期间被删除
+                        continue;
+                    }
+
+                    if (attributes.isDirectory()) {
+                        if (!basePath.equals(directory) || !entry.getFileName().toString().startsWith(".")) {
+                            DirectoryTask subtask = new DirectoryTask(traversal, entry);
+                            subtask.fork();
+                            subtasks.add(subtask);
+                        }
+                    } else if (attributes.isRegularFile() && !AtomicFileWriter.isTemporaryFile(entry)) {
+                        String storagePath = basePath.relativize(entry).toString().replace(File.separatorChar, '/');
+                        String objectKey = layout.toObjectKey(storagePath);
+                        if (Objects.nonNull(objectKey) && objectKey.startsWith(traversal.prefix)) {
+                            traversal.sink.accept(objectKey, attributes);
+                        }
+                    }
+                }
+            } catch (NoSuchFileException | NotDirectoryException e) {
+                // 遍历期间被删除的目录
+            } catch (IOException e) {
+                throw traversal.fail(e);
+            }
+
+            for (DirectoryTask subtask : subtasks) {
+                subtask.join();
+            }
+        }
+
+    }
+
+    /**
+     * 在首次消费时启动遍历，遍历线程把对象放入有界缓冲区，直到遍历完成、达到 maxKeys 或流关闭
+     */
+    private final class WalkingIterator implements Iterator<LocalObjectMetadata>, AutoCloseable {
+
+        private final Traversal traversal;
+
+        private final long maxKeys;
+
+        private final BlockingQueue<Object> buffer = new LinkedBlockingQueue<>(bufferCapacity);
+
+        private final AtomicLong emitted = new AtomicLong();
+
+        private volatile boolean closed;
+
+        private ForkJoinPool pool;
+
+        private boolean finished;
+
+        private LocalObjectMetadata next;
+
+        private WalkingIterator(String prefix, long maxKeys) {
+            this.traversal = new Traversal(prefix, this::emit);
+            this.maxKeys = maxKeys;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (Objects.nonNull(next)) {
+                return true;
+            }
+            if (closed || finished) {
+                return false;
+            }
+            start();
+
+            Object item = take();
+            if (item instanceof LocalObjectMetadata) {
+                next = (LocalObjectMetadata) item;
+                return true;
+            }
+
+            finished = true;
+            close();
+            if (item instanceof Failure) {
+                throw failure(((Failure) item).cause);
+            }
+            return false;
+        }
+
+        @Override
+        public LocalObjectMetadata next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            LocalObjectMetadata metadata = next;
+            next = null;
+            return metadata;
+        }
+
+        /**
+         * 停止遍历线程并释放线程池
+         */
+        @Override
+        public void close() {
+            closed = true;
+            traversal.cancelled = true;
+            if (Objects.nonNull(pool)) {
+                pool.shutdownNow();
+            }
+        }
+
+        private void start() {
+            if (Objects.nonNull(pool)) {
+                return;
+            }
+            pool = newWalkerPool();
+
+            Path start = maxKeys > 0 ? startDirectory(traversal.prefix) : null;
+            pool.execute(() -> {
+                Object last = END;
+                try {
+                    if (Objects.nonNull(start)) {
+                        new DirectoryTask(traversal, start).invoke();
+                    }
+                } catch (CancelledException e) {
+                    Throwable cause = traversal.failure.get();
+                    last = Objects.nonNull(cause) ? new Failure(cause) : END;
+                } catch (Throwable e) {
+                    last = new Failure(e);
+                }
+
+                try {
+                    put(last);
+                } catch (CancelledException e) {
+                    // 流已关闭
+                }
+            });
+        }
+
+        private void emit(String objectKey, BasicFileAttributes attributes) {
+            long count = emitted.incrementAndGet();
+            if (count > maxKeys) {
+                throw new CancelledException();
+            }
+            put(toMetadata(objectKey, attributes));
+            if (count == maxKeys) {
+                traversal.cancelled = true;
+            }
+        }
+
+        private void put(Object item) {
+            try {
+                while (!buffer.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (closed) {
+                        throw new CancelledException();
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new CancelledException();
+            }
+        }
+
+        private Object take() {
+            try {
+                return buffer.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IORuntimeException("Walking local objects was interrupted", e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local.layout;
+
+/**
+ * 平铺布局：对象键即相对存储路径
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public final class FlatObjectLayout implements LocalObjectLayout {
+
+    public static final FlatObjectLayout INSTANCE = new FlatObjectLayout();
+
+
+    private FlatObjectLayout() {
+    }
+
+    @Override
+    public String toStoragePath(String objectKey) {
+        return objectKey;
+    }
+
+    @Override
+    public String toObjectKey(String storagePath) {
+        return storagePath;
+    }
+
+    @Override
+    public String toString() {
+        return "flat";
+    }
+
+}
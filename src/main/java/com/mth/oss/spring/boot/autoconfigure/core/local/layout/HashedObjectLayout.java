@@ -0,0 +1,84 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local.layout;
+
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * 哈希分散布局：在文件名之前插入由对象键哈希得出的若干层目录
+ * <p>
+ * 例如 depth 为 2 时，20240101/report.txt 存放在 20240101/3f/a2/report.txt。
+ * 每层最多 256 个子目录，同一目录下的海量对象被均匀分散；对象键中的目录保持不变，
+ * 按前缀列举时仍只需遍历前缀所在的目录
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public final class HashedObjectLayout implements LocalObjectLayout {
+
+    /**
+     * CRC32 共 4 个字节，每层目录使用一个字节
+     */
+    private static final int MAX_DEPTH = 4;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final int depth;
+
+
+    /**
+     * @param depth 哈希目录层数，1 ~ 4
+     */
+    public HashedObjectLayout(int depth) {
+        Assert.isTrue(depth >= 1 && depth <= MAX_DEPTH, "Layout depth must be between 1 and " + MAX_DEPTH);
+        this.depth = depth;
+    }
+
+    @Override
+    public String toStoragePath(String objectKey) {
+        String key = LocalObjectLayout.normalize(objectKey);
+        int nameIndex = key.lastIndexOf('/') + 1;
+        StringBuilder path = new StringBuilder(key.length() + depth * 3);
+        path.append(key, 0, nameIndex);
+        appendShards(path, key);
+        return path.append(key, nameIndex, key.length()).toString();
+    }
+
+    @Override
+    public String toObjectKey(String storagePath) {
+        int nameIndex = storagePath.lastIndexOf('/') + 1;
+        int shardsIndex = nameIndex - depth * 3;
+        if (shardsIndex < 0 || (shardsIndex > 0 && storagePath.charAt(shardsIndex - 1) != '/')) {
+            return null;
+        }
+
+        String key = storagePath.substring(0, shardsIndex) + storagePath.substring(nameIndex);
+        StringBuilder expected = new StringBuilder(depth * 3);
+        appendShards(expected, key);
+        return storagePath.regionMatches(shardsIndex, expected.toString(), 0, expected.length()) ? key : null;
+    }
+
+    /**
+     * @return 哈希目录层数
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public String toString() {
+        return "hashed(depth=" + depth + ")";
+    }
+
+    private void appendShards(StringBuilder path, String key) {
+        CRC32 crc = new CRC32();
+        crc.update(key.getBytes(StandardCharsets.UTF_8));
+        long value = crc.getValue();
+        for (int i = 0; i < depth; i++) {
+            int b = (int) (value >>> (8 * (MAX_DEPTH - 1 - i))) & 0xFF;
+            path.append(HEX[b >>> 4]).append(HEX[b & 0x0F]).append('/');
+        }
+    }
+
+}
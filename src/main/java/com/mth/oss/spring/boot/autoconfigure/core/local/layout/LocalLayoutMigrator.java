@@ -0,0 +1,191 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local.layout;
+
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import com.mth.oss.spring.boot.autoconfigure.core.local.AtomicFileWriter;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 本地存储目录布局迁移
+ * <p>
+ * 遍历存储目录，把按源布局存放的文件重命名到目标布局的位置，并删除因此变空的目录。
+ * 已按目标布局存放的文件会被跳过，中断后可以重新执行；迁移期间不应有写入。
+ * 以点开头的目录（如内嵌 S3 服务的 .multipart）与写入中的临时文件不参与迁移。
+ * <p>
+ * 命令行用法：
+ * <pre>
+ * java -cp oss-spring-boot-starter.jar:... \
+ *     com.mth.oss.spring.boot.autoconfigure.core.local.layout.LocalLayoutMigrator /data/oss flat hashed 2
+ * </pre>
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Slf4j
+public final class LocalLayoutMigrator {
+
+    private LocalLayoutMigrator() {
+    }
+
+    /**
+     * 迁移存储目录
+     *
+     * @param basePath 存储目录，即 oss.local-base-path
+     * @param source   当前布局
+     * @param target   目标布局
+     * @return 迁移结果
+     */
+    public static Result migrate(Path basePath, LocalObjectLayout source, LocalObjectLayout target)
+            throws IOException {
+        Path base = basePath.toAbsolutePath().normalize();
+        Result result = new Result();
+        Set<Path> vacated = new LinkedHashSet<>();
+
+        Files.walkFileTree(base, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return !dir.equals(base) && dir.getFileName().toString().startsWith(".")
+                       ? FileVisitResult.SKIP_SUBTREE
+                       : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && !AtomicFileWriter.isTemporaryFile(file)) {
+                    migrateFile(base, file, source, target, result, vacated);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                log.warn("Unable to visit '{}' during layout migration", file, e);
+                result.failed++;
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        vacated.forEach(directory -> deleteEmptyDirectories(base, directory));
+        log.info("Migrated '{}' from {} to {} layout: {} moved, {} skipped, {} failed",
+                 base, source, target, result.moved, result.skipped, result.failed);
+        return result;
+    }
+
+    private static void migrateFile(Path base, Path file, LocalObjectLayout source, LocalObjectLayout target,
+                                    Result result, Set<Path> vacated) {
+        String storagePath = base.relativize(file).toString().replace(File.separatorChar, '/');
+        String objectKey = source.toObjectKey(storagePath);
+        String targetKey = target.toObjectKey(storagePath);
+        // 源布局原样解析而目标布局能还原出不同的键，说明文件已按目标布局存放
+        boolean migrated = Objects.nonNull(objectKey) && objectKey.equals(storagePath)
+                           && Objects.nonNull(targetKey) && !targetKey.equals(storagePath);
+        if (Objects.isNull(objectKey) || migrated) {
+            result.skipped++;
+            return;
+        }
+
+        String targetPath = target.toStoragePath(objectKey);
+        if (targetPath.equals(storagePath)) {
+            result.skipped++;
+            return;
+        }
+
+        Path destination = base.resolve(targetPath);
+        try {
+            if (Files.exists(destination)) {
+                throw new IOException("Destination '" + destination + "' already exists");
+            }
+            Files.createDirectories(destination.getParent());
+            try {
+                Files.move(file, destination, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(file, destination);
+            }
+            vacated.add(file.getParent());
+            result.moved++;
+        } catch (IOException e) {
+            log.warn("Unable to migrate '{}' to '{}'", file, destination, e);
+            result.failed++;
+        }
+    }
+
+    /**
+     * 自下而上删除变空的目录，直到存储目录为止
+     */
+    private static void deleteEmptyDirectories(Path base, Path directory) {
+        Path current = directory;
+        while (Objects.nonNull(current) && current.startsWith(base) && !current.equals(base)) {
+            try {
+                Files.delete(current);
+            } catch (IOException e) {
+                // 目录非空、已被删除或无权限时停止
+                return;
+            }
+            current = current.getParent();
+        }
+    }
+
+    /**
+     * 命令行入口
+     *
+     * @param args 存储目录 源布局 目标布局 [hashed 布局的目录层数，默认 2]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: LocalLayoutMigrator <base-path> <flat|hashed> <flat|hashed> [depth]");
+            System.exit(2);
+        }
+
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : new OssProperties.Local().getLayoutDepth();
+        Result result = migrate(Paths.get(args[0]), layout(args[1], depth), layout(args[2], depth));
+        System.out.printf("moved: %d, skipped: %d, failed: %d%n",
+                          result.getMoved(), result.getSkipped(), result.getFailed());
+        if (result.getFailed() > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static LocalObjectLayout layout(String name, int depth) {
+        OssProperties.Local.Layout layout = OssProperties.Local.Layout.valueOf(name.toUpperCase(Locale.ROOT));
+        return LocalObjectLayout.of(layout, depth);
+    }
+
+    /**
+     * 迁移结果
+     */
+    @Getter
+    public static final class Result {
+
+        /**
+         * 移动的文件数
+         */
+        private long moved;
+
+        /**
+         * 不属于源布局或已按目标布局存放的文件数
+         */
+        private long skipped;
+
+        /**
+         * 失败的文件数，目标位置已存在文件时不会覆盖
+         */
+        private long failed;
+
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local.layout;
+
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+
+/**
+ * 本地对象存储的目录布局：对象键与存储目录下相对路径的相互转换
+ * <p>
+ * 对象键对使用方保持不变，布局只决定文件实际存放的位置
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public interface LocalObjectLayout {
+
+    /**
+     * 对象键转换为相对存储路径
+     *
+     * @param objectKey 对象键，例如 exampleDir/exampleObject.txt
+     * @return 相对存储路径，以 / 分隔
+     */
+    String toStoragePath(String objectKey);
+
+    /**
+     * 相对存储路径转换为对象键
+     *
+     * @param storagePath 相对存储路径，以 / 分隔
+     * @return 对象键，路径不符合该布局时为空
+     */
+    String toObjectKey(String storagePath);
+
+    /**
+     * 规范化对象键：统一分隔符、合并连续分隔符并去掉开头的分隔符，指向同一文件的对象键规范化后相同
+     *
+     * @param objectKey 对象键
+     * @return 规范化后的对象键
+     */
+    static String normalize(String objectKey) {
+        String key = objectKey.replace('\\', '/').replaceAll("/{2,}", "/");
+        return key.startsWith("/") ? key.substring(1) : key;
+    }
+
+    /**
+     * 按配置创建布局
+     *
+     * @param local 本地存储配置
+     * @return 目录布局
+     */
+    static LocalObjectLayout of(OssProperties.Local local) {
+        return of(local.getLayout(), local.getLayoutDepth());
+    }
+
+    /**
+     * 创建布局
+     *
+     * @param layout 布局类型
+     * @param depth  hashed 布局的目录层数
+     * @return 目录布局
+     */
+    static LocalObjectLayout of(OssProperties.Local.Layout layout, int depth) {
+        return layout == OssProperties.Local.Layout.HASHED ? new HashedObjectLayout(depth) : FlatObjectLayout.INSTANCE;
+    }
+
+}
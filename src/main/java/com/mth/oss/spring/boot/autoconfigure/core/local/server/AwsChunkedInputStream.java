@@ -0,0 +1,103 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 解码 aws-chunked 请求体
+ * <p>
+ * 开启分块签名的客户端以 {@code <十六进制长度>;chunk-signature=<签名>\r\n<数据>\r\n} 的形式逐块发送，
+ * 以长度为 0 的块结束；本服务不校验签名，只还原数据
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+class AwsChunkedInputStream extends InputStream {
+
+    private final InputStream source;
+
+    private long remaining;
+
+    private boolean finished;
+
+
+    AwsChunkedInputStream(InputStream source) {
+        this.source = source;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (remaining == 0 && !nextChunk()) {
+            return -1;
+        }
+
+        int read = source.read(b, off, (int) Math.min(len, remaining));
+        if (read == -1) {
+            throw new EOFException("Unexpected end of aws-chunked body");
+        }
+        remaining -= read;
+        if (remaining == 0) {
+            // 块数据后的 \r\n
+            readLine();
+        }
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    private boolean nextChunk() throws IOException {
+        if (finished) {
+            return false;
+        }
+
+        String header = readLine();
+        int extension = header.indexOf(';');
+        String size = (extension >= 0 ? header.substring(0, extension) : header).trim();
+        try {
+            remaining = Long.parseLong(size, 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed aws-chunked header: " + header, e);
+        }
+
+        if (remaining == 0) {
+            // 跳过可能存在的尾部字段，直到空行
+            while (!readLine().isEmpty()) {
+                // ignore trailers
+            }
+            finished = true;
+            return false;
+        }
+        return true;
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = source.read()) != -1) {
+            if (b == '\n') {
+                int length = line.length();
+                return length > 0 && line.charAt(length - 1) == '\r' ? line.substring(0, length - 1) : line.toString();
+            }
+            line.append((char) b);
+        }
+        if (line.length() == 0) {
+            return "";
+        }
+        throw new EOFException("Unexpected end of aws-chunked body");
+    }
+
+}
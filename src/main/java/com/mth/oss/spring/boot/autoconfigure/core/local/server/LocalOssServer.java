@@ -0,0 +1,115 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local.server;
+
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import com.mth.oss.spring.boot.autoconfigure.core.local.LocalOssTemplate;
+import com.mth.oss.spring.boot.autoconfigure.exception.IORuntimeException;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 内嵌 S3 协议服务
+ * <p>
+ * 以 localBasePath 为存储目录，通过 S3 协议对外提供 {@link LocalOssTemplate} 中的对象，
+ * 支持桶管理、对象上传下载（含 Range）、HEAD、删除与批量删除、拷贝、ListObjects(V2) 与分片上传，
+ * OssTemplate 及其他 S3 客户端可以用路径风格（pathStyleAccess=true）访问 {@link #getEndpoint()}。
+ * <p>
+ * 服务不校验请求签名，任何能访问监听地址的客户端都可以读写存储目录，默认只监听本机地址
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Slf4j
+public class LocalOssServer {
+
+    private final OssProperties ossProperties;
+
+    private final S3RequestHandler requestHandler;
+
+    private HttpServer httpServer;
+
+    private ExecutorService executor;
+
+
+    /**
+     * @param localOssTemplate 本地存储模板
+     * @param ossProperties    oss 配置，使用 localBasePath、bucketName 与 localServer 配置
+     */
+    public LocalOssServer(LocalOssTemplate localOssTemplate, OssProperties ossProperties) {
+        this.ossProperties = ossProperties;
+        this.requestHandler = new S3RequestHandler(localOssTemplate, Paths.get(ossProperties.getLocalBasePath()));
+    }
+
+    /**
+     * 启动服务；配置了 bucketName 时自动创建该桶
+     */
+    public synchronized void start() {
+        if (Objects.nonNull(httpServer)) {
+            return;
+        }
+
+        OssProperties.LocalServer localServer = ossProperties.getLocalServer();
+        try {
+            requestHandler.cleanUp();
+            if (StringUtils.hasText(ossProperties.getBucketName())) {
+                Path bucket = Paths.get(ossProperties.getLocalBasePath(), ossProperties.getBucketName());
+                Files.createDirectories(bucket);
+            }
+
+            httpServer = HttpServer.create(new InetSocketAddress(localServer.getHost(), localServer.getPort()), 0);
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("oss-local-server-");
+        threadFactory.setDaemon(true);
+        executor = Executors.newFixedThreadPool(Math.max(1, localServer.getThreads()), threadFactory);
+
+        httpServer.createContext("/", requestHandler);
+        httpServer.setExecutor(executor);
+        httpServer.start();
+        log.info("local oss server listening on {}", getEndpoint());
+    }
+
+    /**
+     * 停止服务，正在处理的请求被中断
+     */
+    public synchronized void shutdown() {
+        if (Objects.isNull(httpServer)) {
+            return;
+        }
+
+        httpServer.stop(0);
+        executor.shutdownNow();
+        httpServer = null;
+        executor = null;
+    }
+
+    /**
+     * @return 实际监听的端口，配置为 0 时由系统分配
+     */
+    public synchronized int getPort() {
+        if (Objects.isNull(httpServer)) {
+            throw new IllegalStateException("Local oss server is not running");
+        }
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * @return 服务地址，例如 http://127.0.0.1:9000
+     */
+    public String getEndpoint() {
+        return "http://" + ossProperties.getLocalServer().getHost() + ":" + getPort();
+    }
+
+}
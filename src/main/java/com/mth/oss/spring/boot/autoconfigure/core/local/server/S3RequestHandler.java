@@ -0,0 +1,1338 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local.server;
+
+import com.mth.oss.spring.boot.autoconfigure.core.local.LocalOssTemplate;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectListing;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectMetadata;
+import com.mth.oss.spring.boot.autoconfigure.exception.IORuntimeException;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.util.StringUtils;
+import org.w3c.dom.Element;
+
+import java.io.*;
+import java.net.URLConnection;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * S3 协议请求处理
+ * <p>
+ * 只支持路径风格请求（/bucket/key），桶对应 localBasePath 下的一级目录，对象读写委托给 {@link LocalOssTemplate}。
+ * 对象的 ETag 与 Content-Type、用户元数据等在上传时记录在内存中；其他途径写入的文件没有记录，
+ * ETag 由文件大小与修改时间生成，带 "-1" 后缀以免客户端把它当作 MD5 校验
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Slf4j
+class S3RequestHandler implements HttpHandler {
+
+    /**
+     * 分片上传临时目录，位于 localBasePath 下，以 . 开头不会被当作桶
+     */
+    static final String MULTIPART_DIRECTORY = ".multipart";
+
+    private static final String OWNER = "local";
+
+    private static final int DEFAULT_MAX_KEYS = 1000;
+
+    private static final int MAX_PART_NUMBER = 10000;
+
+    private static final String USER_METADATA_PREFIX = "x-amz-meta-";
+
+    /**
+     * 随对象保存并在下载时返回的标准响应头
+     */
+    private static final List<String> STORED_HEADERS = Arrays.asList(
+            "content-type", "content-disposition", "content-encoding", "content-language", "cache-control", "expires");
+
+    private static final DateTimeFormatter RFC_1123 = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private final LocalOssTemplate localOssTemplate;
+
+    private final Path basePath;
+
+    private final Path multipartPath;
+
+    private final ConcurrentMap<String, ObjectInfo> objectInfos = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, MultipartUpload> uploads = new ConcurrentHashMap<>();
+
+    private final AtomicLong requestIds = new AtomicLong();
+
+
+    S3RequestHandler(LocalOssTemplate localOssTemplate, Path basePath) {
+        this.localOssTemplate = localOssTemplate;
+        this.basePath = basePath.toAbsolutePath().normalize();
+        this.multipartPath = this.basePath.resolve(MULTIPART_DIRECTORY);
+    }
+
+    /**
+     * 清理上次运行遗留的分片，未完成的分片上传只保存在内存中
+     */
+    void cleanUp() throws IOException {
+        FileUtils.deleteDirectory(multipartPath.toFile());
+        Files.createDirectories(multipartPath);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String requestId = Long.toHexString(requestIds.incrementAndGet()).toUpperCase(Locale.ROOT);
+        exchange.getResponseHeaders().set("x-amz-request-id", requestId);
+        exchange.getResponseHeaders().set("Server", "LocalOss");
+
+        try {
+            dispatch(exchange);
+        } catch (S3ServiceException e) {
+            sendError(exchange, e.getStatusCode(), e.getErrorCode(), e.getMessage(), requestId);
+        } catch (IOException | IORuntimeException | UncheckedIOException e) {
+            log.warn("local oss server failed to handle {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            sendError(exchange, 500, "InternalError", e.getMessage(), requestId);
+        } catch (RuntimeException e) {
+            log.error("local oss server failed to handle {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            sendError(exchange, 500, "InternalError", e.getMessage(), requestId);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = decodePath(exchange.getRequestURI().getRawPath());
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        int slash = path.indexOf('/', 1);
+        String bucketName = slash < 0 ? path.substring(1) : path.substring(1, slash);
+        String objectKey = slash < 0 ? "" : path.substring(slash + 1);
+
+        if (bucketName.isEmpty()) {
+            if ("GET".equals(method)) {
+                listBuckets(exchange);
+                return;
+            }
+        } else if (objectKey.isEmpty()) {
+            if (dispatchBucket(exchange, method, bucketName, query)) {
+                return;
+            }
+        } else if (dispatchObject(exchange, method, bucketName, objectKey, query)) {
+            return;
+        }
+
+        throw new S3ServiceException(405, "MethodNotAllowed",
+                                     "The specified method is not allowed against this resource");
+    }
+
+    private boolean dispatchBucket(HttpExchange exchange, String method, String bucketName,
+                                   Map<String, String> query) throws IOException {
+        switch (method) {
+            case "GET":
+                if (query.containsKey("acl")) {
+                    getBucketAcl(exchange, bucketName);
+                } else if (query.containsKey("location")) {
+                    getBucketLocation(exchange, bucketName);
+                } else if (query.containsKey("uploads")) {
+                    listMultipartUploads(exchange, bucketName, query);
+                } else {
+                    listObjects(exchange, bucketName, query);
+                }
+                return true;
+            case "HEAD":
+                requireBucket(bucketName);
+                sendEmpty(exchange, 200);
+                return true;
+            case "PUT":
+                createBucket(exchange, bucketName);
+                return true;
+            case "DELETE":
+                deleteBucket(exchange, bucketName);
+                return true;
+            case "POST":
+                if (query.containsKey("delete")) {
+                    deleteObjects(exchange, bucketName);
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    private boolean dispatchObject(HttpExchange exchange, String method, String bucketName, String objectKey,
+                                   Map<String, String> query) throws IOException {
+        String uploadId = query.get("uploadId");
+        boolean copy = Objects.nonNull(exchange.getRequestHeaders().getFirst("x-amz-copy-source"));
+
+        switch (method) {
+            case "PUT":
+                if (Objects.nonNull(uploadId)) {
+                    if (copy) {
+                        uploadPartCopy(exchange, bucketName, objectKey, uploadId, query.get("partNumber"));
+                    } else {
+                        uploadPart(exchange, bucketName, objectKey, uploadId, query.get("partNumber"));
+                    }
+                } else if (copy) {
+                    copyObject(exchange, bucketName, objectKey);
+                } else {
+                    putObject(exchange, bucketName, objectKey);
+                }
+                return true;
+            case "GET":
+                if (Objects.nonNull(uploadId)) {
+                    listParts(exchange, bucketName, objectKey, uploadId, query);
+                } else {
+                    getObject(exchange, bucketName, objectKey, true);
+                }
+                return true;
+            case "HEAD":
+                getObject(exchange, bucketName, objectKey, false);
+                return true;
+            case "DELETE":
+                if (Objects.nonNull(uploadId)) {
+                    abortMultipartUpload(exchange, bucketName, objectKey, uploadId);
+                } else {
+                    deleteObject(exchange, bucketName, objectKey);
+                }
+                return true;
+            case "POST":
+                if (query.containsKey("uploads")) {
+                    initiateMultipartUpload(exchange, bucketName, objectKey);
+                } else if (Objects.nonNull(uploadId)) {
+                    completeMultipartUpload(exchange, bucketName, objectKey, uploadId);
+                } else {
+                    return false;
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+
+    // ------------------------------------------------------------
+    // ----------------------- bucket 管理 ------------------------
+    // ------------------------------------------------------------
+
+    private void listBuckets(HttpExchange exchange) throws IOException {
+        S3Xml xml = S3Xml.root("ListAllMyBucketsResult")
+                .start("Owner").element("ID", OWNER).element("DisplayName", OWNER).end("Owner")
+                .start("Buckets");
+        for (Path bucket : buckets()) {
+            xml.start("Bucket")
+                    .element("Name", bucket.getFileName().toString())
+                    .element("CreationDate", S3Xml.iso8601(Files.getLastModifiedTime(bucket).toMillis()))
+                    .end("Bucket");
+        }
+        sendXml(exchange, 200, xml.end("Buckets").end("ListAllMyBucketsResult"));
+    }
+
+    private List<Path> buckets() throws IOException {
+        if (!Files.isDirectory(basePath)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> children = Files.list(basePath)) {
+            return children.filter(Files::isDirectory)
+                    .filter(child -> !child.getFileName().toString().startsWith("."))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private void getBucketAcl(HttpExchange exchange, String bucketName) throws IOException {
+        requireBucket(bucketName);
+        sendXml(exchange, 200, S3Xml.root("AccessControlPolicy")
+                .start("Owner").element("ID", OWNER).element("DisplayName", OWNER).end("Owner")
+                .start("AccessControlList").end("AccessControlList")
+                .end("AccessControlPolicy"));
+    }
+
+    private void getBucketLocation(HttpExchange exchange, String bucketName) throws IOException {
+        requireBucket(bucketName);
+        sendXml(exchange, 200, S3Xml.root("LocationConstraint").end("LocationConstraint"));
+    }
+
+    private void createBucket(HttpExchange exchange, String bucketName) throws IOException {
+        Files.createDirectories(bucketPath(bucketName));
+        exchange.getResponseHeaders().set("Location", "/" + bucketName);
+        sendEmpty(exchange, 200);
+    }
+
+    private void deleteBucket(HttpExchange exchange, String bucketName) throws IOException {
+        Path bucket = requireBucket(bucketName);
+        try (Stream<Path> files = Files.walk(bucket)) {
+            if (files.anyMatch(Files::isRegularFile)) {
+                throw new S3ServiceException(409, "BucketNotEmpty", "The bucket you tried to delete is not empty");
+            }
+        }
+
+        FileUtils.deleteDirectory(bucket.toFile());
+        objectInfos.keySet().removeIf(key -> key.startsWith(bucketName + "/"));
+        sendEmpty(exchange, 204);
+    }
+
+
+    // ------------------------------------------------------------
+    // ----------------------- object 读写 -------------------------
+    // ------------------------------------------------------------
+
+    private void putObject(HttpExchange exchange, String bucketName, String objectKey) throws IOException {
+        requireBucket(bucketName);
+        Path path = objectPath(bucketName, objectKey);
+
+        MessageDigest digest = md5();
+        try (InputStream body = new DigestInputStream(requestBody(exchange), digest)) {
+            if (objectKey.endsWith("/")) {
+                // 以 / 结尾的空对象作为目录
+                IOUtils.consume(body);
+                Files.createDirectories(path);
+            } else {
+                localOssTemplate.upload(body, storeKey(bucketName, objectKey));
+            }
+        }
+
+        String eTag = hex(digest.digest());
+        if (Files.isRegularFile(path)) {
+            objectInfos.put(storeKey(bucketName, objectKey),
+                            new ObjectInfo(eTag, storedHeaders(exchange.getRequestHeaders(), objectKey), path));
+        }
+        exchange.getResponseHeaders().set("ETag", quote(eTag));
+        sendEmpty(exchange, 200);
+    }
+
+    private void getObject(HttpExchange exchange, String bucketName, String objectKey, boolean withBody)
+            throws IOException {
+        requireBucket(bucketName);
+        Path path = objectPath(bucketName, objectKey);
+        ObjectInfo info = objectInfo(bucketName, objectKey, path);
+
+        Headers requestHeaders = exchange.getRequestHeaders();
+        Headers responseHeaders = exchange.getResponseHeaders();
+        responseHeaders.set("ETag", quote(info.eTag));
+        responseHeaders.set("Last-Modified", RFC_1123.format(Instant.ofEpochMilli(info.lastModified)));
+        responseHeaders.set("Accept-Ranges", "bytes");
+
+        int preconditionStatus = checkPreconditions(requestHeaders, info);
+        if (preconditionStatus == 304) {
+            sendEmpty(exchange, 304);
+            return;
+        }
+        if (preconditionStatus == 412) {
+            throw new S3ServiceException(412, "PreconditionFailed",
+                                         "At least one of the pre-conditions you specified did not hold");
+        }
+
+        info.headers.forEach(responseHeaders::set);
+
+        long start = 0;
+        long length = info.size;
+        int status = 200;
+        long[] range = parseRange(requestHeaders.getFirst("Range"), info.size);
+        if (Objects.nonNull(range)) {
+            start = range[0];
+            length = range[1] - range[0] + 1;
+            status = 206;
+            responseHeaders.set("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + info.size);
+        }
+
+        if (!withBody) {
+            responseHeaders.set("Content-Length", String.valueOf(length));
+            sendEmpty(exchange, status);
+            return;
+        }
+        if (length == 0) {
+            sendEmpty(exchange, status);
+            return;
+        }
+
+        exchange.sendResponseHeaders(status, length);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             OutputStream responseBody = exchange.getResponseBody()) {
+            transfer(channel, start, length, Channels.newChannel(responseBody));
+        }
+    }
+
+    private void deleteObject(HttpExchange exchange, String bucketName, String objectKey) throws IOException {
+        requireBucket(bucketName);
+        Path path = objectPath(bucketName, objectKey);
+        if (Files.isRegularFile(path)) {
+            localOssTemplate.deleteObject(storeKey(bucketName, objectKey));
+        }
+        objectInfos.remove(storeKey(bucketName, objectKey));
+        sendEmpty(exchange, 204);
+    }
+
+    private void deleteObjects(HttpExchange exchange, String bucketName) throws IOException {
+        requireBucket(bucketName);
+        Element delete;
+        try (InputStream body = requestBody(exchange)) {
+            delete = S3Xml.parse(body);
+        }
+        boolean quiet = Boolean.parseBoolean(trim(S3Xml.childText(delete, "Quiet")));
+
+        S3Xml xml = S3Xml.root("DeleteResult");
+        for (Element object : S3Xml.children(delete, "Object")) {
+            String objectKey = S3Xml.childText(object, "Key");
+            try {
+                Path path = objectPath(bucketName, objectKey);
+                if (Files.isRegularFile(path) && !localOssTemplate.deleteObject(storeKey(bucketName, objectKey))) {
+                    throw new IOException("Failed to delete " + path);
+                }
+                objectInfos.remove(storeKey(bucketName, objectKey));
+                if (!quiet) {
+                    xml.start("Deleted").element("Key", objectKey).end("Deleted");
+                }
+            } catch (S3ServiceException | IOException e) {
+                String code = e instanceof S3ServiceException ? ((S3ServiceException) e).getErrorCode() : "InternalError";
+                xml.start("Error")
+                        .element("Key", objectKey)
+                        .element("Code", code)
+                        .element("Message", e.getMessage())
+                        .end("Error");
+            }
+        }
+        sendXml(exchange, 200, xml.end("DeleteResult"));
+    }
+
+    private void copyObject(HttpExchange exchange, String bucketName, String objectKey) throws IOException {
+        requireBucket(bucketName);
+        Path path = objectPath(bucketName, objectKey);
+        String[] source = copySource(exchange);
+        requireBucket(source[0]);
+        Path sourcePath = objectPath(source[0], source[1]);
+        ObjectInfo sourceInfo = objectInfo(source[0], source[1], sourcePath);
+
+        Headers requestHeaders = exchange.getRequestHeaders();
+        checkCopySourcePreconditions(requestHeaders, sourceInfo);
+        boolean replace = "REPLACE".equalsIgnoreCase(requestHeaders.getFirst("x-amz-metadata-directive"));
+        Map<String, String> headers = replace ? storedHeaders(requestHeaders, objectKey) : sourceInfo.headers;
+
+        if (sourcePath.equals(path)) {
+            if (!replace) {
+                throw new S3ServiceException(400, "InvalidRequest",
+                                             "This copy request is illegal because it is trying to copy an object "
+                                             + "to itself without changing the object's metadata");
+            }
+        } else {
+            localOssTemplate.copyObject(storeKey(source[0], source[1]), storeKey(bucketName, objectKey));
+        }
+
+        ObjectInfo info = new ObjectInfo(sourceInfo.eTag, headers, path);
+        objectInfos.put(storeKey(bucketName, objectKey), info);
+        sendXml(exchange, 200, S3Xml.root("CopyObjectResult")
+                .element("LastModified", S3Xml.iso8601(info.lastModified))
+                .element("ETag", quote(info.eTag))
+                .end("CopyObjectResult"));
+    }
+
+
+    // ------------------------------------------------------------
+    // ----------------------- object 列举 -------------------------
+    // ------------------------------------------------------------
+
+    private void listObjects(HttpExchange exchange, String bucketName, Map<String, String> query)
+            throws IOException {
+        Path bucket = requireBucket(bucketName);
+        boolean v2 = "2".equals(query.get("list-type"));
+        boolean urlEncoded = "url".equals(query.get("encoding-type"));
+        String prefix = query.getOrDefault("prefix", "");
+        String delimiter = query.get("delimiter");
+        int maxKeys = parseInt(query.get("max-keys"), DEFAULT_MAX_KEYS, "max-keys");
+
+        String continuationToken = query.get("continuation-token");
+        String marker = v2
+                        ? Objects.nonNull(continuationToken) ? decodeToken(continuationToken) : query.get("start-after")
+                        : query.get("marker");
+
+        ListResult result = list(bucket, prefix, delimiter, marker, maxKeys);
+
+        S3Xml xml = S3Xml.root("ListBucketResult")
+                .element("Name", bucketName)
+                .element("Prefix", encode(prefix, urlEncoded))
+                .element("Delimiter", encode(delimiter, urlEncoded))
+                .element("MaxKeys", maxKeys)
+                .element("EncodingType", urlEncoded ? "url" : null)
+                .element("IsTruncated", result.truncated);
+        if (v2) {
+            xml.element("KeyCount", result.objects.size() + result.commonPrefixes.size())
+                    .element("ContinuationToken", continuationToken)
+                    .element("NextContinuationToken", result.truncated ? encodeToken(result.last) : null)
+                    .element("StartAfter", encode(query.get("start-after"), urlEncoded));
+        } else {
+            xml.element("Marker", encode(Objects.isNull(marker) ? "" : marker, urlEncoded))
+                    .element("NextMarker", result.truncated ? encode(result.last, urlEncoded) : null);
+        }
+
+        for (ListedObject object : result.objects) {
+            xml.start("Contents")
+                    .element("Key", encode(object.key, urlEncoded))
+                    .element("LastModified", S3Xml.iso8601(object.info.lastModified))
+                    .element("ETag", quote(object.info.eTag))
+                    .element("Size", object.info.size)
+                    .element("StorageClass", "STANDARD");
+            if (!v2) {
+                xml.start("Owner").element("ID", OWNER).element("DisplayName", OWNER).end("Owner");
+            }
+            xml.end("Contents");
+        }
+        for (String commonPrefix : result.commonPrefixes) {
+            xml.start("CommonPrefixes").element("Prefix", encode(commonPrefix, urlEncoded)).end("CommonPrefixes");
+        }
+        sendXml(exchange, 200, xml.end("ListBucketResult"));
+    }
+
+    /**
+     * 按键的字典序列举一页：开启索引时从索引中定位到起始键，否则并行遍历前缀所在的目录；
+     * 桶目录下的对象在本地存储中的键为 "桶名/对象键"
+     */
+    private ListResult list(Path bucket, String prefix, String delimiter, String marker, int maxKeys)
+            throws IOException {
+        ListResult result = new ListResult();
+        if (maxKeys <= 0) {
+            return result;
+        }
+
+        String bucketPrefix = bucket.getFileName().toString() + "/";
+        String startAfter = Objects.nonNull(marker) ? bucketPrefix + marker : null;
+        LocalObjectListing listing =
+                localOssTemplate.listObjects(bucketPrefix + prefix, delimiter, startAfter, maxKeys);
+
+        String bucketName = bucket.getFileName().toString();
+        for (LocalObjectMetadata metadata : listing.getObjects()) {
+            String key = metadata.getObjectKey().substring(bucketPrefix.length());
+            Path path = objectPath(bucketName, key);
+            // 列举后被删除的对象不再返回
+            if (Files.isRegularFile(path)) {
+                result.objects.add(new ListedObject(key, objectInfo(bucketName, key, path)));
+            }
+        }
+        for (String commonPrefix : listing.getCommonPrefixes()) {
+            result.commonPrefixes.add(commonPrefix.substring(bucketPrefix.length()));
+        }
+        result.truncated = listing.isTruncated();
+        if (Objects.nonNull(listing.getNextStartAfter())) {
+            result.last = listing.getNextStartAfter().substring(bucketPrefix.length());
+        }
+        return result;
+    }
+
+
+    // ------------------------------------------------------------
+    // ----------------------- 分片上传 ---------------------------
+    // ------------------------------------------------------------
+
+    private void initiateMultipartUpload(HttpExchange exchange, String bucketName, String objectKey)
+            throws IOException {
+        requireBucket(bucketName);
+        objectPath(bucketName, objectKey);
+
+        String uploadId = UUID.randomUUID().toString().replace("-", "");
+        Path directory = multipartPath.resolve(uploadId);
+        Files.createDirectories(directory);
+        uploads.put(uploadId, new MultipartUpload(uploadId, bucketName, objectKey,
+                                                  storedHeaders(exchange.getRequestHeaders(), objectKey), directory));
+
+        sendXml(exchange, 200, S3Xml.root("InitiateMultipartUploadResult")
+                .element("Bucket", bucketName)
+                .element("Key", objectKey)
+                .element("UploadId", uploadId)
+                .end("InitiateMultipartUploadResult"));
+    }
+
+    private void uploadPart(HttpExchange exchange, String bucketName, String objectKey, String uploadId,
+                            String partNumber) throws IOException {
+        MultipartUpload upload = requireUpload(bucketName, objectKey, uploadId);
+        int number = partNumber(partNumber);
+
+        Part part;
+        try (InputStream body = requestBody(exchange)) {
+            part = upload.writePart(number, body);
+        }
+        exchange.getResponseHeaders().set("ETag", quote(part.eTag));
+        sendEmpty(exchange, 200);
+    }
+
+    private void uploadPartCopy(HttpExchange exchange, String bucketName, String objectKey, String uploadId,
+                                String partNumber) throws IOException {
+        MultipartUpload upload = requireUpload(bucketName, objectKey, uploadId);
+        int number = partNumber(partNumber);
+
+        String[] source = copySource(exchange);
+        requireBucket(source[0]);
+        Path sourcePath = objectPath(source[0], source[1]);
+        if (!Files.isRegularFile(sourcePath)) {
+            throw S3ServiceException.noSuchKey(source[1]);
+        }
+        checkCopySourcePreconditions(exchange.getRequestHeaders(), objectInfo(source[0], source[1], sourcePath));
+
+        long size = Files.size(sourcePath);
+        long start = 0;
+        long length = size;
+        String sourceRange = exchange.getRequestHeaders().getFirst("x-amz-copy-source-range");
+        if (Objects.nonNull(sourceRange)) {
+            long[] range = parseRange(sourceRange, size);
+            if (Objects.isNull(range)) {
+                throw invalidRange(size);
+            }
+            start = range[0];
+            length = range[1] - range[0] + 1;
+        }
+
+        Part part;
+        try (InputStream in = Files.newInputStream(sourcePath)) {
+            IOUtils.skipFully(in, start);
+            part = upload.writePart(number, new BoundedInputStream(in, length));
+        }
+        sendXml(exchange, 200, S3Xml.root("CopyPartResult")
+                .element("LastModified", S3Xml.iso8601(part.lastModified))
+                .element("ETag", quote(part.eTag))
+                .end("CopyPartResult"));
+    }
+
+    private void completeMultipartUpload(HttpExchange exchange, String bucketName, String objectKey,
+                                         String uploadId) throws IOException {
+        MultipartUpload upload = requireUpload(bucketName, objectKey, uploadId);
+        Element complete;
+        try (InputStream body = requestBody(exchange)) {
+            complete = S3Xml.parse(body);
+        }
+
+        List<Part> parts = new ArrayList<>();
+        int previous = 0;
+        for (Element element : S3Xml.children(complete, "Part")) {
+            int number = partNumber(trim(S3Xml.childText(element, "PartNumber")));
+            if (number <= previous) {
+                throw new S3ServiceException(400, "InvalidPartOrder",
+                                             "The list of parts was not in ascending order");
+            }
+            previous = number;
+
+            Part part = upload.parts.get(number);
+            String eTag = unquote(trim(S3Xml.childText(element, "ETag")));
+            if (Objects.isNull(part) || (Objects.nonNull(eTag) && !part.eTag.equals(eTag))) {
+                throw new S3ServiceException(400, "InvalidPart",
+                                             "One or more of the specified parts could not be found: " + number);
+            }
+            parts.add(part);
+        }
+        if (parts.isEmpty()) {
+            throw new S3ServiceException(400, "MalformedXML", "The XML you provided did not contain any parts");
+        }
+
+        // 合并后的 ETag 为各分片 MD5 拼接后的 MD5 加分片数
+        MessageDigest digest = md5();
+        List<InputStream> partStreams = new ArrayList<>(parts.size());
+        for (Part part : parts) {
+            digest.update(part.md5);
+            partStreams.add(new LazyFileInputStream(part.path));
+        }
+        try (InputStream content = new SequenceInputStream(Collections.enumeration(partStreams))) {
+            localOssTemplate.upload(content, storeKey(bucketName, objectKey));
+        }
+        String eTag = hex(digest.digest()) + "-" + parts.size();
+
+        Path path = objectPath(bucketName, objectKey);
+        objectInfos.put(storeKey(bucketName, objectKey), new ObjectInfo(eTag, upload.headers, path));
+        uploads.remove(uploadId);
+        FileUtils.deleteDirectory(upload.directory.toFile());
+
+        sendXml(exchange, 200, S3Xml.root("CompleteMultipartUploadResult")
+                .element("Location", "/" + bucketName + "/" + objectKey)
+                .element("Bucket", bucketName)
+                .element("Key", objectKey)
+                .element("ETag", quote(eTag))
+                .end("CompleteMultipartUploadResult"));
+    }
+
+    private void abortMultipartUpload(HttpExchange exchange, String bucketName, String objectKey,
+                                      String uploadId) throws IOException {
+        MultipartUpload upload = requireUpload(bucketName, objectKey, uploadId);
+        uploads.remove(uploadId);
+        FileUtils.deleteDirectory(upload.directory.toFile());
+        sendEmpty(exchange, 204);
+    }
+
+    private void listParts(HttpExchange exchange, String bucketName, String objectKey, String uploadId,
+                           Map<String, String> query) throws IOException {
+        MultipartUpload upload = requireUpload(bucketName, objectKey, uploadId);
+        int marker = parseInt(query.get("part-number-marker"), 0, "part-number-marker");
+        int maxParts = parseInt(query.get("max-parts"), DEFAULT_MAX_KEYS, "max-parts");
+
+        List<Part> parts = new ArrayList<>(upload.parts.tailMap(marker, false).values());
+        boolean truncated = parts.size() > maxParts;
+        if (truncated) {
+            parts = parts.subList(0, maxParts);
+        }
+
+        S3Xml xml = S3Xml.root("ListPartsResult")
+                .element("Bucket", bucketName)
+                .element("Key", objectKey)
+                .element("UploadId", uploadId)
+                .element("PartNumberMarker", marker)
+                .element("NextPartNumberMarker", parts.isEmpty() ? marker : parts.get(parts.size() - 1).number)
+                .element("MaxParts", maxParts)
+                .element("IsTruncated", truncated)
+                .element("StorageClass", "STANDARD");
+        for (Part part : parts) {
+            xml.start("Part")
+                    .element("PartNumber", part.number)
+                    .element("LastModified", S3Xml.iso8601(part.lastModified))
+                    .element("ETag", quote(part.eTag))
+                    .element("Size", part.size)
+                    .end("Part");
+        }
+        sendXml(exchange, 200, xml.end("ListPartsResult"));
+    }
+
+    private void listMultipartUploads(HttpExchange exchange, String bucketName, Map<String, String> query)
+            throws IOException {
+        requireBucket(bucketName);
+        String prefix = query.getOrDefault("prefix", "");
+        String keyMarker = query.get("key-marker");
+        String uploadIdMarker = query.get("upload-id-marker");
+        int maxUploads = Math.min(parseInt(query.get("max-uploads"), DEFAULT_MAX_KEYS, "max-uploads"),
+                                  DEFAULT_MAX_KEYS);
+
+        // 同一对象的分片上传按发起时间排序，upload-id-marker 只在 key-marker 所指的对象内生效
+        MultipartUpload markerUpload = Objects.nonNull(keyMarker) && Objects.nonNull(uploadIdMarker)
+                ? uploads.get(uploadIdMarker) : null;
+        Comparator<MultipartUpload> order = Comparator.comparing((MultipartUpload upload) -> upload.objectKey)
+                .thenComparingLong(upload -> upload.initiated)
+                .thenComparing(upload -> upload.uploadId);
+        List<MultipartUpload> bucketUploads = uploads.values().stream()
+                .filter(upload -> upload.bucketName.equals(bucketName) && upload.objectKey.startsWith(prefix))
+                .filter(upload -> {
+                    if (Objects.isNull(keyMarker)) {
+                        return true;
+                    }
+                    int compare = upload.objectKey.compareTo(keyMarker);
+                    if (compare != 0 || Objects.isNull(uploadIdMarker)) {
+                        return compare > 0;
+                    }
+                    return Objects.nonNull(markerUpload) && markerUpload.objectKey.equals(keyMarker)
+                            ? order.compare(upload, markerUpload) > 0
+                            : upload.uploadId.compareTo(uploadIdMarker) > 0;
+                })
+                .sorted(order)
+                .limit(maxUploads + 1L)
+                .collect(Collectors.toList());
+        boolean truncated = bucketUploads.size() > maxUploads;
+        if (truncated) {
+            bucketUploads = bucketUploads.subList(0, maxUploads);
+        }
+        MultipartUpload last = truncated ? bucketUploads.get(bucketUploads.size() - 1) : null;
+
+        S3Xml xml = S3Xml.root("ListMultipartUploadsResult")
+                .element("Bucket", bucketName)
+                .element("KeyMarker", Objects.nonNull(keyMarker) ? keyMarker : "")
+                .element("UploadIdMarker", Objects.nonNull(uploadIdMarker) ? uploadIdMarker : "")
+                .element("NextKeyMarker", Objects.nonNull(last) ? last.objectKey : null)
+                .element("NextUploadIdMarker", Objects.nonNull(last) ? last.uploadId : null)
+                .element("Prefix", prefix)
+                .element("MaxUploads", maxUploads)
+                .element("IsTruncated", truncated);
+        for (MultipartUpload upload : bucketUploads) {
+            xml.start("Upload")
+                    .element("Key", upload.objectKey)
+                    .element("UploadId", upload.uploadId)
+                    .start("Initiator").element("ID", OWNER).element("DisplayName", OWNER).end("Initiator")
+                    .start("Owner").element("ID", OWNER).element("DisplayName", OWNER).end("Owner")
+                    .element("StorageClass", "STANDARD")
+                    .element("Initiated", S3Xml.iso8601(upload.initiated))
+                    .end("Upload");
+        }
+        sendXml(exchange, 200, xml.end("ListMultipartUploadsResult"));
+    }
+
+
+    // ------------------------------------------------------------
+    // ----------------------- 工具方法 ---------------------------
+    // ------------------------------------------------------------
+
+    private Path bucketPath(String bucketName) {
+        if (bucketName.startsWith(".") || bucketName.contains("\\") || bucketName.contains("..")) {
+            throw new S3ServiceException(400, "InvalidBucketName", "The specified bucket is not valid");
+        }
+        return basePath.resolve(bucketName);
+    }
+
+    private Path requireBucket(String bucketName) {
+        Path bucket = bucketPath(bucketName);
+        if (!Files.isDirectory(bucket)) {
+            throw S3ServiceException.noSuchBucket(bucketName);
+        }
+        return bucket;
+    }
+
+    /**
+     * 解析对象路径，拒绝访问桶目录之外的文件
+     */
+    private Path objectPath(String bucketName, String objectKey) {
+        if (!StringUtils.hasLength(objectKey)) {
+            throw S3ServiceException.invalidArgument("Object key must not be empty");
+        }
+        for (String segment : objectKey.split("[/\\\\]")) {
+            if ("..".equals(segment) || ".".equals(segment)) {
+                throw S3ServiceException.invalidArgument("Object key must not contain relative segments");
+            }
+        }
+
+        Path bucket = bucketPath(bucketName);
+        Path path = Paths.get(localOssTemplate.getCompleteObjectKey(storeKey(bucketName, objectKey)))
+                .toAbsolutePath().normalize();
+        if (!path.startsWith(bucket)) {
+            throw S3ServiceException.invalidArgument("Object key resolves outside of the bucket");
+        }
+        return path;
+    }
+
+    private static String storeKey(String bucketName, String objectKey) {
+        return bucketName + "/" + objectKey;
+    }
+
+    private ObjectInfo objectInfo(String bucketName, String objectKey, Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            throw S3ServiceException.noSuchKey(objectKey);
+        }
+
+        long size = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        ObjectInfo info = objectInfos.get(storeKey(bucketName, objectKey));
+        if (Objects.nonNull(info) && info.size == size && info.lastModified == lastModified) {
+            return info;
+        }
+
+        // 没有上传记录或文件已被改动
+        MessageDigest digest = md5();
+        digest.update((size + ":" + lastModified).getBytes(StandardCharsets.UTF_8));
+        Map<String, String> headers = Collections.singletonMap("content-type", guessContentType(objectKey));
+        return new ObjectInfo(hex(digest.digest()) + "-1", headers, size, lastModified);
+    }
+
+    private MultipartUpload requireUpload(String bucketName, String objectKey, String uploadId) {
+        MultipartUpload upload = uploads.get(uploadId);
+        if (Objects.isNull(upload) || !upload.bucketName.equals(bucketName) || !upload.objectKey.equals(objectKey)) {
+            throw S3ServiceException.noSuchUpload(uploadId);
+        }
+        return upload;
+    }
+
+    private static int partNumber(String partNumber) {
+        int number = parseInt(partNumber, -1, "partNumber");
+        if (number < 1 || number > MAX_PART_NUMBER) {
+            throw S3ServiceException.invalidArgument("Part number must be an integer between 1 and " + MAX_PART_NUMBER);
+        }
+        return number;
+    }
+
+    /**
+     * 解析复制源，格式为 [/]bucket/key[?versionId=xxx]
+     */
+    private static String[] copySource(HttpExchange exchange) {
+        String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+        int versionIndex = copySource.indexOf('?');
+        if (versionIndex >= 0) {
+            copySource = copySource.substring(0, versionIndex);
+        }
+        copySource = decodePath(copySource.startsWith("/") ? copySource : "/" + copySource);
+
+        int slash = copySource.indexOf('/', 1);
+        if (slash < 0 || slash == copySource.length() - 1) {
+            throw S3ServiceException.invalidArgument("Copy Source must mention the source bucket and key");
+        }
+        return new String[]{copySource.substring(1, slash), copySource.substring(slash + 1)};
+    }
+
+    private static Map<String, String> storedHeaders(Headers requestHeaders, String objectKey) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        requestHeaders.forEach((name, values) -> {
+            String lowerName = name.toLowerCase(Locale.ROOT);
+            if (values.isEmpty()) {
+                return;
+            }
+            if (lowerName.startsWith(USER_METADATA_PREFIX) || STORED_HEADERS.contains(lowerName)) {
+                String value = values.get(0);
+                if ("content-encoding".equals(lowerName)) {
+                    // aws-chunked 只用于传输
+                    value = Arrays.stream(value.split(","))
+                            .map(String::trim)
+                            .filter(encoding -> !encoding.isEmpty() && !"aws-chunked".equalsIgnoreCase(encoding))
+                            .collect(Collectors.joining(","));
+                    if (value.isEmpty()) {
+                        return;
+                    }
+                }
+                headers.put(lowerName, value);
+            }
+        });
+        headers.putIfAbsent("content-type", guessContentType(objectKey));
+        return Collections.unmodifiableMap(headers);
+    }
+
+    private static String guessContentType(String objectKey) {
+        String contentType = URLConnection.guessContentTypeFromName(objectKey);
+        return Objects.nonNull(contentType) ? contentType : "application/octet-stream";
+    }
+
+    private static InputStream requestBody(HttpExchange exchange) {
+        Headers headers = exchange.getRequestHeaders();
+        String contentSha256 = headers.getFirst("x-amz-content-sha256");
+        String contentEncoding = headers.getFirst("Content-Encoding");
+        boolean chunked = (Objects.nonNull(contentSha256) && contentSha256.startsWith("STREAMING-"))
+                || (Objects.nonNull(contentEncoding) && contentEncoding.contains("aws-chunked"));
+        InputStream body = exchange.getRequestBody();
+        return chunked ? new AwsChunkedInputStream(body) : body;
+    }
+
+    /**
+     * 校验条件请求头
+     *
+     * @return 0 条件满足；304 未修改；412 条件不满足
+     */
+    private static int checkPreconditions(Headers headers, ObjectInfo info) {
+        return checkPreconditions(headers, "", info);
+    }
+
+    /**
+     * 校验拷贝源的条件请求头（x-amz-copy-source-if-*），任一条件不满足时拷贝失败
+     */
+    private static void checkCopySourcePreconditions(Headers headers, ObjectInfo sourceInfo) {
+        if (checkPreconditions(headers, "x-amz-copy-source-", sourceInfo) != 0) {
+            throw new S3ServiceException(412, "PreconditionFailed",
+                                         "At least one of the pre-conditions you specified did not hold");
+        }
+    }
+
+    private static int checkPreconditions(Headers headers, String prefix, ObjectInfo info) {
+        String ifMatch = headers.getFirst(prefix + "If-Match");
+        if (Objects.nonNull(ifMatch) && !eTagMatches(ifMatch, info.eTag)) {
+            return 412;
+        }
+        String ifUnmodifiedSince = headers.getFirst(prefix + "If-Unmodified-Since");
+        if (Objects.isNull(ifMatch) && Objects.nonNull(ifUnmodifiedSince)
+                && modifiedAfter(info.lastModified, ifUnmodifiedSince)) {
+            return 412;
+        }
+
+        String ifNoneMatch = headers.getFirst(prefix + "If-None-Match");
+        if (Objects.nonNull(ifNoneMatch) && eTagMatches(ifNoneMatch, info.eTag)) {
+            return 304;
+        }
+        String ifModifiedSince = headers.getFirst(prefix + "If-Modified-Since");
+        if (Objects.isNull(ifNoneMatch) && Objects.nonNull(ifModifiedSince)
+                && !modifiedAfter(info.lastModified, ifModifiedSince)) {
+            return 304;
+        }
+        return 0;
+    }
+
+    private static boolean eTagMatches(String header, String eTag) {
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if ("*".equals(value) || eTag.equals(unquote(value.startsWith("W/") ? value.substring(2) : value))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean modifiedAfter(long lastModified, String httpDate) {
+        try {
+            long since = ZonedDateTime.parse(httpDate, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            // HTTP 日期精确到秒
+            return lastModified / 1000 > since / 1000;
+        } catch (DateTimeParseException e) {
+            return true;
+        }
+    }
+
+    /**
+     * 解析单个字节范围，不支持多个范围（与 S3 一致，返回完整对象）
+     *
+     * @return [起始, 结束]，未指定或无法识别时为空
+     */
+    private static long[] parseRange(String range, long size) {
+        if (Objects.isNull(range) || !range.startsWith("bytes=") || range.contains(",")) {
+            return null;
+        }
+
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                // 最后 n 个字节
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) {
+                    throw invalidRange(size);
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? size - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), size - 1);
+            }
+            if (start >= size || start > end) {
+                throw invalidRange(size);
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static S3ServiceException invalidRange(long size) {
+        return new S3ServiceException(416, "InvalidRange",
+                                      "The requested range is not satisfiable, object size is " + size);
+    }
+
+    private static void transfer(FileChannel channel, long position, long count, WritableByteChannel target)
+            throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long transferred = channel.transferTo(position, remaining, target);
+            if (transferred <= 0) {
+                throw new EOFException("Object was truncated while being read");
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+    }
+
+    private static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        // 没有响应体时 HttpServer 不会读完请求体，未读完的连接在响应后被关闭而无法复用
+        exchange.getRequestBody().close();
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private static void sendXml(HttpExchange exchange, int status, S3Xml xml) throws IOException {
+        byte[] body = xml.toBytes();
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String code, String message, String requestId) {
+        if (exchange.getResponseCode() != -1) {
+            // 响应头已发送，只能断开连接
+            return;
+        }
+
+        try {
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                sendEmpty(exchange, status);
+                return;
+            }
+            sendXml(exchange, status, S3Xml.root("Error")
+                    .element("Code", code)
+                    .element("Message", message)
+                    .element("Resource", exchange.getRequestURI().getPath())
+                    .element("RequestId", requestId)
+                    .end("Error"));
+        } catch (IOException e) {
+            log.debug("failed to send error response", e);
+        }
+    }
+
+    private static String decodePath(String rawPath) {
+        try {
+            // 路径中的 + 不表示空格
+            return URLDecoder.decode(rawPath.replace("+", "%2B"), "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            throw S3ServiceException.invalidArgument("Malformed request path");
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new LinkedHashMap<>();
+        if (!StringUtils.hasLength(rawQuery)) {
+            return query;
+        }
+        try {
+            for (String pair : rawQuery.split("&")) {
+                if (pair.isEmpty()) {
+                    continue;
+                }
+                int equals = pair.indexOf('=');
+                String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), "UTF-8");
+                String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), "UTF-8");
+                query.put(name, value);
+            }
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            throw S3ServiceException.invalidArgument("Malformed query string");
+        }
+        return query;
+    }
+
+    private static int parseInt(String value, int defaultValue, String name) {
+        if (!StringUtils.hasText(value)) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed < 0) {
+                throw S3ServiceException.invalidArgument(name + " must not be negative");
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw S3ServiceException.invalidArgument(name + " must be an integer");
+        }
+    }
+
+    private static String encode(String value, boolean urlEncoded) {
+        if (Objects.isNull(value) || !urlEncoded) {
+            return value;
+        }
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encodeToken(String marker) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(marker.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeToken(String token) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw S3ServiceException.invalidArgument("The continuation token provided is incorrect");
+        }
+    }
+
+    private static String trim(String value) {
+        return Objects.isNull(value) ? null : value.trim();
+    }
+
+    private static String quote(String eTag) {
+        return "\"" + eTag + "\"";
+    }
+
+    private static String unquote(String eTag) {
+        if (Objects.nonNull(eTag) && eTag.length() >= 2 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+            return eTag.substring(1, eTag.length() - 1);
+        }
+        return eTag;
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * 对象的 ETag、保存的响应头与对应的文件状态，文件大小或修改时间变化后失效
+     */
+    private static final class ObjectInfo {
+
+        private final String eTag;
+
+        private final Map<String, String> headers;
+
+        private final long size;
+
+        private final long lastModified;
+
+        private ObjectInfo(String eTag, Map<String, String> headers, Path path) throws IOException {
+            this(eTag, headers, Files.size(path), Files.getLastModifiedTime(path).toMillis());
+        }
+
+        private ObjectInfo(String eTag, Map<String, String> headers, long size, long lastModified) {
+            this.eTag = eTag;
+            this.headers = headers;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+    }
+
+    private static final class ListedObject {
+
+        private final String key;
+
+        private final ObjectInfo info;
+
+        private ListedObject(String key, ObjectInfo info) {
+            this.key = key;
+            this.info = info;
+        }
+
+    }
+
+    private static final class ListResult {
+
+        private final List<ListedObject> objects = new ArrayList<>();
+
+        private final List<String> commonPrefixes = new ArrayList<>();
+
+        private boolean truncated;
+
+        /**
+         * 本页最后一个对象或公共前缀，作为下一页的起点
+         */
+        private String last;
+
+        private int size() {
+            return objects.size() + commonPrefixes.size();
+        }
+
+    }
+
+    /**
+     * 进行中的分片上传，分片保存在临时目录中，完成时按顺序合并
+     */
+    private static final class MultipartUpload {
+
+        private final String uploadId;
+
+        private final String bucketName;
+
+        private final String objectKey;
+
+        private final Map<String, String> headers;
+
+        private final Path directory;
+
+        private final long initiated = System.currentTimeMillis();
+
+        private final ConcurrentSkipListMap<Integer, Part> parts = new ConcurrentSkipListMap<>();
+
+        private MultipartUpload(String uploadId, String bucketName, String objectKey, Map<String, String> headers,
+                                Path directory) {
+            this.uploadId = uploadId;
+            this.bucketName = bucketName;
+            this.objectKey = objectKey;
+            this.headers = headers;
+            this.directory = directory;
+        }
+
+        /**
+         * 写入分片，先写临时文件再替换，重复上传同一分片时以最后一次为准
+         */
+        private Part writePart(int number, InputStream content) throws IOException {
+            MessageDigest digest = md5();
+            Path path = directory.resolve(String.valueOf(number));
+            Path temp = Files.createTempFile(directory, number + "-", ".tmp");
+            try {
+                try (InputStream in = new DigestInputStream(content, digest)) {
+                    Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            byte[] md5 = digest.digest();
+            Part part = new Part(number, hex(md5), md5, Files.size(path), path);
+            parts.put(number, part);
+            return part;
+        }
+
+    }
+
+    private static final class Part {
+
+        private final int number;
+
+        private final String eTag;
+
+        private final byte[] md5;
+
+        private final long size;
+
+        private final Path path;
+
+        private final long lastModified = System.currentTimeMillis();
+
+        private Part(int number, String eTag, byte[] md5, long size, Path path) {
+            this.number = number;
+            this.eTag = eTag;
+            this.md5 = md5;
+            this.size = size;
+            this.path = path;
+        }
+
+    }
+
+    /**
+     * 第一次读取时才打开文件，合并大量分片时不会同时占用全部文件句柄
+     */
+    private static final class LazyFileInputStream extends InputStream {
+
+        private final Path path;
+
+        private InputStream delegate;
+
+        private LazyFileInputStream(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return delegate().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return delegate().read(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (Objects.nonNull(delegate)) {
+                delegate.close();
+            }
+        }
+
+        private InputStream delegate() throws IOException {
+            if (Objects.isNull(delegate)) {
+                delegate = new BufferedInputStream(Files.newInputStream(path));
+            }
+            return delegate;
+        }
+
+    }
+
+}
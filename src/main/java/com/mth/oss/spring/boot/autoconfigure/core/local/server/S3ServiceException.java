@@ -0,0 +1,47 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local.server;
+
+/**
+ * 返回给客户端的 S3 错误
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+class S3ServiceException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    private final String errorCode;
+
+    S3ServiceException(int statusCode, String errorCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+        this.errorCode = errorCode;
+    }
+
+    static S3ServiceException noSuchBucket(String bucketName) {
+        return new S3ServiceException(404, "NoSuchBucket", "The specified bucket does not exist: " + bucketName);
+    }
+
+    static S3ServiceException noSuchKey(String objectKey) {
+        return new S3ServiceException(404, "NoSuchKey", "The specified key does not exist: " + objectKey);
+    }
+
+    static S3ServiceException noSuchUpload(String uploadId) {
+        return new S3ServiceException(404, "NoSuchUpload", "The specified upload does not exist: " + uploadId);
+    }
+
+    static S3ServiceException invalidArgument(String message) {
+        return new S3ServiceException(400, "InvalidArgument", message);
+    }
+
+    int getStatusCode() {
+        return statusCode;
+    }
+
+    String getErrorCode() {
+        return errorCode;
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.mth.oss.spring.boot.autoconfigure.core.local.server;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * S3 协议 XML 报文的生成与解析
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+final class S3Xml {
+
+    /**
+     * S3 报文命名空间
+     */
+    static final String NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+
+    /**
+     * 报文中的时间格式
+     */
+    private static final DateTimeFormatter ISO_8601 =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    private final StringBuilder content = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+
+    private boolean rootWritten;
+
+
+    private S3Xml() {
+    }
+
+    /**
+     * @param root 根元素名称
+     * @return 已写入根元素开始标签的报文
+     */
+    static S3Xml root(String root) {
+        return new S3Xml().start(root);
+    }
+
+    /**
+     * 写入开始标签，第一个标签带命名空间
+     */
+    S3Xml start(String name) {
+        content.append('<').append(name);
+        if (!rootWritten) {
+            content.append(" xmlns=\"").append(NAMESPACE).append('"');
+            rootWritten = true;
+        }
+        content.append('>');
+        return this;
+    }
+
+    /**
+     * 写入结束标签
+     */
+    S3Xml end(String name) {
+        content.append("</").append(name).append('>');
+        return this;
+    }
+
+    /**
+     * 写入文本元素，值为空时跳过
+     */
+    S3Xml element(String name, Object value) {
+        if (Objects.nonNull(value)) {
+            content.append('<').append(name).append('>');
+            escape(String.valueOf(value));
+            content.append("</").append(name).append('>');
+        }
+        return this;
+    }
+
+    byte[] toBytes() {
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    content.append("&amp;");
+                    break;
+                case '<':
+                    content.append("&lt;");
+                    break;
+                case '>':
+                    content.append("&gt;");
+                    break;
+                case '"':
+                    content.append("&quot;");
+                    break;
+                case '\r':
+                    content.append("&#13;");
+                    break;
+                default:
+                    content.append(c);
+            }
+        }
+    }
+
+    /**
+     * @param epochMillis 时间戳
+     * @return ISO 8601 格式的 UTC 时间
+     */
+    static String iso8601(long epochMillis) {
+        return ISO_8601.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    /**
+     * 解析请求报文，禁用 DTD 与外部实体
+     *
+     * @param inputStream 请求体
+     * @return 根元素
+     */
+    static Element parse(InputStream inputStream) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setExpandEntityReferences(false);
+            Document document = factory.newDocumentBuilder().parse(inputStream);
+            return document.getDocumentElement();
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new S3ServiceException(400, "MalformedXML", "The XML you provided was not well-formed");
+        }
+    }
+
+    /**
+     * @param parent 父元素
+     * @param name   子元素名称
+     * @return 全部同名子元素
+     */
+    static List<Element> children(Element parent, String name) {
+        List<Element> children = new ArrayList<>();
+        NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (node instanceof Element && name.equals(localName(node))) {
+                children.add((Element) node);
+            }
+        }
+        return children;
+    }
+
+    /**
+     * @param parent 父元素
+     * @param name   子元素名称
+     * @return 第一个同名子元素的文本，不存在时为空
+     */
+    static String childText(Element parent, String name) {
+        List<Element> children = children(parent, name);
+        return children.isEmpty() ? null : children.get(0).getTextContent();
+    }
+
+    private static String localName(Node node) {
+        return Objects.nonNull(node.getLocalName()) ? node.getLocalName() : node.getNodeName();
+    }
+
+}
@@ -8,61 +8,190 @@ import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 /**
- * oss 客户端单例工厂
+ * oss 客户端注册表
+ * <p>
+ * 按名称管理多个客户端，每个客户端拥有独立的 endpoint、凭证与连接池配置；
+ * 默认客户端 {@link #DEFAULT_CLIENT} 使用顶层配置与 oss.client 配置，命名客户端使用 oss.clients.[name] 配置。
+ * 客户端在首次获取时创建，容器关闭时统一关闭
  *
  * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
  * @since 1.3
  */
+@Slf4j
 @Component
-public class OssClientFactory {
-
-    private static volatile AmazonS3 awsClient;
-
-    private OssClientFactory() {}
-
-    @Bean
-    public static AmazonS3 getAwsClient(OssProperties properties) {
-        if (awsClient == null) {
-            synchronized (OssClientFactory.class) {
-                if (awsClient == null) {
-                    ClientConfiguration clientConfiguration = new ClientConfiguration();
-
-                    AwsClientBuilder.EndpointConfiguration endpointConfiguration =
-                            new AwsClientBuilder.EndpointConfiguration(properties.getEndpoint(),
-                                                                       properties.getRegion());
-
-                    AWSCredentials awsCredentials = new BasicAWSCredentials(properties.getAccessKeyId(),
-                                                                            properties.getAccessKeySecret());
-                    AWSStaticCredentialsProvider credentialsProvider = new AWSStaticCredentialsProvider(awsCredentials);
-
-                    awsClient = AmazonS3Client.builder()
-                            .withPathStyleAccessEnabled(properties.getPathStyleAccess())
-                            .withClientConfiguration(clientConfiguration)
-                            .withEndpointConfiguration(endpointConfiguration)
-                            .withCredentials(credentialsProvider)
-                            .disableChunkedEncoding().build();
-                }
-            }
+public class OssClientFactory implements DisposableBean {
+
+    /**
+     * 默认客户端名称
+     */
+    public static final String DEFAULT_CLIENT = "default";
+
+    private final OssProperties properties;
+
+    private final ConcurrentMap<String, AmazonS3> clients = new ConcurrentHashMap<>();
+
+
+    public OssClientFactory(OssProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 默认客户端，由注册表负责关闭
+     *
+     * @return 默认客户端
+     */
+    @Bean(destroyMethod = "")
+    public AmazonS3 getAwsClient() {
+        return getClient(DEFAULT_CLIENT);
+    }
+
+    /**
+     * 获取指定名称的客户端
+     *
+     * @param name 客户端名称
+     * @return 客户端
+     * @throws IllegalArgumentException 未配置该名称的客户端
+     * @since 1.4
+     */
+    public AmazonS3 getClient(String name) {
+        checkClientName(name);
+        return clients.computeIfAbsent(name, this::createClient);
+    }
+
+    /**
+     * 获取全部客户端名称，包含默认客户端
+     *
+     * @return 客户端名称集合
+     * @since 1.4
+     */
+    public Set<String> getClientNames() {
+        Set<String> names = new LinkedHashSet<>();
+        names.add(DEFAULT_CLIENT);
+        names.addAll(properties.getClients().keySet());
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * 获取指定客户端生效的配置，可用于创建使用该客户端的 OssTemplate：
+     * <pre>
+     * new OssTemplate(factory.getClient("bulk"), factory.getProperties("bulk"));
+     * </pre>
+     *
+     * @param name 客户端名称
+     * @return 合并后的配置副本
+     * @since 1.4
+     */
+    public OssProperties getProperties(String name) {
+        checkClientName(name);
+
+        OssProperties.Client client = namedClient(name);
+        OssProperties resolved = new OssProperties();
+        BeanUtils.copyProperties(properties, resolved);
+        resolved.setRegion(resolve(name, OssProperties.Client::getRegion, properties.getRegion()));
+        resolved.setEndpoint(resolve(name, OssProperties.Client::getEndpoint, properties.getEndpoint()));
+        resolved.setAccessKeyId(resolve(name, OssProperties.Client::getAccessKeyId, properties.getAccessKeyId()));
+        resolved.setAccessKeySecret(
+                resolve(name, OssProperties.Client::getAccessKeySecret, properties.getAccessKeySecret()));
+        resolved.setBucketName(resolve(name, OssProperties.Client::getBucketName, properties.getBucketName()));
+        resolved.setPathStyleAccess(
+                resolve(name, OssProperties.Client::getPathStyleAccess, properties.getPathStyleAccess()));
+        resolved.setClient(client);
+        return resolved;
+    }
+
+    @Override
+    public void destroy() {
+        clients.forEach((name, client) -> {
+            client.shutdown();
+            log.info("shut down oss client: {}", name);
+        });
+        clients.clear();
+    }
+
+    private AmazonS3 createClient(String name) {
+        OssProperties resolved = getProperties(name);
+
+        AwsClientBuilder.EndpointConfiguration endpointConfiguration =
+                new AwsClientBuilder.EndpointConfiguration(resolved.getEndpoint(), resolved.getRegion());
+
+        AWSCredentials awsCredentials = new BasicAWSCredentials(resolved.getAccessKeyId(),
+                                                                resolved.getAccessKeySecret());
+        AWSStaticCredentialsProvider credentialsProvider = new AWSStaticCredentialsProvider(awsCredentials);
+
+        return AmazonS3Client.builder()
+                .withPathStyleAccessEnabled(resolved.getPathStyleAccess())
+                .withClientConfiguration(clientConfiguration(name))
+                .withEndpointConfiguration(endpointConfiguration)
+                .withCredentials(credentialsProvider)
+                .disableChunkedEncoding().build();
+    }
+
+    private ClientConfiguration clientConfiguration(String name) {
+        ClientConfiguration configuration = new ClientConfiguration();
+
+        configuration.setMaxConnections(
+                resolve(name, OssProperties.Client::getMaxConnections, ClientConfiguration.DEFAULT_MAX_CONNECTIONS));
+        configuration.setConnectionTimeout(millis(resolve(name, OssProperties.Client::getConnectionTimeout,
+                Duration.ofMillis(ClientConfiguration.DEFAULT_CONNECTION_TIMEOUT))));
+        configuration.setSocketTimeout(millis(resolve(name, OssProperties.Client::getSocketTimeout,
+                Duration.ofMillis(ClientConfiguration.DEFAULT_SOCKET_TIMEOUT))));
+        configuration.setRequestTimeout(millis(resolve(name, OssProperties.Client::getRequestTimeout,
+                Duration.ofMillis(ClientConfiguration.DEFAULT_REQUEST_TIMEOUT))));
+        configuration.setUseTcpKeepAlive(resolve(name, OssProperties.Client::getTcpKeepAlive, true));
+        configuration.setUseReaper(
+                resolve(name, OssProperties.Client::getUseReaper, ClientConfiguration.DEFAULT_USE_REAPER));
+        configuration.setConnectionMaxIdleMillis(resolve(name, OssProperties.Client::getConnectionMaxIdle,
+                Duration.ofMillis(ClientConfiguration.DEFAULT_CONNECTION_MAX_IDLE_MILLIS)).toMillis());
+        configuration.setConnectionTTL(resolve(name, OssProperties.Client::getConnectionTtl,
+                Duration.ofMillis(ClientConfiguration.DEFAULT_CONNECTION_TTL)).toMillis());
+
+        Integer maxErrorRetry = resolve(name, OssProperties.Client::getMaxErrorRetry, null);
+        if (Objects.nonNull(maxErrorRetry)) {
+            configuration.setMaxErrorRetry(maxErrorRetry);
         }
-        return awsClient;
+        return configuration;
     }
 
-    @PostConstruct
-    public void shutdown() {
-        if (awsClient == null) {
-            return;
+    /**
+     * 依次从命名客户端配置、默认客户端配置中取值，均为空时使用默认值
+     */
+    private <T> T resolve(String name, Function<OssProperties.Client, T> getter, T defaultValue) {
+        T value = getter.apply(namedClient(name));
+        if (Objects.isNull(value)) {
+            value = getter.apply(properties.getClient());
         }
+        return Objects.nonNull(value) ? value : defaultValue;
+    }
+
+    private OssProperties.Client namedClient(String name) {
+        OssProperties.Client client = properties.getClients().get(name);
+        return Objects.nonNull(client) ? client : properties.getClient();
+    }
+
+    private void checkClientName(String name) {
+        if (!DEFAULT_CLIENT.equals(name) && !properties.getClients().containsKey(name)) {
+            throw new IllegalArgumentException("oss client [" + name + "] is not configured");
+        }
+    }
 
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            awsClient.shutdown();
-            System.out.println("shut down oss client");
-        }));
+    private static int millis(Duration duration) {
+        return (int) Math.min(Integer.MAX_VALUE, duration.toMillis());
     }
 
 }
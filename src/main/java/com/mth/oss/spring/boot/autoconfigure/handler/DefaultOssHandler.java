@@ -1,10 +1,16 @@
 package com.mth.oss.spring.boot.autoconfigure.handler;
 
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.services.s3.Headers;
 import com.amazonaws.services.s3.model.*;
+import com.mth.oss.spring.boot.autoconfigure.progress.ProgressReporter;
+import com.mth.oss.spring.boot.autoconfigure.progress.TransferProgress;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.URL;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * 扩展点的默认实现
@@ -15,30 +21,45 @@ import java.util.List;
 @Slf4j
 public class DefaultOssHandler implements OssHandler {
 
+    private ProgressReporter progressReporter;
+
+
     @Override
     public void beforeUpload(PutObjectRequest request) {
         log.info("before file upload: {}", request.getKey());
 
-        request.setGeneralProgressListener(
-                progressEvent -> log.info("Upload bytes: " + progressEvent.getBytesTransferred()));
+        if (shouldTrack(request)) {
+            request.setGeneralProgressListener(progressReporter.track(
+                    TransferProgress.Direction.UPLOAD, request.getBucketName(), request.getKey(), uploadLength(request)));
+        }
     }
 
     @Override
     public void afterUpload(PutObjectRequest request, PutObjectResult result) {
         log.info("after file upload: {}", request.getKey());
+
+        if (Objects.nonNull(progressReporter)) {
+            progressReporter.finish(request.getGeneralProgressListener());
+        }
     }
 
     @Override
     public void beforeDownload(GetObjectRequest request) {
         log.info("before file download: {}", request.getKey());
 
-        request.setGeneralProgressListener(
-                progressEvent -> log.info("Download bytes: " + progressEvent.getBytesTransferred()));
+        if (shouldTrack(request)) {
+            request.setGeneralProgressListener(progressReporter.track(
+                    TransferProgress.Direction.DOWNLOAD, request.getBucketName(), request.getKey(), -1));
+        }
     }
 
     @Override
     public void afterDownload(GetObjectRequest request, ObjectMetadata metadata) {
         log.info("after file download: {}", request.getKey());
+
+        if (Objects.nonNull(progressReporter)) {
+            progressReporter.finish(request.getGeneralProgressListener());
+        }
     }
 
     @Override
@@ -70,4 +91,33 @@ public class DefaultOssHandler implements OssHandler {
     public void afterGeneratePresignedUrl(GeneratePresignedUrlRequest request, URL url) {
         log.info("after generatePresignedUrl: {}", request.getKey());
     }
+
+    /**
+     * 设置传输进度报告，未设置时不安装进度监听器
+     *
+     * @param progressReporter 传输进度报告
+     * @since 1.4
+     */
+    public void setProgressReporter(ProgressReporter progressReporter) {
+        this.progressReporter = progressReporter;
+    }
+
+    /**
+     * 已启用进度报告，且调用方没有在请求上设置自己的监听器
+     */
+    private boolean shouldTrack(AmazonWebServiceRequest request) {
+        return Objects.nonNull(progressReporter) && request.getGeneralProgressListener() == ProgressListener.NOOP;
+    }
+
+    private static long uploadLength(PutObjectRequest request) {
+        if (Objects.nonNull(request.getFile())) {
+            return request.getFile().length();
+        }
+        ObjectMetadata metadata = request.getMetadata();
+        if (Objects.nonNull(metadata) && Objects.nonNull(metadata.getRawMetadataValue(Headers.CONTENT_LENGTH))) {
+            return metadata.getContentLength();
+        }
+        return -1;
+    }
+
 }
@@ -0,0 +1,99 @@
+package com.mth.oss.spring.boot.autoconfigure.metrics;
+
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.ObjectDiskCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.ObjectMemoryCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.ObjectMetadataCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.PresignedUrlCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 注册各缓存（对象内容、元数据与预签名 URL 缓存）的指标，只注册已启用的缓存：
+ * <ul>
+ *     <li>oss.cache.gets：读取次数，标签 cache（disk / memory / metadata / presign）、
+ *     result（hit / miss，内容缓存另有条件请求确认未修改的 revalidated）</li>
+ *     <li>oss.cache.evictions：淘汰条目数，标签 cache</li>
+ *     <li>oss.cache.size：当前条目数，标签 cache</li>
+ *     <li>oss.cache.bytes：内容缓存占用的字节数，标签 cache</li>
+ * </ul>
+ * 指标读取缓存自身的计数器，不增加读取路径的开销
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public class OssCacheMetrics implements MeterBinder {
+
+    private final ObjectProvider<ObjectDiskCache> objectDiskCache;
+
+    private final ObjectProvider<ObjectMemoryCache> objectMemoryCache;
+
+    private final ObjectProvider<ObjectMetadataCache> objectMetadataCache;
+
+    private final ObjectProvider<PresignedUrlCache> presignedUrlCache;
+
+
+    public OssCacheMetrics(ObjectProvider<ObjectDiskCache> objectDiskCache,
+                           ObjectProvider<ObjectMemoryCache> objectMemoryCache,
+                           ObjectProvider<ObjectMetadataCache> objectMetadataCache,
+                           ObjectProvider<PresignedUrlCache> presignedUrlCache) {
+        this.objectDiskCache = objectDiskCache;
+        this.objectMemoryCache = objectMemoryCache;
+        this.objectMetadataCache = objectMetadataCache;
+        this.presignedUrlCache = presignedUrlCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        objectDiskCache.ifAvailable(cache -> {
+            gets(registry, "disk", cache, ObjectDiskCache::getHitCount, ObjectDiskCache::getMissCount);
+            counter("oss.cache.gets", "disk", cache, ObjectDiskCache::getRevalidatedCount)
+                    .tag("result", "revalidated").register(registry);
+            counter("oss.cache.evictions", "disk", cache, ObjectDiskCache::getEvictionCount)
+                    .register(registry);
+            gauge("oss.cache.size", "disk", cache, ObjectDiskCache::size).register(registry);
+            gauge("oss.cache.bytes", "disk", cache, ObjectDiskCache::getTotalSize).register(registry);
+        });
+        objectMemoryCache.ifAvailable(cache -> {
+            gets(registry, "memory", cache, ObjectMemoryCache::getHitCount, ObjectMemoryCache::getMissCount);
+            counter("oss.cache.gets", "memory", cache, ObjectMemoryCache::getRevalidatedCount)
+                    .tag("result", "revalidated").register(registry);
+            counter("oss.cache.evictions", "memory", cache, ObjectMemoryCache::getEvictionCount)
+                    .register(registry);
+            gauge("oss.cache.size", "memory", cache, ObjectMemoryCache::size).register(registry);
+            gauge("oss.cache.bytes", "memory", cache, ObjectMemoryCache::getWeightedSize).register(registry);
+        });
+        objectMetadataCache.ifAvailable(cache -> {
+            gets(registry, "metadata", cache, ObjectMetadataCache::getHitCount, ObjectMetadataCache::getMissCount);
+            counter("oss.cache.evictions", "metadata", cache, ObjectMetadataCache::getEvictionCount)
+                    .register(registry);
+            gauge("oss.cache.size", "metadata", cache, ObjectMetadataCache::size).register(registry);
+        });
+        presignedUrlCache.ifAvailable(cache -> {
+            gets(registry, "presign", cache, PresignedUrlCache::getHitCount, PresignedUrlCache::getMissCount);
+            counter("oss.cache.evictions", "presign", cache, PresignedUrlCache::getEvictionCount)
+                    .register(registry);
+            gauge("oss.cache.size", "presign", cache, PresignedUrlCache::size).register(registry);
+        });
+    }
+
+    private static <T> void gets(MeterRegistry registry, String cacheName, T cache,
+                                 ToDoubleFunction<T> hitCount, ToDoubleFunction<T> missCount) {
+        counter("oss.cache.gets", cacheName, cache, hitCount).tag("result", "hit").register(registry);
+        counter("oss.cache.gets", cacheName, cache, missCount).tag("result", "miss").register(registry);
+    }
+
+    private static <T> FunctionCounter.Builder<T> counter(String name, String cacheName, T cache,
+                                                          ToDoubleFunction<T> count) {
+        return FunctionCounter.builder(name, cache, count).tag("cache", cacheName);
+    }
+
+    private static <T> Gauge.Builder<T> gauge(String name, String cacheName, T cache, ToDoubleFunction<T> value) {
+        return Gauge.builder(name, cache, value).tag("cache", cacheName);
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.mth.oss.spring.boot.autoconfigure.metrics;
+
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.ObjectDiskCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.ObjectMemoryCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.ObjectMetadataCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.PresignedUrlCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Micrometer 指标配置，类路径中存在 Micrometer 时生效
+ * <p>
+ * 耗时分位数可通过 Spring Boot 的配置开启，例如
+ * management.metrics.distribution.percentiles-histogram.oss.operation=true
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(MeterRegistry.class)
+@ConditionalOnProperty(prefix = "oss.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class OssMetricsConfiguration {
+
+    @Bean
+    public static OssMetricsPostProcessor ossMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry,
+                                                                  ObjectProvider<OssProperties> ossProperties) {
+        return new OssMetricsPostProcessor(meterRegistry, ossProperties);
+    }
+
+    @Bean
+    public OssCacheMetrics ossCacheMetrics(ObjectProvider<ObjectDiskCache> objectDiskCache,
+                                           ObjectProvider<ObjectMemoryCache> objectMemoryCache,
+                                           ObjectProvider<ObjectMetadataCache> objectMetadataCache,
+                                           ObjectProvider<PresignedUrlCache> presignedUrlCache) {
+        return new OssCacheMetrics(objectDiskCache, objectMemoryCache, objectMetadataCache, presignedUrlCache);
+    }
+
+}
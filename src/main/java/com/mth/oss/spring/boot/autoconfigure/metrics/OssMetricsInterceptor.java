@@ -0,0 +1,207 @@
+package com.mth.oss.spring.boot.autoconfigure.metrics;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 记录对象存储操作指标的拦截器
+ * <p>
+ * 只拦截操作接口中声明的方法，模板内部的相互调用不经过代理，因此每次外部调用只记录一次：
+ * <ul>
+ *     <li>oss.operation：耗时，标签 operation、bucket、outcome（success / error）</li>
+ *     <li>oss.operation.errors：失败次数，标签 operation、bucket、exception</li>
+ *     <li>oss.transfer.bytes：传输字节数，标签 operation、bucket、direction（upload / download），
+ *     按参数中的文件、请求对象与返回的数组、缓冲区计算，流式上传下载无法得知长度时不记录</li>
+ * </ul>
+ * 返回流的列举操作只记录创建流的耗时。
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public class OssMetricsInterceptor implements MethodInterceptor {
+
+    private static final ParameterNameDiscoverer PARAMETER_NAME_DISCOVERER = new DefaultParameterNameDiscoverer();
+
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    private final Set<String> operations;
+
+    private final String defaultBucket;
+
+    private final ConcurrentMap<Method, Integer> bucketParameterIndexes = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, Optional<Method>> bucketGetters = new ConcurrentHashMap<>();
+
+    private volatile MeterRegistry meterRegistry;
+
+
+    /**
+     * @param meterRegistryProvider 指标注册表，首次调用时获取，不存在时不记录指标
+     * @param operationsInterface   操作接口，只拦截其中声明的抽象方法
+     * @param defaultBucket         参数中不含桶名称时使用的 bucket 标签
+     */
+    public OssMetricsInterceptor(ObjectProvider<MeterRegistry> meterRegistryProvider, Class<?> operationsInterface,
+                                 String defaultBucket) {
+        this.meterRegistryProvider = meterRegistryProvider;
+        this.defaultBucket = Objects.nonNull(defaultBucket) ? defaultBucket : "unknown";
+
+        Set<String> names = new HashSet<>();
+        for (Method method : operationsInterface.getMethods()) {
+            if (Modifier.isAbstract(method.getModifiers())) {
+                names.add(method.getName());
+            }
+        }
+        this.operations = Collections.unmodifiableSet(names);
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        MeterRegistry registry = meterRegistry();
+        if (Objects.isNull(registry) || !operations.contains(method.getName())) {
+            return invocation.proceed();
+        }
+
+        String operation = method.getName();
+        String bucket = bucket(method, invocation.getArguments());
+        Timer.Sample sample = Timer.start(registry);
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            sample.stop(Timer.builder("oss.operation")
+                                .description("Object storage operation latency")
+                                .tags("operation", operation, "bucket", bucket, "outcome", "error")
+                                .register(registry));
+            registry.counter("oss.operation.errors",
+                             "operation", operation, "bucket", bucket, "exception", e.getClass().getSimpleName())
+                    .increment();
+            throw e;
+        }
+
+        sample.stop(Timer.builder("oss.operation")
+                            .description("Object storage operation latency")
+                            .tags("operation", operation, "bucket", bucket, "outcome", "success")
+                            .register(registry));
+        recordBytes(registry, operation, bucket, invocation.getArguments(), result);
+        return result;
+    }
+
+    private MeterRegistry meterRegistry() {
+        MeterRegistry registry = meterRegistry;
+        if (Objects.isNull(registry)) {
+            registry = meterRegistryProvider.getIfAvailable();
+            meterRegistry = registry;
+        }
+        return registry;
+    }
+
+    private void recordBytes(MeterRegistry registry, String operation, String bucket, Object[] arguments,
+                             Object result) {
+        String direction;
+        long bytes;
+        if (operation.startsWith("upload") || operation.startsWith("replaceUpload")) {
+            direction = "upload";
+            bytes = uploadBytes(arguments);
+        } else if (operation.startsWith("download")) {
+            direction = "download";
+            bytes = downloadBytes(arguments, result);
+        } else {
+            return;
+        }
+
+        if (bytes > 0) {
+            registry.counter("oss.transfer.bytes", "operation", operation, "bucket", bucket, "direction", direction)
+                    .increment(bytes);
+        }
+    }
+
+    private static long uploadBytes(Object[] arguments) {
+        for (Object argument : arguments) {
+            if (argument instanceof File) {
+                return ((File) argument).length();
+            }
+            if (argument instanceof PutObjectRequest) {
+                PutObjectRequest request = (PutObjectRequest) argument;
+                if (Objects.nonNull(request.getFile())) {
+                    return request.getFile().length();
+                }
+                ObjectMetadata metadata = request.getMetadata();
+                if (Objects.nonNull(metadata) && Objects.nonNull(metadata.getRawMetadataValue(Headers.CONTENT_LENGTH))) {
+                    return metadata.getContentLength();
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static long downloadBytes(Object[] arguments, Object result) {
+        if (result instanceof byte[]) {
+            return ((byte[]) result).length;
+        }
+        if (result instanceof ByteBuffer) {
+            return ((ByteBuffer) result).remaining();
+        }
+        for (Object argument : arguments) {
+            if (argument instanceof File) {
+                return ((File) argument).length();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 依次从名为 bucketName 的参数、请求对象的 getBucketName 中取桶名称
+     */
+    private String bucket(Method method, Object[] arguments) {
+        int index = bucketParameterIndexes.computeIfAbsent(method, OssMetricsInterceptor::bucketParameterIndex);
+        if (index >= 0 && arguments[index] instanceof String) {
+            return (String) arguments[index];
+        }
+
+        for (Object argument : arguments) {
+            if (argument instanceof AmazonWebServiceRequest) {
+                Optional<Method> getter = bucketGetters.computeIfAbsent(
+                        argument.getClass(), type -> Optional.ofNullable(ReflectionUtils.findMethod(type, "getBucketName")));
+                if (getter.isPresent()) {
+                    Object bucket = ReflectionUtils.invokeMethod(getter.get(), argument);
+                    if (bucket instanceof String) {
+                        return (String) bucket;
+                    }
+                }
+            }
+        }
+        return defaultBucket;
+    }
+
+    private static int bucketParameterIndex(Method method) {
+        String[] names = PARAMETER_NAME_DISCOVERER.getParameterNames(method);
+        if (Objects.nonNull(names)) {
+            for (int i = 0; i < names.length; i++) {
+                if ("bucketName".equals(names[i]) || "destinationBucketName".equals(names[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+}
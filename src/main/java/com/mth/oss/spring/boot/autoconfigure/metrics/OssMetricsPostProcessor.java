@@ -0,0 +1,60 @@
+package com.mth.oss.spring.boot.autoconfigure.metrics;
+
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.OssOperations;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.OssTemplate;
+import com.mth.oss.spring.boot.autoconfigure.core.local.LocalOssOperations;
+import com.mth.oss.spring.boot.autoconfigure.core.local.LocalOssTemplate;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * 为 {@link OssTemplate} 与 {@link LocalOssTemplate} 创建记录指标的代理
+ * <p>
+ * 使用类代理，注入 OssTemplate 类型的地方无需修改；MeterRegistry 与 OssProperties 在首次使用时才获取，
+ * 不会使它们提前初始化
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public class OssMetricsPostProcessor implements BeanPostProcessor {
+
+    /**
+     * 本地存储没有桶的概念，使用固定的 bucket 标签
+     */
+    static final String LOCAL_BUCKET = "local";
+
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    private final ObjectProvider<OssProperties> ossPropertiesProvider;
+
+
+    public OssMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistryProvider,
+                                   ObjectProvider<OssProperties> ossPropertiesProvider) {
+        this.meterRegistryProvider = meterRegistryProvider;
+        this.ossPropertiesProvider = ossPropertiesProvider;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof OssTemplate) {
+            OssProperties ossProperties = ossPropertiesProvider.getIfAvailable();
+            String bucket = ossProperties != null ? ossProperties.getBucketName() : null;
+            return proxy(bean, new OssMetricsInterceptor(meterRegistryProvider, OssOperations.class, bucket));
+        }
+        if (bean instanceof LocalOssTemplate) {
+            return proxy(bean, new OssMetricsInterceptor(meterRegistryProvider, LocalOssOperations.class, LOCAL_BUCKET));
+        }
+        return bean;
+    }
+
+    private static Object proxy(Object bean, OssMetricsInterceptor interceptor) {
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy(bean.getClass().getClassLoader());
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.mth.oss.spring.boot.autoconfigure.progress;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 按采样间隔输出传输进度日志，未配置其他回调时使用
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Slf4j
+public class LoggingProgressCallback implements TransferProgressCallback {
+
+    @Override
+    public void onProgress(TransferProgress progress) {
+        if (log.isInfoEnabled()) {
+            log.info("{} progress: {}/{} bytes ({}%), {} bytes/s", progress,
+                     progress.getTransferredBytes(), progress.getTotalBytes(),
+                     String.format("%.1f", progress.getPercent()), progress.getBytesPerSecond());
+        }
+    }
+
+    @Override
+    public void onFinish(TransferProgress progress) {
+        if (log.isInfoEnabled()) {
+            log.info("{} {}: {} bytes in {} ms", progress, progress.getState(),
+                     progress.getTransferredBytes(), progress.getElapsed().toMillis());
+        }
+    }
+
+}
@@ -0,0 +1,229 @@
+package com.mth.oss.spring.boot.autoconfigure.progress;
+
+import com.amazonaws.event.DeliveryMode;
+import com.amazonaws.event.ProgressEvent;
+import com.amazonaws.event.ProgressListener;
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 传输进度报告
+ * <p>
+ * {@link #track} 返回的监听器在传输线程中同步执行，每个进度事件只累加一次无锁计数器；
+ * 一个后台线程按 interval 采样全部进行中的传输并调用回调，超过 idleTimeout 没有进度的传输视为已放弃。
+ * 未创建本对象时不安装任何监听器，没有额外开销
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+@Slf4j
+public class ProgressReporter {
+
+    private final Set<Tracker> active = ConcurrentHashMap.newKeySet();
+
+    private final List<TransferProgressCallback> callbacks;
+
+    private final long idleTimeoutNanos;
+
+    private final ScheduledExecutorService scheduler;
+
+
+    /**
+     * @param progress  进度报告配置
+     * @param callbacks 全部传输共用的回调
+     */
+    public ProgressReporter(OssProperties.Progress progress, List<TransferProgressCallback> callbacks) {
+        this.callbacks = Collections.unmodifiableList(new ArrayList<>(callbacks));
+        this.idleTimeoutNanos = progress.getIdleTimeout().toNanos();
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("oss-progress-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+
+        long intervalMillis = Math.max(1L, progress.getInterval().toMillis());
+        this.scheduler.scheduleAtFixedRate(this::sample, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 开始跟踪一次传输
+     *
+     * @param direction  传输方向
+     * @param bucketName 桶名称
+     * @param objectKey  对象完整路径
+     * @param totalBytes 总字节数，未知时传 -1，由响应的 Content-Length 得出
+     * @return 设置到请求上的进度监听器
+     */
+    public ProgressListener track(TransferProgress.Direction direction, String bucketName, String objectKey,
+                                  long totalBytes) {
+        return track(direction, bucketName, objectKey, totalBytes, null);
+    }
+
+    /**
+     * 开始跟踪一次传输，并为该传输单独指定回调
+     * <p>
+     * 在调用 OssTemplate 之前把返回的监听器设置到请求上，扩展点不会再替换它：
+     * <pre>
+     * request.setGeneralProgressListener(reporter.track(DOWNLOAD, bucket, key, -1, callback));
+     * </pre>
+     *
+     * @param direction  传输方向
+     * @param bucketName 桶名称
+     * @param objectKey  对象完整路径
+     * @param totalBytes 总字节数，未知时传 -1
+     * @param callback   该传输的回调，与全局回调一同调用，可为空
+     * @return 设置到请求上的进度监听器
+     */
+    public ProgressListener track(TransferProgress.Direction direction, String bucketName, String objectKey,
+                                  long totalBytes, TransferProgressCallback callback) {
+        Tracker tracker = new Tracker(new TransferProgress(direction, bucketName, objectKey, totalBytes), callback);
+        active.add(tracker);
+        return tracker;
+    }
+
+    /**
+     * 结束跟踪，不是由本对象创建的监听器会被忽略
+     *
+     * @param listener {@link #track} 返回的监听器
+     */
+    public void finish(ProgressListener listener) {
+        if (listener instanceof Tracker) {
+            Tracker tracker = (Tracker) listener;
+            if (tracker.progress.finish(TransferProgress.State.COMPLETED)) {
+                active.remove(tracker);
+                notifyFinish(tracker);
+            }
+        }
+    }
+
+    /**
+     * @return 进行中的传输
+     */
+    public List<TransferProgress> getActiveTransfers() {
+        List<TransferProgress> transfers = new ArrayList<>(active.size());
+        active.forEach(tracker -> transfers.add(tracker.progress));
+        return transfers;
+    }
+
+    /**
+     * 停止采样线程
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void sample() {
+        long now = System.nanoTime();
+        for (Tracker tracker : active) {
+            long idleNanos = tracker.progress.sample(now);
+            if (idleNanos >= idleTimeoutNanos) {
+                if (tracker.progress.finish(TransferProgress.State.ABANDONED)) {
+                    active.remove(tracker);
+                    notifyFinish(tracker);
+                }
+                continue;
+            }
+
+            callbacks.forEach(callback -> notifyProgress(callback, tracker.progress));
+            if (Objects.nonNull(tracker.callback)) {
+                notifyProgress(tracker.callback, tracker.progress);
+            }
+        }
+    }
+
+    private void notifyProgress(TransferProgressCallback callback, TransferProgress progress) {
+        try {
+            callback.onProgress(progress);
+        } catch (RuntimeException e) {
+            log.warn("progress callback failed for {}", progress, e);
+        }
+    }
+
+    private void notifyFinish(Tracker tracker) {
+        List<TransferProgressCallback> targets = new ArrayList<>(callbacks);
+        if (Objects.nonNull(tracker.callback)) {
+            targets.add(tracker.callback);
+        }
+        for (TransferProgressCallback callback : targets) {
+            try {
+                callback.onFinish(tracker.progress);
+            } catch (RuntimeException e) {
+                log.warn("progress callback failed for {}", tracker.progress, e);
+            }
+        }
+    }
+
+    /**
+     * 进度监听器，声明可同步调用，SDK 不会把每个事件转交给它的公共事件线程
+     */
+    private static final class Tracker implements ProgressListener, DeliveryMode {
+
+        private final TransferProgress progress;
+
+        private final TransferProgressCallback callback;
+
+        private Tracker(TransferProgress progress, TransferProgressCallback callback) {
+            this.progress = progress;
+            this.callback = callback;
+        }
+
+        @Override
+        public void progressChanged(ProgressEvent progressEvent) {
+            // 上传只统计请求体，下载只统计响应体
+            boolean upload = progress.getDirection() == TransferProgress.Direction.UPLOAD;
+            switch (progressEvent.getEventType()) {
+                case REQUEST_BYTE_TRANSFER_EVENT:
+                    addTransferredBytes(upload, progressEvent.getBytes());
+                    break;
+                case RESPONSE_BYTE_TRANSFER_EVENT:
+                    addTransferredBytes(!upload, progressEvent.getBytes());
+                    break;
+                case HTTP_REQUEST_CONTENT_RESET_EVENT:
+                    // 请求重试时已传输的字节会重新传输
+                    addTransferredBytes(upload, -progressEvent.getBytes());
+                    break;
+                case HTTP_RESPONSE_CONTENT_RESET_EVENT:
+                    addTransferredBytes(!upload, -progressEvent.getBytes());
+                    break;
+                case REQUEST_CONTENT_LENGTH_EVENT:
+                    // 分片请求各自报告长度，累加即为总长度
+                    addContentLength(upload, progressEvent.getBytes());
+                    break;
+                case RESPONSE_CONTENT_LENGTH_EVENT:
+                    addContentLength(!upload, progressEvent.getBytes());
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void addTransferredBytes(boolean counted, long bytes) {
+            if (counted) {
+                progress.addTransferredBytes(bytes);
+            }
+        }
+
+        private void addContentLength(boolean counted, long bytes) {
+            if (counted) {
+                progress.addContentLength(bytes);
+            }
+        }
+
+        @Override
+        public boolean isSyncCallSafe() {
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.mth.oss.spring.boot.autoconfigure.progress;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单次传输的进度
+ * <p>
+ * 传输线程只累加无锁计数器；速率由进度报告线程按固定间隔采样计算
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public class TransferProgress {
+
+    /**
+     * 传输方向
+     */
+    public enum Direction {
+        UPLOAD, DOWNLOAD
+    }
+
+    /**
+     * 传输状态
+     */
+    public enum State {
+        /**
+         * 传输中
+         */
+        IN_PROGRESS,
+        /**
+         * 已完成
+         */
+        COMPLETED,
+        /**
+         * 超过空闲时间没有进度，已停止跟踪，通常是传输失败
+         */
+        ABANDONED
+    }
+
+    private final Direction direction;
+
+    private final String bucketName;
+
+    private final String objectKey;
+
+    private final long knownTotalBytes;
+
+    private final long startNanos = System.nanoTime();
+
+    private final LongAdder transferredBytes = new LongAdder();
+
+    private final LongAdder contentLength = new LongAdder();
+
+    private volatile State state = State.IN_PROGRESS;
+
+    private volatile long bytesPerSecond;
+
+    private volatile long endNanos;
+
+    // 以下字段只由进度报告线程访问
+    private long lastSampleBytes;
+
+    private long lastSampleNanos = startNanos;
+
+    private long lastProgressNanos = startNanos;
+
+
+    TransferProgress(Direction direction, String bucketName, String objectKey, long knownTotalBytes) {
+        this.direction = direction;
+        this.bucketName = bucketName;
+        this.objectKey = objectKey;
+        this.knownTotalBytes = knownTotalBytes;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getObjectKey() {
+        return objectKey;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return 已传输字节数
+     */
+    public long getTransferredBytes() {
+        return transferredBytes.sum();
+    }
+
+    /**
+     * @return 总字节数，未知时为 -1
+     */
+    public long getTotalBytes() {
+        if (knownTotalBytes >= 0) {
+            return knownTotalBytes;
+        }
+        long length = contentLength.sum();
+        return length > 0 ? length : -1;
+    }
+
+    /**
+     * @return 完成百分比，总字节数未知时为 -1
+     */
+    public double getPercent() {
+        long total = getTotalBytes();
+        if (total < 0) {
+            return -1D;
+        }
+        return total == 0 ? 100D : Math.min(100D, getTransferredBytes() * 100D / total);
+    }
+
+    /**
+     * @return 最近一个采样间隔内的传输速率（字节/秒）
+     */
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * @return 已耗时，结束后为总耗时
+     */
+    public Duration getElapsed() {
+        long end = state == State.IN_PROGRESS ? System.nanoTime() : endNanos;
+        return Duration.ofNanos(end - startNanos);
+    }
+
+    void addTransferredBytes(long bytes) {
+        transferredBytes.add(bytes);
+    }
+
+    void addContentLength(long bytes) {
+        contentLength.add(bytes);
+    }
+
+    /**
+     * 采样速率
+     *
+     * @param now 当前时间（纳秒）
+     * @return 距上次有进度的时间（纳秒）
+     */
+    long sample(long now) {
+        long bytes = getTransferredBytes();
+        long elapsed = now - lastSampleNanos;
+        if (elapsed > 0) {
+            bytesPerSecond = (bytes - lastSampleBytes) * 1_000_000_000L / elapsed;
+        }
+        if (bytes != lastSampleBytes) {
+            lastProgressNanos = now;
+        }
+        lastSampleBytes = bytes;
+        lastSampleNanos = now;
+        return now - lastProgressNanos;
+    }
+
+    /**
+     * 结束跟踪，只有第一次调用生效
+     *
+     * @param finalState 结束状态
+     * @return 是否由本次调用结束
+     */
+    synchronized boolean finish(State finalState) {
+        if (state != State.IN_PROGRESS) {
+            return false;
+        }
+        endNanos = System.nanoTime();
+        state = finalState;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return direction + " " + bucketName + "/" + objectKey;
+    }
+
+}
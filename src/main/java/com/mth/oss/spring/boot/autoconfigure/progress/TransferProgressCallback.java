@@ -0,0 +1,28 @@
+package com.mth.oss.spring.boot.autoconfigure.progress;
+
+/**
+ * 传输进度回调
+ * <p>
+ * 由进度报告线程按固定间隔调用，不在传输线程中执行；实现应尽快返回
+ *
+ * @author <a href="mailto:ambiel127@163.com">Matianhao</a>
+ * @since 1.4
+ */
+public interface TransferProgressCallback {
+
+    /**
+     * 采样间隔到达时调用，传输期间每个间隔调用一次
+     *
+     * @param progress 传输进度
+     */
+    void onProgress(TransferProgress progress);
+
+    /**
+     * 传输完成或停止跟踪时调用一次
+     *
+     * @param progress 传输进度，{@link TransferProgress#getState()} 为结束状态
+     */
+    default void onFinish(TransferProgress progress) {
+    }
+
+}
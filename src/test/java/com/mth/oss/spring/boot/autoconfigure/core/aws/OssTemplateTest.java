@@ -2,7 +2,22 @@ package com.mth.oss.spring.boot.autoconfigure.core.aws;
 
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.*;
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.ObjectDiskCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.ObjectMemoryCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.ObjectMetadataCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.cache.PresignedUrlCache;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.transfer.ByteBufferPool;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.transfer.DownloadCoalescer;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.transfer.RangedDownloadEngine;
+import com.mth.oss.spring.boot.autoconfigure.factory.OssClientFactory;
+import com.mth.oss.spring.boot.autoconfigure.progress.ProgressReporter;
+import com.mth.oss.spring.boot.autoconfigure.progress.TransferProgress;
+import com.mth.oss.spring.boot.autoconfigure.progress.TransferProgressCallback;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.SneakyThrows;
+import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
@@ -15,14 +30,19 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.unit.DataSize;
 
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -48,6 +68,15 @@ public class OssTemplateTest {
     @Autowired(required = false)
     private OssTemplate ossTemplate;
 
+    @Autowired(required = false)
+    private OssAsyncTemplate ossAsyncTemplate;
+
+    @Autowired(required = false)
+    private OssClientFactory ossClientFactory;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
 
     // ------------------------------------------------------------
     // ----------------------- bucket 管理 ------------------------
@@ -127,6 +156,36 @@ public class OssTemplateTest {
         assertFileAndClean(objectKey);
     }
 
+    @Test
+    void testUploadWithProgress() {
+        ProgressReporter progressReporter = new ProgressReporter(new OssProperties.Progress(), new ArrayList<>());
+        List<TransferProgress> finished = new ArrayList<>();
+
+        // 为单次上传指定回调
+        PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, testObjectKey, testFile);
+        putObjectRequest.setGeneralProgressListener(progressReporter.track(
+                TransferProgress.Direction.UPLOAD, bucketName, testObjectKey, testFile.length(),
+                new TransferProgressCallback() {
+                    @Override
+                    public void onProgress(TransferProgress progress) {
+                        System.out.println(progress.getTransferredBytes() + "/" + progress.getTotalBytes());
+                    }
+
+                    @Override
+                    public void onFinish(TransferProgress progress) {
+                        finished.add(progress);
+                    }
+                }));
+        String objectKey = ossTemplate.upload(putObjectRequest);
+        progressReporter.finish(putObjectRequest.getGeneralProgressListener());
+        progressReporter.shutdown();
+
+        // 验证
+        assertEquals(1, finished.size());
+        assertEquals(testFile.length(), finished.get(0).getTransferredBytes());
+        assertFileAndClean(objectKey);
+    }
+
     @Test
     void testReplaceUpload() {
         // 上传
@@ -157,6 +216,26 @@ public class OssTemplateTest {
         assertNotNull(url);
     }
 
+    @Test
+    void testPresignedUrlCache() {
+        OssProperties properties = new OssProperties();
+        properties.setBucketName(bucketName);
+        PresignedUrlCache cache = new PresignedUrlCache(properties.getPresignCache());
+
+        OssTemplate cachedTemplate = new OssTemplate(ossTemplate.getClientInstance(), properties);
+        cachedTemplate.setOssHandler(null);
+        cachedTemplate.setPresignedUrlCache(cache);
+
+        // 相同对象在剩余有效期充足时返回相同的 URL
+        URL url = cachedTemplate.presignedUrlForAccess(testObjectKey);
+        assertEquals(url, cachedTemplate.presignedUrlForAccess(testObjectKey));
+        // 请求方法不同时重新签名
+        assertNotEquals(url, cachedTemplate.presignedUrlForUpload(testObjectKey));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
     @Test
     void testGeneratePresignedUrl() throws IOException {
         // 上传
@@ -369,6 +448,28 @@ public class OssTemplateTest {
     }
 
 
+    @SneakyThrows
+    @Test
+    void testUploadLargeFileInParts() {
+        // 生成超过分片上传阈值（默认 16MB）的文件
+        File largeFile = File.createTempFile("oss-large-", ".bin");
+        largeFile.deleteOnExit();
+        try (RandomAccessFile raf = new RandomAccessFile(largeFile, "rw")) {
+            raf.setLength(20 * 1024 * 1024);
+        }
+
+        // 上传，自动使用并发分片上传
+        String objectKey = ossTemplate.upload(largeFile, testObjectKey);
+
+        // 验证
+        try (S3Object object = ossTemplate.getObject(objectKey)) {
+            assertEquals(largeFile.length(), object.getObjectMetadata().getContentLength());
+        }
+        assertFileAndClean(objectKey);
+        assertTrue(largeFile.delete());
+    }
+
+
     // ------------------------------------------------------------
     // ---------------------- download 下载 -----------------------
     // ------------------------------------------------------------
@@ -413,6 +514,31 @@ public class OssTemplateTest {
         assertTrue(testDownLoadFile.delete());
     }
 
+    @SneakyThrows
+    @Test
+    void testDownloadToFileInRanges() {
+        // 上传超过一个分段大小的文件
+        File largeFile = File.createTempFile("oss-large-", ".bin");
+        largeFile.deleteOnExit();
+        try (RandomAccessFile raf = new RandomAccessFile(largeFile, "rw")) {
+            raf.setLength(20 * 1024 * 1024);
+        }
+        String objectKey = ossTemplate.upload(largeFile, testObjectKey);
+
+        // 分段下载
+        OssProperties.Transfer transfer = new OssProperties.Transfer();
+        RangedDownloadEngine engine = new RangedDownloadEngine(ossTemplate.getClientInstance(), null, transfer);
+        ObjectMetadata metadata = engine.download(new GetObjectRequest(bucketName, objectKey), testDownLoadFile);
+
+        // 验证
+        assertEquals(largeFile.length(), metadata.getInstanceLength());
+        assertEquals(largeFile.length(), metadata.getContentLength());
+        assertEquals(largeFile.length(), testDownLoadFile.length());
+        assertFileAndClean(objectKey);
+        assertTrue(largeFile.delete());
+        assertTrue(testDownLoadFile.delete());
+    }
+
     @Test
     void testDownloadToByteArray() throws IOException {
         // 上传
@@ -429,6 +555,21 @@ public class OssTemplateTest {
         assertFileAndClean(objectKey);
     }
 
+    @Test
+    void testDownloadToByteBuffer() throws IOException {
+        // 上传
+        String objectKey = ossTemplate.upload(testFile);
+
+        // 下载到缓冲池分配的缓冲区
+        ByteBufferPool pool = new ByteBufferPool(16 * 1024 * 1024, false);
+        ByteBuffer buffer = ossTemplate.downloadToByteBuffer(objectKey, pool::acquire);
+
+        // 验证oss文件并清理
+        assertEquals(testFile.length(), buffer.remaining());
+        pool.release(buffer);
+        assertFileAndClean(objectKey);
+    }
+
     @Test
     void testDownloadToOutputStream() throws IOException {
         // 上传
@@ -467,6 +608,32 @@ public class OssTemplateTest {
         assertFileAndClean(objectKey);
     }
 
+    @Test
+    void testObjectMetadataCache() {
+        OssProperties properties = new OssProperties();
+        properties.setBucketName(bucketName);
+        ObjectMetadataCache cache = new ObjectMetadataCache(properties.getMetadataCache());
+
+        OssTemplate cachedTemplate = new OssTemplate(ossTemplate.getClientInstance(), properties);
+        cachedTemplate.setOssHandler(null);
+        cachedTemplate.setObjectMetadataCache(cache);
+
+        // 不存在的结果同样缓存
+        assertFalse(cachedTemplate.objectExist(testObjectKey));
+        assertFalse(cachedTemplate.objectExist(testObjectKey));
+        assertEquals(1, cache.getMissCount());
+
+        // 上传后失效，重新查询
+        String objectKey = cachedTemplate.upload(testFile, testObjectKey);
+        assertTrue(cachedTemplate.objectExist(objectKey));
+        assertEquals(testFile.length(), cachedTemplate.getObjectMetadata(objectKey).getContentLength());
+        assertEquals(2, cache.getMissCount());
+
+        // 删除后直接记为不存在
+        assertTrue(cachedTemplate.deleteObject(objectKey));
+        assertEquals(2, cache.getMissCount());
+    }
+
     @Test
     void testGetObject() {
         // 上传
@@ -478,6 +645,87 @@ public class OssTemplateTest {
         assertFileAndClean(objectKey);
     }
 
+    @Test
+    @SneakyThrows
+    void testObjectDiskCache() {
+        OssProperties properties = new OssProperties();
+        properties.setBucketName(bucketName);
+        properties.getDiskCache().setDirectory(Files.createTempDirectory("oss-disk-cache").toString());
+        ObjectDiskCache cache = new ObjectDiskCache(properties.getDiskCache());
+
+        OssTemplate cachedTemplate = new OssTemplate(ossTemplate.getClientInstance(), properties);
+        cachedTemplate.setOssHandler(null);
+        cachedTemplate.setObjectDiskCache(cache);
+
+        String objectKey = cachedTemplate.upload(new ByteArrayInputStream("v1".getBytes()), testObjectKey);
+        assertArrayEquals("v1".getBytes(), cachedTemplate.download(objectKey));
+        // 第二次读取缓存文件
+        assertArrayEquals("v1".getBytes(), cachedTemplate.download(objectKey));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+
+        // 覆盖上传后缓存失效
+        cachedTemplate.upload(new ByteArrayInputStream("v2".getBytes()), objectKey);
+        assertArrayEquals("v2".getBytes(), cachedTemplate.download(objectKey));
+        assertEquals(2, cache.getMissCount());
+
+        cachedTemplate.deleteObject(objectKey);
+        assertEquals(0, cache.size());
+        cache.shutdown();
+    }
+
+    @Test
+    @SneakyThrows
+    void testObjectMemoryCache() {
+        OssProperties properties = new OssProperties();
+        properties.setBucketName(bucketName);
+        ObjectMemoryCache cache = new ObjectMemoryCache(properties.getMemoryCache());
+
+        OssTemplate cachedTemplate = new OssTemplate(ossTemplate.getClientInstance(), properties);
+        cachedTemplate.setOssHandler(null);
+        cachedTemplate.setObjectMemoryCache(cache);
+
+        String objectKey = cachedTemplate.upload(new ByteArrayInputStream("{}".getBytes()), testObjectKey);
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals("{}".getBytes(), cachedTemplate.download(objectKey));
+        }
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getWeightedSize());
+
+        // 删除后缓存失效
+        cachedTemplate.deleteObject(objectKey);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @SneakyThrows
+    void testDownloadCoalescer() {
+        String objectKey = ossTemplate.upload(testFile, testObjectKey);
+        AmazonS3 client = ossTemplate.getClientInstance();
+        DownloadCoalescer coalescer = new DownloadCoalescer(new OssProperties().getTransfer());
+        AtomicInteger requests = new AtomicInteger();
+        GetObjectRequest request = new GetObjectRequest(bucketName, objectKey);
+
+        // 第一个调用方尚未读完时，第二个调用方共享同一次请求
+        try (S3Object first = coalescer.getObject(request, r -> {
+            requests.incrementAndGet();
+            return client.getObject(r);
+        }); S3Object second = coalescer.getObject(request, r -> {
+            requests.incrementAndGet();
+            return client.getObject(r);
+        })) {
+            assertEquals(1, requests.get());
+            assertEquals(1, coalescer.getCoalescedCount());
+            assertArrayEquals(IOUtils.toByteArray(first.getObjectContent()),
+                              IOUtils.toByteArray(second.getObjectContent()));
+        }
+        assertEquals(0, coalescer.getInFlightCount());
+
+        // 验证
+        assertFileAndClean(objectKey);
+    }
+
     @Test
     void testListObjects() {
         // 上传
@@ -530,6 +778,52 @@ public class OssTemplateTest {
         assertFileAndClean(objectKey);
     }
 
+    @Test
+    void testStreamObjects() {
+        // 上传多个对象，每页 1 个，验证跨页列举
+        List<String> objectKeys = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            objectKeys.add(ossTemplate.upload(testFile, "stream/" + i + "/" + testObjectKey));
+        }
+
+        ListObjectsV2Request request = new ListObjectsV2Request()
+                .withBucketName(bucketName)
+                .withPrefix("stream/")
+                .withMaxKeys(1);
+        try (Stream<S3ObjectSummary> stream = ossTemplate.streamObjects(request)) {
+            List<String> listedKeys = stream.map(S3ObjectSummary::getKey).collect(Collectors.toList());
+            assertEquals(objectKeys, listedKeys);
+        }
+
+        // 验证
+        objectKeys.forEach(this::assertFileAndClean);
+    }
+
+    @Test
+    void testParallelStreamObjects() {
+        // 上传到多个子目录，按子目录划分分片
+        List<String> objectKeys = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            objectKeys.add(ossTemplate.upload(testFile, "parallel/" + i + "/" + testObjectKey));
+        }
+
+        try (Stream<S3ObjectSummary> stream = ossTemplate.parallelStreamObjects("parallel/", true)) {
+            List<String> listedKeys = stream.map(S3ObjectSummary::getKey).collect(Collectors.toList());
+            assertEquals(objectKeys, listedKeys);
+        }
+
+        // 按键区间划分分片
+        ListObjectsV2Request request = new ListObjectsV2Request()
+                .withBucketName(bucketName)
+                .withPrefix("parallel/");
+        try (Stream<S3ObjectSummary> stream = ossTemplate.parallelStreamObjectsByKeyRange(request, null, false)) {
+            assertEquals(objectKeys.size(), stream.count());
+        }
+
+        // 验证
+        objectKeys.forEach(this::assertFileAndClean);
+    }
+
     @Test
     void testDeleteObject() {
         // 上传
@@ -551,7 +845,7 @@ public class OssTemplateTest {
         ArrayList<String> objectKeys = new ArrayList<>();
         objectKeys.add(objectKey1);
         objectKeys.add(objectKey2);
-        List<DeleteObjectsResult.DeletedObject> result = ossTemplate.deleteObjects(objectKeys);
+        List<MultiObjectDeleteException.DeleteError> result = ossTemplate.deleteObjects(objectKeys);
 
         // 验证
         assertFalse(result.iterator().hasNext());
@@ -559,6 +853,25 @@ public class OssTemplateTest {
         assertFalse(ossTemplate.objectExist(objectKey2));
     }
 
+    @Test
+    void testDeletePrefix() {
+        // 上传超过单次删除上限的文件，验证分批删除
+        List<String> objectKeys = new ArrayList<>();
+        for (int i = 0; i < 1001; i++) {
+            objectKeys.add(ossTemplate.upload(testFile, "purge/" + i + ".txt"));
+        }
+        String keptKey = ossTemplate.upload(testFile, "purge2/kept.txt");
+
+        // 删除，返回删除失败的文件列表
+        List<MultiObjectDeleteException.DeleteError> result = ossTemplate.deletePrefix("purge/");
+
+        // 验证
+        assertTrue(result.isEmpty());
+        assertFalse(ossTemplate.objectExist(objectKeys.get(0)));
+        assertFalse(ossTemplate.objectExist(objectKeys.get(1000)));
+        assertFileAndClean(keptKey);
+    }
+
     @Test
     void testCopyObject() {
         // 上传
@@ -621,6 +934,41 @@ public class OssTemplateTest {
         assertFileAndClean(destinationKey);
     }
 
+    @Test
+    void testMultipartCopy() {
+        // 分片大小不能小于 5MB
+        byte[] content = new byte[12 * 1024 * 1024];
+        String objectKey = ossTemplate.upload(new ByteArrayInputStream(content), testObjectKey);
+
+        OssProperties properties = new OssProperties();
+        properties.setBucketName(bucketName);
+        properties.getTransfer().setMultipartCopyThreshold(DataSize.ofMegabytes(5));
+        properties.getTransfer().setCopyPartSize(DataSize.ofMegabytes(5));
+        OssTemplate copyTemplate = new OssTemplate(ossTemplate.getClientInstance(), properties);
+        copyTemplate.setOssHandler(null);
+
+        // 按 3 个分片拷贝，合并后的 ETag 以分片数结尾
+        String destinationKey = "testDestinationKey.txt";
+        assertTrue(copyTemplate.moveObject(objectKey, destinationKey));
+        assertTrue(copyTemplate.getObjectMetadata(destinationKey).getETag().endsWith("-3"));
+        assertEquals(content.length, copyTemplate.getObjectMetadata(destinationKey).getContentLength());
+        assertFalse(copyTemplate.objectExist(objectKey));
+
+        assertTrue(copyTemplate.deleteObject(destinationKey));
+    }
+
+    @Test
+    void testAsyncUploadAndDownload() {
+        // 异步上传后下载
+        byte[] download = ossAsyncTemplate.upload(testFile, testObjectKey)
+                .thenCompose(objectKey -> ossAsyncTemplate.download(objectKey))
+                .join();
+
+        // 验证
+        assertEquals(testFile.length(), download.length);
+        assertTrue(ossAsyncTemplate.deleteObject(testObjectKey).join());
+    }
+
     @Test
     void testClientInstance() {
         // 直接使用客户端 api
@@ -631,6 +979,39 @@ public class OssTemplateTest {
         assertFileAndClean(testObjectKey);
     }
 
+    @Test
+    void testNamedClient() {
+        // 命名客户端使用独立的连接池
+        AmazonS3 bulkClient = ossClientFactory.getClient("bulk");
+        assertNotSame(ossTemplate.getClientInstance(), bulkClient);
+
+        // 使用命名客户端创建模板
+        OssTemplate bulkTemplate = new OssTemplate(bulkClient, ossClientFactory.getProperties("bulk"));
+        assertTrue(bulkTemplate.bucketExist());
+    }
+
+    @Test
+    void testOperationMetrics() {
+        // 开启 oss.metrics.enabled（默认）且存在 MeterRegistry 时，模板被代理并记录操作指标
+        double before = operationCount("objectExist", "success");
+        ossTemplate.objectExist(testObjectKey);
+        assertEquals(before + 1, operationCount("objectExist", "success"));
+
+        // 上传字节数
+        String objectKey = ossTemplate.upload(testFile, testObjectKey);
+        assertNotNull(meterRegistry.find("oss.transfer.bytes")
+                                   .tags("operation", "upload", "bucket", bucketName, "direction", "upload")
+                                   .counter());
+        assertFileAndClean(objectKey);
+    }
+
+    private double operationCount(String operation, String outcome) {
+        Timer timer = meterRegistry.find("oss.operation")
+                                   .tags("operation", operation, "bucket", bucketName, "outcome", outcome)
+                                   .timer();
+        return timer == null ? 0D : timer.count();
+    }
+
     /**
      * 验证文件并清理文件
      *
@@ -1,15 +1,34 @@
 package com.mth.oss.spring.boot.autoconfigure.core.local;
 
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.*;
+import com.mth.oss.spring.boot.autoconfigure.OssProperties;
+import com.mth.oss.spring.boot.autoconfigure.core.aws.OssTemplate;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectListing;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectMetadata;
+import com.mth.oss.spring.boot.autoconfigure.core.local.index.LocalObjectUsage;
+import com.mth.oss.spring.boot.autoconfigure.core.local.layout.LocalLayoutMigrator;
+import com.mth.oss.spring.boot.autoconfigure.core.local.server.LocalOssServer;
+import com.mth.oss.spring.boot.autoconfigure.exception.IORuntimeException;
+import com.mth.oss.spring.boot.autoconfigure.factory.OssClientFactory;
 import lombok.SneakyThrows;
+import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,6 +53,12 @@ public class LocalOssTemplateTest {
     @Autowired(required = false)
     private LocalOssTemplate localOssTemplate;
 
+    @Autowired(required = false)
+    private LocalOssAsyncTemplate localOssAsyncTemplate;
+
+    @Autowired
+    private OssProperties ossProperties;
+
     @Test
     void testLocalOssTemplate() {
         System.out.println("localOssTemplate: " + localOssTemplate.toString());
@@ -84,6 +109,32 @@ public class LocalOssTemplateTest {
         assertFileAndClean(key);
     }
 
+    @Test
+    @SneakyThrows
+    void testUploadIsAtomic() {
+        // 覆盖上传
+        String key = localOssTemplate.upload(new ByteArrayInputStream("first".getBytes()), testObjectKey);
+        localOssTemplate.upload(testFile, key);
+        assertArrayEquals(FileUtils.readFileToByteArray(testFile), localOssTemplate.download(key));
+
+        // 上传失败时保留原内容，且不残留临时文件
+        InputStream failing = new SequenceInputStream(new ByteArrayInputStream("partial".getBytes()),
+                                                      new InputStream() {
+                                                          @Override
+                                                          public int read() throws IOException {
+                                                              throw new IOException("broken stream");
+                                                          }
+                                                      });
+        assertThrows(IORuntimeException.class, () -> localOssTemplate.upload(failing, key));
+        assertArrayEquals(FileUtils.readFileToByteArray(testFile), localOssTemplate.download(key));
+        File[] siblings = localOssTemplate.getObject(key).getParentFile().listFiles();
+        assertNotNull(siblings);
+        assertTrue(Arrays.stream(siblings).noneMatch(file -> AtomicFileWriter.isTemporaryFile(file.toPath())));
+
+        // 验证
+        assertFileAndClean(key);
+    }
+
 
     // ------------------------------------------------------------
     // ---------------------- download 下载 -----------------------
@@ -152,6 +203,50 @@ public class LocalOssTemplateTest {
     // ------------------------------------------------------------
 
 
+    @Test
+    @SneakyThrows
+    void testDownloadToChannel() {
+        // 上传
+        String key = localOssTemplate.upload(testFile, testObjectKey);
+
+        // 下载到通道
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        localOssTemplate.download(key, Channels.newChannel(outputStream));
+        assertArrayEquals(FileUtils.readFileToByteArray(testFile), outputStream.toByteArray());
+
+        // 验证
+        assertFileAndClean(key);
+    }
+
+    @Test
+    @SneakyThrows
+    void testMap() {
+        // 上传
+        String key = localOssTemplate.upload(testFile, testObjectKey);
+        byte[] content = FileUtils.readFileToByteArray(testFile);
+
+        // 映射整个对象
+        ByteBuffer buffer = localOssTemplate.map(key);
+        assertTrue(buffer.isReadOnly());
+        byte[] mapped = new byte[buffer.remaining()];
+        buffer.get(mapped);
+        assertArrayEquals(content, mapped);
+
+        // 映射一段
+        ByteBuffer slice = localOssTemplate.map(key, 1, content.length - 1);
+        assertEquals(content.length - 1, slice.remaining());
+        assertEquals(content[1], slice.get(0));
+
+        // 覆盖上传后重新映射，已返回的缓冲区内容不变
+        localOssTemplate.upload(new ByteArrayInputStream("replaced".getBytes()), key);
+        assertEquals(content[1], slice.get(0));
+        ByteBuffer replaced = localOssTemplate.map(key);
+        assertEquals("replaced".length(), replaced.remaining());
+
+        // 验证
+        assertFileAndClean(key);
+    }
+
     @Test
     void testObjectExist() {
         // 上传
@@ -218,6 +313,328 @@ public class LocalOssTemplateTest {
         assertFileAndClean(destinationKey);
     }
 
+    @Test
+    @SneakyThrows
+    void testHardLinkCopyObject() {
+        File basePath = Files.createTempDirectory("local-oss-link").toFile();
+        OssProperties linkProperties = new OssProperties();
+        BeanUtils.copyProperties(ossProperties, linkProperties);
+        linkProperties.setLocal(new OssProperties.Local());
+        linkProperties.getLocal().setHardLinkCopy(true);
+        linkProperties.setLocalBasePath(basePath.getPath());
+        LocalOssTemplate linkTemplate = new LocalOssTemplate(linkProperties);
+
+        // 重复拷贝到已共享内容的目标视为成功
+        linkTemplate.upload(new ByteArrayInputStream("link".getBytes()), "a.txt");
+        assertTrue(linkTemplate.copyObject("a.txt", "b.txt"));
+        assertTrue(linkTemplate.copyObject("a.txt", "b.txt"));
+        assertTrue(linkTemplate.copyObject("b.txt", "a.txt"));
+        assertTrue(Files.isSameFile(linkTemplate.getObject("a.txt").toPath(),
+                                    linkTemplate.getObject("b.txt").toPath()));
+
+        // 拷贝到自身仍然拒绝
+        assertThrows(IORuntimeException.class, () -> linkTemplate.copyObject("a.txt", "a.txt"));
+
+        // 下载到对象自身或其硬链接时拒绝，对象内容不被清空
+        assertThrows(IORuntimeException.class, () -> linkTemplate.download("a.txt", linkTemplate.getObject("a.txt")));
+        assertThrows(IORuntimeException.class, () -> linkTemplate.download("a.txt", linkTemplate.getObject("b.txt")));
+        assertEquals("link", new String(linkTemplate.download("a.txt")));
+
+        linkTemplate.shutdown();
+        FileUtils.deleteDirectory(basePath);
+    }
+
+
+    @Test
+    void testAsyncCopyObject() {
+        // 异步上传后拷贝
+        String destinationKey = "destinationDir/test.txt";
+        boolean copied = localOssAsyncTemplate.upload(testFile, testObjectKey)
+                .thenCompose(key -> localOssAsyncTemplate.copyObject(key, destinationKey))
+                .join();
+
+        // 验证
+        assertTrue(copied);
+        assertFileAndClean(testObjectKey);
+        assertFileAndClean(destinationKey);
+    }
+
+    @Test
+    @SneakyThrows
+    void testLocalOssServer() {
+        // 以随机端口启动内嵌 S3 服务
+        OssProperties serverProperties = new OssProperties();
+        BeanUtils.copyProperties(ossProperties, serverProperties);
+        serverProperties.setLocalServer(new OssProperties.LocalServer());
+        serverProperties.getLocalServer().setPort(0);
+        LocalOssServer localOssServer = new LocalOssServer(localOssTemplate, serverProperties);
+        localOssServer.start();
+
+        // OssTemplate 以路径风格访问内嵌服务
+        OssProperties clientProperties = new OssProperties();
+        BeanUtils.copyProperties(serverProperties, clientProperties);
+        clientProperties.setEndpoint(localOssServer.getEndpoint());
+        clientProperties.setPathStyleAccess(true);
+        OssClientFactory ossClientFactory = new OssClientFactory(clientProperties);
+        OssTemplate ossTemplate = new OssTemplate(ossClientFactory.getAwsClient(), clientProperties);
+        ossTemplate.setOssHandler(null);
+
+        try {
+            assertTrue(ossTemplate.bucketExist());
+            ossTemplate.upload(testFile, testObjectKey);
+
+            // 通过 S3 协议写入的对象可以直接用本地模板读取
+            String key = clientProperties.getBucketName() + "/" + testObjectKey;
+            assertArrayEquals(FileUtils.readFileToByteArray(testFile), localOssTemplate.download(key));
+            assertArrayEquals(FileUtils.readFileToByteArray(testFile), ossTemplate.download(testObjectKey));
+            assertEquals(1, ossTemplate.listObjects("localOssSpringBootStarterTestDir").size());
+
+            assertTrue(ossTemplate.deleteObject(testObjectKey));
+            assertFalse(localOssTemplate.objectExist(key));
+        } finally {
+            ossClientFactory.destroy();
+            localOssServer.shutdown();
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testLocalOssServerPaging() {
+        File basePath = Files.createTempDirectory("local-oss-server").toFile();
+        OssProperties serverProperties = new OssProperties();
+        BeanUtils.copyProperties(ossProperties, serverProperties);
+        serverProperties.setLocal(new OssProperties.Local());
+        serverProperties.setLocalBasePath(basePath.getPath());
+        serverProperties.setLocalServer(new OssProperties.LocalServer());
+        serverProperties.getLocalServer().setPort(0);
+        LocalOssTemplate serverTemplate = new LocalOssTemplate(serverProperties);
+        LocalOssServer localOssServer = new LocalOssServer(serverTemplate, serverProperties);
+        localOssServer.start();
+
+        OssProperties clientProperties = new OssProperties();
+        BeanUtils.copyProperties(serverProperties, clientProperties);
+        clientProperties.setEndpoint(localOssServer.getEndpoint());
+        clientProperties.setPathStyleAccess(true);
+        OssClientFactory ossClientFactory = new OssClientFactory(clientProperties);
+        AmazonS3 client = ossClientFactory.getAwsClient();
+        String bucketName = clientProperties.getBucketName();
+
+        try {
+            for (int i = 0; i < 5; i++) {
+                client.putObject(bucketName, "dir" + (i % 2) + "/" + i + ".txt", "paging");
+            }
+
+            // 按续传标记逐页列举
+            ListObjectsV2Result page = client.listObjectsV2(new ListObjectsV2Request()
+                                                                    .withBucketName(bucketName)
+                                                                    .withMaxKeys(2));
+            assertTrue(page.isTruncated());
+            assertEquals(Arrays.asList("dir0/0.txt", "dir0/2.txt"), page.getObjectSummaries().stream()
+                    .map(S3ObjectSummary::getKey).collect(Collectors.toList()));
+            page = client.listObjectsV2(new ListObjectsV2Request()
+                                                .withBucketName(bucketName)
+                                                .withMaxKeys(2)
+                                                .withContinuationToken(page.getNextContinuationToken()));
+            assertEquals("dir0/4.txt", page.getObjectSummaries().get(0).getKey());
+
+            // 分片上传列举按 max-uploads 分页
+            client.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, "a.bin"));
+            client.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, "b.bin"));
+            MultipartUploadListing uploads = client.listMultipartUploads(
+                    new ListMultipartUploadsRequest(bucketName).withMaxUploads(1));
+            assertTrue(uploads.isTruncated());
+            assertEquals("a.bin", uploads.getNextKeyMarker());
+            uploads = client.listMultipartUploads(new ListMultipartUploadsRequest(bucketName)
+                                                          .withMaxUploads(1)
+                                                          .withKeyMarker(uploads.getNextKeyMarker())
+                                                          .withUploadIdMarker(uploads.getNextUploadIdMarker()));
+            assertFalse(uploads.isTruncated());
+            assertEquals("b.bin", uploads.getMultipartUploads().get(0).getKey());
+        } finally {
+            ossClientFactory.destroy();
+            localOssServer.shutdown();
+            serverTemplate.shutdown();
+            FileUtils.deleteDirectory(basePath);
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testHashedLayoutMigration() {
+        // 在临时目录中按平铺布局写入
+        File basePath = Files.createTempDirectory("local-oss-layout").toFile();
+        OssProperties flatProperties = new OssProperties();
+        BeanUtils.copyProperties(ossProperties, flatProperties);
+        flatProperties.setLocal(new OssProperties.Local());
+        flatProperties.setLocalBasePath(basePath.getPath());
+        LocalOssTemplate flatTemplate = new LocalOssTemplate(flatProperties);
+        String key = flatTemplate.upload(new ByteArrayInputStream("layout".getBytes()), testObjectKey);
+
+        // 迁移为哈希布局
+        OssProperties hashedProperties = new OssProperties();
+        BeanUtils.copyProperties(flatProperties, hashedProperties);
+        hashedProperties.setLocal(new OssProperties.Local());
+        hashedProperties.getLocal().setLayout(OssProperties.Local.Layout.HASHED);
+        LocalOssTemplate hashedTemplate = new LocalOssTemplate(hashedProperties);
+        LocalLayoutMigrator.Result result = LocalLayoutMigrator.migrate(
+                basePath.toPath(), flatTemplate.getObjectLayout(), hashedTemplate.getObjectLayout());
+        assertEquals(1, result.getMoved());
+
+        // 对象键不变，文件位于哈希目录下
+        assertFalse(flatTemplate.objectExist(key));
+        assertEquals("layout", new String(hashedTemplate.download(key)));
+        assertNotEquals(flatTemplate.getObject(key).getParentFile(), hashedTemplate.getObject(key).getParentFile());
+
+        // 重复迁移跳过已迁移的文件
+        assertEquals(0, LocalLayoutMigrator.migrate(
+                basePath.toPath(), flatTemplate.getObjectLayout(), hashedTemplate.getObjectLayout()).getMoved());
+
+        FileUtils.deleteDirectory(basePath);
+    }
+
+    @Test
+    @SneakyThrows
+    void testListObjects() {
+        File basePath = Files.createTempDirectory("local-oss-index").toFile();
+        OssProperties indexProperties = new OssProperties();
+        BeanUtils.copyProperties(ossProperties, indexProperties);
+        indexProperties.setLocal(new OssProperties.Local());
+        indexProperties.getLocal().setIndexEnabled(true);
+        indexProperties.setLocalBasePath(basePath.getPath());
+        LocalOssTemplate indexTemplate = new LocalOssTemplate(indexProperties);
+        indexTemplate.upload(new ByteArrayInputStream("a".getBytes()), "dir/a.txt", "text/plain");
+        indexTemplate.upload(new ByteArrayInputStream("b".getBytes()), "dir/sub/b.txt");
+        indexTemplate.upload(new ByteArrayInputStream("c".getBytes()), "dir/sub/c.txt");
+        indexTemplate.copyObject("dir/a.txt", "other/a.txt");
+
+        assertEquals("text/plain", indexTemplate.getObjectMetadata("dir/a.txt").getContentType());
+        assertEquals(indexTemplate.getObjectMetadata("dir/a.txt").getChecksum(),
+                     indexTemplate.getObjectMetadata("other/a.txt").getChecksum());
+
+        // 分隔符合并公共前缀
+        LocalObjectListing listing = indexTemplate.listObjects("dir/", "/", null, 10);
+        assertEquals(1, listing.getObjects().size());
+        assertEquals(Arrays.asList("dir/sub/"), listing.getCommonPrefixes());
+
+        // 分页
+        listing = indexTemplate.listObjects("dir/", null, null, 2);
+        assertTrue(listing.isTruncated());
+        listing = indexTemplate.listObjects("dir/", null, listing.getNextStartAfter(), 2);
+        assertFalse(listing.isTruncated());
+        assertEquals("dir/sub/c.txt", listing.getObjects().get(0).getObjectKey());
+
+        // 删除后从索引移除，重新打开索引后保持一致
+        assertTrue(indexTemplate.deleteObject("dir/sub/c.txt"));
+        indexTemplate.shutdown();
+        LocalOssTemplate reopenedTemplate = new LocalOssTemplate(indexProperties);
+        assertEquals(3, reopenedTemplate.listObjects("").size());
+        assertNull(reopenedTemplate.getObjectMetadata("dir/sub/c.txt"));
+        reopenedTemplate.shutdown();
+
+        FileUtils.deleteDirectory(basePath);
+    }
+
+    @Test
+    @SneakyThrows
+    void testWalkObjects() {
+        File basePath = Files.createTempDirectory("local-oss-walk").toFile();
+        OssProperties walkProperties = new OssProperties();
+        BeanUtils.copyProperties(ossProperties, walkProperties);
+        walkProperties.setLocal(new OssProperties.Local());
+        walkProperties.getLocal().setIndexEnabled(false);
+        walkProperties.setLocalBasePath(basePath.getPath());
+        LocalOssTemplate walkTemplate = new LocalOssTemplate(walkProperties);
+        for (int i = 0; i < 30; i++) {
+            walkTemplate.upload(new ByteArrayInputStream(new byte[i]), "dir" + (i % 3) + "/" + i + ".bin");
+        }
+
+        try (Stream<LocalObjectMetadata> objects = walkTemplate.walkObjects("dir1/", Long.MAX_VALUE)) {
+            assertEquals(10, objects.count());
+        }
+        try (Stream<LocalObjectMetadata> objects = walkTemplate.walkObjects("", 5)) {
+            assertEquals(5, objects.count());
+        }
+
+        // 未开启索引时遍历目录分页
+        LocalObjectListing listing = walkTemplate.listObjects("", "/", null, 2);
+        assertEquals(Arrays.asList("dir0/", "dir1/"), listing.getCommonPrefixes());
+        assertTrue(listing.isTruncated());
+
+        LocalObjectUsage usage = walkTemplate.getUsage("");
+        assertEquals(30, usage.getCount());
+        assertEquals(435, usage.getSize());
+        List<LocalObjectUsage> usages = walkTemplate.getUsage("", "/");
+        assertEquals(3, usages.size());
+        assertEquals(10, usages.get(0).getCount());
+
+        FileUtils.deleteDirectory(basePath);
+    }
+
+    @Test
+    @SneakyThrows
+    void testDeduplicate() {
+        File basePath = Files.createTempDirectory("local-oss-dedup").toFile();
+        OssProperties dedupProperties = new OssProperties();
+        BeanUtils.copyProperties(ossProperties, dedupProperties);
+        dedupProperties.setLocal(new OssProperties.Local());
+        dedupProperties.getLocal().setDeduplicate(true);
+        dedupProperties.setLocalBasePath(basePath.getPath());
+        LocalOssTemplate dedupTemplate = new LocalOssTemplate(dedupProperties);
+
+        // 相同内容共享同一个文件
+        dedupTemplate.upload(new ByteArrayInputStream("dedup".getBytes()), "a.txt");
+        dedupTemplate.upload(new ByteArrayInputStream("dedup".getBytes()), "b.txt");
+        dedupTemplate.copyObject("a.txt", "c.txt");
+        Path shared = dedupTemplate.getObject("a.txt").toPath();
+        assertTrue(Files.isSameFile(shared, dedupTemplate.getObject("b.txt").toPath()));
+        assertTrue(Files.isSameFile(shared, dedupTemplate.getObject("c.txt").toPath()));
+
+        // 覆盖上传不影响共享内容的其他文件
+        dedupTemplate.upload(new ByteArrayInputStream("changed".getBytes()), "a.txt");
+        assertEquals("dedup", new String(dedupTemplate.download("b.txt")));
+
+        // 内容仍被引用时不回收
+        assertEquals(0, dedupTemplate.collectGarbage().getDeleted());
+        dedupTemplate.deleteObject("b.txt");
+        dedupTemplate.deleteObject("c.txt");
+        assertEquals(1, dedupTemplate.collectGarbage().getDeleted());
+        assertEquals("changed", new String(dedupTemplate.download("a.txt")));
+
+        dedupTemplate.shutdown();
+        FileUtils.deleteDirectory(basePath);
+    }
+
+    @Test
+    @SneakyThrows
+    void testDeduplicateSameKey() {
+        File basePath = Files.createTempDirectory("local-oss-dedup").toFile();
+        OssProperties dedupProperties = new OssProperties();
+        BeanUtils.copyProperties(ossProperties, dedupProperties);
+        dedupProperties.setLocal(new OssProperties.Local());
+        dedupProperties.getLocal().setDeduplicate(true);
+        dedupProperties.setLocalBasePath(basePath.getPath());
+        LocalOssTemplate dedupTemplate = new LocalOssTemplate(dedupProperties);
+        LocalBlobStore blobStore = new LocalBlobStore(basePath.toPath(), dedupProperties.getLocal());
+
+        // 相同内容重复上传到同一对象
+        File source = new File(basePath, "source.txt");
+        FileUtils.writeStringToFile(source, "dedup", "UTF-8");
+        dedupTemplate.upload(source, "dir/a.txt");
+        dedupTemplate.upload(source, "dir/a.txt");
+        String digest = LocalBlobStore.toHex(LocalBlobStore.newDigest().digest("dedup".getBytes()));
+        assertEquals(1, blobStore.getReferenceCount(digest));
+        try (Stream<Path> files = Files.walk(basePath.toPath())) {
+            assertTrue(files.noneMatch(AtomicFileWriter::isTemporaryFile));
+        }
+
+        // 对象删除后内容可被回收
+        dedupTemplate.deleteObject("dir/a.txt");
+        assertEquals(1, dedupTemplate.collectGarbage().getDeleted());
+
+        dedupTemplate.shutdown();
+        FileUtils.deleteDirectory(basePath);
+    }
+
 
     /**
      * 验证文件并清理文件